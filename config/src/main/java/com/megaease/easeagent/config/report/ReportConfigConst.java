@@ -31,11 +31,14 @@ public class ReportConfigConst {
     public static final String LOG_JSON_ENCODER_NAME = "LogJsonEncoder";
 
     public static final String HTTP_SPAN_JSON_ENCODER_NAME = "HttpSpanJsonEncoder";
+    public static final String SPAN_PROTO3_ENCODER_NAME = "SpanProto3Encoder";
+    public static final String HTTP_SPAN_PROTO3_ENCODER_NAME = "HttpSpanProto3Encoder";
 
     public static final String LOG_ENCODER_NAME = "StringEncoder";
 
     static final String DELIMITER = ".";
     public static final String TOPIC_KEY = "topic";
+    public static final String PARTITION_KEY = "partition";
     public static final String LOG_APPENDER_KEY = "appenderName";
 
     public static final String ENABLED_KEY = "enabled";
@@ -49,6 +52,13 @@ public class ReportConfigConst {
     public static final String ASYNC_MSG_MAX_BYTES_KEY = "messageMaxBytes";
     public static final String ASYNC_MSG_TIMEOUT_KEY = "messageTimeout";
     public static final String ASYNC_QUEUE_MAX_SIZE_KEY = "queuedMaxSize";
+    public static final String ASYNC_MAX_IN_FLIGHT_KEY = "maxInFlight";
+    public static final String ASYNC_SPOOL_DIR_KEY = "spool.dir";
+    public static final String ASYNC_SPOOL_MAX_SIZE_KEY = "spool.maxSize";
+    public static final String ASYNC_ADAPTIVE_KEY = "adaptive.enabled";
+    public static final String ASYNC_MIN_MSG_TIMEOUT_KEY = "adaptive.minMessageTimeout";
+    public static final String ASYNC_MAX_MSG_TIMEOUT_KEY = "adaptive.maxMessageTimeout";
+    public static final String ASYNC_MIN_MSG_BYTES_KEY = "adaptive.minMessageBytes";
 
     /**
      * Reporter v2 configuration
@@ -91,6 +101,13 @@ public class ReportConfigConst {
     public static final String LOG_ASYNC_MESSAGE_TIMEOUT = join(LOG_ASYNC, ASYNC_MSG_TIMEOUT_KEY);
     public static final String LOG_ASYNC_QUEUED_MAX_LOGS = join(LOG_ASYNC, "queuedMaxLogs");
     public static final String LOG_ASYNC_QUEUED_MAX_SIZE = join(LOG_ASYNC, ASYNC_QUEUE_MAX_SIZE_KEY);
+    public static final String LOG_ASYNC_MAX_IN_FLIGHT = join(LOG_ASYNC, ASYNC_MAX_IN_FLIGHT_KEY);
+    public static final String LOG_ASYNC_SPOOL_DIR = join(LOG_ASYNC, ASYNC_SPOOL_DIR_KEY);
+    public static final String LOG_ASYNC_SPOOL_MAX_SIZE = join(LOG_ASYNC, ASYNC_SPOOL_MAX_SIZE_KEY);
+    public static final String LOG_ASYNC_ADAPTIVE = join(LOG_ASYNC, ASYNC_ADAPTIVE_KEY);
+    public static final String LOG_ASYNC_MIN_MESSAGE_TIMEOUT = join(LOG_ASYNC, ASYNC_MIN_MSG_TIMEOUT_KEY);
+    public static final String LOG_ASYNC_MAX_MESSAGE_TIMEOUT = join(LOG_ASYNC, ASYNC_MAX_MSG_TIMEOUT_KEY);
+    public static final String LOG_ASYNC_MIN_MESSAGE_BYTES = join(LOG_ASYNC, ASYNC_MIN_MSG_BYTES_KEY);
 
     public static final String TRACE_SENDER_NAME = join(TRACE_SENDER, APPEND_TYPE_KEY);
     public static final String TRACE_SENDER_ENABLED_V2 = join(TRACE_SENDER, ENABLED_KEY);
@@ -101,11 +118,20 @@ public class ReportConfigConst {
     public static final String TRACE_ASYNC_MESSAGE_TIMEOUT_V2 = join(TRACE_ASYNC, ASYNC_MSG_TIMEOUT_KEY);
     public static final String TRACE_ASYNC_QUEUED_MAX_SPANS_V2 = join(TRACE_ASYNC, "queuedMaxSpans");
     public static final String TRACE_ASYNC_QUEUED_MAX_SIZE_V2 = join(TRACE_ASYNC, ASYNC_QUEUE_MAX_SIZE_KEY);
+    public static final String TRACE_ASYNC_MAX_IN_FLIGHT_V2 = join(TRACE_ASYNC, ASYNC_MAX_IN_FLIGHT_KEY);
+    public static final String TRACE_ASYNC_SPOOL_DIR_V2 = join(TRACE_ASYNC, ASYNC_SPOOL_DIR_KEY);
+    public static final String TRACE_ASYNC_SPOOL_MAX_SIZE_V2 = join(TRACE_ASYNC, ASYNC_SPOOL_MAX_SIZE_KEY);
+    public static final String TRACE_ASYNC_ADAPTIVE_V2 = join(TRACE_ASYNC, ASYNC_ADAPTIVE_KEY);
+    public static final String TRACE_ASYNC_MIN_MESSAGE_TIMEOUT_V2 = join(TRACE_ASYNC, ASYNC_MIN_MSG_TIMEOUT_KEY);
+    public static final String TRACE_ASYNC_MAX_MESSAGE_TIMEOUT_V2 = join(TRACE_ASYNC, ASYNC_MAX_MSG_TIMEOUT_KEY);
+    public static final String TRACE_ASYNC_MIN_MESSAGE_BYTES_V2 = join(TRACE_ASYNC, ASYNC_MIN_MSG_BYTES_KEY);
 
     public static final String METRIC_SENDER_NAME = join(METRIC_SENDER, APPEND_TYPE_KEY);
     public static final String METRIC_SENDER_ENABLED = join(METRIC_SENDER, ENABLED_KEY);
     public static final String METRIC_SENDER_TOPIC = join(METRIC_SENDER, TOPIC_KEY);
     public static final String METRIC_SENDER_APPENDER = join(METRIC_SENDER, LOG_APPENDER_KEY);
+    public static final String METRIC_KAFKA_LINGER_MS = join(METRIC_SENDER, "lingerMs");
+    public static final String METRIC_KAFKA_BATCH_SIZE = join(METRIC_SENDER, "batchSize");
 
     public static final String METRIC_ASYNC_INTERVAL = join(METRIC_ASYNC, INTERVAL_KEY);
 
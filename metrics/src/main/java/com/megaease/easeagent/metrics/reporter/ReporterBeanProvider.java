@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.megaease.easeagent.metrics.reporter;
+
+import com.megaease.easeagent.plugin.bean.AgentInitializingBean;
+import com.megaease.easeagent.plugin.bean.BeanProvider;
+
+public class ReporterBeanProvider implements BeanProvider, AgentInitializingBean {
+
+    @Override
+    public int order() {
+        return BeanOrder.METRIC_REGISTRY.getOrder();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        ReporterTelemetryMetric.getMetric();
+    }
+}
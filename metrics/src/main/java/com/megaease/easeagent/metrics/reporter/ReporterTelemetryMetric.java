@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.megaease.easeagent.metrics.reporter;
+
+import com.megaease.easeagent.metrics.config.PluginMetricsConfig;
+import com.megaease.easeagent.plugin.api.config.AutoRefreshPluginConfigRegistry;
+import com.megaease.easeagent.plugin.api.config.IPluginConfig;
+import com.megaease.easeagent.plugin.api.metric.*;
+import com.megaease.easeagent.plugin.api.metric.name.*;
+import com.megaease.easeagent.plugin.async.ScheduleHelper;
+import com.megaease.easeagent.plugin.async.ScheduleRunner;
+import com.megaease.easeagent.plugin.tools.metrics.GaugeMetricModel;
+import com.megaease.easeagent.report.async.ReporterTelemetry;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exports the {@link ReporterTelemetry} of every reporter, keyed by reporter name,
+ * so the agent's own reporting pipeline shows up in the metric reports and the Prometheus endpoint.
+ */
+public class ReporterTelemetryMetric extends ServiceMetric implements ScheduleRunner {
+    private final IPluginConfig config;
+    private final Set<String> registered = ConcurrentHashMap.newKeySet();
+
+    private ReporterTelemetryMetric(@Nonnull MetricRegistry metricRegistry, @Nonnull NameFactory nameFactory,
+                                    @Nonnull IPluginConfig config) {
+        super(metricRegistry, nameFactory);
+        this.config = config;
+    }
+
+    public static ReporterTelemetryMetric getMetric() {
+        IPluginConfig config = AutoRefreshPluginConfigRegistry.getOrCreate("observability", "reporter", "metric");
+        Tags tags = new Tags("application", "agent-reporter", "reporter");
+
+        ReporterTelemetryMetric metric = ServiceMetricRegistry.getOrCreate(config, tags,
+            new ServiceMetricSupplier<ReporterTelemetryMetric>() {
+                @Override
+                public NameFactory newNameFactory() {
+                    return ReporterTelemetryMetric.nameFactory();
+                }
+
+                @Override
+                public ReporterTelemetryMetric newInstance(MetricRegistry metricRegistry, NameFactory nameFactory) {
+                    return new ReporterTelemetryMetric(metricRegistry, nameFactory, config);
+                }
+            });
+        // the gauges read the telemetry when reported, the job only looks for reporters created later
+        PluginMetricsConfig metricsConfig = new PluginMetricsConfig(config);
+        int interval = (int) Math.max(1, metricsConfig.getIntervalUnit().toSeconds(metricsConfig.getInterval()));
+        metric.doJob();
+        ScheduleHelper.DEFAULT.nonStopExecute(interval, interval, metric::doJob);
+
+        return metric;
+    }
+
+    static NameFactory nameFactory() {
+        return NameFactory.createBuilder()
+            .gaugeType(MetricSubType.DEFAULT, new HashMap<>())
+            .build();
+    }
+
+    @Override
+    public void doJob() {
+        if (!config.enabled()) {
+            return;
+        }
+        for (ReporterTelemetry telemetry : ReporterTelemetry.getTelemetries().values()) {
+            if (!registered.add(telemetry.getName())) {
+                continue;
+            }
+            for (MetricName metricName : this.nameFactory.gaugeNames(telemetry.getName()).values()) {
+                Gauge<GaugeMetricModel> gauge = () -> telemetry::snapshot;
+                this.metricRegistry.gauge(metricName.name(), () -> gauge);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.megaease.easeagent.metrics.reporter;
+
+import com.megaease.easeagent.metrics.MetricProviderImplTest;
+import com.megaease.easeagent.mock.config.MockConfig;
+import com.megaease.easeagent.plugin.api.metric.Gauge;
+import com.megaease.easeagent.plugin.api.metric.Metric;
+import com.megaease.easeagent.plugin.api.metric.MetricRegistry;
+import com.megaease.easeagent.plugin.api.metric.name.MetricType;
+import com.megaease.easeagent.plugin.api.metric.name.NameFactory;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+import com.megaease.easeagent.plugin.field.AgentFieldReflectAccessor;
+import com.megaease.easeagent.plugin.tools.metrics.GaugeMetricModel;
+import com.megaease.easeagent.report.async.ReporterTelemetry;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ReporterTelemetryMetricTest {
+    private static final ReporterTelemetryMetric REPORTER_TELEMETRY_METRIC;
+
+    static {
+        EaseAgent.configFactory = MockConfig.getPluginConfigManager();
+        EaseAgent.metricRegistrySupplier = MetricProviderImplTest.METRIC_PROVIDER.metricSupplier();
+        REPORTER_TELEMETRY_METRIC = ReporterTelemetryMetric.getMetric();
+    }
+
+    @Test
+    public void nameFactory() {
+        NameFactory nameFactory = ReporterTelemetryMetric.nameFactory();
+        assertEquals(1, nameFactory.metricTypes().size());
+        assertTrue(nameFactory.metricTypes().contains(MetricType.GaugeType));
+    }
+
+    @Test
+    @SuppressWarnings("rawtypes")
+    public void doJob() {
+        ReporterTelemetry telemetry = ReporterTelemetry.getOrCreate("test-reporter");
+        telemetry.recordBatchSize(10);
+        telemetry.recordSendTime(2_000_000);
+
+        REPORTER_TELEMETRY_METRIC.doJob();
+        MetricRegistry metricRegistry = AgentFieldReflectAccessor.getFieldValue(REPORTER_TELEMETRY_METRIC, "metricRegistry");
+        Gauge gauge = null;
+        for (Map.Entry<String, Metric> entry : metricRegistry.getMetrics().entrySet()) {
+            if (entry.getKey().contains("test-reporter")) {
+                gauge = (Gauge) entry.getValue();
+            }
+        }
+        assertNotNull(gauge);
+        Map<String, Object> values = ((GaugeMetricModel) gauge.getValue()).toHashMap();
+        assertEquals(10L, values.get("batch-size-max"));
+        assertEquals(2.0, (double) values.get("send-time-max"), 0.0001);
+
+        // registered once, later runs keep the same gauge
+        REPORTER_TELEMETRY_METRIC.doJob();
+        for (Map.Entry<String, Metric> entry : metricRegistry.getMetrics().entrySet()) {
+            if (entry.getKey().contains("test-reporter")) {
+                assertSame(gauge, entry.getValue());
+            }
+        }
+    }
+}
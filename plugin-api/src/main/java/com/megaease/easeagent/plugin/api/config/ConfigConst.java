@@ -94,6 +94,11 @@ public interface ConfigConst {
 
         String TRACE_ENABLED = join(TRACE, "enabled");
         String TRACE_SAMPLED_BY_QPS = join(TRACE, KEY_COMM_SAMPLED_BY_QPS);
+        String TRACE_LIGHT_SPAN_ENABLED = join(TRACE, "lightSpan", "enabled");
+        String TRACE_PROPAGATION_TYPE = join(TRACE, "propagation", "type");
+        String TRACE_ID_128BIT = join(TRACE, "traceId128Bit");
+        String TRACE_LIMIT_MAX_CHILD_SPANS = join(TRACE, "limit", "maxChildSpans");
+        String TRACE_LIMIT_MAX_TAG_VALUE_LENGTH = join(TRACE, "limit", "maxTagValueLength");
 
         String TRACE_OUTPUT = join(TRACE, KEY_COMM_OUTPUT);
         String TRACE_OUTPUT_ENABLED = join(TRACE_OUTPUT, "enabled");
@@ -274,6 +274,8 @@ public interface Span {
     /**
      * Returns the underlying Span object or {@code null} if there is none. Here is some Span
      * objects: {@code brave.LazySpan}, {@code brave.RealSpan} .
+     * Spans the agent reports without brave's bookkeeping, such as light child spans, return their
+     * {@code brave.propagation.TraceContext} instead, so check the type before casting.
      *
      * @return
      */
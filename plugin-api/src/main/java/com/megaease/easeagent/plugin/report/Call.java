@@ -24,6 +24,22 @@ import java.io.IOException;
 public interface Call<V> {
     V execute() throws IOException;
 
+    /**
+     * Sends asynchronously and completes the callback. Calls without an async transport execute
+     * on the calling thread.
+     *
+     * <p>Implementations must complete the callback exactly once, with {@link Callback#onSuccess} or
+     * {@link Callback#onError}, also when sending fails. Reporters bound the calls in flight and
+     * only release a slot on completion.
+     */
     default void enqueue(Callback<V> cb) {
+        V value;
+        try {
+            value = execute();
+        } catch (Throwable e) {
+            cb.onError(e);
+            return;
+        }
+        cb.onSuccess(value);
     }
 }
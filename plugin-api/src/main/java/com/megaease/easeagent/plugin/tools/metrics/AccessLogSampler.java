@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2017, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.tools.metrics;
+
+import com.megaease.easeagent.plugin.api.config.AutoRefreshConfigSupplier;
+import com.megaease.easeagent.plugin.api.config.AutoRefreshPluginConfig;
+import com.megaease.easeagent.plugin.api.config.AutoRefreshPluginConfigRegistry;
+import com.megaease.easeagent.plugin.api.config.IPluginConfig;
+import com.megaease.easeagent.plugin.utils.common.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Access log sampling and field allowlists, e.g.
+ * <pre>
+ * plugin.observability.access.metric.sampleRate=0.1
+ * plugin.observability.access.metric.sampleErrors=true
+ * plugin.observability.access.metric.slowThreshold=1000
+ * plugin.observability.access.metric.headers=host,user-agent
+ * plugin.observability.access.metric.queries=id
+ * </pre>
+ * A request is sampled before its access log is built. An unsampled request is still logged when it fails
+ * or takes at least {@code slowThreshold} milliseconds. Empty allowlists keep all headers and queries.
+ */
+public class AccessLogSampler implements AutoRefreshPluginConfig {
+    public static final AutoRefreshConfigSupplier<AccessLogSampler> SUPPLIER = new AutoRefreshConfigSupplier<AccessLogSampler>() {
+        @Override
+        public AccessLogSampler newInstance() {
+            return new AccessLogSampler();
+        }
+    };
+
+    static final String SAMPLE_RATE_CONFIG = "sampleRate";
+    static final String SAMPLE_ERRORS_CONFIG = "sampleErrors";
+    static final String SLOW_THRESHOLD_CONFIG = "slowThreshold";
+    static final String HEADERS_CONFIG = "headers";
+    static final String QUERIES_CONFIG = "queries";
+
+    private volatile double sampleRate = 1.0;
+    private volatile boolean sampleErrors = true;
+    private volatile long slowThreshold = 0;
+    private volatile List<String> headers = Collections.emptyList();
+    private volatile Set<String> queries = Collections.emptySet();
+
+    public static AccessLogSampler getOrCreate(IPluginConfig config) {
+        return AutoRefreshPluginConfigRegistry.getOrCreate(config.domain(), config.namespace(), config.id(), SUPPLIER);
+    }
+
+    /**
+     * @return true when the access log of a new request is built
+     */
+    public boolean sample() {
+        double rate = this.sampleRate;
+        return rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * @param success     false when the request failed
+     * @param requestTime request time in milliseconds
+     * @return true when an unsampled request is logged anyway
+     */
+    public boolean sampleFinished(boolean success, long requestTime) {
+        if (!success && this.sampleErrors) {
+            return true;
+        }
+        long threshold = this.slowThreshold;
+        return threshold > 0 && requestTime >= threshold;
+    }
+
+    /**
+     * @return header names to log, empty for all
+     */
+    public List<String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return query names to log, empty for all
+     */
+    public Set<String> getQueries() {
+        return queries;
+    }
+
+    @Override
+    public void onChange(IPluginConfig oldConfig, IPluginConfig newConfig) {
+        Double rate = newConfig.getDouble(SAMPLE_RATE_CONFIG);
+        this.sampleRate = rate == null ? 1.0 : rate;
+        // getBoolean needs the global switch too, this one stands alone
+        String errors = newConfig.getString(SAMPLE_ERRORS_CONFIG);
+        this.sampleErrors = StringUtils.isEmpty(errors) || Boolean.parseBoolean(errors.trim());
+        Long threshold = newConfig.getLong(SLOW_THRESHOLD_CONFIG);
+        this.slowThreshold = threshold == null ? 0 : threshold;
+        this.headers = names(newConfig.getStringList(HEADERS_CONFIG));
+        this.queries = new HashSet<>(names(newConfig.getStringList(QUERIES_CONFIG)));
+    }
+
+    private static List<String> names(List<String> list) {
+        if (list == null || list.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>(list.size());
+        for (String name : list) {
+            if (StringUtils.isNotEmpty(name) && StringUtils.isNotEmpty(name.trim())) {
+                names.add(name.trim());
+            }
+        }
+        return Collections.unmodifiableList(names);
+    }
+}
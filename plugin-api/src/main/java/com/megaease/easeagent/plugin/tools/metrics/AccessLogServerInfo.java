@@ -17,7 +17,10 @@
 
 package com.megaease.easeagent.plugin.tools.metrics;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public interface AccessLogServerInfo {
     String getMethod();
@@ -36,6 +39,40 @@ public interface AccessLogServerInfo {
 
     Map<String, String> findQueries();
 
+    /**
+     * @param names header names to look up, empty for all headers
+     */
+    default Map<String, String> findHeaders(List<String> names) {
+        if (names.isEmpty()) {
+            return findHeaders();
+        }
+        Map<String, String> headers = new HashMap<>();
+        for (String name : names) {
+            String value = getHeader(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * @param names query names to keep, empty for all queries
+     */
+    default Map<String, String> findQueries(Set<String> names) {
+        Map<String, String> queries = findQueries();
+        if (names.isEmpty() || queries.isEmpty()) {
+            return queries;
+        }
+        Map<String, String> kept = new HashMap<>();
+        for (Map.Entry<String, String> entry : queries.entrySet()) {
+            if (names.contains(entry.getKey())) {
+                kept.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return kept;
+    }
+
     String getStatusCode();
 
     default String getClientIP() {
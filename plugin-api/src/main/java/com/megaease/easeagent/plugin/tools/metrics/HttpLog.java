@@ -31,6 +31,41 @@ import java.util.List;
 import java.util.Map;
 
 public class HttpLog {
+    private final AccessLogSampler sampler;
+
+    public HttpLog() {
+        this(new AccessLogSampler());
+    }
+
+    public HttpLog(AccessLogSampler sampler) {
+        this.sampler = sampler;
+    }
+
+    /**
+     * Decides whether a new request is logged, before its access log is prepared.
+     */
+    public boolean sample() {
+        return sampler.sample();
+    }
+
+    /**
+     * Decides whether a finished request that was not sampled is logged anyway.
+     */
+    public boolean sampleFinished(boolean success, Long beginTime, AccessLogServerInfo serverInfo) {
+        return sampler.sampleFinished(success && !isServerError(serverInfo), SystemClock.now() - beginTime);
+    }
+
+    /**
+     * Same as {@link #sampleFinished(boolean, Long, AccessLogServerInfo)}, for a status that is already at hand.
+     */
+    public boolean sampleFinished(boolean success, long beginTime, int statusCode) {
+        return sampler.sampleFinished(success && statusCode / 100 != 5, SystemClock.now() - beginTime);
+    }
+
+    private static boolean isServerError(AccessLogServerInfo serverInfo) {
+        String statusCode = serverInfo.getStatusCode();
+        return statusCode != null && statusCode.length() == 3 && statusCode.charAt(0) == '5';
+    }
 
     public AccessLogInfo prepare(String system, String serviceName, Long beginTime, Span span, AccessLogServerInfo serverInfo) {
         AccessLogInfo accessLogInfo = prepare(system, serviceName, beginTime, serverInfo);
@@ -51,7 +86,7 @@ public class HttpLog {
         accessLogInfo.setHostIpv4(HostAddress.getHostIpv4());
         accessLogInfo.setUrl(serverInfo.getMethod() + " " + serverInfo.getRequestURI());
         accessLogInfo.setMethod(serverInfo.getMethod());
-        accessLogInfo.setHeaders(serverInfo.findHeaders());
+        accessLogInfo.setHeaders(serverInfo.findHeaders(sampler.getHeaders()));
         accessLogInfo.setBeginTime(beginTime);
         accessLogInfo.setQueries(getQueries(serverInfo));
         accessLogInfo.setClientIP(serverInfo.getClientIP());
@@ -63,11 +98,11 @@ public class HttpLog {
         Map<String, String> serviceTags = ProgressFields.getServiceTags();
         Map<String, String> meshTags = RedirectProcessor.tags();
         if (serviceTags.isEmpty() && meshTags.isEmpty()) {
-            return serverInfo.findQueries();
+            return serverInfo.findQueries(sampler.getQueries());
         }
         Map<String, String> queries = new HashMap<>(meshTags);
         queries.putAll(serviceTags);
-        queries.putAll(serverInfo.findQueries());
+        queries.putAll(serverInfo.findQueries(sampler.getQueries()));
         return queries;
     }
 
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.tools.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Low cardinality urls for server metric keys and span names.
+ * The route of the framework is used when there is one. Otherwise the segments of the path that look like ids are
+ * replaced, e.g. {@code /orders/12345/items/3f2a9c0e-1b7d-4e8a-9c6b-2d5e8f0a1b3c} becomes
+ * {@code /orders/{num}/items/{uuid}}, and path parameters such as {@code ;jsessionid=} are dropped.
+ * At most maxTemplates distinct paths are kept, later ones are all reported as {@link #OVERFLOW}. Paths answered
+ * with 404 are not kept, so a scan of unknown paths does not use up the templates of the real endpoints.
+ */
+public class UrlTemplates {
+    public static final String NUM = "{num}";
+    public static final String UUID = "{uuid}";
+    public static final String HEX = "{hex}";
+    public static final String OVERFLOW = "/{other}";
+    public static final String NOT_FOUND = "/{not_found}";
+    public static final int STATUS_NOT_FOUND = 404;
+    public static final int DEFAULT_MAX_TEMPLATES = 1000;
+    private static final int MIN_HEX_LENGTH = 16;
+    private static final int UUID_LENGTH = 36;
+
+    private static final UrlTemplates DEFAULT = new UrlTemplates(DEFAULT_MAX_TEMPLATES);
+
+    private final int maxTemplates;
+    private final ConcurrentMap<String, Boolean> templates = new ConcurrentHashMap<>();
+
+    public UrlTemplates(int maxTemplates) {
+        this.maxTemplates = maxTemplates;
+    }
+
+    public static UrlTemplates getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param route the route of the framework, null or empty when there is none
+     * @param path  the path of the request, without the query
+     * @return the route, or the template of the path
+     */
+    public String template(String route, String path) {
+        return template(route, path, 0);
+    }
+
+    /**
+     * @param route  the route of the framework, null or empty when there is none
+     * @param path   the path of the request, without the query
+     * @param status the status of the response, 0 when it is not known yet
+     * @return the route, or the template of the path, or {@link #NOT_FOUND} for a 404 on a path that is not kept
+     */
+    public String template(String route, String path, int status) {
+        if (route != null && !route.isEmpty()) {
+            return route;
+        }
+        if (path == null || path.isEmpty()) {
+            return "";
+        }
+        String template = normalize(path);
+        if (templates.containsKey(template)) {
+            return template;
+        }
+        if (status == STATUS_NOT_FOUND) {
+            return NOT_FOUND;
+        }
+        if (templates.size() >= maxTemplates) {
+            return OVERFLOW;
+        }
+        templates.putIfAbsent(template, Boolean.TRUE);
+        return template;
+    }
+
+    /**
+     * Replaces the id-like segments of the path in one pass, the path itself is returned when nothing is replaced.
+     */
+    public static String normalize(String path) {
+        int length = path.length();
+        StringBuilder builder = null;
+        int start = 0;
+        while (start <= length) {
+            int segmentEnd = -1;
+            int end = start;
+            for (char c; end < length && (c = path.charAt(end)) != '/'; end++) {
+                if (c == ';' && segmentEnd < 0) {
+                    segmentEnd = end;
+                }
+            }
+            if (segmentEnd < 0) {
+                segmentEnd = end;
+            }
+            String placeholder = placeholder(path, start, segmentEnd);
+            if (builder == null && (placeholder != null || segmentEnd != end)) {
+                builder = new StringBuilder(length).append(path, 0, start);
+            }
+            if (builder != null) {
+                if (placeholder != null) {
+                    builder.append(placeholder);
+                } else {
+                    builder.append(path, start, segmentEnd);
+                }
+                if (end < length) {
+                    builder.append('/');
+                }
+            }
+            start = end + 1;
+        }
+        return builder == null ? path : builder.toString();
+    }
+
+    private static String placeholder(String path, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return null;
+        }
+        boolean digits = true;
+        boolean hex = true;
+        boolean hasDigit = false;
+        boolean uuid = length == UUID_LENGTH;
+        for (int i = 0; i < length; i++) {
+            char c = path.charAt(start + i);
+            boolean isDigit = c >= '0' && c <= '9';
+            boolean isHex = isDigit || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+            hasDigit |= isDigit;
+            digits &= isDigit;
+            hex &= isHex;
+            if (uuid) {
+                uuid = (i == 8 || i == 13 || i == 18 || i == 23) ? c == '-' : isHex;
+            }
+            if (!hex && !uuid) {
+                return null;
+            }
+        }
+        if (digits) {
+            return NUM;
+        }
+        if (uuid) {
+            return UUID;
+        }
+        return length >= MIN_HEX_LENGTH && hasDigit ? HEX : null;
+    }
+}
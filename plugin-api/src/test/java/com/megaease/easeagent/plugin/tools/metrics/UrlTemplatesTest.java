@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.tools.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UrlTemplatesTest {
+
+    @Test
+    public void normalize() {
+        String path = "/orders/list";
+        assertSame(path, UrlTemplates.normalize(path));
+        assertEquals("/orders/{num}", UrlTemplates.normalize("/orders/12345"));
+        assertEquals("/orders/{num}/items/{num}/", UrlTemplates.normalize("/orders/1/items/22/"));
+        assertEquals("/users/{uuid}", UrlTemplates.normalize("/users/3f2a9c0e-1b7d-4e8a-9c6b-2D5E8F0A1B3C"));
+        assertEquals("/blobs/{hex}", UrlTemplates.normalize("/blobs/5d41402abc4b2a76b9719d911017c592"));
+        // short hex and hex-like words are kept
+        assertEquals("/colors/ff00aa/deadbeefcafebabe", UrlTemplates.normalize("/colors/ff00aa/deadbeefcafebabe"));
+        assertEquals("/v2/api/a1", UrlTemplates.normalize("/v2/api/a1"));
+        assertEquals("/cart/{num}", UrlTemplates.normalize("/cart;jsessionid=ABC/42;v=1"));
+        assertEquals("/cart", UrlTemplates.normalize("/cart;jsessionid=ABC"));
+        assertEquals("{num}", UrlTemplates.normalize("7"));
+        assertEquals("/", UrlTemplates.normalize("/"));
+        assertEquals("//{num}", UrlTemplates.normalize("//7"));
+    }
+
+    @Test
+    public void template() {
+        UrlTemplates templates = new UrlTemplates(2);
+        assertEquals("/orders/{id}", templates.template("/orders/{id}", "/orders/1"));
+        assertEquals("", templates.template(null, null));
+        assertEquals("/orders/{num}", templates.template("", "/orders/1"));
+        assertEquals("/users/{num}", templates.template(null, "/users/2"));
+        assertEquals(UrlTemplates.OVERFLOW, templates.template(null, "/a"));
+        // known templates and routes are still reported
+        assertEquals("/orders/{num}", templates.template(null, "/orders/3"));
+        assertEquals("/b/{id}", templates.template("/b/{id}", "/b/1"));
+    }
+
+    @Test
+    public void notFoundNotKept() {
+        UrlTemplates templates = new UrlTemplates(1);
+        assertEquals(UrlTemplates.NOT_FOUND, templates.template(null, "/admin.php", 404));
+        assertEquals(UrlTemplates.NOT_FOUND, templates.template(null, "/.env", 404));
+        assertEquals("/orders/{num}", templates.template(null, "/orders/1", 200));
+        // a kept template is reported for its 404s too
+        assertEquals("/orders/{num}", templates.template(null, "/orders/2", 404));
+        assertEquals(UrlTemplates.OVERFLOW, templates.template(null, "/users/1", 200));
+    }
+}
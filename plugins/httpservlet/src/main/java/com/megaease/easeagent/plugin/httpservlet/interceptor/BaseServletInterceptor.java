@@ -20,7 +20,7 @@ package com.megaease.easeagent.plugin.httpservlet.interceptor;
 import com.megaease.easeagent.plugin.interceptor.MethodInfo;
 import com.megaease.easeagent.plugin.api.Context;
 import com.megaease.easeagent.plugin.httpservlet.utils.InternalAsyncListener;
-import com.megaease.easeagent.plugin.httpservlet.utils.ServletUtils;
+import com.megaease.easeagent.plugin.httpservlet.utils.ServletRequestState;
 import com.megaease.easeagent.plugin.interceptor.NonReentrantInterceptor;
 
 import javax.servlet.http.HttpServletRequest;
@@ -31,32 +31,31 @@ public abstract class BaseServletInterceptor implements NonReentrantInterceptor
     @Override
     public void doBefore(MethodInfo methodInfo, Context context) {
         HttpServletRequest httpServletRequest = (HttpServletRequest) methodInfo.getArgs()[0];
-        ServletUtils.startTime(httpServletRequest);
+        ServletRequestState.begin(httpServletRequest);
     }
 
     @Override
     public void doAfter(MethodInfo methodInfo, Context context) {
         HttpServletRequest httpServletRequest = (HttpServletRequest) methodInfo.getArgs()[0];
-        final long start = ServletUtils.startTime(httpServletRequest);
-        if (ServletUtils.markProcessed(httpServletRequest, getAfterMark())) {
+        ServletRequestState state = ServletRequestState.get(httpServletRequest);
+        if (state.markProcessed(getAfterMark())) {
             return;
         }
-        String httpRoute = ServletUtils.getHttpRouteAttributeFromRequest(httpServletRequest);
-        final String key = httpServletRequest.getMethod() + " " + httpRoute;
+        final long start = state.getStartTime();
         HttpServletResponse httpServletResponse = (HttpServletResponse) methodInfo.getArgs()[1];
         if (methodInfo.getThrowable() != null) {
-            internalAfter(methodInfo.getThrowable(), key, httpServletRequest, httpServletResponse, start);
+            internalAfter(methodInfo.getThrowable(), state.getKey(httpServletRequest, httpServletResponse), httpServletRequest, httpServletResponse, start);
         } else if (httpServletRequest.isAsyncStarted()) {
-            httpServletRequest.getAsyncContext().addListener(new InternalAsyncListener(
+            state.addAsyncListener(httpServletRequest, httpServletResponse, new InternalAsyncListener(
                     asyncEvent -> {
                         HttpServletResponse suppliedResponse = (HttpServletResponse) asyncEvent.getSuppliedResponse();
-                        internalAfter(asyncEvent.getThrowable(), key, httpServletRequest, suppliedResponse, start);
+                        internalAfter(asyncEvent.getThrowable(), state.getKey(httpServletRequest, suppliedResponse), httpServletRequest, suppliedResponse, start);
                     }
 
                 )
             );
         } else {
-            internalAfter(null, key, httpServletRequest, httpServletResponse, start);
+            internalAfter(null, state.getKey(httpServletRequest, httpServletResponse), httpServletRequest, httpServletResponse, start);
         }
     }
 
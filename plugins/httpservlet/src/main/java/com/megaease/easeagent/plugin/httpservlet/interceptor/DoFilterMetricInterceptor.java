@@ -24,6 +24,7 @@ import com.megaease.easeagent.plugin.api.metric.name.Tags;
 import com.megaease.easeagent.plugin.enums.Order;
 import com.megaease.easeagent.plugin.httpservlet.HttpServletPlugin;
 import com.megaease.easeagent.plugin.httpservlet.advice.DoFilterPoints;
+import com.megaease.easeagent.plugin.httpservlet.utils.ServletRequestState;
 import com.megaease.easeagent.plugin.tools.metrics.ServerMetric;
 
 import javax.servlet.http.HttpServletRequest;
@@ -47,7 +48,8 @@ public class DoFilterMetricInterceptor extends BaseServletInterceptor {
     @Override
     public void internalAfter(Throwable throwable, String key, HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse, long start) {
         long end = System.currentTimeMillis();
-        SERVER_METRIC.collectMetric(key, httpServletResponse.getStatus(), throwable, start, end);
+        int status = ServletRequestState.get(httpServletRequest).getStatus(httpServletResponse);
+        SERVER_METRIC.collectMetric(key, status, throwable, start, end);
     }
 
     @Override
@@ -24,7 +24,7 @@ import com.megaease.easeagent.plugin.api.context.RequestContext;
 import com.megaease.easeagent.plugin.api.trace.Span;
 import com.megaease.easeagent.plugin.httpservlet.HttpServletPlugin;
 import com.megaease.easeagent.plugin.httpservlet.advice.DoFilterPoints;
-import com.megaease.easeagent.plugin.httpservlet.utils.ServletUtils;
+import com.megaease.easeagent.plugin.httpservlet.utils.ServletRequestState;
 import com.megaease.easeagent.plugin.interceptor.NonReentrantInterceptor;
 import com.megaease.easeagent.plugin.tools.trace.HttpRequest;
 import com.megaease.easeagent.plugin.tools.trace.HttpResponse;
@@ -47,34 +47,35 @@ public class DoFilterTraceInterceptor implements NonReentrantInterceptor {
     @Override
     public void doBefore(MethodInfo methodInfo, Context context) {
         HttpServletRequest httpServletRequest = (HttpServletRequest) methodInfo.getArgs()[0];
-        RequestContext requestContext = (RequestContext) httpServletRequest.getAttribute(ServletUtils.PROGRESS_CONTEXT);
-        if (requestContext != null) {
+        ServletRequestState state = ServletRequestState.begin(httpServletRequest);
+        if (state.getRequestContext() != null) {
             return;
         }
         HttpRequest httpRequest = new HttpServerRequest(httpServletRequest);
-        requestContext = context.serverReceive(httpRequest);
-        httpServletRequest.setAttribute(ServletUtils.PROGRESS_CONTEXT, requestContext);
+        RequestContext requestContext = context.serverReceive(httpRequest);
+        state.setRequestContext(requestContext);
         HttpUtils.handleReceive(requestContext.span().start(), httpRequest);
     }
 
     @Override
     public void doAfter(MethodInfo methodInfo, Context context) {
         HttpServletRequest httpServletRequest = (HttpServletRequest) methodInfo.getArgs()[0];
-        if (ServletUtils.markProcessed(httpServletRequest, AFTER_MARK)) {
+        ServletRequestState state = ServletRequestState.get(httpServletRequest);
+        if (state.markProcessed(AFTER_MARK)) {
             return;
         }
         HttpServletResponse httpServletResponse = (HttpServletResponse) methodInfo.getArgs()[1];
-        RequestContext requestContext = (RequestContext) httpServletRequest.getAttribute(ServletUtils.PROGRESS_CONTEXT);
+        RequestContext requestContext = state.getRequestContext();
         try {
             Span span = requestContext.span();
             if (!httpServletRequest.isAsyncStarted()) {
-                span.tag(TraceConst.HTTP_TAG_ROUTE, ServletUtils.getHttpRouteAttributeFromRequest(httpServletRequest));
+                span.tag(TraceConst.HTTP_TAG_ROUTE, state.getRoute(httpServletRequest));
                 HttpUtils.finish(span, new Response(methodInfo.getThrowable(), httpServletRequest, httpServletResponse));
             } else if (methodInfo.getThrowable() != null) {
                 span.error(methodInfo.getThrowable());
                 span.finish();
             } else {
-                httpServletRequest.getAsyncContext().addListener(new TracingAsyncListener(requestContext), httpServletRequest, httpServletResponse);
+                state.addAsyncListener(httpServletRequest, httpServletResponse, new TracingAsyncListener(requestContext));
             }
         } finally {
             requestContext.scope().close();
@@ -100,8 +101,13 @@ public class DoFilterTraceInterceptor implements NonReentrantInterceptor {
 
         @Override
         public String route() {
-            Object maybeRoute = httpServletRequest.getAttribute(TraceConst.HTTP_ATTRIBUTE_ROUTE);
-            return maybeRoute instanceof String ? (String) maybeRoute : null;
+            ServletRequestState state = ServletRequestState.get(httpServletRequest);
+            String route = state.getRoute(httpServletRequest);
+            if (!route.isEmpty() || statusCode() == 404) {
+                // unmatched paths keep the catch-all span name
+                return route;
+            }
+            return state.getTemplate(httpServletRequest);
         }
 
         @Override
@@ -109,7 +115,7 @@ public class DoFilterTraceInterceptor implements NonReentrantInterceptor {
             if (httpServletResponse == null) {
                 return 0;
             }
-            int result = httpServletResponse.getStatus();
+            int result = ServletRequestState.get(httpServletRequest).getStatus(httpServletResponse);
             if (caught != null && result == 200) {
                 if (caught instanceof UnavailableException) {
                     return ((UnavailableException) caught).isPermanent() ? 404 : 503;
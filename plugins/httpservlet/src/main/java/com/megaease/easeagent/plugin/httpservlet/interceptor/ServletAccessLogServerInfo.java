@@ -17,6 +17,7 @@
 
 package com.megaease.easeagent.plugin.httpservlet.interceptor;
 
+import com.megaease.easeagent.plugin.httpservlet.utils.ServletRequestState;
 import com.megaease.easeagent.plugin.httpservlet.utils.ServletUtils;
 import com.megaease.easeagent.plugin.tools.metrics.AccessLogServerInfo;
 import com.megaease.easeagent.plugin.utils.common.StringUtils;
@@ -26,6 +27,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 public class ServletAccessLogServerInfo implements AccessLogServerInfo {
 
@@ -64,7 +66,8 @@ public class ServletAccessLogServerInfo implements AccessLogServerInfo {
 
     @Override
     public String getMatchURL() {
-        String matchURL = ServletUtils.matchUrlBySpringWeb(request);
+        ServletRequestState state = ServletRequestState.get(request);
+        String matchURL = state.getTemplate(request, state.getStatus(response));
         if (StringUtils.isEmpty(matchURL)) {
             return "";
         }
@@ -87,9 +90,14 @@ public class ServletAccessLogServerInfo implements AccessLogServerInfo {
         return ServletUtils.getQueries4SingleValue(request);
     }
 
+    @Override
+    public Map<String, String> findQueries(Set<String> names) {
+        return ServletUtils.getQueries4SingleValue(request, names);
+    }
+
     @Override
     public String getStatusCode() {
-        return String.valueOf(response.getStatus());
+        return String.valueOf(ServletRequestState.get(request).getStatus(response));
     }
 
 }
@@ -27,7 +27,8 @@ import com.megaease.easeagent.plugin.bridge.EaseAgent;
 import com.megaease.easeagent.plugin.enums.Order;
 import com.megaease.easeagent.plugin.httpservlet.AccessPlugin;
 import com.megaease.easeagent.plugin.httpservlet.advice.DoFilterPoints;
-import com.megaease.easeagent.plugin.httpservlet.utils.ServletUtils;
+import com.megaease.easeagent.plugin.httpservlet.utils.ServletRequestState;
+import com.megaease.easeagent.plugin.tools.metrics.AccessLogSampler;
 import com.megaease.easeagent.plugin.tools.metrics.AccessLogServerInfo;
 import com.megaease.easeagent.plugin.tools.metrics.HttpLog;
 import com.megaease.easeagent.plugin.api.logging.AccessLogInfo;
@@ -39,24 +40,29 @@ import javax.servlet.http.HttpServletResponse;
 public class ServletHttpLogInterceptor extends BaseServletInterceptor {
     private static final String BEFORE_MARK = ServletHttpLogInterceptor.class.getName() + "$BeforeMark";
     private static final String AFTER_MARK = ServletHttpLogInterceptor.class.getName() + "$AfterMark";
-    private final HttpLog httpLog = new HttpLog();
+    private HttpLog httpLog = new HttpLog();
 
     @Override
     public void init(IPluginConfig config, String className, String methodName, String methodDescriptor) {
+        this.httpLog = new HttpLog(AccessLogSampler.getOrCreate(config));
     }
 
     public AccessLogServerInfo serverInfo(HttpServletRequest request, HttpServletResponse response) {
-        ServletAccessLogServerInfo serverInfo = (ServletAccessLogServerInfo) request.getAttribute(ServletAccessLogServerInfo.class.getName());
+        return serverInfo(ServletRequestState.get(request), request, response);
+    }
+
+    private AccessLogServerInfo serverInfo(ServletRequestState state, HttpServletRequest request, HttpServletResponse response) {
+        ServletAccessLogServerInfo serverInfo = (ServletAccessLogServerInfo) state.getServerInfo();
         if (serverInfo == null) {
             serverInfo = new ServletAccessLogServerInfo();
-            request.setAttribute(ServletAccessLogServerInfo.class.getName(), serverInfo);
+            state.setServerInfo(serverInfo);
         }
         serverInfo.load(request, response);
         return serverInfo;
     }
 
-    private Span getSpan(HttpServletRequest httpServletRequest, Context context) {
-        RequestContext requestContext = (RequestContext) httpServletRequest.getAttribute(ServletUtils.PROGRESS_CONTEXT);
+    private Span getSpan(ServletRequestState state, Context context) {
+        RequestContext requestContext = state.getRequestContext();
         if (requestContext != null) {
             return requestContext.span();
         }
@@ -75,15 +81,19 @@ public class ServletHttpLogInterceptor extends BaseServletInterceptor {
     @Override
     public void doBefore(MethodInfo methodInfo, Context context) {
         HttpServletRequest httpServletRequest = (HttpServletRequest) methodInfo.getArgs()[0];
-        if (ServletUtils.markProcessed(httpServletRequest, BEFORE_MARK)) {
+        ServletRequestState state = ServletRequestState.begin(httpServletRequest);
+        if (state.markProcessed(BEFORE_MARK)) {
+            return;
+        }
+        Long beginTime = state.getStartTime();
+        if (!this.httpLog.sample()) {
             return;
         }
         HttpServletResponse httpServletResponse = (HttpServletResponse) methodInfo.getArgs()[1];
-        Long beginTime = ServletUtils.startTime(httpServletRequest);
-        Span span = getSpan(httpServletRequest, context);
-        AccessLogServerInfo serverInfo = this.serverInfo(httpServletRequest, httpServletResponse);
+        Span span = getSpan(state, context);
+        AccessLogServerInfo serverInfo = this.serverInfo(state, httpServletRequest, httpServletResponse);
         AccessLogInfo accessLogInfo = this.httpLog.prepare(getSystem(), getServiceName(), beginTime, span, serverInfo);
-        httpServletRequest.setAttribute(AccessLogInfo.class.getName(), accessLogInfo);
+        state.setAccessLogInfo(accessLogInfo);
     }
 
     @Override
@@ -93,9 +103,19 @@ public class ServletHttpLogInterceptor extends BaseServletInterceptor {
 
     @Override
     void internalAfter(Throwable throwable, String key, HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse, long start) {
-        Long beginTime = ServletUtils.startTime(httpServletRequest);
-        AccessLogInfo accessLogInfo = (AccessLogInfo) httpServletRequest.getAttribute(AccessLogInfo.class.getName());
-        AccessLogServerInfo serverInfo = this.serverInfo(httpServletRequest, httpServletResponse);
+        ServletRequestState state = ServletRequestState.get(httpServletRequest);
+        long beginTime = state.getStartTime();
+        AccessLogInfo accessLogInfo = state.getAccessLogInfo();
+        // not sampled, unless it failed or was slow
+        if (accessLogInfo == null
+            && !this.httpLog.sampleFinished(throwable == null, beginTime, state.getStatus(httpServletResponse))) {
+            return;
+        }
+        AccessLogServerInfo serverInfo = this.serverInfo(state, httpServletRequest, httpServletResponse);
+        if (accessLogInfo == null) {
+            Span span = getSpan(state, EaseAgent.getContext());
+            accessLogInfo = this.httpLog.prepare(getSystem(), getServiceName(), beginTime, span, serverInfo);
+        }
         this.httpLog.finish(accessLogInfo, throwable == null, beginTime, serverInfo);
         EaseAgent.agentReport.report(accessLogInfo);
     }
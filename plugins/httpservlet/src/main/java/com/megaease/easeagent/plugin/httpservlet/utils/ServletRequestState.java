@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.httpservlet.utils;
+
+import com.megaease.easeagent.plugin.api.context.RequestContext;
+import com.megaease.easeagent.plugin.api.logging.AccessLogInfo;
+import com.megaease.easeagent.plugin.api.logging.Logger;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+import com.megaease.easeagent.plugin.tools.metrics.AccessLogServerInfo;
+import com.megaease.easeagent.plugin.tools.metrics.UrlTemplates;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * What the servlet interceptors share about a request, kept in a single request attribute and created by the first
+ * interceptor that sees the request. The start time and method are read once, the status once after the request was
+ * handled, and one async listener is registered for all the interceptors. The route is looked up on each call, as an
+ * ERROR or ASYNC dispatch may change it, only the url template is reused while the route and uri stay the same.
+ */
+public class ServletRequestState {
+    private static final Logger LOGGER = EaseAgent.getLogger(ServletRequestState.class);
+    public static final String ATTRIBUTE = ServletRequestState.class.getName();
+
+    private final long startTime;
+    private final String method;
+    private final List<String> marks = new ArrayList<>(4);
+    private String route;
+    private String uri;
+    private String template;
+    private boolean templateNotFound;
+    private int status;
+    private boolean statusRead;
+    private RequestContext requestContext;
+    private AccessLogInfo accessLogInfo;
+    private AccessLogServerInfo serverInfo;
+    private Listeners listeners;
+
+    ServletRequestState(HttpServletRequest request) {
+        this.startTime = System.currentTimeMillis();
+        this.method = request.getMethod();
+    }
+
+    /**
+     * Gets the state when a dispatch of the request enters the filter chain. What was read about the response
+     * in an earlier dispatch is read again.
+     */
+    public static ServletRequestState begin(HttpServletRequest request) {
+        ServletRequestState state = get(request);
+        state.statusRead = false;
+        return state;
+    }
+
+    public static ServletRequestState get(HttpServletRequest request) {
+        Object state = request.getAttribute(ATTRIBUTE);
+        if (state instanceof ServletRequestState) {
+            return (ServletRequestState) state;
+        }
+        ServletRequestState created = new ServletRequestState(request);
+        request.setAttribute(ATTRIBUTE, created);
+        return created;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return true when the mark was already set
+     */
+    public boolean markProcessed(String mark) {
+        for (int i = 0; i < marks.size(); i++) {
+            if (marks.get(i).equals(mark)) {
+                return true;
+            }
+        }
+        marks.add(mark);
+        return false;
+    }
+
+    /**
+     * @return the route of the framework or empty
+     */
+    public String getRoute(HttpServletRequest request) {
+        return ServletUtils.getHttpRouteAttributeFromRequest(request);
+    }
+
+    /**
+     * @return the route of the framework or the template of the request uri
+     */
+    public String getTemplate(HttpServletRequest request) {
+        return getTemplate(request, 0);
+    }
+
+    /**
+     * @param status the status of the response, 0 when it is not known yet
+     * @return the route of the framework or the template of the request uri, a path answered with 404 is not
+     * kept as a template
+     */
+    public String getTemplate(HttpServletRequest request, int status) {
+        String currentRoute = getRoute(request);
+        String currentUri = request.getRequestURI();
+        boolean notFound = status == UrlTemplates.STATUS_NOT_FOUND;
+        if (template == null || templateNotFound != notFound
+            || !Objects.equals(route, currentRoute) || !Objects.equals(uri, currentUri)) {
+            template = UrlTemplates.getDefault().template(currentRoute, currentUri, status);
+            templateNotFound = notFound;
+            route = currentRoute;
+            uri = currentUri;
+        }
+        return template;
+    }
+
+    /**
+     * @return the status of the response, read on the first call after the request was handled in this dispatch
+     */
+    public int getStatus(HttpServletResponse response) {
+        if (!statusRead) {
+            status = response.getStatus();
+            statusRead = true;
+        }
+        return status;
+    }
+
+    /**
+     * @return the server metric key, the method and the template
+     */
+    public String getKey(HttpServletRequest request, HttpServletResponse response) {
+        return method + " " + getTemplate(request, getStatus(response));
+    }
+
+    public RequestContext getRequestContext() {
+        return requestContext;
+    }
+
+    public void setRequestContext(RequestContext requestContext) {
+        this.requestContext = requestContext;
+    }
+
+    public AccessLogInfo getAccessLogInfo() {
+        return accessLogInfo;
+    }
+
+    public void setAccessLogInfo(AccessLogInfo accessLogInfo) {
+        this.accessLogInfo = accessLogInfo;
+    }
+
+    public AccessLogServerInfo getServerInfo() {
+        return serverInfo;
+    }
+
+    public void setServerInfo(AccessLogServerInfo serverInfo) {
+        this.serverInfo = serverInfo;
+    }
+
+    /**
+     * Adds the listener to the started async context, the listeners of all the interceptors are registered
+     * to the container as one.
+     */
+    public void addAsyncListener(HttpServletRequest request, HttpServletResponse response, AsyncListener listener) {
+        if (listeners == null) {
+            listeners = new Listeners();
+            request.getAsyncContext().addListener(listeners, request, response);
+        }
+        listeners.add(listener);
+    }
+
+    static class Listeners implements AsyncListener {
+        private final List<AsyncListener> listeners = new ArrayList<>(3);
+
+        void add(AsyncListener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            for (AsyncListener listener : listeners) {
+                try {
+                    listener.onComplete(event);
+                } catch (Exception e) {
+                    LOGGER.warn("async listener {} failed on complete: {}", listener, e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            for (AsyncListener listener : listeners) {
+                try {
+                    listener.onTimeout(event);
+                } catch (Exception e) {
+                    LOGGER.warn("async listener {} failed on timeout: {}", listener, e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            for (AsyncListener listener : listeners) {
+                try {
+                    listener.onError(event);
+                } catch (Exception e) {
+                    LOGGER.warn("async listener {} failed on error: {}", listener, e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // listeners are dropped when the async is started again, only this one is added back
+            AsyncContext eventAsyncContext = event.getAsyncContext();
+            if (eventAsyncContext != null) {
+                eventAsyncContext.addListener(this, event.getSuppliedRequest(), event.getSuppliedResponse());
+            }
+        }
+    }
+}
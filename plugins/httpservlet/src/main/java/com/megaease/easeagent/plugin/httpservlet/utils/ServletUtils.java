@@ -19,21 +19,17 @@ package com.megaease.easeagent.plugin.httpservlet.utils;
 
 import com.megaease.easeagent.plugin.api.logging.Logger;
 import com.megaease.easeagent.plugin.bridge.EaseAgent;
-import com.megaease.easeagent.plugin.httpservlet.interceptor.DoFilterTraceInterceptor;
+import com.megaease.easeagent.plugin.tools.trace.TraceConst;
 import com.megaease.easeagent.plugin.utils.ClassUtils;
-import lombok.SneakyThrows;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.function.BiConsumer;
 
 public class ServletUtils {
     public static final Logger LOGGER = EaseAgent.getLogger(ServletUtils.class);
-    public static final String START_TIME = ServletUtils.class.getName() + "$StartTime";
-    public static final String PROGRESS_CONTEXT = DoFilterTraceInterceptor.class.getName() + ".RequestContext";
     public static final String HANDLER_MAPPING_CLASS = "org.springframework.web.servlet.HandlerMapping";
     public static final String BEST_MATCHING_PATTERN_ATTRIBUTE;
 
@@ -55,60 +51,125 @@ public class ServletUtils {
         return (String) request.getAttribute(BEST_MATCHING_PATTERN_ATTRIBUTE);
     }
 
+    /**
+     * @return the pattern matched by Spring MVC, or the route set by another framework, or empty
+     */
     public static String getHttpRouteAttributeFromRequest(HttpServletRequest request) {
         Object httpRoute = request.getAttribute(BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (httpRoute == null) {
+            httpRoute = request.getAttribute(TraceConst.HTTP_ATTRIBUTE_ROUTE);
+        }
         return httpRoute != null ? httpRoute.toString() : "";
     }
 
+    /**
+     * @return the route of the framework, or the template of the request uri when there is none
+     */
+    public static String getHttpRoute(HttpServletRequest request) {
+        return ServletRequestState.get(request).getTemplate(request);
+    }
+
     public static boolean markProcessed(HttpServletRequest request, String mark) {
-        if (request.getAttribute(mark) != null) {
-            return true;
-        }
-        request.setAttribute(mark, "m");
-        return false;
+        return ServletRequestState.get(request).markProcessed(mark);
     }
 
     public static long startTime(HttpServletRequest httpServletRequest) {
-        Object startObj = httpServletRequest.getAttribute(START_TIME);
-        Long start = null;
-        if (startObj == null) {
-            start = System.currentTimeMillis();
-            httpServletRequest.setAttribute(START_TIME, start);
-        } else {
-            start = (Long) startObj;
-        }
-        return start;
+        return ServletRequestState.get(httpServletRequest).getStartTime();
     }
 
-
-    @SneakyThrows
     public static Map<String, List<String>> getQueries(HttpServletRequest httpServletRequest) {
         Map<String, List<String>> map = new HashMap<>();
-        String queryString = httpServletRequest.getQueryString();
+        parseQueries(httpServletRequest.getQueryString(), Collections.emptySet(),
+            (key, value) -> map.computeIfAbsent(key, k -> new LinkedList<>()).add(value));
+        return map;
+    }
+
+    public static Map<String, String> getQueries4SingleValue(HttpServletRequest httpServletRequest) {
+        return getQueries4SingleValue(httpServletRequest, Collections.emptySet());
+    }
+
+    /**
+     * first value of each query, only the names kept are decoded
+     *
+     * @param names query names to keep, empty for all queries
+     */
+    public static Map<String, String> getQueries4SingleValue(HttpServletRequest httpServletRequest, Set<String> names) {
+        Map<String, String> map = new HashMap<>();
+        parseQueries(httpServletRequest.getQueryString(), names, (key, value) -> {
+            if (!map.containsKey(key)) {
+                map.put(key, value);
+            }
+        });
+        return map;
+    }
+
+    /**
+     * Scans the query string once. Pairs whose name is not kept are skipped without creating a substring,
+     * a name or value without '%' and '+' is taken as is instead of going through the decoder.
+     */
+    static void parseQueries(String queryString, Set<String> names, BiConsumer<String, String> consumer) {
         if (queryString == null || queryString.isEmpty()) {
-            return map;
+            return;
         }
-        String[] pairs = queryString.split("&");
-        for (String pair : pairs) {
-            int idx = pair.indexOf("=");
-            String key = idx > 0 ? URLDecoder.decode(pair.substring(0, idx), "UTF-8") : pair;
-            if (!map.containsKey(key)) {
-                map.put(key, new LinkedList<>());
+        int length = queryString.length();
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            int idx = -1;
+            boolean encoded = false;
+            for (char c; end < length && (c = queryString.charAt(end)) != '&'; end++) {
+                if (idx < 0) {
+                    if (c == '=') {
+                        idx = end;
+                    } else if (c == '%' || c == '+') {
+                        encoded = true;
+                    }
+                }
             }
-            String value = idx > 0 && pair.length() > idx + 1 ? URLDecoder.decode(pair.substring(idx + 1), "UTF-8") : null;
-            map.get(key).add(value);
+            if (end > start) {
+                String key;
+                if (idx > start) {
+                    key = keep(queryString, start, idx, encoded, names);
+                } else {
+                    // no name, the pair is reported as is
+                    key = keep(queryString, start, end, false, names);
+                }
+                if (key != null) {
+                    String value = idx > start && end > idx + 1 ? decode(queryString, idx + 1, end) : null;
+                    consumer.accept(key, value);
+                }
+            }
+            start = end + 1;
         }
-        return map;
     }
 
-    public static Map<String, String> getQueries4SingleValue(HttpServletRequest httpServletRequest) {
-        Map<String, List<String>> map = getQueries(httpServletRequest);
-        Map<String, String> singleValueMap = new HashMap<>();
-        map.forEach((key, values) -> {
-            if (values != null && values.size() > 0) {
-                singleValueMap.put(key, values.get(0));
+    private static String keep(String queryString, int start, int end, boolean encoded, Set<String> names) {
+        if (encoded) {
+            String key = decode(queryString, start, end);
+            return names.isEmpty() || names.contains(key) ? key : null;
+        }
+        if (names.isEmpty()) {
+            return queryString.substring(start, end);
+        }
+        int length = end - start;
+        for (String name : names) {
+            if (name.length() == length && queryString.regionMatches(start, name, 0, length)) {
+                return name;
             }
-        });
-        return singleValueMap;
+        }
+        return null;
+    }
+
+    private static String decode(String queryString, int start, int end) {
+        String s = queryString.substring(start, end);
+        if (s.indexOf('%') < 0 && s.indexOf('+') < 0) {
+            return s;
+        }
+        try {
+            return URLDecoder.decode(s, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            // malformed escapes are reported undecoded
+            return s;
+        }
     }
 }
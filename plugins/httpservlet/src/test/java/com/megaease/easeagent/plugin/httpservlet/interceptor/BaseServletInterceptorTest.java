@@ -17,14 +17,17 @@
 
 package com.megaease.easeagent.plugin.httpservlet.interceptor;
 
+import com.megaease.easeagent.mock.plugin.api.MockEaseAgent;
 import com.megaease.easeagent.mock.plugin.api.junit.EaseAgentJunit4ClassRunner;
 import com.megaease.easeagent.plugin.bridge.EaseAgent;
-import com.megaease.easeagent.plugin.httpservlet.utils.ServletUtils;
+import com.megaease.easeagent.plugin.httpservlet.utils.ServletRequestState;
 import com.megaease.easeagent.plugin.interceptor.MethodInfo;
+import com.megaease.easeagent.plugin.tools.trace.TraceConst;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 import javax.servlet.AsyncContext;
 import javax.servlet.AsyncEvent;
@@ -49,7 +52,7 @@ public class BaseServletInterceptorTest {
 
         MockBaseServletInterceptor mockBaseServletInterceptor = new MockBaseServletInterceptor();
         mockBaseServletInterceptor.doBefore(methodInfo, EaseAgent.getContext());
-        assertNotNull(httpServletRequest.getAttribute(ServletUtils.START_TIME));
+        assertNotNull(httpServletRequest.getAttribute(ServletRequestState.ATTRIBUTE));
     }
 
     @Test
@@ -79,7 +82,7 @@ public class BaseServletInterceptorTest {
         mockBaseServletInterceptor.httpServletRequest = httpServletRequest;
         mockBaseServletInterceptor.httpServletResponse = response;
         mockBaseServletInterceptor.doBefore(methodInfo, EaseAgent.getContext());
-        mockBaseServletInterceptor.start = (long) httpServletRequest.getAttribute(ServletUtils.START_TIME);
+        mockBaseServletInterceptor.start = ServletRequestState.get(httpServletRequest).getStartTime();
         mockBaseServletInterceptor.doAfter(methodInfo, EaseAgent.getContext());
         assertTrue(mockBaseServletInterceptor.isRan.get());
     }
@@ -104,6 +107,53 @@ public class BaseServletInterceptorTest {
         }, error);
     }
 
+    @Test
+    public void sharedAsyncListener() throws InterruptedException {
+        MockHttpServletRequest httpServletRequest = TestServletUtils.buildMockRequest();
+        HttpServletResponse response = TestServletUtils.buildMockResponse();
+        MethodInfo methodInfo = MethodInfo.builder().args(new Object[]{httpServletRequest, response}).build();
+        MockBaseServletInterceptor mockBaseServletInterceptor = new MockBaseServletInterceptor();
+        mockBaseServletInterceptor.key = TestConst.METHOD + " " + TestConst.ROUTE;
+        mockBaseServletInterceptor.httpServletRequest = httpServletRequest;
+        mockBaseServletInterceptor.httpServletResponse = response;
+        DoFilterTraceInterceptor doFilterTraceInterceptor = new DoFilterTraceInterceptor();
+
+        doFilterTraceInterceptor.doBefore(methodInfo, EaseAgent.getContext());
+        mockBaseServletInterceptor.doBefore(methodInfo, EaseAgent.getContext());
+        ServletRequestState state = ServletRequestState.get(httpServletRequest);
+        mockBaseServletInterceptor.start = state.getStartTime();
+        httpServletRequest.setAsyncSupported(true);
+        final MockAsyncContext asyncContext = (MockAsyncContext) httpServletRequest.startAsync(httpServletRequest, response);
+        mockBaseServletInterceptor.doAfter(methodInfo, EaseAgent.getContext());
+        doFilterTraceInterceptor.doAfter(methodInfo, EaseAgent.getContext());
+        assertEquals(1, asyncContext.getListeners().size());
+        assertSame(state, ServletRequestState.get(httpServletRequest));
+
+        MockEaseAgent.cleanLastSpan();
+        Thread thread = new Thread(asyncContext::complete);
+        thread.start();
+        thread.join();
+        assertTrue(mockBaseServletInterceptor.isRan.get());
+        assertNotNull(MockEaseAgent.getLastSpan());
+    }
+
+    @Test
+    public void stateFollowsDispatch() {
+        MockHttpServletRequest request = new MockHttpServletRequest(TestConst.METHOD, "/orders/12345");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ServletRequestState state = ServletRequestState.begin(request);
+        assertEquals("/orders/{num}", state.getTemplate(request));
+        assertEquals(200, state.getStatus(response));
+        response.setStatus(500);
+        assertEquals(200, state.getStatus(response));
+
+        // an ERROR dispatch enters the chain again
+        request.setAttribute(TraceConst.HTTP_ATTRIBUTE_ROUTE, "/orders/{id}");
+        assertSame(state, ServletRequestState.begin(request));
+        assertEquals("/orders/{id}", state.getTemplate(request));
+        assertEquals(500, state.getStatus(response));
+    }
+
     private void runAsyncOne(Consumer<AsyncContext> asyncContextConsumer, Throwable error) throws InterruptedException {
         MockHttpServletRequest httpServletRequest = TestServletUtils.buildMockRequest();
         HttpServletResponse response = TestServletUtils.buildMockResponse();
@@ -115,7 +165,7 @@ public class BaseServletInterceptorTest {
         mockBaseServletInterceptor.throwable = error;
 
         mockBaseServletInterceptor.doBefore(methodInfo, EaseAgent.getContext());
-        mockBaseServletInterceptor.start = (long) httpServletRequest.getAttribute(ServletUtils.START_TIME);
+        mockBaseServletInterceptor.start = ServletRequestState.get(httpServletRequest).getStartTime();
         httpServletRequest.setAsyncSupported(true);
         final AsyncContext asyncContext = httpServletRequest.startAsync(httpServletRequest, response);
         mockBaseServletInterceptor.doAfter(methodInfo, EaseAgent.getContext());
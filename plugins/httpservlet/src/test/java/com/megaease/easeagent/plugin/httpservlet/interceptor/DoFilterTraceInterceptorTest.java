@@ -25,7 +25,7 @@ import com.megaease.easeagent.plugin.api.trace.Request;
 import com.megaease.easeagent.plugin.api.trace.Setter;
 import com.megaease.easeagent.plugin.api.trace.Span;
 import com.megaease.easeagent.plugin.bridge.EaseAgent;
-import com.megaease.easeagent.plugin.httpservlet.utils.ServletUtils;
+import com.megaease.easeagent.plugin.httpservlet.utils.ServletRequestState;
 import com.megaease.easeagent.plugin.interceptor.MethodInfo;
 import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
 import com.megaease.easeagent.plugin.tools.trace.TraceConst;
@@ -54,11 +54,11 @@ public class DoFilterTraceInterceptorTest {
 
         DoFilterTraceInterceptor doFilterTraceInterceptor = new DoFilterTraceInterceptor();
         doFilterTraceInterceptor.doBefore(methodInfo, EaseAgent.getContext());
-        Object o = httpServletRequest.getAttribute(ServletUtils.PROGRESS_CONTEXT);
+        Object o = ServletRequestState.get(httpServletRequest).getRequestContext();
         assertNotNull(o);
         assertTrue(o instanceof RequestContext);
         doFilterTraceInterceptor.doBefore(methodInfo, EaseAgent.getContext());
-        Object o2 = httpServletRequest.getAttribute(ServletUtils.PROGRESS_CONTEXT);
+        Object o2 = ServletRequestState.get(httpServletRequest).getRequestContext();
         assertNotNull(o2);
         assertSame(o, o2);
         doFilterTraceInterceptor.doAfter(methodInfo, EaseAgent.getContext());
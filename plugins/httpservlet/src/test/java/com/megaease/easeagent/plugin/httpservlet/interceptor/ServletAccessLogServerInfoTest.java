@@ -18,13 +18,15 @@
 package com.megaease.easeagent.plugin.httpservlet.interceptor;
 
 import com.megaease.easeagent.plugin.field.AgentFieldReflectAccessor;
+import com.megaease.easeagent.plugin.httpservlet.utils.ServletUtils;
+import com.megaease.easeagent.plugin.tools.trace.TraceConst;
 import org.junit.Test;
 import org.springframework.mock.web.MockHttpServletRequest;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import java.util.Map;
+import java.util.*;
 
 import static org.junit.Assert.*;
 
@@ -73,6 +75,13 @@ public class ServletAccessLogServerInfoTest {
     @Test
     public void getMatchURL() {
         assertEquals(TestConst.METHOD + " " + TestConst.ROUTE, loadMock().getMatchURL());
+
+        ServletAccessLogServerInfo serverInfo = new ServletAccessLogServerInfo();
+        MockHttpServletRequest request = new MockHttpServletRequest(TestConst.METHOD, "/orders/12345");
+        serverInfo.load(request, TestServletUtils.buildMockResponse());
+        assertEquals(TestConst.METHOD + " /orders/{num}", serverInfo.getMatchURL());
+        request.setAttribute(TraceConst.HTTP_ATTRIBUTE_ROUTE, "/orders/{id}");
+        assertEquals(TestConst.METHOD + " /orders/{id}", serverInfo.getMatchURL());
     }
 
     @Test
@@ -87,6 +96,33 @@ public class ServletAccessLogServerInfoTest {
         assertEquals("testq", queries.get("q2"));
     }
 
+    @Test
+    public void findQueriesByNames() {
+        ServletAccessLogServerInfo serverInfo = new ServletAccessLogServerInfo();
+        MockHttpServletRequest request = TestServletUtils.buildMockRequest();
+        request.setQueryString("q1=10&skip=%zz&q%32=a+b%21&q1=11&&flag&q3=&q4");
+        serverInfo.load(request, TestServletUtils.buildMockResponse());
+
+        Map<String, String> queries = serverInfo.findQueries(new HashSet<>(Arrays.asList("q1", "q2", "q3", "flag")));
+        assertEquals(4, queries.size());
+        assertEquals("10", queries.get("q1"));
+        assertEquals("a b!", queries.get("q2"));
+        assertTrue(queries.containsKey("q3"));
+        assertNull(queries.get("q3"));
+        assertTrue(queries.containsKey("flag"));
+
+        Map<String, String> all = serverInfo.findQueries(Collections.emptySet());
+        assertEquals(all, serverInfo.findQueries());
+        assertEquals(6, all.size());
+        // malformed escapes are kept undecoded
+        assertEquals("%zz", all.get("skip"));
+        assertTrue(all.containsKey("q4"));
+
+        Map<String, List<String>> values = ServletUtils.getQueries(request);
+        assertEquals(Arrays.asList("10", "11"), values.get("q1"));
+        assertEquals(Collections.singletonList("a b!"), values.get("q2"));
+    }
+
     @Test
     public void getStatusCode() {
         assertEquals("200", loadMock().getStatusCode());
@@ -20,6 +20,7 @@ package com.megaease.easeagent.plugin.httpservlet.interceptor;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.megaease.easeagent.mock.plugin.api.MockEaseAgent;
 import com.megaease.easeagent.mock.plugin.api.junit.EaseAgentJunit4ClassRunner;
+import com.megaease.easeagent.mock.plugin.api.utils.ConfigTestUtils;
 import com.megaease.easeagent.mock.report.MockReport;
 import com.megaease.easeagent.mock.report.impl.LastJsonReporter;
 import com.megaease.easeagent.plugin.api.config.IPluginConfig;
@@ -27,7 +28,7 @@ import com.megaease.easeagent.plugin.bridge.EaseAgent;
 import com.megaease.easeagent.plugin.enums.Order;
 import com.megaease.easeagent.plugin.field.AgentFieldReflectAccessor;
 import com.megaease.easeagent.plugin.httpservlet.AccessPlugin;
-import com.megaease.easeagent.plugin.httpservlet.utils.ServletUtils;
+import com.megaease.easeagent.plugin.httpservlet.utils.ServletRequestState;
 import com.megaease.easeagent.plugin.interceptor.MethodInfo;
 import com.megaease.easeagent.plugin.tools.metrics.AccessLogServerInfo;
 import com.megaease.easeagent.plugin.api.logging.AccessLogInfo;
@@ -97,11 +98,11 @@ public class ServletHttpLogInterceptorTest {
 
         MethodInfo methodInfo = MethodInfo.builder().args(new Object[]{httpServletRequest, response}).build();
         servletHttpLogInterceptor.doBefore(methodInfo, EaseAgent.getContext());
-        Object requestInfoO = httpServletRequest.getAttribute(AccessLogInfo.class.getName());
+        Object requestInfoO = ServletRequestState.get(httpServletRequest).getAccessLogInfo();
         assertNotNull(requestInfoO);
         assertTrue(requestInfoO instanceof AccessLogInfo);
         AccessLogInfo accessLogInfo = (AccessLogInfo) requestInfoO;
-        long start = (long) httpServletRequest.getAttribute(ServletUtils.START_TIME);
+        long start = ServletRequestState.get(httpServletRequest).getStartTime();
         verify(accessLogInfo, start);
         LastJsonReporter lastJsonReporter = MockEaseAgent.lastMetricJsonReporter(stringObjectMap -> {
             Object type = stringObjectMap.get("type");
@@ -121,11 +122,48 @@ public class ServletHttpLogInterceptorTest {
         servletHttpLogInterceptor.doAfter(methodInfo, EaseAgent.getContext());
         // info = getRequestInfo(lastJsonReporter);
         info = MockEaseAgent.getLastLog();
-        start = (long) httpServletRequest.getAttribute(ServletUtils.START_TIME);
+        start = ServletRequestState.get(httpServletRequest).getStartTime();
         verify(info, start);
         assertEquals("500", info.getStatusCode());
     }
 
+    @Test
+    public void sampling() {
+        EaseAgent.agentReport = MockReport.getAgentReport();
+        ServletHttpLogInterceptor servletHttpLogInterceptor = new ServletHttpLogInterceptor();
+        AccessPlugin accessPlugin = new AccessPlugin();
+        IPluginConfig iPluginConfig = EaseAgent.getConfig(accessPlugin.getDomain(), accessPlugin.getNamespace(), servletHttpLogInterceptor.getType());
+        servletHttpLogInterceptor.init(iPluginConfig, "", "", "");
+
+        try (ConfigTestUtils.Reset ignored = ConfigTestUtils.changeString(iPluginConfig, "sampleRate", "0");
+             ConfigTestUtils.Reset ignored1 = ConfigTestUtils.changeString(iPluginConfig, "headers", TestConst.FORWARDED_NAME);
+             ConfigTestUtils.Reset ignored2 = ConfigTestUtils.changeString(iPluginConfig, "queries", "q1")) {
+            MockHttpServletRequest httpServletRequest = TestServletUtils.buildMockRequest();
+            HttpServletResponse response = TestServletUtils.buildMockResponse();
+            MethodInfo methodInfo = MethodInfo.builder().args(new Object[]{httpServletRequest, response}).build();
+            servletHttpLogInterceptor.doBefore(methodInfo, EaseAgent.getContext());
+            assertNull(ServletRequestState.get(httpServletRequest).getAccessLogInfo());
+            AccessLogInfo last = MockEaseAgent.getLastLog();
+            servletHttpLogInterceptor.doAfter(methodInfo, EaseAgent.getContext());
+            assertSame(last, MockEaseAgent.getLastLog());
+            assertNull(ServletRequestState.get(httpServletRequest).getServerInfo());
+
+            // errors are logged even when not sampled
+            httpServletRequest = TestServletUtils.buildMockRequest();
+            response = TestServletUtils.buildMockResponse();
+            methodInfo = MethodInfo.builder().args(new Object[]{httpServletRequest, response}).throwable(new RuntimeException("test error")).build();
+            servletHttpLogInterceptor.doBefore(methodInfo, EaseAgent.getContext());
+            servletHttpLogInterceptor.doAfter(methodInfo, EaseAgent.getContext());
+            AccessLogInfo info = MockEaseAgent.getLastLog();
+            assertNotSame(last, info);
+            assertEquals("500", info.getStatusCode());
+            assertEquals(1, info.getHeaders().size());
+            assertEquals(TestConst.FORWARDED_VALUE, info.getHeaders().get(TestConst.FORWARDED_NAME));
+            assertEquals("10", info.getQueries().get("q1"));
+            assertNull(info.getQueries().get("q2"));
+        }
+    }
+
     @Test
     public void getType() {
         ServletHttpLogInterceptor servletHttpLogInterceptor = new ServletHttpLogInterceptor();
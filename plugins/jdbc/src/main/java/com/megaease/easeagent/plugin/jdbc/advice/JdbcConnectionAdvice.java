@@ -35,10 +35,25 @@ public class JdbcConnectionAdvice implements Points {
 
     @Override
     public Set<IMethodMatcher> getMethodMatcher() {
-        return MethodMatcher.builder()
-            .named("createStatement").isPublic()
-            .or().named("prepareCall").isPublic()
-            .or().named("prepareStatement").isPublic()
-            .build().toSet();
+        return MethodMatcher.multiBuilder()
+            .match(MethodMatcher.builder()
+                .named("createStatement").isPublic()
+                .or().named("prepareCall").isPublic()
+                .or().named("prepareStatement").isPublic()
+                .build())
+            .match(MethodMatcher.builder()
+                .named("close").isPublic()
+                .argsLength(0)
+                .qualifier("close")
+                .build())
+            .build();
+    }
+
+    /**
+     * Driver connections keep their {@link com.megaease.easeagent.plugin.jdbc.common.DatabaseInfo}
+     */
+    @Override
+    public boolean isAddDynamicField() {
+        return true;
     }
 }
@@ -40,4 +40,12 @@ public class JdbcDataSourceAdvice implements Points {
             .returnType("java.sql.Connection")
             .build().toSet();
     }
+
+    /**
+     * Data sources keep their {@link com.megaease.easeagent.plugin.jdbc.common.ConnectionPool}
+     */
+    @Override
+    public boolean isAddDynamicField() {
+        return true;
+    }
 }
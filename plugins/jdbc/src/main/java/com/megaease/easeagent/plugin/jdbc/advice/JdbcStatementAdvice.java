@@ -52,6 +52,13 @@ public class JdbcStatementAdvice implements Points {
                 .or().named("clearBatch")
                 .qualifier("batch")
                 .build())
+            .match(MethodMatcher.builder()
+                .nameStartWith("set")
+                .arg(0, "int")
+                .isOverriddenFrom(ClassMatcher.builder().hasClassName("java.sql.PreparedStatement").build())
+                .or().named("clearParameters")
+                .qualifier("param")
+                .build())
             .build();
     }
 
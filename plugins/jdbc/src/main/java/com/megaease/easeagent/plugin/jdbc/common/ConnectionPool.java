@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.jdbc.common;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.megaease.easeagent.plugin.api.logging.Logger;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+import com.megaease.easeagent.plugin.tools.metrics.GaugeMetricModel;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The state of a HikariCP, Druid or DBCP pool, read through the pool's own accessors when the metrics are reported.
+ * The pool classes are not on the plugin's classpath, a pool is recognized by its methods and read by reflection,
+ * so nothing is read while connections are borrowed.
+ * <p>
+ * Timeouts and borrow-to-return usage are counted here, the pools do not all keep them.
+ */
+public class ConnectionPool implements GaugeMetricModel {
+    private static final Logger LOGGER = EaseAgent.getLogger(ConnectionPool.class);
+
+    private static final Map<Class<?>, Kind> KINDS = new ConcurrentHashMap<>();
+
+    // borrowed connections, a pool hands out a new proxy on every borrow
+    private static final Cache<Connection, Borrow> BORROWED = CacheBuilder.newBuilder().weakKeys().build();
+
+    enum Kind {
+        HIKARI("getHikariPoolMXBean", "getPoolName", "getMaximumPoolSize"),
+        DRUID("getPoolingCount", "getName", "getMaxActive"),
+        DBCP("getNumIdle", "getUrl", "getMaxTotal"),
+        NONE(null, null, null);
+
+        final String marker;
+        final String name;
+        final String max;
+
+        Kind(String marker, String name, String max) {
+            this.marker = marker;
+            this.name = name;
+            this.max = max;
+        }
+
+        static Kind of(Class<?> type) {
+            return KINDS.computeIfAbsent(type, t -> {
+                for (Kind kind : values()) {
+                    if (kind.marker != null && findMethod(t, kind.marker) != null) {
+                        return kind;
+                    }
+                }
+                return NONE;
+            });
+        }
+    }
+
+    private final Object dataSource;
+    private final Kind kind;
+    private final String name;
+    private final Method max;
+    // hikari: the pool mxbean, created with the pool on the first getConnection
+    private final Method hikariPool;
+    private volatile Object pool;
+    private Method active;
+    private Method idle;
+    private Method pending;
+    private Method total;
+    private Method created;
+
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder usageCount = new LongAdder();
+    private final LongAdder usageNanos = new LongAdder();
+
+    private ConnectionPool(Object dataSource, Kind kind) {
+        this.dataSource = dataSource;
+        this.kind = kind;
+        Object name = invoke(dataSource, findMethod(dataSource.getClass(), kind.name));
+        this.name = name == null ? dataSource.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(dataSource)) : name.toString();
+        Method max = findMethod(dataSource.getClass(), kind.max);
+        this.max = max == null && kind == Kind.DBCP ? findMethod(dataSource.getClass(), "getMaxActive") : max;
+        this.hikariPool = kind == Kind.HIKARI ? findMethod(dataSource.getClass(), kind.marker) : null;
+        if (kind == Kind.DRUID) {
+            bind(dataSource, "getActiveCount", "getPoolingCount", "getWaitThreadCount", null, "getCreateCount");
+        } else if (kind == Kind.DBCP) {
+            // dbcp2 keeps waiters and created count on its GenericObjectPool, dbcp 1 has neither
+            Object objectPool = invoke(dataSource, findMethod(dataSource.getClass(), "getConnectionPool"));
+            bind(dataSource, "getNumActive", "getNumIdle", null, null, null);
+            if (objectPool != null) {
+                this.pending = findMethod(objectPool.getClass(), "getNumWaiters");
+                this.created = findMethod(objectPool.getClass(), "getCreatedCount");
+                this.pool = objectPool;
+            }
+        }
+    }
+
+    /**
+     * @return the pool, null when the data source is none of the known pools
+     */
+    public static ConnectionPool of(Object dataSource) {
+        Kind kind = Kind.of(dataSource.getClass());
+        return kind == Kind.NONE ? null : new ConnectionPool(dataSource, kind);
+    }
+
+    /**
+     * @return the data source a delegating data source, like spring's DelegatingDataSource, wraps or null
+     */
+    public static Object targetOf(Object dataSource) {
+        Object target = invoke(dataSource, findMethod(dataSource.getClass(), "getTargetDataSource"));
+        return target == dataSource ? null : target;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param connection the connection just borrowed from this pool
+     */
+    public void borrowed(Connection connection) {
+        BORROWED.put(connection, new Borrow(this, System.nanoTime()));
+    }
+
+    /**
+     * Counts the usage of a connection which is closed, that is returned to its pool.
+     */
+    public static void returned(Connection connection) {
+        Borrow borrow = BORROWED.asMap().remove(connection);
+        if (borrow != null) {
+            borrow.pool.usageCount.increment();
+            borrow.pool.usageNanos.add(System.nanoTime() - borrow.nanos);
+        }
+    }
+
+    /**
+     * @param error thrown by getConnection
+     */
+    public void failed(Throwable error) {
+        if (isTimeout(error)) {
+            timeouts.increment();
+        }
+    }
+
+    static boolean isTimeout(Throwable error) {
+        for (int i = 0; error != null && i < 5; i++, error = error.getCause()) {
+            // hikari SQLTransientConnectionException, druid GetConnectionTimeoutException, dbcp NoSuchElementException
+            if (error instanceof SQLTimeoutException || error instanceof SQLTransientConnectionException
+                || error instanceof NoSuchElementException || error.getClass().getSimpleName().contains("Timeout")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Map<String, Object> toHashMap() {
+        Object target = resolve();
+        Map<String, Object> values = new LinkedHashMap<>();
+        long active = readLong(target, this.active);
+        long idle = readLong(target, this.idle);
+        put(values, "active", active);
+        put(values, "idle", idle);
+        put(values, "pending", readLong(kind == Kind.DBCP ? pool : target, this.pending));
+        long total = this.total != null ? readLong(target, this.total) : active >= 0 && idle >= 0 ? active + idle : -1;
+        put(values, "total", total);
+        put(values, "max", readLong(dataSource, this.max));
+        put(values, "createdCnt", readLong(kind == Kind.DBCP ? pool : target, this.created));
+        values.put("timeoutCnt", timeouts.sum());
+        values.put("usageCnt", usageCount.sum());
+        values.put("usageTimeMs", TimeUnit.NANOSECONDS.toMillis(usageNanos.sum()));
+        return values;
+    }
+
+    private Object resolve() {
+        if (kind != Kind.HIKARI) {
+            return dataSource;
+        }
+        if (pool == null) {
+            Object mxBean = invoke(dataSource, hikariPool);
+            if (mxBean != null) {
+                bind(mxBean, "getActiveConnections", "getIdleConnections", "getThreadsAwaitingConnection", "getTotalConnections", null);
+                pool = mxBean;
+            }
+        }
+        return pool;
+    }
+
+    private void bind(Object target, String active, String idle, String pending, String total, String created) {
+        Class<?> type = target.getClass();
+        this.active = findMethod(type, active);
+        this.idle = findMethod(type, idle);
+        this.pending = findMethod(type, pending);
+        this.total = findMethod(type, total);
+        this.created = findMethod(type, created);
+    }
+
+    private static void put(Map<String, Object> values, String key, long value) {
+        if (value >= 0) {
+            values.put(key, value);
+        }
+    }
+
+    private static long readLong(Object target, Method method) {
+        Object value = invoke(target, method);
+        return value instanceof Number ? ((Number) value).longValue() : -1;
+    }
+
+    private static Object invoke(Object target, Method method) {
+        if (target == null || method == null) {
+            return null;
+        }
+        try {
+            return method.invoke(target);
+        } catch (Exception e) {
+            LOGGER.debug("read pool {} failed: {}", method.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    static Method findMethod(Class<?> type, String name) {
+        if (name == null) {
+            return null;
+        }
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                Method method = c.getDeclaredMethod(name);
+                method.setAccessible(true);
+                return method;
+            } catch (NoSuchMethodException ignored) {
+                // declared by a super class
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static class Borrow {
+        final ConnectionPool pool;
+        final long nanos;
+
+        Borrow(ConnectionPool pool, long nanos) {
+            this.pool = pool;
+            this.nanos = nanos;
+        }
+    }
+}
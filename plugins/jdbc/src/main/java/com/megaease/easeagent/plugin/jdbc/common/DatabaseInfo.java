@@ -17,6 +17,8 @@
 
 package com.megaease.easeagent.plugin.jdbc.common;
 
+import com.megaease.easeagent.plugin.field.AgentDynamicFieldAccessor;
+import com.megaease.easeagent.plugin.field.DynamicFieldAccessor;
 import com.megaease.easeagent.plugin.utils.common.StringUtils;
 import lombok.Builder;
 import lombok.Data;
@@ -28,26 +30,127 @@ import java.sql.SQLException;
 @Builder
 @Data
 public class DatabaseInfo {
+    private static final String JDBC_PREFIX = "jdbc:";
+    // jdbc:p6spy:mysql://..., the vendor comes after the proxy driver
+    private static final String[] PROXY_DRIVERS = {"p6spy:", "log4jdbc:", "tracing:", "otel:"};
+
+    private String vendor;
+    // without the query part, like JdbcUtils.getUrl which keyed the data source metrics before
+    private String url;
     private String database;
     private String host;
     private int port;
 
+    /**
+     * The url, vendor, host and port are resolved once per physical connection: pool proxies are unwrapped
+     * and the result is kept in the dynamic field of the driver connection. The catalog is read on each call,
+     * since setCatalog or a USE statement changes it for the rest of the pooled connection's life.
+     */
+    public static DatabaseInfo getCached(Connection connection) {
+        Connection physical = JdbcUtils.unwrap(connection);
+        if (!(physical instanceof DynamicFieldAccessor)) {
+            return getFromConnection(physical);
+        }
+        Object cached = AgentDynamicFieldAccessor.getDynamicFieldValue(physical);
+        if (!(cached instanceof DatabaseInfo)) {
+            DatabaseInfo databaseInfo = getFromConnection(physical);
+            if (databaseInfo != null) {
+                AgentDynamicFieldAccessor.setDynamicFieldValue(physical, databaseInfo);
+            }
+            return databaseInfo;
+        }
+        DatabaseInfo databaseInfo = (DatabaseInfo) cached;
+        String databaseName;
+        try {
+            databaseName = catalogOf(physical);
+        } catch (SQLException ignored) {
+            return databaseInfo;
+        }
+        if (databaseName.equals(databaseInfo.database)) {
+            return databaseInfo;
+        }
+        DatabaseInfo changed = new DatabaseInfo(databaseInfo.vendor, databaseInfo.url, databaseName,
+            databaseInfo.host, databaseInfo.port);
+        AgentDynamicFieldAccessor.setDynamicFieldValue(physical, changed);
+        return changed;
+    }
+
     public static DatabaseInfo getFromConnection(Connection connection) {
         try {
             String jdbcURL = connection.getMetaData().getURL();
-            URI url = URI.create(jdbcURL.substring(5)); // strip "jdbc:"
-            String remoteServiceName;
-            String databaseName = connection.getCatalog();
-            if (databaseName != null && !databaseName.isEmpty()) {
-                remoteServiceName = databaseName;
-            } else {
-                remoteServiceName = "";
+            if (jdbcURL == null) {
+                return null;
             }
-            return new DatabaseInfo(remoteServiceName,
-                StringUtils.isNotEmpty(url.getHost()) ? url.getHost() : "",
-                url.getPort() == -1 ? 3306 : url.getPort());
+            String vendor = vendorOf(jdbcURL);
+            URI url = parseUri(jdbcURL);
+            return new DatabaseInfo(vendor, stripQuery(jdbcURL),
+                catalogOf(connection),
+                url != null && StringUtils.isNotEmpty(url.getHost()) ? url.getHost() : "",
+                url == null || url.getPort() == -1 ? defaultPort(vendor) : url.getPort());
         } catch (SQLException ignored) {
         }
         return null;
     }
+
+    private static String catalogOf(Connection connection) throws SQLException {
+        String databaseName = connection.getCatalog();
+        return databaseName == null ? "" : databaseName;
+    }
+
+    /**
+     * @return vendor-database, like mysql-orders or postgresql-orders
+     */
+    public String remoteServiceName() {
+        if (StringUtils.isEmpty(database)) {
+            return vendor;
+        }
+        return vendor + "-" + database;
+    }
+
+    static String vendorOf(String jdbcURL) {
+        int start = jdbcURL.startsWith(JDBC_PREFIX) ? JDBC_PREFIX.length() : 0;
+        for (String proxy : PROXY_DRIVERS) {
+            if (jdbcURL.startsWith(proxy, start)) {
+                start += proxy.length();
+                break;
+            }
+        }
+        int end = jdbcURL.indexOf(':', start);
+        String vendor = end < 0 ? jdbcURL.substring(start) : jdbcURL.substring(start, end);
+        return vendor.isEmpty() ? "database" : vendor;
+    }
+
+    static String stripQuery(String jdbcURL) {
+        int idx = jdbcURL.indexOf('?');
+        return idx == -1 ? jdbcURL : jdbcURL.substring(0, idx);
+    }
+
+    private static URI parseUri(String jdbcURL) {
+        try {
+            return URI.create(jdbcURL.substring(jdbcURL.startsWith(JDBC_PREFIX) ? JDBC_PREFIX.length() : 0));
+        } catch (IllegalArgumentException e) {
+            // oracle:thin:@host:1521:sid and other urls which are no uri
+            return null;
+        }
+    }
+
+    /**
+     * @return the well-known port of the vendor when the url has none, 0 for other vendors, which all got 3306
+     * when the remote service was always named mysql
+     */
+    private static int defaultPort(String vendor) {
+        switch (vendor) {
+            case "mysql":
+            case "mariadb":
+                return 3306;
+            case "postgresql":
+                return 5432;
+            case "sqlserver":
+                return 1433;
+            case "oracle":
+                return 1521;
+            default:
+                return 0;
+        }
+    }
 }
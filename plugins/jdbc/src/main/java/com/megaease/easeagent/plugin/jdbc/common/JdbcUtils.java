@@ -36,4 +36,23 @@ public class JdbcUtils {
         }
         return null;
     }
+
+    /**
+     * @return the driver connection behind a pool proxy, like Hikari's ProxyConnection, or the connection itself
+     */
+    public static Connection unwrap(Connection con) {
+        try {
+            if (con.isWrapperFor(Connection.class)) {
+                Connection physical = con.unwrap(Connection.class);
+                if (physical != null) {
+                    return physical;
+                }
+            }
+        } catch (Exception ignored) {
+            // closed connection or a driver without the wrapper methods
+        } catch (AbstractMethodError ignored) {
+            // driver compiled against jdbc 3
+        }
+        return con;
+    }
 }
@@ -19,38 +19,80 @@ package com.megaease.easeagent.plugin.jdbc.common;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
+import com.megaease.easeagent.plugin.api.config.Config;
 import com.megaease.easeagent.plugin.api.logging.Logger;
 import com.megaease.easeagent.plugin.async.ScheduleHelper;
 import com.megaease.easeagent.plugin.bridge.EaseAgent;
+import com.megaease.easeagent.plugin.utils.NoNull;
 import com.megaease.easeagent.plugin.utils.common.DataSize;
 import com.megaease.easeagent.plugin.utils.common.StringUtils;
-import org.apache.commons.codec.digest.DigestUtils;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
-public class MD5SQLCompression implements SQLCompression, RemovalListener<String, String> {
+/**
+ * Replaces a sql with its fingerprint and reports the fingerprint to sql dictionary:
+ * the fingerprints seen for the first time, and every resyncInterval seconds the whole dictionary,
+ * so a collector which lost it gets it back. At most one batch of {@link #REPORT_BATCH_SIZE} items is reported
+ * each second, a burst of new sql or a resync is spread over the following seconds.
+ */
+public class MD5SQLCompression implements SQLCompression {
     private static final Logger logger = EaseAgent.getLogger(MD5SQLCompression.class);
 
     public static final DataSize MAX_SQL_SIZE = DataSize.ofKilobytes(32);//32KB
 
+    private static final String FINGERPRINT_KEY = "plugin.observability.jdbc.sql.compress.fingerprint";
+    private static final String CACHE_MAX_BYTES_KEY = "plugin.observability.jdbc.sql.compress.cacheMaxBytes";
+    private static final String RESYNC_INTERVAL_KEY = "plugin.observability.jdbc.sql.compress.resyncInterval";
+
+    static final long DEFAULT_CACHE_MAX_BYTES = DataSize.ofMegabytes(4).toBytes();
+    static final int DEFAULT_RESYNC_INTERVAL = 300;
+    static final int REPORT_BATCH_SIZE = 100;
+    // map entry, strings and fingerprint besides the chars of the sql
+    private static final int ENTRY_OVERHEAD = 160;
+
     private static final AtomicReference<MD5SQLCompression> INSTANCE = new AtomicReference<>();
 
-    private final Cache<String, String> dictionary = CacheBuilder.newBuilder().maximumSize(1000)
-        .removalListener(this).build();
+    private final SqlFingerprint fingerprint;
 
-    private final Cache<String, String> md5Cache = CacheBuilder.newBuilder().maximumSize(1000).build();
+    // sql -> fingerprint, its entries are the dictionary
+    private final Cache<String, String> cache;
+
+    // fingerprint -> sql not reported yet
+    private final Map<String, String> pending = new ConcurrentHashMap<>();
 
     private final Consumer<Map<String, String>> reportConsumer;
+    private final long resyncIntervalNanos;
+    private long lastResync;
+    // the dictionary entries left to report by the running resync, only touched by the push thread
+    private Iterator<Map.Entry<String, String>> resync;
 
     public MD5SQLCompression(Consumer<Map<String, String>> reportConsumer) {
+        this(reportConsumer, EaseAgent.getConfig());
+        ScheduleHelper.DEFAULT.nonStopExecute(10, 1, this::pushItems);
+    }
+
+    private MD5SQLCompression(Consumer<Map<String, String>> reportConsumer, Config config) {
+        this(reportConsumer, SqlFingerprint.of(config.getString(FINGERPRINT_KEY)),
+            NoNull.of(config.getLong(CACHE_MAX_BYTES_KEY), DEFAULT_CACHE_MAX_BYTES),
+            NoNull.of(config.getInt(RESYNC_INTERVAL_KEY), DEFAULT_RESYNC_INTERVAL));
+    }
+
+    MD5SQLCompression(Consumer<Map<String, String>> reportConsumer, SqlFingerprint fingerprint,
+                      long cacheMaxBytes, int resyncIntervalSeconds) {
         this.reportConsumer = reportConsumer;
-        ScheduleHelper.DEFAULT.nonStopExecute(10, 5, this::pushItems);
+        this.fingerprint = fingerprint;
+        this.cache = CacheBuilder.newBuilder()
+            .maximumWeight(cacheMaxBytes)
+            .weigher((String sql, String key) -> (sql.length() + key.length()) * 2 + ENTRY_OVERHEAD)
+            .build();
+        this.resyncIntervalNanos = TimeUnit.SECONDS.toNanos(resyncIntervalSeconds);
+        this.lastResync = System.nanoTime();
     }
 
     public static MD5SQLCompression getInstance() {
@@ -69,40 +111,60 @@ public class MD5SQLCompression implements SQLCompression, RemovalListener<String
         }
     }
 
-    private String cacheLoad(String str) {
-        return DigestUtils.md5Hex(str);
-    }
-
     @Override
     public String compress(String origin) {
         try {
             String cutStr = StringUtils.cutStrByDataSize(origin, MAX_SQL_SIZE);
-            String md5 = md5Cache.get(cutStr, () -> cacheLoad(cutStr));
-            String value = dictionary.getIfPresent(md5);
-            if (value == null) {
-                dictionary.put(md5, cutStr);
+            String key = cache.getIfPresent(cutStr);
+            if (key != null) {
+                return key;
+            }
+            key = fingerprint.fingerprint(cutStr);
+            if (cache.asMap().putIfAbsent(cutStr, key) == null) {
+                pending.put(key, cutStr);
             }
-            return md5;
+            return key;
         } catch (Exception e) {
             logger.warn("compress content[{}] failure", origin, e);
             return origin;
         }
     }
 
+    /**
+     * Reports one batch: the next of a running resync, otherwise of the pending fingerprints.
+     */
     private void pushItems() {
-        ConcurrentMap<String, String> map = this.dictionary.asMap();
-        if (map.isEmpty()) {
+        long now = System.nanoTime();
+        if (resync == null && now - lastResync >= resyncIntervalNanos) {
+            lastResync = now;
+            // cleared first: a sql is in the cache before it is pending, so one the resync does not see
+            // is still pending and reported after it
+            pending.clear();
+            resync = cache.asMap().entrySet().iterator();
+        }
+        if (resync != null) {
+            push(resync, true);
+            if (!resync.hasNext()) {
+                resync = null;
+            }
             return;
         }
-        this.reportConsumer.accept(map);
+        push(pending.entrySet().iterator(), false);
     }
 
-    @Override
-    public void onRemoval(RemovalNotification<String, String> notification) {
-        logger.info("remove md5 dictionary item. cause: {}, md5: {}, content: {}",
-            notification.getCause().toString(), notification.getKey(), notification.getValue());
-        Map<String, String> map = new HashMap<>();
-        map.put(notification.getKey(), notification.getValue());
-        reportConsumer.accept(map);
+    private void push(Iterator<Map.Entry<String, String>> entries, boolean sqlToKey) {
+        Map<String, String> batch = new HashMap<>();
+        while (entries.hasNext() && batch.size() < REPORT_BATCH_SIZE) {
+            Map.Entry<String, String> entry = entries.next();
+            if (sqlToKey) {
+                batch.put(entry.getValue(), entry.getKey());
+            } else {
+                batch.put(entry.getKey(), entry.getValue());
+                entries.remove();
+            }
+        }
+        if (!batch.isEmpty()) {
+            this.reportConsumer.accept(batch);
+        }
     }
 }
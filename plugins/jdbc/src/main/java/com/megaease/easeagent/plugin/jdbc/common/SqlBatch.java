@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.jdbc.common;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rows added to a statement by {@code addBatch} until it is executed or cleared.
+ * {@code Statement.addBatch(sql)} keeps each distinct statement once with its count, normalized when
+ * normalizing is enabled, so a batch of 10k inserts is one statement counted 10k times.
+ * At most {@link #MAX_STATEMENTS} statements and {@link #MAX_CHARS} chars are kept, the others are only counted.
+ */
+public class SqlBatch {
+    static final int MAX_STATEMENTS = 20;
+    static final int MAX_CHARS = (int) MD5SQLCompression.MAX_SQL_SIZE.toBytes();
+
+    private final SqlNormalizer.Dialect dialect;
+    private final Map<String, int[]> statements = new LinkedHashMap<>();
+    private int chars;
+    private int size;
+    private int dropped;
+    private String sql;
+
+    SqlBatch(SqlNormalizer.Dialect dialect) {
+        this.dialect = dialect;
+    }
+
+    /**
+     * @param sql the sql of {@code Statement.addBatch(sql)}, null for {@code PreparedStatement.addBatch()}
+     * @return true when the statement is a new one, {@link #getSql()} changed
+     */
+    boolean add(String sql) {
+        size++;
+        if (sql == null) {
+            return false;
+        }
+        String statement = dialect == null ? sql : SqlNormalizer.normalize(sql, dialect);
+        int[] count = statements.get(statement);
+        if (count != null) {
+            count[0]++;
+        } else if (statements.size() < MAX_STATEMENTS && chars + statement.length() <= MAX_CHARS) {
+            statements.put(statement, new int[]{1});
+            chars += statement.length();
+            this.sql = null;
+            return true;
+        } else {
+            dropped++;
+        }
+        return false;
+    }
+
+    /**
+     * @return true when the statements are normalized
+     */
+    boolean isNormalized() {
+        return dialect != null;
+    }
+
+    public boolean hasStatements() {
+        return !statements.isEmpty();
+    }
+
+    /**
+     * @return the distinct statements joined by line breaks, null for a prepared statement
+     */
+    String getSql() {
+        if (sql == null && !statements.isEmpty()) {
+            sql = String.join("\n", statements.keySet());
+        }
+        return sql;
+    }
+
+    public List<String> getStatements() {
+        return new ArrayList<>(statements.keySet());
+    }
+
+    /**
+     * @return the times each of {@link #getStatements()} was added, comma separated
+     */
+    public String getCounts() {
+        StringBuilder counts = new StringBuilder();
+        for (int[] count : statements.values()) {
+            counts.append(counts.length() == 0 ? "" : ",").append(count[0]);
+        }
+        return counts.toString();
+    }
+
+    /**
+     * @return the number of addBatch calls
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of statements only counted in the size, over the limits
+     */
+    public int getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @param result the result of executeBatch or executeLargeBatch
+     * @return the updated rows, -1 when the driver does not tell
+     */
+    public static long rowCount(Object result) {
+        long rows = 0;
+        boolean known = false;
+        if (result instanceof int[]) {
+            for (int count : (int[]) result) {
+                if (count >= 0) {
+                    rows += count;
+                    known = true;
+                }
+            }
+        } else if (result instanceof long[]) {
+            for (long count : (long[]) result) {
+                if (count >= 0) {
+                    rows += count;
+                    known = true;
+                }
+            }
+        }
+        return known ? rows : -1;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.plugin.jdbc.common;
+
+import com.google.common.hash.Hashing;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The key a sql is replaced with in spans and metrics, a hex string of a hash over the UTF-8 bytes of the sql.
+ * The bytes are encoded into a buffer kept per thread, no intermediate string or array is created.
+ */
+public enum SqlFingerprint {
+    /**
+     * 32 hex chars, what the md5 dictionary always had
+     */
+    MD5 {
+        @Override
+        String hash(byte[] bytes, int length) {
+            MessageDigest digest = MD5_DIGESTS.get();
+            digest.update(bytes, 0, length);
+            return hex(digest.digest());
+        }
+    },
+    /**
+     * 16 hex chars, the cheapest
+     */
+    XXHASH64 {
+        @Override
+        String hash(byte[] bytes, int length) {
+            return hex(xxHash64(bytes, 0, length, 0));
+        }
+    },
+    /**
+     * 32 hex chars
+     */
+    MURMUR3_128 {
+        @Override
+        String hash(byte[] bytes, int length) {
+            return Hashing.murmur3_128().hashBytes(bytes, 0, length).toString();
+        }
+    };
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    // larger buffers are not kept by the thread
+    private static final int MAX_KEPT_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[1024]);
+    private static final ThreadLocal<MessageDigest> MD5_DIGESTS = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    abstract String hash(byte[] bytes, int length);
+
+    public String fingerprint(String sql) {
+        byte[] buffer = BUFFERS.get();
+        // at most 3 bytes per char, a surrogate pair is 4 bytes for 2 chars
+        int max = sql.length() * 3;
+        if (buffer.length < max) {
+            buffer = new byte[max];
+            if (max <= MAX_KEPT_BUFFER) {
+                BUFFERS.set(buffer);
+            }
+        }
+        return hash(buffer, encodeUtf8(sql, buffer));
+    }
+
+    /**
+     * @return the fingerprint of the name, ignoring case and dashes, or {@link #MD5}
+     */
+    public static SqlFingerprint of(String name) {
+        if (name != null) {
+            String normalized = name.replace("-", "").replace("_", "");
+            for (SqlFingerprint fingerprint : values()) {
+                if (fingerprint.name().replace("_", "").equalsIgnoreCase(normalized)) {
+                    return fingerprint;
+                }
+            }
+        }
+        return MD5;
+    }
+
+    static int encodeUtf8(String s, byte[] out) {
+        int n = 0;
+        for (int i = 0, length = s.length(); i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                out[n++] = (byte) c;
+            } else if (c < 0x800) {
+                out[n++] = (byte) (0xc0 | c >> 6);
+                out[n++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                out[n++] = (byte) (0xf0 | cp >> 18);
+                out[n++] = (byte) (0x80 | cp >> 12 & 0x3f);
+                out[n++] = (byte) (0x80 | cp >> 6 & 0x3f);
+                out[n++] = (byte) (0x80 | cp & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                // like String.getBytes
+                out[n++] = '?';
+            } else {
+                out[n++] = (byte) (0xe0 | c >> 12);
+                out[n++] = (byte) (0x80 | c >> 6 & 0x3f);
+                out[n++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        return n;
+    }
+
+    static long xxHash64(byte[] b, int off, int length, long seed) {
+        int end = off + length;
+        long h;
+        if (length >= 32) {
+            long v1 = seed + P1 + P2;
+            long v2 = seed + P2;
+            long v3 = seed;
+            long v4 = seed - P1;
+            int limit = end - 32;
+            do {
+                v1 = round(v1, getLong(b, off));
+                v2 = round(v2, getLong(b, off + 8));
+                v3 = round(v3, getLong(b, off + 16));
+                v4 = round(v4, getLong(b, off + 24));
+                off += 32;
+            } while (off <= limit);
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = merge(h, v1);
+            h = merge(h, v2);
+            h = merge(h, v3);
+            h = merge(h, v4);
+        } else {
+            h = seed + P5;
+        }
+        h += length;
+        while (off + 8 <= end) {
+            h ^= round(0, getLong(b, off));
+            h = Long.rotateLeft(h, 27) * P1 + P4;
+            off += 8;
+        }
+        if (off + 4 <= end) {
+            h ^= (getInt(b, off) & 0xFFFFFFFFL) * P1;
+            h = Long.rotateLeft(h, 23) * P2 + P3;
+            off += 4;
+        }
+        while (off < end) {
+            h ^= (b[off] & 0xFF) * P5;
+            h = Long.rotateLeft(h, 11) * P1;
+            off++;
+        }
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * P2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * P1;
+    }
+
+    private static long merge(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * P1 + P4;
+    }
+
+    private static long getLong(byte[] b, int i) {
+        return (b[i] & 0xFFL) | (b[i + 1] & 0xFFL) << 8 | (b[i + 2] & 0xFFL) << 16 | (b[i + 3] & 0xFFL) << 24
+            | (b[i + 4] & 0xFFL) << 32 | (b[i + 5] & 0xFFL) << 40 | (b[i + 6] & 0xFFL) << 48 | (b[i + 7] & 0xFFL) << 56;
+    }
+
+    private static int getInt(byte[] b, int i) {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[bytes[i] >> 4 & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    private static String hex(long value) {
+        char[] chars = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            chars[i] = HEX[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+        return new String(chars);
+    }
+}
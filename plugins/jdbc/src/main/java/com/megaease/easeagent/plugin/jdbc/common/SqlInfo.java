@@ -19,6 +19,7 @@ package com.megaease.easeagent.plugin.jdbc.common;
 
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @SuppressWarnings("unused")
@@ -30,31 +31,164 @@ public class SqlInfo {
     }
 
     private final List<String> sqlList = new ArrayList<>();
+    private SqlBatch batch;
+    // slots of the bound parameters, only with plugin.observability.jdbc.sql.params.enabled=true
+    private Object[] parameters;
+    private int parameterCount;
+
+    // a prepared statement keeps its SqlInfo, so its sql is normalized once
+    private SqlNormalizer.Dialect dialect;
+    private String normalizedSql;
 
     public Connection getConnection() {
         return connection;
     }
 
     public void addSql(String sql, boolean forBatch) {
-        if (!forBatch) {
-            this.sqlList.clear();
+        if (forBatch) {
+            addBatch(sql);
+            return;
+        }
+        if (this.sqlList.size() == 1 && this.sqlList.get(0).equals(sql)) {
+            return;
         }
+        this.sqlList.clear();
         this.sqlList.add(sql);
+        this.batch = null;
+        this.normalizedSql = null;
+    }
+
+    /**
+     * @param sql the sql of {@code Statement.addBatch(sql)}, null for {@code PreparedStatement.addBatch()}
+     */
+    public void addBatch(String sql) {
+        if (this.batch == null) {
+            this.batch = new SqlBatch(SqlNormalizer.isEnabled() ? getDialect() : null);
+        }
+        if (this.batch.add(sql)) {
+            this.normalizedSql = null;
+        }
+    }
+
+    /**
+     * The batch is cleared by clearBatch and after executeBatch, a prepared statement keeps its sql.
+     */
+    public void clearBatch() {
+        if (this.batch != null && this.batch.hasStatements()) {
+            this.normalizedSql = null;
+        }
+        this.batch = null;
+    }
+
+    /**
+     * @return the pending batch, null when addBatch was not called
+     */
+    public SqlBatch getBatch() {
+        return batch;
     }
 
     public void clearSql() {
         this.sqlList.clear();
+        this.batch = null;
+        this.normalizedSql = null;
     }
 
+    /**
+     * @return the sql, or the distinct statements of a batch joined by line breaks
+     */
     public String getSql() {
+        if (this.batch != null && this.batch.hasStatements()) {
+            return this.batch.getSql();
+        }
         if (this.sqlList.isEmpty()) {
             return null;
         }
         return String.join("\n", this.sqlList);
     }
 
+    /**
+     * @return the sql, or the distinct statements of a batch
+     */
     public List<String> getSqlList() {
+        if (this.batch != null && this.batch.hasStatements()) {
+            return this.batch.getStatements();
+        }
         return sqlList;
     }
+
+    /**
+     * @param index     the 1-based index of the parameter, parameters after maxCount are not recorded
+     * @param value     the bound value, {@link SqlParameters#NULL} for setNull
+     * @param maxCount  the number of slots
+     */
+    public void setParameter(int index, Object value, int maxCount) {
+        if (index < 1 || index > maxCount) {
+            return;
+        }
+        if (this.parameters == null || this.parameters.length != maxCount) {
+            this.parameters = new Object[maxCount];
+            this.parameterCount = 0;
+        }
+        this.parameters[index - 1] = value;
+        if (index > this.parameterCount) {
+            this.parameterCount = index;
+        }
+    }
+
+    public void clearParameters() {
+        if (this.parameters != null) {
+            Arrays.fill(this.parameters, 0, this.parameterCount, null);
+        }
+        this.parameterCount = 0;
+    }
+
+    public Object[] getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return the highest index of a bound parameter
+     */
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * @return the sql with its literals replaced, see {@link SqlNormalizer}
+     */
+    public String getNormalizedSql() {
+        if (this.normalizedSql == null) {
+            String sql = getSql();
+            if (sql == null) {
+                return null;
+            }
+            this.normalizedSql = this.batch != null && this.batch.hasStatements() && this.batch.isNormalized()
+                ? sql : SqlNormalizer.normalize(sql, getDialect());
+        }
+        return this.normalizedSql;
+    }
+
+    /**
+     * @return the normalized sql, or the sql itself when normalizing is disabled
+     */
+    public String getSqlForReport() {
+        return SqlNormalizer.isEnabled() ? getNormalizedSql() : getSql();
+    }
+
+    /**
+     * @return the database of the connection, see {@link DatabaseInfo#getCached(Connection)}, not kept by the
+     * statement since its connection may switch catalogs between executions
+     */
+    public DatabaseInfo getDatabaseInfo() {
+        return this.connection == null ? null : DatabaseInfo.getCached(this.connection);
+    }
+
+    private SqlNormalizer.Dialect getDialect() {
+        if (this.dialect == null) {
+            DatabaseInfo info = getDatabaseInfo();
+            this.dialect = SqlNormalizer.Dialect.fromUrl(info == null ? null : info.getUrl());
+        }
+        return this.dialect;
+    }
 }
 
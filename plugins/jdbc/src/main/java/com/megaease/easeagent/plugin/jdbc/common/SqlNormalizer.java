@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.plugin.jdbc.common;
+
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+
+/**
+ * Turns a sql into its shape, so {@code where id = 42} and {@code where id = 43} are one metric, one span name
+ * and one dictionary item:
+ * <ul>
+ *     <li>strings, numbers, hex and bit literals and bind parameters become {@code ?}</li>
+ *     <li>{@code in (?, ?, ?)} becomes {@code in (?)}, repeated {@code values} rows are kept once</li>
+ *     <li>comments are dropped and whitespace collapsed to a single space</li>
+ * </ul>
+ * It is a single pass lexer, not a parser: keywords and identifiers are copied as they are.
+ */
+public final class SqlNormalizer {
+    private static final String SQL_NORMALIZE_ENABLED = "plugin.observability.jdbc.sql.normalize.enabled";
+
+    private static final int NONE = 0;
+    private static final int WORD = 1;
+    private static final int VALUE = 2;
+    private static final int PUNCT = 3;
+
+    public enum Dialect {
+        /**
+         * standard sql: {@code "} identifiers and no backslash escapes, used for Oracle, H2, DB2, SQL Server...
+         */
+        ANSI,
+        /**
+         * {@code #} comments, {@code "} strings, {@code `} identifiers and backslash escapes
+         */
+        MYSQL,
+        /**
+         * {@code "} identifiers, dollar quoted strings, nested block comments and backslash escapes in E'' only
+         */
+        POSTGRESQL;
+
+        public static Dialect fromUrl(String url) {
+            if (url == null) {
+                return ANSI;
+            }
+            // wrapping drivers such as jdbc:p6spy:mysql: keep the vendor after a colon
+            if (url.contains("postgresql:")) {
+                return POSTGRESQL;
+            }
+            if (url.contains(":mysql:") || url.contains(":mariadb:")) {
+                return MYSQL;
+            }
+            return ANSI;
+        }
+    }
+
+    private static volatile Boolean enabled;
+
+    private SqlNormalizer() {
+    }
+
+    /**
+     * Read from the config once and again when the key changes, it is checked on every statement.
+     *
+     * @return true unless plugin.observability.jdbc.sql.normalize.enabled=false
+     */
+    public static boolean isEnabled() {
+        Boolean current = enabled;
+        if (current == null) {
+            synchronized (SqlNormalizer.class) {
+                if (enabled == null) {
+                    Config config = EaseAgent.getConfig();
+                    if (config == null) {
+                        return true;
+                    }
+                    enabled = load(config);
+                    config.addChangeListener(list -> {
+                        if (list.stream().anyMatch(item -> SQL_NORMALIZE_ENABLED.equals(item.getFullName()))) {
+                            enabled = load(config);
+                        }
+                    });
+                }
+                current = enabled;
+            }
+        }
+        return current;
+    }
+
+    static boolean load(Config config) {
+        return !Boolean.FALSE.equals(config.getBooleanNullForUnset(SQL_NORMALIZE_ENABLED));
+    }
+
+    public static String normalize(String sql, Dialect dialect) {
+        if (sql == null) {
+            return null;
+        }
+        return new Lexer(sql, dialect).run();
+    }
+
+    private static final class Lexer {
+        final String sql;
+        final int length;
+        final boolean mysql;
+        final boolean postgresql;
+        final StringBuilder out;
+        int pos;
+        boolean space;
+        int lastKind = NONE;
+        char lastPunct;
+        boolean lastWordIn;
+        boolean lastWordValues;
+
+        // in (...): start of the list in out, -1 when not in a list of values
+        int inListStart = -1;
+        boolean inListHasValue;
+
+        // values (...), (...)
+        boolean valuesMode;
+        int tupleDepth;
+        int tupleStart;
+        int prevTupleStart = -1;
+        int prevTupleEnd = -1;
+
+        Lexer(String sql, Dialect dialect) {
+            this.sql = sql;
+            this.length = sql.length();
+            this.mysql = dialect == Dialect.MYSQL;
+            this.postgresql = dialect == Dialect.POSTGRESQL;
+            this.out = new StringBuilder(length);
+        }
+
+        String run() {
+            while (pos < length) {
+                char c = sql.charAt(pos);
+                if (c <= ' ') {
+                    space = true;
+                    pos++;
+                } else if (c == '-' && next(1) == '-' || c == '#' && mysql) {
+                    skipLineComment();
+                } else if (c == '/' && next(1) == '*') {
+                    skipBlockComment();
+                } else if (c == '\'') {
+                    skipString(pos, '\'', mysql);
+                    value();
+                } else if (c == '"') {
+                    if (mysql) {
+                        skipString(pos, '"', true);
+                        value();
+                    } else {
+                        quotedWord('"');
+                    }
+                } else if (c == '`' && mysql) {
+                    quotedWord('`');
+                } else if (c == '$' && postgresql && dollar()) {
+                    value();
+                } else if (c == '?') {
+                    pos++;
+                    value();
+                } else if (isDigit(c) || c == '.' && isDigit(next(1)) && lastKind != WORD) {
+                    skipNumber();
+                    value();
+                } else if ((c == '-' || c == '+') && isUnary() && (isDigit(next(1)) || next(1) == '.' && isDigit(next(2)))) {
+                    pos++;
+                    skipNumber();
+                    value();
+                } else if (isWordStart(c)) {
+                    word();
+                } else {
+                    pos++;
+                    punct(c);
+                }
+            }
+            return out.toString();
+        }
+
+        char next(int offset) {
+            int i = pos + offset;
+            return i < length ? sql.charAt(i) : 0;
+        }
+
+        boolean isUnary() {
+            return lastKind == NONE || lastKind == PUNCT && lastPunct != ')';
+        }
+
+        void separate(int kind) {
+            if (out.length() > 0 && (space || (kind == WORD || kind == VALUE) && (lastKind == WORD || lastKind == VALUE))) {
+                out.append(' ');
+            }
+            space = false;
+        }
+
+        void value() {
+            if (inListStart >= 0) {
+                inListHasValue = true;
+            }
+            separate(VALUE);
+            out.append('?');
+            lastKind = VALUE;
+            lastWordIn = false;
+            lastWordValues = false;
+        }
+
+        void word() {
+            int start = pos;
+            char c = sql.charAt(pos);
+            // x'0a', b'01', n'text', e'text'
+            if (next(1) == '\'' && isLiteralPrefix(c)) {
+                skipString(pos + 1, '\'', mysql || postgresql && (c == 'e' || c == 'E'));
+                value();
+                return;
+            }
+            pos++;
+            while (pos < length && isWordPart(sql.charAt(pos))) {
+                pos++;
+            }
+            endList();
+            endValues();
+            separate(WORD);
+            out.append(sql, start, pos);
+            int len = pos - start;
+            lastWordIn = len == 2 && sql.regionMatches(true, start, "in", 0, 2);
+            lastWordValues = (len == 6 || len == 5) && sql.regionMatches(true, start, "values", 0, len);
+            lastKind = WORD;
+        }
+
+        void quotedWord(char quote) {
+            int start = pos;
+            skipString(pos, quote, false);
+            endList();
+            endValues();
+            separate(WORD);
+            out.append(sql, start, pos);
+            lastKind = WORD;
+            lastWordIn = false;
+            lastWordValues = false;
+        }
+
+        void punct(char c) {
+            boolean in = lastWordIn;
+            boolean values = lastWordValues;
+            lastWordIn = false;
+            lastWordValues = false;
+            if (c == ',') {
+                if (tupleDepth > 0 || inListStart >= 0 || valuesMode) {
+                    append(c);
+                    return;
+                }
+            } else if (c == '(') {
+                endList();
+                if (values) {
+                    valuesMode = true;
+                    prevTupleStart = -1;
+                }
+                append(c);
+                if (valuesMode) {
+                    if (tupleDepth++ == 0) {
+                        tupleStart = out.length() - 1;
+                    }
+                }
+                if (in) {
+                    inListStart = out.length();
+                    inListHasValue = false;
+                }
+                return;
+            } else if (c == ')') {
+                if (inListStart >= 0) {
+                    if (inListHasValue) {
+                        out.setLength(inListStart);
+                        out.append('?');
+                    }
+                    inListStart = -1;
+                }
+                append(c);
+                if (valuesMode && tupleDepth > 0 && --tupleDepth == 0) {
+                    endTuple();
+                }
+                return;
+            }
+            endList();
+            if (tupleDepth == 0) {
+                endValues();
+            }
+            append(c);
+        }
+
+        void append(char c) {
+            separate(PUNCT);
+            out.append(c);
+            lastKind = PUNCT;
+            lastPunct = c;
+        }
+
+        void endList() {
+            inListStart = -1;
+        }
+
+        void endValues() {
+            if (tupleDepth == 0) {
+                valuesMode = false;
+            }
+        }
+
+        void endTuple() {
+            int end = out.length();
+            if (prevTupleStart >= 0 && sameTuple(prevTupleStart, prevTupleEnd, tupleStart, end)) {
+                out.setLength(prevTupleEnd);
+                space = false;
+                lastKind = PUNCT;
+                lastPunct = ')';
+                return;
+            }
+            prevTupleStart = tupleStart;
+            prevTupleEnd = end;
+        }
+
+        boolean sameTuple(int aStart, int aEnd, int bStart, int bEnd) {
+            if (aEnd - aStart != bEnd - bStart) {
+                return false;
+            }
+            for (int i = 0; i < aEnd - aStart; i++) {
+                if (out.charAt(aStart + i) != out.charAt(bStart + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void skipLineComment() {
+            while (pos < length && sql.charAt(pos) != '\n') {
+                pos++;
+            }
+            space = true;
+        }
+
+        void skipBlockComment() {
+            int depth = 0;
+            while (pos < length) {
+                if (sql.charAt(pos) == '/' && next(1) == '*') {
+                    depth = postgresql ? depth + 1 : 1;
+                    pos += 2;
+                } else if (sql.charAt(pos) == '*' && next(1) == '/') {
+                    pos += 2;
+                    if (--depth == 0) {
+                        break;
+                    }
+                } else {
+                    pos++;
+                }
+            }
+            space = true;
+        }
+
+        /**
+         * Moves past a quoted token starting at {@code start}, doubled quotes are escapes.
+         */
+        void skipString(int start, char quote, boolean backslash) {
+            pos = start + 1;
+            while (pos < length) {
+                char c = sql.charAt(pos++);
+                if (c == '\\' && backslash) {
+                    pos++;
+                } else if (c == quote) {
+                    if (pos < length && sql.charAt(pos) == quote) {
+                        pos++;
+                    } else {
+                        return;
+                    }
+                }
+            }
+            pos = Math.min(pos, length);
+        }
+
+        /**
+         * $1 parameters and $tag$...$tag$ strings
+         */
+        boolean dollar() {
+            if (isDigit(next(1))) {
+                pos++;
+                while (pos < length && isDigit(sql.charAt(pos))) {
+                    pos++;
+                }
+                return true;
+            }
+            int tagEnd = pos + 1;
+            while (tagEnd < length && isTagPart(sql.charAt(tagEnd))) {
+                tagEnd++;
+            }
+            if (tagEnd >= length || sql.charAt(tagEnd) != '$') {
+                return false;
+            }
+            String tag = sql.substring(pos, tagEnd + 1);
+            int close = sql.indexOf(tag, tagEnd + 1);
+            pos = close < 0 ? length : close + tag.length();
+            return true;
+        }
+
+        void skipNumber() {
+            if (sql.charAt(pos) == '0' && (next(1) == 'x' || next(1) == 'X')) {
+                pos += 2;
+                while (pos < length && Character.digit(sql.charAt(pos), 16) >= 0) {
+                    pos++;
+                }
+                return;
+            }
+            while (pos < length) {
+                char c = sql.charAt(pos);
+                if (isDigit(c) || c == '.') {
+                    pos++;
+                } else if ((c == 'e' || c == 'E') && (isDigit(next(1))
+                    || (next(1) == '-' || next(1) == '+') && isDigit(next(2)))) {
+                    pos += 2;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+
+        static boolean isWordStart(char c) {
+            return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_' || c >= 0x80;
+        }
+
+        static boolean isWordPart(char c) {
+            return isWordStart(c) || isDigit(c) || c == '$';
+        }
+
+        static boolean isTagPart(char c) {
+            return isWordStart(c) || isDigit(c);
+        }
+
+        static boolean isLiteralPrefix(char c) {
+            switch (c) {
+                case 'x':
+                case 'X':
+                case 'b':
+                case 'B':
+                case 'n':
+                case 'N':
+                case 'e':
+                case 'E':
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.jdbc.common;
+
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.api.logging.Logger;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+import com.megaease.easeagent.plugin.utils.NoNull;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The settings of recording the parameters bound to prepared statements, off by default.
+ * A bind only stores the value into the slots of its {@link SqlInfo}, the values are formatted, masked and truncated
+ * only for an execution slower than slowThreshold or failed.
+ */
+public final class SqlParameters {
+    private static final Logger LOGGER = EaseAgent.getLogger(SqlParameters.class);
+
+    static final String PREFIX = "plugin.observability.jdbc.sql.params.";
+    static final String ENABLED = PREFIX + "enabled";
+    static final String SLOW_THRESHOLD = PREFIX + "slowThreshold";
+    static final String MAX_COUNT = PREFIX + "maxCount";
+    static final String MAX_LENGTH = PREFIX + "maxLength";
+    static final String MASK = PREFIX + "mask";
+
+    static final int DEFAULT_SLOW_THRESHOLD = 1000;
+    static final int DEFAULT_MAX_COUNT = 32;
+    static final int DEFAULT_MAX_LENGTH = 64;
+
+    /**
+     * The value of setNull
+     */
+    public static final Object NULL = new Object();
+
+    private static volatile SqlParameters current;
+
+    private final boolean enabled;
+    private final long slowThresholdNanos;
+    private final int maxCount;
+    private final int maxLength;
+    private final List<Pattern> masks;
+
+    SqlParameters(boolean enabled, int slowThresholdMillis, int maxCount, int maxLength, List<String> masks) {
+        this.enabled = enabled;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.maxCount = maxCount;
+        this.maxLength = maxLength;
+        this.masks = new ArrayList<>();
+        for (String mask : masks) {
+            try {
+                this.masks.add(Pattern.compile(mask));
+            } catch (PatternSyntaxException e) {
+                LOGGER.warn("ignore sql params mask {}: {}", mask, e.getMessage());
+            }
+        }
+    }
+
+    public static SqlParameters get() {
+        SqlParameters parameters = current;
+        if (parameters == null) {
+            synchronized (SqlParameters.class) {
+                if (current == null) {
+                    Config config = EaseAgent.getConfig();
+                    current = load(config);
+                    config.addChangeListener(list -> {
+                        if (list.stream().anyMatch(item -> item.getFullName().startsWith(PREFIX))) {
+                            current = load(config);
+                        }
+                    });
+                }
+                parameters = current;
+            }
+        }
+        return parameters;
+    }
+
+    static SqlParameters load(Config config) {
+        List<String> masks = config.getStringList(MASK);
+        return new SqlParameters(Boolean.TRUE.equals(config.getBooleanNullForUnset(ENABLED)),
+            NoNull.of(config.getInt(SLOW_THRESHOLD), DEFAULT_SLOW_THRESHOLD),
+            NoNull.of(config.getInt(MAX_COUNT), DEFAULT_MAX_COUNT),
+            NoNull.of(config.getInt(MAX_LENGTH), DEFAULT_MAX_LENGTH),
+            masks == null ? new ArrayList<>() : masks);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the number of slots of a statement, parameters after them are not recorded
+     */
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    public boolean shouldReport(long elapsedNanos, boolean failed) {
+        return failed || elapsedNanos >= slowThresholdNanos;
+    }
+
+    /**
+     * @return the bound values like {@code 1='abc', 2=42, 3=NULL}, unset slots are skipped
+     */
+    public String format(Object[] values, int count) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < count && i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (out.length() > 0) {
+                out.append(", ");
+            }
+            out.append(i + 1).append('=');
+            if (value == NULL) {
+                out.append("NULL");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                out.append(value);
+            } else if (value instanceof byte[]) {
+                out.append("<").append(((byte[]) value).length).append(" bytes>");
+            } else if (value instanceof InputStream || value instanceof Reader || value instanceof Blob || value instanceof Clob) {
+                out.append("<stream>");
+            } else {
+                out.append('\'').append(maskAndCut(value.toString())).append('\'');
+            }
+        }
+        return out.toString();
+    }
+
+    String maskAndCut(String value) {
+        for (Pattern mask : masks) {
+            value = mask.matcher(value).replaceAll("***");
+        }
+        return value.length() > maxLength ? value.substring(0, maxLength) + "..." : value;
+    }
+}
@@ -65,19 +65,29 @@ public class JdbcStmPrepareSqlInterceptor implements NonReentrantInterceptor {
             /*
              * user creates PreparedStatement with con.preparedStatement(sql).
              * User can invokes PreparedStatement.addBatch() multi times.
-             * In this scenario, sqlInfo should has only one sql.
+             * In this scenario, sqlInfo keeps its sql and only counts the rows.
              */
-            if (sql != null) {
-                sqlInfo.addSql(sql, true);
-            }
+            sqlInfo.addBatch(sql);
         } else if (method.equals("clearBatch")) {
-            sqlInfo.clearSql();
+            sqlInfo.clearBatch();
         } else if (method.startsWith("execute") && sql != null) {
             sqlInfo.addSql(sql, false);
         }
         context.put(SqlInfo.class, sqlInfo);
     }
 
+    @Override
+    public void doAfter(MethodInfo methodInfo, Context context) {
+        // executing a batch clears it, after the other interceptors read it
+        String method = methodInfo.getMethod();
+        if (method.equals("executeBatch") || method.equals("executeLargeBatch")) {
+            SqlInfo sqlInfo = context.get(SqlInfo.class);
+            if (sqlInfo != null) {
+                sqlInfo.clearBatch();
+            }
+        }
+    }
+
     @Override
     public String getType() {
         return Order.TRACING.getName();
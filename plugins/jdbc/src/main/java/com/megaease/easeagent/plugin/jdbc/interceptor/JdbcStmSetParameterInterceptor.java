@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.jdbc.interceptor;
+
+import com.megaease.easeagent.plugin.annotation.AdviceTo;
+import com.megaease.easeagent.plugin.api.Context;
+import com.megaease.easeagent.plugin.enums.Order;
+import com.megaease.easeagent.plugin.field.AgentDynamicFieldAccessor;
+import com.megaease.easeagent.plugin.field.DynamicFieldAccessor;
+import com.megaease.easeagent.plugin.interceptor.Interceptor;
+import com.megaease.easeagent.plugin.interceptor.MethodInfo;
+import com.megaease.easeagent.plugin.jdbc.JdbcTracingPlugin;
+import com.megaease.easeagent.plugin.jdbc.advice.JdbcStatementAdvice;
+import com.megaease.easeagent.plugin.jdbc.common.SqlInfo;
+import com.megaease.easeagent.plugin.jdbc.common.SqlParameters;
+
+/**
+ * Records {@code PreparedStatement.setXxx(index, value)} into the slots of the statement's SqlInfo.
+ * Not a NonReentrantInterceptor: a bind is frequent, disabled it only reads a volatile field.
+ */
+@AdviceTo(value = JdbcStatementAdvice.class, qualifier = "param", plugin = JdbcTracingPlugin.class)
+public class JdbcStmSetParameterInterceptor implements Interceptor {
+
+    @Override
+    public void before(MethodInfo methodInfo, Context context) {
+        SqlParameters parameters = SqlParameters.get();
+        if (!parameters.isEnabled() || !(methodInfo.getInvoker() instanceof DynamicFieldAccessor)) {
+            return;
+        }
+        Object value = AgentDynamicFieldAccessor.getDynamicFieldValue(methodInfo.getInvoker());
+        if (!(value instanceof SqlInfo)) {
+            return;
+        }
+        SqlInfo sqlInfo = (SqlInfo) value;
+        String method = methodInfo.getMethod();
+        Object[] args = methodInfo.getArgs();
+        if (method.equals("clearParameters")) {
+            sqlInfo.clearParameters();
+        } else if (args != null && args.length >= 2 && args[0] instanceof Integer) {
+            Object bound = method.equals("setNull") || args[1] == null ? SqlParameters.NULL : args[1];
+            sqlInfo.setParameter((Integer) args[0], bound, parameters.getMaxCount());
+        }
+    }
+
+    @Override
+    public int order() {
+        return Order.HIGH.getOrder();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.jdbc.interceptor.metric;
+
+import com.megaease.easeagent.plugin.annotation.AdviceTo;
+import com.megaease.easeagent.plugin.api.Context;
+import com.megaease.easeagent.plugin.enums.Order;
+import com.megaease.easeagent.plugin.interceptor.MethodInfo;
+import com.megaease.easeagent.plugin.interceptor.NonReentrantInterceptor;
+import com.megaease.easeagent.plugin.jdbc.JdbcConnectionMetricPlugin;
+import com.megaease.easeagent.plugin.jdbc.advice.JdbcConnectionAdvice;
+import com.megaease.easeagent.plugin.jdbc.common.ConnectionPool;
+
+import java.sql.Connection;
+
+/**
+ * Closing a pooled connection returns it to its pool, see {@link ConnectionPool#returned(Connection)}
+ */
+@AdviceTo(value = JdbcConnectionAdvice.class, qualifier = "close", plugin = JdbcConnectionMetricPlugin.class)
+public class JdbcConnectionCloseInterceptor implements NonReentrantInterceptor {
+
+    @Override
+    public void doAfter(MethodInfo methodInfo, Context context) {
+        if (methodInfo.getInvoker() instanceof Connection) {
+            ConnectionPool.returned((Connection) methodInfo.getInvoker());
+        }
+    }
+
+    @Override
+    public String getType() {
+        return Order.METRIC.getName();
+    }
+
+    @Override
+    public int order() {
+        return Order.METRIC.getOrder();
+    }
+}
@@ -27,6 +27,7 @@ import com.megaease.easeagent.plugin.interceptor.MethodInfo;
 import com.megaease.easeagent.plugin.interceptor.NonReentrantInterceptor;
 import com.megaease.easeagent.plugin.jdbc.JdbcConnectionMetricPlugin;
 import com.megaease.easeagent.plugin.jdbc.advice.JdbcDataSourceAdvice;
+import com.megaease.easeagent.plugin.jdbc.common.DatabaseInfo;
 import com.megaease.easeagent.plugin.jdbc.common.JdbcUtils;
 
 import java.sql.Connection;
@@ -56,7 +57,8 @@ public class JdbcDataSourceMetricInterceptor implements NonReentrantInterceptor
             key = ERR_CON_METRIC_KEY;
             success = false;
         } else {
-            key = JdbcUtils.getUrl(connection);
+            DatabaseInfo databaseInfo = DatabaseInfo.getCached(connection);
+            key = databaseInfo == null ? JdbcUtils.getUrl(connection) : databaseInfo.getUrl();
         }
         metric.collectMetric(key, success, context);
     }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.jdbc.interceptor.metric;
+
+import com.megaease.easeagent.plugin.api.Context;
+import com.megaease.easeagent.plugin.api.context.ContextUtils;
+import com.megaease.easeagent.plugin.api.metric.*;
+import com.megaease.easeagent.plugin.api.metric.name.*;
+import com.megaease.easeagent.plugin.api.middleware.Redirect;
+import com.megaease.easeagent.plugin.api.middleware.RedirectProcessor;
+import com.megaease.easeagent.plugin.jdbc.common.ConnectionPool;
+import com.megaease.easeagent.plugin.tools.metrics.GaugeMetricModel;
+import com.megaease.easeagent.plugin.utils.ImmutableMap;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+import java.util.HashMap;
+
+/**
+ * Per pool: the time getConnection waits for a connection, and the pool state of {@link ConnectionPool},
+ * read when the metrics are reported.
+ */
+public class JdbcPoolMetric extends ServiceMetric {
+    public static final ServiceMetricSupplier<JdbcPoolMetric> METRIC_SUPPLIER = new ServiceMetricSupplier<JdbcPoolMetric>() {
+        @Override
+        public NameFactory newNameFactory() {
+            return JdbcPoolMetric.nameFactory();
+        }
+
+        @Override
+        public JdbcPoolMetric newInstance(MetricRegistry metricRegistry, NameFactory nameFactory) {
+            return new JdbcPoolMetric(metricRegistry, nameFactory);
+        }
+    };
+
+    public JdbcPoolMetric(@Nonnull MetricRegistry metricRegistry, @Nonnull NameFactory nameFactory) {
+        super(metricRegistry, nameFactory);
+    }
+
+    public static Tags newPoolTags() {
+        Tags tags = new Tags("application", "jdbc-pool", "pool");
+        RedirectProcessor.setTagsIfRedirected(Redirect.DATABASE, tags);
+        return tags;
+    }
+
+    public static NameFactory nameFactory() {
+        return NameFactory.createBuilder()
+            .timerType(MetricSubType.DEFAULT,
+                ImmutableMap.<MetricField, MetricValueFetcher>builder()
+                    .put(MetricField.MIN_EXECUTION_TIME, MetricValueFetcher.SnapshotMinValue)
+                    .put(MetricField.MAX_EXECUTION_TIME, MetricValueFetcher.SnapshotMaxValue)
+                    .put(MetricField.MEAN_EXECUTION_TIME, MetricValueFetcher.SnapshotMeanValue)
+                    .put(MetricField.P50_EXECUTION_TIME, MetricValueFetcher.Snapshot50PercentileValue)
+                    .put(MetricField.P95_EXECUTION_TIME, MetricValueFetcher.Snapshot95PercentileValue)
+                    .put(MetricField.P99_EXECUTION_TIME, MetricValueFetcher.Snapshot99PercentileValue)
+                    .build())
+            .gaugeType(MetricSubType.DEFAULT, new HashMap<>())
+            .build();
+    }
+
+    public void register(ConnectionPool pool) {
+        Gauge<GaugeMetricModel> gauge = () -> pool;
+        MetricName gaugeName = this.nameFactory.gaugeNames(pool.getName()).get(MetricSubType.DEFAULT);
+        this.metricRegistry.gauge(gaugeName.name(), () -> gauge);
+    }
+
+    public void collectWait(ConnectionPool pool, Context ctx) {
+        Timer timer = this.metricRegistry.timer(this.nameFactory.timerName(pool.getName(), MetricSubType.DEFAULT));
+        timer.update(Duration.ofMillis(ContextUtils.getDuration(ctx)));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.jdbc.interceptor.metric;
+
+import com.megaease.easeagent.plugin.annotation.AdviceTo;
+import com.megaease.easeagent.plugin.api.Context;
+import com.megaease.easeagent.plugin.api.config.IPluginConfig;
+import com.megaease.easeagent.plugin.api.metric.ServiceMetricRegistry;
+import com.megaease.easeagent.plugin.enums.Order;
+import com.megaease.easeagent.plugin.field.AgentDynamicFieldAccessor;
+import com.megaease.easeagent.plugin.field.DynamicFieldAccessor;
+import com.megaease.easeagent.plugin.interceptor.MethodInfo;
+import com.megaease.easeagent.plugin.interceptor.NonReentrantInterceptor;
+import com.megaease.easeagent.plugin.jdbc.JdbcConnectionMetricPlugin;
+import com.megaease.easeagent.plugin.jdbc.advice.JdbcDataSourceAdvice;
+import com.megaease.easeagent.plugin.jdbc.common.ConnectionPool;
+
+import java.sql.Connection;
+
+/**
+ * Finds the pool of a data source on its first getConnection and registers its metrics,
+ * then times every getConnection and marks the connection borrowed.
+ */
+@AdviceTo(value = JdbcDataSourceAdvice.class, plugin = JdbcConnectionMetricPlugin.class)
+public class JdbcPoolMetricInterceptor implements NonReentrantInterceptor {
+    // cached on data sources which are not a pool
+    private static final Object NOT_POOL = new Object();
+    // a data source delegating to a delegating data source...
+    private static final int MAX_DELEGATION = 3;
+    private static volatile JdbcPoolMetric metric;
+
+    @Override
+    public void init(IPluginConfig config, String className, String methodName, String methodDescriptor) {
+        if (metric == null) {
+            synchronized (JdbcPoolMetricInterceptor.class) {
+                if (metric == null) {
+                    metric = ServiceMetricRegistry.getOrCreate(config,
+                        JdbcPoolMetric.newPoolTags(), JdbcPoolMetric.METRIC_SUPPLIER);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void doAfter(MethodInfo methodInfo, Context context) {
+        ConnectionPool pool = poolOf(methodInfo.getInvoker(), 0);
+        if (pool == null) {
+            return;
+        }
+        metric.collectWait(pool, context);
+        if (methodInfo.getThrowable() != null) {
+            pool.failed(methodInfo.getThrowable());
+        } else if (methodInfo.getRetValue() instanceof Connection) {
+            pool.borrowed((Connection) methodInfo.getRetValue());
+        }
+    }
+
+    static ConnectionPool poolOf(Object dataSource, int depth) {
+        if (!(dataSource instanceof DynamicFieldAccessor)) {
+            return null;
+        }
+        Object cached = AgentDynamicFieldAccessor.getDynamicFieldValue(dataSource);
+        if (cached == null) {
+            ConnectionPool pool = ConnectionPool.of(dataSource);
+            if (pool != null) {
+                metric.register(pool);
+            } else if (depth < MAX_DELEGATION) {
+                // the getConnection of the wrapped pool is not intercepted within this one
+                pool = poolOf(ConnectionPool.targetOf(dataSource), depth + 1);
+            }
+            cached = pool == null ? NOT_POOL : pool;
+            AgentDynamicFieldAccessor.setDynamicFieldValue(dataSource, cached);
+        }
+        return cached instanceof ConnectionPool ? (ConnectionPool) cached : null;
+    }
+
+    @Override
+    public String getType() {
+        return Order.METRIC.getName();
+    }
+
+    @Override
+    public int order() {
+        return Order.METRIC.getOrder();
+    }
+}
@@ -66,7 +66,7 @@ public class JdbcStmMetricInterceptor implements NonReentrantInterceptor {
     @Override
     public void doAfter(MethodInfo methodInfo, Context context) {
         SqlInfo sqlInfo = context.get(SqlInfo.class);
-        String sql = sqlInfo.getSql();
+        String sql = sqlInfo.getSqlForReport();
         String key = sqlCompression.compress(sql);
         metric.collectMetric(key, methodInfo.getThrowable() == null, context);
         String value = cache.getIfPresent(key);
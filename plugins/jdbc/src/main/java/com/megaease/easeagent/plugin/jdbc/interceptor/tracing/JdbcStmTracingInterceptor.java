@@ -34,11 +34,8 @@ import com.megaease.easeagent.plugin.interceptor.NonReentrantInterceptor;
 import com.megaease.easeagent.plugin.jdbc.JdbcTracingPlugin;
 import com.megaease.easeagent.plugin.jdbc.advice.JdbcStatementAdvice;
 import com.megaease.easeagent.plugin.jdbc.common.*;
-import com.megaease.easeagent.plugin.utils.common.StringUtils;
 import org.apache.commons.codec.digest.DigestUtils;
 
-import java.sql.Connection;
-
 @AdviceTo(value = JdbcStatementAdvice.class, plugin = JdbcTracingPlugin.class)
 public class JdbcStmTracingInterceptor implements NonReentrantInterceptor {
     private final static Logger LOG = EaseAgent.getLogger(JdbcStmTracingInterceptor.class);
@@ -48,6 +45,12 @@ public class JdbcStmTracingInterceptor implements NonReentrantInterceptor {
     public static final String SPAN_ERROR_TAG_NAME = "error";
     public static final String SPAN_LOCAL_COMPONENT_TAG_NAME = "local-component";
     public static final String SPAN_URL = "url";
+    public static final String SPAN_BATCH_SIZE = "sql.batch.size";
+    public static final String SPAN_BATCH_COUNTS = "sql.batch.counts";
+    public static final String SPAN_BATCH_DROPPED = "sql.batch.dropped";
+    public static final String SPAN_BATCH_ROWS = "sql.batch.rows";
+    public static final String SPAN_PARAMS = "sql.params";
+    private static final String START_KEY = JdbcStmTracingInterceptor.class.getName() + "-START";
     private static volatile SQLCompression md5SQLCompression;
 
     @Override
@@ -73,41 +76,61 @@ public class JdbcStmTracingInterceptor implements NonReentrantInterceptor {
         span.name(methodInfo.getMethod());
         span.kind(Span.Kind.CLIENT);
         span.tag(SPAN_SQL_QUERY_TAG_NAME,
-            md5SQLCompression.compress(sqlInfo.getSql()));
+            md5SQLCompression.compress(sqlInfo.getSqlForReport()));
         span.tag(SPAN_LOCAL_COMPONENT_TAG_NAME, "database");
-        Connection conn = sqlInfo.getConnection();
-        String url = JdbcUtils.getUrl(conn);
+        SqlBatch batch = sqlInfo.getBatch();
+        if (batch != null) {
+            span.tag(SPAN_BATCH_SIZE, String.valueOf(batch.getSize()));
+            if (batch.hasStatements()) {
+                span.tag(SPAN_BATCH_COUNTS, batch.getCounts());
+            }
+            if (batch.getDropped() > 0) {
+                span.tag(SPAN_BATCH_DROPPED, String.valueOf(batch.getDropped()));
+            }
+        }
+        DatabaseInfo databaseInfo = sqlInfo.getDatabaseInfo();
+        String url = databaseInfo == null ? null : databaseInfo.getUrl();
         if (url != null) {
             span.tag(SPAN_URL, url);
         }
         span.tag(MiddlewareConstants.TYPE_TAG_NAME, Type.DATABASE.getRemoteType());
         RedirectProcessor.setTagsIfRedirected(Redirect.DATABASE, span, url);
-        DatabaseInfo databaseInfo = DatabaseInfo.getFromConnection(conn);
         if (databaseInfo != null) {
-            span.remoteServiceName(remoteServiceName(databaseInfo.getDatabase()));
+            span.remoteServiceName(databaseInfo.remoteServiceName());
             span.remoteIpAndPort(databaseInfo.getHost(), databaseInfo.getPort());
         }
         span.start();
         context.put(SPAN_KEY, span);
-    }
-
-    public String remoteServiceName(String database) {
-        if (StringUtils.isEmpty(database)) {
-            return "mysql";
-        } else {
-            return "mysql-" + database;
+        if (sqlInfo.getParameterCount() > 0 && SqlParameters.get().isEnabled()) {
+            context.put(START_KEY, System.nanoTime());
         }
     }
 
     @Override
     public void doAfter(MethodInfo methodInfo, Context context) {
         Span span = context.get(SPAN_KEY);
+        Long start = context.remove(START_KEY);
+        if (start != null) {
+            tagParameters(span, context.get(SqlInfo.class), System.nanoTime() - start, methodInfo.getThrowable() != null);
+        }
         if (methodInfo.getThrowable() != null) {
             span.error(methodInfo.getThrowable());
+        } else {
+            long rows = SqlBatch.rowCount(methodInfo.getRetValue());
+            if (rows >= 0) {
+                span.tag(SPAN_BATCH_ROWS, String.valueOf(rows));
+            }
         }
         span.finish();
     }
 
+    private static void tagParameters(Span span, SqlInfo sqlInfo, long elapsedNanos, boolean failed) {
+        SqlParameters parameters = SqlParameters.get();
+        if (sqlInfo != null && sqlInfo.getParameters() != null && parameters.shouldReport(elapsedNanos, failed)) {
+            span.tag(SPAN_PARAMS, parameters.format(sqlInfo.getParameters(), sqlInfo.getParameterCount()));
+        }
+    }
+
     @Override
     public String getType() {
         return Order.TRACING.getName();
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.jdbc;
+
+import com.megaease.easeagent.plugin.field.DynamicFieldAccessor;
+
+/**
+ * Data sources with the accessors of HikariCP, Druid and DBCP 2, the pools are recognized by their methods.
+ */
+public class MockPools {
+
+    public abstract static class MockDataSource implements DynamicFieldAccessor {
+        Object data;
+
+        @Override
+        public void setEaseAgent$$DynamicField$$Data(Object data) {
+            this.data = data;
+        }
+
+        @Override
+        public Object getEaseAgent$$DynamicField$$Data() {
+            return this.data;
+        }
+    }
+
+    public static class HikariDataSource extends MockDataSource {
+        public HikariPool pool;
+
+        public HikariPool getHikariPoolMXBean() {
+            return pool;
+        }
+
+        public String getPoolName() {
+            return "orders";
+        }
+
+        public int getMaximumPoolSize() {
+            return 10;
+        }
+    }
+
+    public static class HikariPool {
+        public int active = 3;
+        public int idle = 5;
+        public int waiting = 2;
+
+        public int getActiveConnections() {
+            return active;
+        }
+
+        public int getIdleConnections() {
+            return idle;
+        }
+
+        public int getTotalConnections() {
+            return active + idle;
+        }
+
+        public int getThreadsAwaitingConnection() {
+            return waiting;
+        }
+    }
+
+    public static class DruidDataSource extends MockDataSource {
+        public int getActiveCount() {
+            return 4;
+        }
+
+        public int getPoolingCount() {
+            return 6;
+        }
+
+        public int getWaitThreadCount() {
+            return 1;
+        }
+
+        public int getMaxActive() {
+            return 20;
+        }
+
+        public long getCreateCount() {
+            return 12;
+        }
+
+        public String getName() {
+            return "druid-1";
+        }
+    }
+
+    public static class BasicDataSource extends MockDataSource {
+        public int getNumActive() {
+            return 2;
+        }
+
+        public int getNumIdle() {
+            return 8;
+        }
+
+        public int getMaxTotal() {
+            return 8;
+        }
+
+        public String getUrl() {
+            return TestUtils.URI;
+        }
+
+        protected GenericObjectPool getConnectionPool() {
+            return new GenericObjectPool();
+        }
+    }
+
+    public static class GenericObjectPool {
+        public int getNumWaiters() {
+            return 0;
+        }
+
+        public long getCreatedCount() {
+            return 10;
+        }
+    }
+
+    public static class DelegatingDataSource extends MockDataSource {
+        final Object target;
+
+        public DelegatingDataSource(Object target) {
+            this.target = target;
+        }
+
+        public Object getTargetDataSource() {
+            return target;
+        }
+    }
+}
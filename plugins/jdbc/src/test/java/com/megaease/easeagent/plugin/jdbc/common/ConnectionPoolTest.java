@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.jdbc.common;
+
+import com.megaease.easeagent.plugin.jdbc.MockPools;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class ConnectionPoolTest {
+
+    @Test
+    public void hikari() {
+        MockPools.HikariDataSource dataSource = new MockPools.HikariDataSource();
+        ConnectionPool pool = ConnectionPool.of(dataSource);
+        assertNotNull(pool);
+        assertEquals("orders", pool.getName());
+        // the pool starts with the first getConnection
+        Map<String, Object> values = pool.toHashMap();
+        assertNull(values.get("active"));
+        assertEquals(10L, values.get("max"));
+
+        dataSource.pool = new MockPools.HikariPool();
+        values = pool.toHashMap();
+        assertEquals(3L, values.get("active"));
+        assertEquals(5L, values.get("idle"));
+        assertEquals(2L, values.get("pending"));
+        assertEquals(8L, values.get("total"));
+        assertNull(values.get("createdCnt"));
+        dataSource.pool.active = 10;
+        assertEquals(10L, pool.toHashMap().get("active"));
+    }
+
+    @Test
+    public void druid() {
+        ConnectionPool pool = ConnectionPool.of(new MockPools.DruidDataSource());
+        assertNotNull(pool);
+        assertEquals("druid-1", pool.getName());
+        Map<String, Object> values = pool.toHashMap();
+        assertEquals(4L, values.get("active"));
+        assertEquals(6L, values.get("idle"));
+        assertEquals(1L, values.get("pending"));
+        assertEquals(10L, values.get("total"));
+        assertEquals(20L, values.get("max"));
+        assertEquals(12L, values.get("createdCnt"));
+    }
+
+    @Test
+    public void dbcp() {
+        ConnectionPool pool = ConnectionPool.of(new MockPools.BasicDataSource());
+        assertNotNull(pool);
+        Map<String, Object> values = pool.toHashMap();
+        assertEquals(2L, values.get("active"));
+        assertEquals(8L, values.get("idle"));
+        assertEquals(0L, values.get("pending"));
+        assertEquals(10L, values.get("createdCnt"));
+    }
+
+    @Test
+    public void notPool() {
+        assertNull(ConnectionPool.of(new Object()));
+        MockPools.DruidDataSource target = new MockPools.DruidDataSource();
+        assertSame(target, ConnectionPool.targetOf(new MockPools.DelegatingDataSource(target)));
+        assertNull(ConnectionPool.targetOf(new Object()));
+    }
+
+    @Test
+    public void usageAndTimeouts() {
+        ConnectionPool pool = ConnectionPool.of(new MockPools.DruidDataSource());
+        assertNotNull(pool);
+        Connection connection = mock(Connection.class);
+        pool.borrowed(connection);
+        ConnectionPool.returned(connection);
+        // closed twice, or not borrowed from a pool
+        ConnectionPool.returned(connection);
+        ConnectionPool.returned(mock(Connection.class));
+        assertEquals(1L, pool.toHashMap().get("usageCnt"));
+
+        pool.failed(new SQLTransientConnectionException("Connection is not available, request timed out after 30000ms."));
+        pool.failed(new SQLException("Cannot get a connection", new NoSuchElementException("Timeout waiting for idle object")));
+        pool.failed(new SQLException("Access denied"));
+        assertEquals(2L, pool.toHashMap().get("timeoutCnt"));
+    }
+}
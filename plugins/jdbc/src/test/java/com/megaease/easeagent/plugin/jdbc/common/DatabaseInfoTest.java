@@ -17,14 +17,18 @@
 
 package com.megaease.easeagent.plugin.jdbc.common;
 
+import com.megaease.easeagent.plugin.field.DynamicFieldAccessor;
 import com.megaease.easeagent.plugin.jdbc.TestUtils;
 import org.junit.Test;
 
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 public class DatabaseInfoTest {
 
@@ -37,4 +41,78 @@ public class DatabaseInfoTest {
         assertEquals(TestUtils.HOST, databaseInfo.getHost());
         assertEquals(TestUtils.PORT, databaseInfo.getPort());
     }
+
+    @Test
+    public void vendorAndUrl() throws SQLException {
+        DatabaseInfo databaseInfo = DatabaseInfo.getFromConnection(TestUtils.mockConnection());
+        assertNotNull(databaseInfo);
+        assertEquals("mysql", databaseInfo.getVendor());
+        assertEquals(TestUtils.URI, databaseInfo.getUrl());
+        assertEquals("mysql-" + TestUtils.DATABASE, databaseInfo.remoteServiceName());
+
+        assertEquals("postgresql", DatabaseInfo.vendorOf("jdbc:postgresql://127.0.0.1/orders"));
+        assertEquals("mysql", DatabaseInfo.vendorOf("jdbc:p6spy:mysql://127.0.0.1/orders"));
+        assertEquals("oracle", DatabaseInfo.vendorOf("jdbc:oracle:thin:@127.0.0.1:1521:orcl"));
+        assertEquals("h2", DatabaseInfo.vendorOf("jdbc:h2:mem:test"));
+    }
+
+    @Test
+    public void defaultPortOfVendor() throws SQLException {
+        Connection connection = mockConnection("jdbc:postgresql://10.0.0.1/orders?ssl=true");
+        DatabaseInfo databaseInfo = DatabaseInfo.getFromConnection(connection);
+        assertNotNull(databaseInfo);
+        assertEquals("10.0.0.1", databaseInfo.getHost());
+        assertEquals(5432, databaseInfo.getPort());
+        assertEquals("jdbc:postgresql://10.0.0.1/orders", databaseInfo.getUrl());
+        assertEquals("postgresql-" + TestUtils.DATABASE, databaseInfo.remoteServiceName());
+
+        databaseInfo = DatabaseInfo.getFromConnection(mockConnection("jdbc:oracle:thin:@10.0.0.1:1521:orcl"));
+        assertNotNull(databaseInfo);
+        assertEquals("oracle", databaseInfo.getVendor());
+        assertEquals(1521, databaseInfo.getPort());
+    }
+
+    @Test
+    public void cachedOnPhysicalConnection() throws SQLException {
+        AtomicReference<Object> field = new AtomicReference<>();
+        Connection physical = mock(Connection.class, withSettings().extraInterfaces(DynamicFieldAccessor.class));
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(physical.getMetaData()).thenReturn(metaData);
+        when(metaData.getURL()).thenReturn(TestUtils.FULL_URI);
+        when(physical.getCatalog()).thenReturn(TestUtils.DATABASE);
+        doAnswer(invocation -> field.get()).when((DynamicFieldAccessor) physical).getEaseAgent$$DynamicField$$Data();
+        doAnswer(invocation -> {
+            field.set(invocation.getArgument(0));
+            return null;
+        }).when((DynamicFieldAccessor) physical).setEaseAgent$$DynamicField$$Data(any());
+
+        // every borrow from the pool is a new proxy of the same driver connection
+        for (int i = 0; i < 3; i++) {
+            Connection proxy = mock(Connection.class);
+            when(proxy.isWrapperFor(Connection.class)).thenReturn(true);
+            when(proxy.unwrap(Connection.class)).thenReturn(physical);
+            DatabaseInfo databaseInfo = DatabaseInfo.getCached(proxy);
+            assertNotNull(databaseInfo);
+            assertSame(field.get(), databaseInfo);
+            verify(proxy, never()).getMetaData();
+        }
+        verify(physical, times(1)).getMetaData();
+        verify(physical, times(3)).getCatalog();
+
+        // setCatalog or USE on the pooled connection
+        when(physical.getCatalog()).thenReturn("other");
+        DatabaseInfo databaseInfo = DatabaseInfo.getCached(physical);
+        assertNotNull(databaseInfo);
+        assertEquals("other", databaseInfo.getDatabase());
+        assertEquals(TestUtils.HOST, databaseInfo.getHost());
+        assertEquals(TestUtils.URI, databaseInfo.getUrl());
+        assertSame(databaseInfo, DatabaseInfo.getCached(physical));
+        verify(physical, times(1)).getMetaData();
+    }
+
+    private static Connection mockConnection(String url) throws SQLException {
+        Connection connection = TestUtils.mockConnection();
+        when(connection.getMetaData().getURL()).thenReturn(url);
+        return connection;
+    }
 }
@@ -18,8 +18,6 @@
 package com.megaease.easeagent.plugin.jdbc.common;
 
 import com.google.common.cache.Cache;
-import com.google.common.cache.RemovalCause;
-import com.google.common.cache.RemovalNotification;
 import com.megaease.easeagent.mock.plugin.api.MockEaseAgent;
 import com.megaease.easeagent.mock.plugin.api.junit.EaseAgentJunit4ClassRunner;
 import com.megaease.easeagent.mock.plugin.api.utils.TagVerifier;
@@ -31,10 +29,12 @@ import org.junit.runner.RunWith;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertSame;
+import static org.junit.Assert.*;
 
 @RunWith(EaseAgentJunit4ClassRunner.class)
 public class MD5SQLCompressionTest {
@@ -48,49 +48,97 @@ public class MD5SQLCompressionTest {
     @Test
     public void compress() throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
         MD5SQLCompression md5SQLCompression = MD5SQLCompression.getInstance();
-        Cache<String, String> dictionary = AgentFieldReflectAccessor.getFieldValue(md5SQLCompression, "dictionary");
-        Cache<String, String> md5Cache = AgentFieldReflectAccessor.getFieldValue(md5SQLCompression, "md5Cache");
-        dictionary.cleanUp();
-        md5Cache.cleanUp();
+        Cache<String, String> cache = AgentFieldReflectAccessor.getFieldValue(md5SQLCompression, "cache");
+        cache.invalidateAll();
         String sql = "select * from data";
         String md5 = DigestUtils.md5Hex(sql);
         String result = md5SQLCompression.compress(sql);
         assertEquals(md5, result);
         assertEquals(result, md5SQLCompression.compress(sql));
-        assertEquals(md5, md5Cache.getIfPresent(sql));
-        assertEquals(sql, dictionary.getIfPresent(md5));
+        assertEquals(md5, cache.getIfPresent(sql));
         TagVerifier tagVerifier = new TagVerifier()
             .add("category", "application")
             .add("type", "md5-dictionary");
         LastJsonReporter lastJsonReporter = MockEaseAgent.lastMetricJsonReporter(tagVerifier::verifyAnd);
-        pushItems();
+        pushItems(md5SQLCompression);
         Map<String, Object> report = lastJsonReporter.getLastOnlyOne();
         assertEquals(md5, report.get("md5"));
         assertEquals(sql, report.get("sql"));
-        dictionary.cleanUp();
-        md5Cache.cleanUp();
+        cache.invalidateAll();
     }
 
-
-    public static void pushItems() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+    public static void pushItems(MD5SQLCompression md5SQLCompression) throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
         Method method = MD5SQLCompression.class.getDeclaredMethod("pushItems");
         method.setAccessible(true);
-        method.invoke(MD5SQLCompression.getInstance());
+        method.invoke(md5SQLCompression);
     }
 
     @Test
-    public void onRemoval() {
-        String sql = "select * from data";
-        String md5 = DigestUtils.md5Hex(sql);
-        RemovalNotification<String, String> removalNotification = RemovalNotification.create(md5, sql, RemovalCause.SIZE);
-        MD5SQLCompression md5SQLCompression = MD5SQLCompression.getInstance();
-        TagVerifier tagVerifier = new TagVerifier()
-            .add("category", "application")
-            .add("type", "md5-dictionary");
-        LastJsonReporter lastJsonReporter = MockEaseAgent.lastMetricJsonReporter(tagVerifier::verifyAnd);
-        md5SQLCompression.onRemoval(removalNotification);
-        Map<String, Object> result = lastJsonReporter.getLastOnlyOne();
-        assertEquals(md5, result.get("md5"));
-        assertEquals(sql, result.get("sql"));
+    public void pushesOnlyNewItems() throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        List<Map<String, String>> batches = new ArrayList<>();
+        MD5SQLCompression compression = new MD5SQLCompression(batch -> batches.add(new HashMap<>(batch)),
+            SqlFingerprint.XXHASH64, MD5SQLCompression.DEFAULT_CACHE_MAX_BYTES, 3600);
+        int count = MD5SQLCompression.REPORT_BATCH_SIZE + 1;
+        for (int i = 0; i < count; i++) {
+            assertEquals(16, compression.compress("select * from t" + i).length());
+        }
+        // one batch per tick
+        pushItems(compression);
+        assertEquals(1, batches.size());
+        assertEquals(MD5SQLCompression.REPORT_BATCH_SIZE, batches.get(0).size());
+        pushItems(compression);
+        assertEquals(2, batches.size());
+        assertEquals(1, batches.get(1).size());
+
+        batches.clear();
+        compression.compress("select * from t0");
+        pushItems(compression);
+        assertTrue(batches.isEmpty());
+
+        String key = compression.compress("select * from u");
+        pushItems(compression);
+        assertEquals(1, batches.size());
+        assertEquals("select * from u", batches.get(0).get(key));
+    }
+
+    @Test
+    public void resyncsWholeDictionary() throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        List<Map<String, String>> batches = new ArrayList<>();
+        MD5SQLCompression compression = new MD5SQLCompression(batch -> batches.add(new HashMap<>(batch)),
+            SqlFingerprint.MD5, MD5SQLCompression.DEFAULT_CACHE_MAX_BYTES, 0);
+        String key = compression.compress("select * from t");
+        pushItems(compression);
+        pushItems(compression);
+        assertEquals(2, batches.size());
+        assertEquals("select * from t", batches.get(1).get(key));
+    }
+
+    @Test
+    public void resyncSpreadOverTicks() throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        List<Map<String, String>> batches = new ArrayList<>();
+        MD5SQLCompression compression = new MD5SQLCompression(batch -> batches.add(new HashMap<>(batch)),
+            SqlFingerprint.MD5, MD5SQLCompression.DEFAULT_CACHE_MAX_BYTES, 0);
+        int count = MD5SQLCompression.REPORT_BATCH_SIZE * 2 + 1;
+        for (int i = 0; i < count; i++) {
+            compression.compress("select * from t" + i);
+        }
+        Map<String, String> reported = new HashMap<>();
+        for (int tick = 0; tick < 3; tick++) {
+            pushItems(compression);
+            assertEquals(tick + 1, batches.size());
+            reported.putAll(batches.get(tick));
+        }
+        assertEquals(count, reported.size());
+    }
+
+    @Test
+    public void boundedBySize() {
+        MD5SQLCompression compression = new MD5SQLCompression(batch -> {
+        }, SqlFingerprint.MD5, 10 * 1024, 3600);
+        Cache<String, String> cache = AgentFieldReflectAccessor.getFieldValue(compression, "cache");
+        for (int i = 0; i < 1000; i++) {
+            compression.compress("select * from t where id = " + i);
+        }
+        assertTrue(cache.size() < 100);
     }
 }
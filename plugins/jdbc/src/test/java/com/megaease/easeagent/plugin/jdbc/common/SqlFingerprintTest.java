@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.jdbc.common;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SqlFingerprintTest {
+
+    @Test
+    public void md5() {
+        String sql = "select * from t where name = 'naïve ☃ 😀'";
+        assertEquals(DigestUtils.md5Hex(sql), SqlFingerprint.MD5.fingerprint(sql));
+        assertEquals(DigestUtils.md5Hex(""), SqlFingerprint.MD5.fingerprint(""));
+        StringBuilder large = new StringBuilder();
+        while (large.length() < 100_000) {
+            large.append("select * from data;");
+        }
+        assertEquals(DigestUtils.md5Hex(large.toString()), SqlFingerprint.MD5.fingerprint(large.toString()));
+    }
+
+    @Test
+    public void xxHash64() {
+        // reference vectors of xxHash64 with seed 0
+        assertEquals("ef46db3751d8e999", SqlFingerprint.XXHASH64.fingerprint(""));
+        assertEquals("44bc2cf5ad770999", SqlFingerprint.XXHASH64.fingerprint("abc"));
+        String sql = "select * from t where id = ?";
+        assertEquals(SqlFingerprint.XXHASH64.fingerprint(sql), SqlFingerprint.XXHASH64.fingerprint(sql));
+        assertNotEquals(SqlFingerprint.XXHASH64.fingerprint(sql), SqlFingerprint.XXHASH64.fingerprint(sql + " "));
+    }
+
+    @Test
+    public void murmur3() {
+        assertEquals(32, SqlFingerprint.MURMUR3_128.fingerprint("select 1").length());
+    }
+
+    @Test
+    public void encodeUtf8() {
+        String s = "a é ☃ 😀 \uD800 end";
+        byte[] out = new byte[s.length() * 3];
+        int length = SqlFingerprint.encodeUtf8(s, out);
+        assertArrayEquals(s.getBytes(StandardCharsets.UTF_8), Arrays.copyOf(out, length));
+    }
+
+    @Test
+    public void of() {
+        assertEquals(SqlFingerprint.MD5, SqlFingerprint.of(null));
+        assertEquals(SqlFingerprint.MD5, SqlFingerprint.of("unknown"));
+        assertEquals(SqlFingerprint.XXHASH64, SqlFingerprint.of("xxhash64"));
+        assertEquals(SqlFingerprint.XXHASH64, SqlFingerprint.of("xxHash-64"));
+        assertEquals(SqlFingerprint.MURMUR3_128, SqlFingerprint.of("murmur3_128"));
+    }
+}
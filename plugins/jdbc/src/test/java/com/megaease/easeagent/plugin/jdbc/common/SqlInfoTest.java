@@ -47,8 +47,8 @@ public class SqlInfoTest {
         assertEquals(1, sqlInfo.getSqlList().size());
         assertEquals(sql, sqlInfo.getSqlList().get(0));
         sqlInfo.addSql(sql, true);
-        assertEquals(2, sqlInfo.getSqlList().size());
-        assertEquals(sql, sqlInfo.getSqlList().get(1));
+        assertEquals(1, sqlInfo.getSqlList().size());
+        assertEquals(2, sqlInfo.getBatch().getSize());
 
         String sql2 = "testSql2";
         sqlInfo.addSql(sql2, false);
@@ -81,4 +81,50 @@ public class SqlInfoTest {
     public void getSqlList() throws SQLException {
         addSql();
     }
+
+    @Test
+    public void batch() throws SQLException {
+        SqlInfo sqlInfo = buildSqlInfo();
+        for (int i = 0; i < 10_000; i++) {
+            sqlInfo.addBatch("insert into t (id, name) values (" + i + ", 'n" + i + "')");
+            if (i % 1000 == 0) {
+                sqlInfo.addBatch("update c set total = total + " + i);
+            }
+        }
+        SqlBatch batch = sqlInfo.getBatch();
+        assertEquals(10_010, batch.getSize());
+        assertEquals("10000,10", batch.getCounts());
+        assertEquals("insert into t (id, name) values (?, ?)\nupdate c set total = total + ?", sqlInfo.getSql());
+        assertSame(sqlInfo.getSql(), sqlInfo.getNormalizedSql());
+
+        sqlInfo.clearBatch();
+        assertNull(sqlInfo.getSql());
+    }
+
+    @Test
+    public void batchIsBounded() throws SQLException {
+        SqlInfo sqlInfo = buildSqlInfo();
+        for (int i = 0; i < SqlBatch.MAX_STATEMENTS + 5; i++) {
+            sqlInfo.addBatch("insert into t" + i + " values (1)");
+        }
+        assertEquals(SqlBatch.MAX_STATEMENTS, sqlInfo.getSqlList().size());
+        assertEquals(5, sqlInfo.getBatch().getDropped());
+
+        sqlInfo.clearBatch();
+        StringBuilder large = new StringBuilder("select ");
+        while (large.length() <= SqlBatch.MAX_CHARS) {
+            large.append("a, ");
+        }
+        sqlInfo.addBatch(large.append("b from t").toString());
+        assertNull(sqlInfo.getSql());
+        assertEquals(1, sqlInfo.getBatch().getDropped());
+    }
+
+    @Test
+    public void rowCount() {
+        assertEquals(3, SqlBatch.rowCount(new int[]{1, 2, java.sql.Statement.SUCCESS_NO_INFO}));
+        assertEquals(-1, SqlBatch.rowCount(new int[]{java.sql.Statement.SUCCESS_NO_INFO}));
+        assertEquals(5, SqlBatch.rowCount(new long[]{5}));
+        assertEquals(-1, SqlBatch.rowCount(true));
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.plugin.jdbc.common;
+
+import com.megaease.easeagent.mock.plugin.api.junit.EaseAgentJunit4ClassRunner;
+import com.megaease.easeagent.mock.plugin.api.utils.ConfigTestUtils;
+import com.megaease.easeagent.plugin.jdbc.TestUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+@RunWith(EaseAgentJunit4ClassRunner.class)
+public class SqlNormalizerTest {
+
+    static List<String[]> corpus() throws IOException {
+        List<String[]> cases = new ArrayList<>();
+        try (InputStream in = SqlNormalizerTest.class.getClassLoader().getResourceAsStream("sql-normalizer-corpus.txt")) {
+            assertNotNull(in);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String[] current = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (line.startsWith("=> ")) {
+                    assertNotNull(line, current);
+                    current[2] = line.substring(3);
+                    cases.add(current);
+                    current = null;
+                } else {
+                    int colon = line.indexOf(": ");
+                    current = new String[]{line.substring(0, colon), line.substring(colon + 2).replace("\\n", "\n").replace("\\t", "\t"), null};
+                }
+            }
+        }
+        return cases;
+    }
+
+    @Test
+    public void normalizeCorpus() throws IOException {
+        List<String[]> cases = corpus();
+        assertTrue(cases.size() > 30);
+        List<String> failures = new ArrayList<>();
+        for (String[] c : cases) {
+            SqlNormalizer.Dialect dialect = SqlNormalizer.Dialect.valueOf(c[0].toUpperCase(Locale.ROOT));
+            String normalized = SqlNormalizer.normalize(c[1], dialect);
+            if (!c[2].equals(normalized)) {
+                failures.add(c[1] + "\n  expected: " + c[2] + "\n  actual:   " + normalized);
+            }
+            // normalizing is idempotent
+            assertEquals(normalized, SqlNormalizer.normalize(normalized, dialect));
+        }
+        assertTrue(String.join("\n", failures), failures.isEmpty());
+    }
+
+    @Test
+    public void sameShapeSameKey() {
+        String a = SqlNormalizer.normalize("select * from t where id = 1", SqlNormalizer.Dialect.MYSQL);
+        String b = SqlNormalizer.normalize("select * from t  where id = 2 -- other", SqlNormalizer.Dialect.MYSQL);
+        String c = SqlNormalizer.normalize("select * from u where id = 1", SqlNormalizer.Dialect.MYSQL);
+        assertEquals(a, b);
+        assertEquals(SqlFingerprint.MD5.fingerprint(a), SqlFingerprint.MD5.fingerprint(b));
+        assertNotEquals(SqlFingerprint.MD5.fingerprint(a), SqlFingerprint.MD5.fingerprint(c));
+    }
+
+    @Test
+    public void dialectFromUrl() {
+        assertEquals(SqlNormalizer.Dialect.POSTGRESQL, SqlNormalizer.Dialect.fromUrl("jdbc:postgresql://127.0.0.1/db"));
+        assertEquals(SqlNormalizer.Dialect.POSTGRESQL, SqlNormalizer.Dialect.fromUrl("jdbc:p6spy:postgresql://127.0.0.1/db"));
+        assertEquals(SqlNormalizer.Dialect.MYSQL, SqlNormalizer.Dialect.fromUrl(TestUtils.URI));
+        assertEquals(SqlNormalizer.Dialect.MYSQL, SqlNormalizer.Dialect.fromUrl("jdbc:mariadb://127.0.0.1/db"));
+        assertEquals(SqlNormalizer.Dialect.MYSQL, SqlNormalizer.Dialect.fromUrl("jdbc:p6spy:mysql://127.0.0.1/db"));
+        assertEquals(SqlNormalizer.Dialect.ANSI, SqlNormalizer.Dialect.fromUrl("jdbc:oracle:thin:@127.0.0.1:1521:db"));
+        assertEquals(SqlNormalizer.Dialect.ANSI, SqlNormalizer.Dialect.fromUrl("jdbc:h2:mem:db"));
+        assertEquals(SqlNormalizer.Dialect.ANSI, SqlNormalizer.Dialect.fromUrl(null));
+    }
+
+    @Test
+    public void quotedIdentifiersKeptOutsideMysql() {
+        String sql = "SELECT \"ID\", \"NAME\" FROM \"USERS\" WHERE \"ID\" = 42";
+        SqlNormalizer.Dialect oracle = SqlNormalizer.Dialect.fromUrl("jdbc:oracle:thin:@127.0.0.1:1521:db");
+        assertEquals("SELECT \"ID\", \"NAME\" FROM \"USERS\" WHERE \"ID\" = ?", SqlNormalizer.normalize(sql, oracle));
+        assertNotEquals(SqlNormalizer.normalize(sql, oracle),
+            SqlNormalizer.normalize("SELECT \"ID\", \"MAIL\" FROM \"USERS\" WHERE \"ID\" = 42", oracle));
+        // no backslash escapes in standard strings
+        assertEquals("select ? from dual", SqlNormalizer.normalize("select 'a\\' from dual", oracle));
+    }
+
+    @Test
+    public void cachedPerSqlInfo() throws SQLException {
+        SqlInfo sqlInfo = new SqlInfo(TestUtils.mockConnection());
+        assertNull(sqlInfo.getNormalizedSql());
+
+        sqlInfo.addSql("select * from t where id = 1", false);
+        String normalized = sqlInfo.getNormalizedSql();
+        assertEquals("select * from t where id = ?", normalized);
+        // a prepared statement executes its sql again and again
+        sqlInfo.addSql("select * from t where id = 1", false);
+        assertSame(normalized, sqlInfo.getNormalizedSql());
+
+        sqlInfo.addSql("select * from u where id = 2", true);
+        assertEquals("select * from u where id = ?", sqlInfo.getNormalizedSql());
+        sqlInfo.clearSql();
+        assertNull(sqlInfo.getNormalizedSql());
+    }
+
+    @Test
+    public void enabledFollowsConfig() {
+        assertTrue(SqlNormalizer.isEnabled());
+        try (ConfigTestUtils.Reset ignored = ConfigTestUtils.changeConfig("plugin.observability.jdbc.sql.normalize.enabled", "false")) {
+            assertFalse(SqlNormalizer.isEnabled());
+        }
+        assertTrue(SqlNormalizer.isEnabled());
+    }
+}
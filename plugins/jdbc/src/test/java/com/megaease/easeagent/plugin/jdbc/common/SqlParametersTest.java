@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.jdbc.common;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SqlParametersTest {
+
+    @Test
+    public void format() {
+        SqlParameters parameters = new SqlParameters(true, 1000, 8, 10, Collections.emptyList());
+        Object[] values = {"abc", 42, null, SqlParameters.NULL, "0123456789abcdef", new byte[3], new ByteArrayInputStream(new byte[0]), true};
+        assertEquals("1='abc', 2=42, 4=NULL, 5='0123456789...', 6=<3 bytes>, 7=<stream>, 8=true",
+            parameters.format(values, values.length));
+        assertEquals("1='abc'", parameters.format(values, 1));
+        assertEquals("", parameters.format(new Object[8], 0));
+    }
+
+    @Test
+    public void mask() {
+        SqlParameters parameters = new SqlParameters(true, 1000, 8, 64,
+            Arrays.asList("\\d{13}\\d*", "[\\w.]+@[\\w.]+", "(bad"));
+        assertEquals("1='card ***', 2='***', 3=7",
+            parameters.format(new Object[]{"card 4111111111111111", "someone@example.com", 7}, 3));
+    }
+
+    @Test
+    public void shouldReport() {
+        SqlParameters parameters = new SqlParameters(true, 100, 8, 64, Collections.emptyList());
+        assertFalse(parameters.shouldReport(1_000_000, false));
+        assertTrue(parameters.shouldReport(1_000_000, true));
+        assertTrue(parameters.shouldReport(100_000_000, false));
+    }
+
+    @Test
+    public void slots() {
+        SqlInfo sqlInfo = new SqlInfo(null);
+        sqlInfo.setParameter(2, "b", 3);
+        sqlInfo.setParameter(1, "a", 3);
+        // not recorded, out of the slots
+        sqlInfo.setParameter(4, "d", 3);
+        sqlInfo.setParameter(0, "z", 3);
+        assertEquals(2, sqlInfo.getParameterCount());
+        assertArrayEquals(new Object[]{"a", "b", null}, sqlInfo.getParameters());
+        sqlInfo.clearParameters();
+        assertEquals(0, sqlInfo.getParameterCount());
+        assertArrayEquals(new Object[3], sqlInfo.getParameters());
+    }
+}
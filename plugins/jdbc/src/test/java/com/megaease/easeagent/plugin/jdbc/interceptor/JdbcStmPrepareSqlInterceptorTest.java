@@ -48,8 +48,9 @@ public class JdbcStmPrepareSqlInterceptorTest {
         assertEquals(1, sqlInfo.getSqlList().size());
         assertEquals(sql, sqlInfo.getSqlList().get(0));
         interceptor.doBefore(methodInfo, context);
-        assertEquals(2, sqlInfo.getSqlList().size());
-        assertEquals(sql, sqlInfo.getSqlList().get(0));
+        // a distinct statement is kept once
+        assertEquals(1, sqlInfo.getSqlList().size());
+        assertEquals(2, sqlInfo.getBatch().getSize());
 
         methodInfo = MethodInfo.builder().invoker(mockJDBCStatement).method("clearBatch").build();
         interceptor.doBefore(methodInfo, context);
@@ -63,9 +64,23 @@ public class JdbcStmPrepareSqlInterceptorTest {
         assertEquals(1, sqlInfo.getSqlList().size());
         assertEquals(sql, sqlInfo.getSqlList().get(0));
 
+        // a prepared statement keeps its sql after its batch is cleared or executed
+        methodInfo = MethodInfo.builder().invoker(mockJDBCStatement).method("addBatch").build();
+        interceptor.doBefore(methodInfo, context);
+        assertEquals(1, sqlInfo.getBatch().getSize());
+        assertEquals(sql, sqlInfo.getSql());
         methodInfo = MethodInfo.builder().invoker(mockJDBCStatement).method("clearBatch").args(new Object[]{null}).build();
         interceptor.doBefore(methodInfo, context);
-        assertTrue(sqlInfo.getSqlList().isEmpty());
+        assertNull(sqlInfo.getBatch());
+        assertEquals(sql, sqlInfo.getSql());
+
+        interceptor.doBefore(MethodInfo.builder().invoker(mockJDBCStatement).method("addBatch").build(), context);
+        methodInfo = MethodInfo.builder().invoker(mockJDBCStatement).method("executeBatch").retValue(new int[]{1}).build();
+        interceptor.doBefore(methodInfo, context);
+        assertNotNull(sqlInfo.getBatch());
+        interceptor.doAfter(methodInfo, context);
+        assertNull(sqlInfo.getBatch());
+        assertEquals(sql, sqlInfo.getSql());
 
         assertSame(sqlInfo, context.get(SqlInfo.class));
 
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.jdbc.interceptor;
+
+import com.megaease.easeagent.mock.plugin.api.junit.EaseAgentJunit4ClassRunner;
+import com.megaease.easeagent.mock.plugin.api.utils.ConfigTestUtils;
+import com.megaease.easeagent.plugin.api.Context;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+import com.megaease.easeagent.plugin.interceptor.MethodInfo;
+import com.megaease.easeagent.plugin.jdbc.MockJDBCStatement;
+import com.megaease.easeagent.plugin.jdbc.common.SqlInfo;
+import com.megaease.easeagent.plugin.jdbc.common.SqlParameters;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.sql.Types;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(EaseAgentJunit4ClassRunner.class)
+public class JdbcStmSetParameterInterceptorTest {
+
+    @Test
+    public void before() {
+        JdbcStmSetParameterInterceptor interceptor = new JdbcStmSetParameterInterceptor();
+        Context context = EaseAgent.getContext();
+        MockJDBCStatement statement = mock(MockJDBCStatement.class);
+        SqlInfo sqlInfo = new SqlInfo(null);
+        when(statement.getEaseAgent$$DynamicField$$Data()).thenReturn(sqlInfo);
+
+        MethodInfo setString = MethodInfo.builder().invoker(statement).method("setString").args(new Object[]{1, "abc"}).build();
+        interceptor.before(setString, context);
+        assertNull(sqlInfo.getParameters());
+
+        try (ConfigTestUtils.Reset ignored = ConfigTestUtils.changeConfig("plugin.observability.jdbc.sql.params.enabled", "true")) {
+            interceptor.before(setString, context);
+            interceptor.before(MethodInfo.builder().invoker(statement).method("setNull").args(new Object[]{2, Types.INTEGER}).build(), context);
+            assertEquals(2, sqlInfo.getParameterCount());
+            assertEquals("abc", sqlInfo.getParameters()[0]);
+            assertSame(SqlParameters.NULL, sqlInfo.getParameters()[1]);
+
+            interceptor.before(MethodInfo.builder().invoker(statement).method("clearParameters").build(), context);
+            assertEquals(0, sqlInfo.getParameterCount());
+        }
+        assertFalse(SqlParameters.get().isEnabled());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.jdbc.interceptor.metric;
+
+import com.megaease.easeagent.mock.plugin.api.MockEaseAgent;
+import com.megaease.easeagent.mock.plugin.api.junit.EaseAgentJunit4ClassRunner;
+import com.megaease.easeagent.mock.plugin.api.utils.InterceptorTestUtils;
+import com.megaease.easeagent.mock.plugin.api.utils.TagVerifier;
+import com.megaease.easeagent.mock.report.impl.LastJsonReporter;
+import com.megaease.easeagent.plugin.api.Context;
+import com.megaease.easeagent.plugin.api.context.ContextUtils;
+import com.megaease.easeagent.plugin.api.metric.name.MetricField;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+import com.megaease.easeagent.plugin.interceptor.MethodInfo;
+import com.megaease.easeagent.plugin.jdbc.JdbcConnectionMetricPlugin;
+import com.megaease.easeagent.plugin.jdbc.MockPools;
+import com.megaease.easeagent.plugin.jdbc.common.ConnectionPool;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+@RunWith(EaseAgentJunit4ClassRunner.class)
+public class JdbcPoolMetricInterceptorTest {
+
+    @Test
+    public void reportsPool() {
+        JdbcPoolMetricInterceptor interceptor = new JdbcPoolMetricInterceptor();
+        InterceptorTestUtils.init(interceptor, new JdbcConnectionMetricPlugin());
+        JdbcConnectionCloseInterceptor closeInterceptor = new JdbcConnectionCloseInterceptor();
+        Context context = EaseAgent.getContext();
+        ContextUtils.setBeginTime(context);
+
+        MockPools.HikariDataSource dataSource = new MockPools.HikariDataSource();
+        dataSource.pool = new MockPools.HikariPool();
+        Connection connection = mock(Connection.class);
+        interceptor.doAfter(MethodInfo.builder().invoker(dataSource).retValue(connection).build(), context);
+        interceptor.doAfter(MethodInfo.builder().invoker(dataSource)
+            .throwable(new SQLTransientConnectionException("request timed out")).build(), context);
+        closeInterceptor.doAfter(MethodInfo.builder().invoker(connection).build(), context);
+        ConnectionPool pool = (ConnectionPool) dataSource.getEaseAgent$$DynamicField$$Data();
+        assertEquals("orders", pool.getName());
+
+        TagVerifier tagVerifier = TagVerifier.build(JdbcPoolMetric.newPoolTags(), "orders");
+        LastJsonReporter lastJsonReporter = MockEaseAgent.lastMetricJsonReporter(tagVerifier::verifyAnd);
+        Map<String, Object> metrics = lastJsonReporter.flushAndOnlyOne();
+        assertEquals(3L, ((Number) metrics.get("active")).longValue());
+        assertEquals(2L, ((Number) metrics.get("pending")).longValue());
+        assertEquals(1L, ((Number) metrics.get("timeoutCnt")).longValue());
+        assertEquals(1L, ((Number) metrics.get("usageCnt")).longValue());
+        assertNotNull(metrics.get(MetricField.MEAN_EXECUTION_TIME.getField()));
+    }
+
+    @Test
+    public void delegatingAndOtherDataSources() {
+        JdbcPoolMetricInterceptor interceptor = new JdbcPoolMetricInterceptor();
+        InterceptorTestUtils.init(interceptor, new JdbcConnectionMetricPlugin());
+        MockPools.DruidDataSource target = new MockPools.DruidDataSource();
+        MockPools.DelegatingDataSource dataSource = new MockPools.DelegatingDataSource(target);
+        ConnectionPool pool = JdbcPoolMetricInterceptor.poolOf(dataSource, 0);
+        assertNotNull(pool);
+        assertSame(pool, JdbcPoolMetricInterceptor.poolOf(target, 0));
+        assertSame(pool, JdbcPoolMetricInterceptor.poolOf(dataSource, 0));
+
+        MockPools.DelegatingDataSource other = new MockPools.DelegatingDataSource(null);
+        assertNull(JdbcPoolMetricInterceptor.poolOf(other, 0));
+        assertNotNull(other.getEaseAgent$$DynamicField$$Data());
+        assertNull(JdbcPoolMetricInterceptor.poolOf(new Object(), 0));
+    }
+}
@@ -19,6 +19,7 @@ package com.megaease.easeagent.plugin.jdbc.interceptor.tracing;
 
 import com.megaease.easeagent.mock.plugin.api.MockEaseAgent;
 import com.megaease.easeagent.mock.plugin.api.junit.EaseAgentJunit4ClassRunner;
+import com.megaease.easeagent.mock.plugin.api.utils.ConfigTestUtils;
 import com.megaease.easeagent.mock.plugin.api.utils.InterceptorTestUtils;
 import com.megaease.easeagent.mock.plugin.api.utils.SpanTestUtils;
 import com.megaease.easeagent.plugin.api.Context;
@@ -128,6 +129,62 @@ public class JdbcStmTracingInterceptorTest {
         assertEquals(error, reportSpan.errorInfo());
     }
 
+    @Test
+    public void batch() throws SQLException {
+        JdbcStmTracingInterceptor interceptor = new JdbcStmTracingInterceptor();
+        InterceptorTestUtils.init(interceptor, new JdbcTracingPlugin());
+        Context context = EaseAgent.getContext();
+        SqlInfo sqlInfo = new SqlInfo(TestUtils.mockConnection());
+        for (int i = 0; i < 3; i++) {
+            sqlInfo.addBatch("insert into data values (" + i + ")");
+        }
+        context.put(SqlInfo.class, sqlInfo);
+        MethodInfo methodInfo = MethodInfo.builder().method("executeBatch").retValue(new int[]{1, 1, 1}).build();
+        interceptor.doBefore(methodInfo, context);
+        interceptor.doAfter(methodInfo, context);
+        ReportSpan reportSpan = MockEaseAgent.getLastSpan();
+        assertEquals(SQLCompressionFactory.getSqlCompression().compress("insert into data values (?)"),
+            reportSpan.tag(JdbcStmTracingInterceptor.SPAN_SQL_QUERY_TAG_NAME));
+        assertEquals("3", reportSpan.tag(JdbcStmTracingInterceptor.SPAN_BATCH_SIZE));
+        assertEquals("3", reportSpan.tag(JdbcStmTracingInterceptor.SPAN_BATCH_COUNTS));
+        assertEquals("3", reportSpan.tag(JdbcStmTracingInterceptor.SPAN_BATCH_ROWS));
+        assertNull(reportSpan.tag(JdbcStmTracingInterceptor.SPAN_BATCH_DROPPED));
+    }
+
+    @Test
+    public void parameters() throws SQLException {
+        JdbcStmTracingInterceptor interceptor = new JdbcStmTracingInterceptor();
+        InterceptorTestUtils.init(interceptor, new JdbcTracingPlugin());
+        Context context = EaseAgent.getContext();
+        SqlInfo sqlInfo = new SqlInfo(TestUtils.mockConnection());
+        sqlInfo.addSql("select * from data where id = ?", false);
+        sqlInfo.setParameter(1, 42, 8);
+        context.put(SqlInfo.class, sqlInfo);
+        MethodInfo methodInfo = MethodInfo.builder().method("executeQuery").build();
+        MethodInfo failed = MethodInfo.builder().method("executeQuery").throwable(new SQLException("deadlock")).build();
+
+        // disabled by default
+        interceptor.doBefore(failed, context);
+        interceptor.doAfter(failed, context);
+        assertNull(MockEaseAgent.getLastSpan().tag(JdbcStmTracingInterceptor.SPAN_PARAMS));
+
+        try (ConfigTestUtils.Reset ignored = ConfigTestUtils.changeConfig("plugin.observability.jdbc.sql.params.enabled", "true")) {
+            interceptor.doBefore(methodInfo, context);
+            interceptor.doAfter(methodInfo, context);
+            assertNull(MockEaseAgent.getLastSpan().tag(JdbcStmTracingInterceptor.SPAN_PARAMS));
+
+            interceptor.doBefore(failed, context);
+            interceptor.doAfter(failed, context);
+            assertEquals("1=42", MockEaseAgent.getLastSpan().tag(JdbcStmTracingInterceptor.SPAN_PARAMS));
+
+            try (ConfigTestUtils.Reset ignored1 = ConfigTestUtils.changeConfig("plugin.observability.jdbc.sql.params.slowThreshold", "0")) {
+                interceptor.doBefore(methodInfo, context);
+                interceptor.doAfter(methodInfo, context);
+                assertEquals("1=42", MockEaseAgent.getLastSpan().tag(JdbcStmTracingInterceptor.SPAN_PARAMS));
+            }
+        }
+    }
+
     @Test
     public void getType() {
         JdbcStmTracingInterceptor interceptor = new JdbcStmTracingInterceptor();
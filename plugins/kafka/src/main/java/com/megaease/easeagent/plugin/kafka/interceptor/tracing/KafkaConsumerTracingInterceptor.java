@@ -19,6 +19,7 @@ package com.megaease.easeagent.plugin.kafka.interceptor.tracing;
 
 import com.megaease.easeagent.plugin.annotation.AdviceTo;
 import com.megaease.easeagent.plugin.api.Context;
+import com.megaease.easeagent.plugin.api.config.IPluginConfig;
 import com.megaease.easeagent.plugin.api.middleware.MiddlewareConstants;
 import com.megaease.easeagent.plugin.api.middleware.Redirect;
 import com.megaease.easeagent.plugin.api.middleware.RedirectProcessor;
@@ -34,15 +35,30 @@ import com.megaease.easeagent.plugin.kafka.interceptor.KafkaUtils;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
 
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.*;
 
 @AdviceTo(value = KafkaConsumerAdvice.class, qualifier = "poll", plugin = KafkaPlugin.class)
 public class KafkaConsumerTracingInterceptor implements NonReentrantInterceptor {
     protected static final String REMOTE_SERVICE_NAME = "kafka";
+    public static final String POLL_MODE_CONFIG = "consumer.poll.mode";
+    public static final String POLL_MODE_BATCH = "batch";
+    public static final String POLL_MAX_PARENTS_CONFIG = "consumer.poll.maxParents";
+    static final int DEFAULT_POLL_MAX_PARENTS = 16;
+
     boolean singleRootSpanOnReceiveBatch = true;
+    boolean batchPoll = false;
+    int maxParents = DEFAULT_POLL_MAX_PARENTS;
+
+    @Override
+    public void init(IPluginConfig config, String className, String methodName, String methodDescriptor) {
+        batchPoll = POLL_MODE_BATCH.equalsIgnoreCase(config.getString(POLL_MODE_CONFIG));
+        Integer max = config.getInt(POLL_MAX_PARENTS_CONFIG);
+        if (max != null && max >= 0) {
+            maxParents = max;
+        }
+    }
 
     @Override
     public void doAfter(MethodInfo methodInfo, Context context) {
@@ -55,7 +71,79 @@ public class KafkaConsumerTracingInterceptor implements NonReentrantInterceptor
         }
         Consumer<?, ?> consumer = (Consumer<?, ?>) methodInfo.getInvoker();
         String uri = AgentDynamicFieldAccessor.getDynamicFieldValue(consumer);
-        afterPoll(context, consumerRecords, uri);
+        if (batchPoll) {
+            afterBatchPoll(context, consumerRecords, uri);
+        } else {
+            afterPoll(context, consumerRecords, uri);
+        }
+    }
+
+    /**
+     * Batch mode: a single "poll" span describes the whole batch, records are left untouched.
+     * The producer's propagation headers stay on every record, so a per-record span is only
+     * created lazily when the record is actually handled, e.g. by {@link KafkaMessageListenerTracingInterceptor}.
+     * The poll span does not join the trace of any record. The reported span model has no links,
+     * so the upstream spans of the batch are only recorded in the {@link KafkaTags#KAFKA_POLL_PARENTS_TAG}
+     * tag as "traceId-spanId" pairs, at most maxParents of them. Trace UIs do not follow these as references.
+     */
+    void afterBatchPoll(Context context, ConsumerRecords<?, ?> records, String uri) {
+        ConsumerRecord<?, ?> first = null;
+        Set<String> topics = new LinkedHashSet<>();
+        StringBuilder partitions = new StringBuilder();
+        for (TopicPartition tp : records.partitions()) {
+            List<? extends ConsumerRecord<?, ?>> list = records.records(tp);
+            if (list.isEmpty()) {
+                continue;
+            }
+            if (first == null) {
+                first = list.get(0);
+            }
+            topics.add(tp.topic());
+            appendItem(partitions, tp.toString()).append('=').append(list.size());
+        }
+        if (first == null) {
+            return;
+        }
+        Span span = context.consumerSpan(new KafkaConsumerRequest(null, first));
+        if (span.isNoop()) {
+            return;
+        }
+        setConsumerSpan(String.join(",", topics), uri, span);
+        span.tag(KafkaTags.KAFKA_POLL_RECORDS_TAG, String.valueOf(records.count()));
+        span.tag(KafkaTags.KAFKA_POLL_PARTITIONS_TAG, partitions.toString());
+        String parents = parents(records);
+        if (parents != null) {
+            span.tag(KafkaTags.KAFKA_POLL_PARENTS_TAG, parents);
+        }
+        span.start().finish();
+    }
+
+    private String parents(ConsumerRecords<?, ?> records) {
+        if (maxParents == 0) {
+            return null;
+        }
+        Set<String> links = null;
+        for (ConsumerRecord<?, ?> record : records) {
+            String parent = KafkaHeaders.parentContext(record.headers());
+            if (parent == null) {
+                continue;
+            }
+            if (links == null) {
+                links = new LinkedHashSet<>();
+            }
+            links.add(parent);
+            if (links.size() >= maxParents) {
+                break;
+            }
+        }
+        return links == null ? null : String.join(",", links);
+    }
+
+    private static StringBuilder appendItem(StringBuilder builder, String item) {
+        if (builder.length() > 0) {
+            builder.append(',');
+        }
+        return builder.append(item);
     }
 
     void afterPoll(Context context, ConsumerRecords<?, ?> records, String uri) {
@@ -29,6 +29,10 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  */
 final class KafkaHeaders {
     private static final Logger LOGGER = EaseAgent.getLogger(KafkaHeaders.class);
+    private static final String B3_SINGLE = "b3";
+    private static final String B3_TRACE_ID = "X-B3-TraceId";
+    private static final String B3_SPAN_ID = "X-B3-SpanId";
+    private static final String TRACEPARENT = "traceparent";
 
     static void replaceHeader(Headers headers, String key, String value) {
         try {
@@ -45,6 +49,38 @@ final class KafkaHeaders {
         return new String(header.value(), UTF_8);
     }
 
+    /**
+     * read the upstream span of a record as "traceId-spanId" without modifying the headers,
+     * supports both b3 single and b3 multi header formats.
+     */
+    static String parentContext(Headers headers) {
+        String traceId = null;
+        String spanId = null;
+        for (Header header : headers) {
+            String key = header.key();
+            if (header.value() == null) {
+                continue;
+            }
+            if (B3_SINGLE.equalsIgnoreCase(key)) {
+                String b3 = new String(header.value(), UTF_8);
+                int end = b3.indexOf('-', b3.indexOf('-') + 1);
+                return end < 0 ? b3 : b3.substring(0, end);
+            } else if (TRACEPARENT.equalsIgnoreCase(key)) {
+                // 00-{traceId}-{spanId}-{flags}
+                String traceparent = new String(header.value(), UTF_8);
+                return traceparent.length() < 52 ? null : traceparent.substring(3, 52);
+            } else if (B3_TRACE_ID.equalsIgnoreCase(key)) {
+                traceId = new String(header.value(), UTF_8);
+            } else if (B3_SPAN_ID.equalsIgnoreCase(key)) {
+                spanId = new String(header.value(), UTF_8);
+            }
+        }
+        if (traceId == null || spanId == null) {
+            return null;
+        }
+        return traceId + "-" + spanId;
+    }
+
     KafkaHeaders() {
     }
 }
@@ -26,4 +26,8 @@ final class KafkaTags {
   static final String KAFKA_KEY_TAG = "kafka.key";
   static final String KAFKA_TOPIC_TAG = "kafka.topic";
   static final String KAFKA_BROKER_TAG = "kafka.broker";
+  static final String KAFKA_POLL_RECORDS_TAG = "kafka.poll.records";
+  static final String KAFKA_POLL_PARTITIONS_TAG = "kafka.poll.partitions";
+  // comma separated "traceId-spanId" of the upstream spans, a plain tag as zipkin spans have no links
+  static final String KAFKA_POLL_PARENTS_TAG = "kafka.poll.parents";
 }
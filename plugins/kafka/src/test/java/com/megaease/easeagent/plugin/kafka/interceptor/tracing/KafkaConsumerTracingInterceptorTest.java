@@ -205,6 +205,46 @@ public class KafkaConsumerTracingInterceptorTest {
         mockSpans.clear();
     }
 
+    @Test
+    public void afterBatchPoll() {
+        KafkaConsumerTracingInterceptor interceptor = new KafkaConsumerTracingInterceptor();
+        interceptor.batchPoll = true;
+        MockKafkaConsumer kafkaConsumer = MockKafkaConsumer.buildOne();
+        String uri = (String) kafkaConsumer.getEaseAgent$$DynamicField$$Data();
+
+        List<ReportSpan> mockSpans = new ArrayList<>();
+        MockEaseAgent.setMockSpanReport(mockSpans::add);
+
+        Map<TopicPartition, List<ConsumerRecord<String, String>>> records = towTopicAndTenRecords();
+        ConsumerRecord<String, String> withParent = records.get(new TopicPartition(topic1, 1)).get(0);
+        withParent.headers().add("X-B3-TraceId", "463ac35c9f6413ad".getBytes());
+        withParent.headers().add("X-B3-SpanId", "a2fb4a1d1a96d312".getBytes());
+        ConsumerRecords<String, String> consumerRecords = new ConsumerRecords<>(records);
+        MethodInfo methodInfo = MethodInfo.builder().invoker(kafkaConsumer).retValue(consumerRecords).build();
+        interceptor.doAfter(methodInfo, EaseAgent.getContext());
+
+        assertEquals(1, mockSpans.size());
+        ReportSpan span = mockSpans.get(0);
+        assertEquals(uri, span.tag(KafkaTags.KAFKA_BROKER_TAG));
+        assertTrue(span.tag(KafkaTags.KAFKA_TOPIC_TAG).contains(topic1));
+        assertTrue(span.tag(KafkaTags.KAFKA_TOPIC_TAG).contains(topic2));
+        assertEquals("10", span.tag(KafkaTags.KAFKA_POLL_RECORDS_TAG));
+        assertTrue(span.tag(KafkaTags.KAFKA_POLL_PARTITIONS_TAG).contains(topic1 + "-1=5"));
+        assertTrue(span.tag(KafkaTags.KAFKA_POLL_PARTITIONS_TAG).contains(topic2 + "-1=5"));
+        assertEquals("463ac35c9f6413ad-a2fb4a1d1a96d312", span.tag(KafkaTags.KAFKA_POLL_PARENTS_TAG));
+        // records keep their upstream context for lazily created per-record spans
+        assertEquals("463ac35c9f6413ad", new String(withParent.headers().lastHeader("X-B3-TraceId").value()));
+        for (ConsumerRecord<String, String> record : consumerRecords.records(topic2)) {
+            assertFalse(record.headers().iterator().hasNext());
+        }
+        mockSpans.clear();
+
+        interceptor.maxParents = 0;
+        interceptor.afterBatchPoll(EaseAgent.getContext(), consumerRecords, uri);
+        assertEquals(1, mockSpans.size());
+        assertNull(mockSpans.get(0).tag(KafkaTags.KAFKA_POLL_PARENTS_TAG));
+    }
+
     private void checkBaseInfo(ReportSpan mockSpan, String topic, String uri) {
         assertEquals(topic, mockSpan.tag(KafkaTags.KAFKA_TOPIC_TAG));
         assertEquals(uri, mockSpan.tag(KafkaTags.KAFKA_BROKER_TAG));
@@ -46,4 +46,22 @@ public class KafkaHeadersTest {
         assertEquals(headerValue, KafkaHeaders.lastStringHeader(record.headers(), headerKey));
         assertNull(KafkaHeaders.lastStringHeader(record.headers(), "aaaa"));
     }
+
+    @Test
+    public void parentContext() {
+        ConsumerRecord<?, ?> record = new ConsumerRecord<>("", 0, 0, "", "");
+        assertNull(KafkaHeaders.parentContext(record.headers()));
+        record.headers().add("X-B3-TraceId", "463ac35c9f6413ad".getBytes());
+        assertNull(KafkaHeaders.parentContext(record.headers()));
+        record.headers().add("X-B3-SpanId", "a2fb4a1d1a96d312".getBytes());
+        assertEquals("463ac35c9f6413ad-a2fb4a1d1a96d312", KafkaHeaders.parentContext(record.headers()));
+
+        record = new ConsumerRecord<>("", 0, 0, "", "");
+        record.headers().add("b3", "463ac35c9f6413ad-a2fb4a1d1a96d312-1".getBytes());
+        assertEquals("463ac35c9f6413ad-a2fb4a1d1a96d312", KafkaHeaders.parentContext(record.headers()));
+
+        record = new ConsumerRecord<>("", 0, 0, "", "");
+        record.headers().add("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01".getBytes());
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7", KafkaHeaders.parentContext(record.headers()));
+    }
 }
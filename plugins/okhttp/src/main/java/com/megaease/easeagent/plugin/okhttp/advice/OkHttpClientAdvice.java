@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.okhttp.advice;
+
+import com.megaease.easeagent.plugin.Points;
+import com.megaease.easeagent.plugin.matcher.ClassMatcher;
+import com.megaease.easeagent.plugin.matcher.IClassMatcher;
+import com.megaease.easeagent.plugin.matcher.IMethodMatcher;
+import com.megaease.easeagent.plugin.matcher.MethodMatcher;
+
+import java.util.Set;
+
+/**
+ * {@code OkHttpClient(Builder)}, which {@code new OkHttpClient()}, {@code Builder.build()} and
+ * {@code client.newBuilder().build()} all go through.
+ */
+public class OkHttpClientAdvice implements Points {
+    @Override
+    public IClassMatcher getClassMatcher() {
+        return ClassMatcher.builder().hasClassName("okhttp3.OkHttpClient").build();
+    }
+
+    @Override
+    public Set<IMethodMatcher> getMethodMatcher() {
+        return MethodMatcher.builder().isConstruct()
+            .arg(0, "okhttp3.OkHttpClient$Builder")
+            .qualifier("constructor")
+            .build().toSet();
+    }
+}
@@ -24,11 +24,19 @@ import okhttp3.Request;
 public class InternalRequest implements HttpRequest {
 
     private final Request originalRequest;
-    private final Request.Builder requestBuilder;
+    private final Request.Builder builder;
 
-    public InternalRequest(Request originalRequest, Request.Builder requestBuilder) {
+    public InternalRequest(Request originalRequest) {
+        this(originalRequest, null);
+    }
+
+    /**
+     * @param builder receives the headers set on this request, {@code null} for the request of the call,
+     *                which is immutable and left as is
+     */
+    public InternalRequest(Request originalRequest, Request.Builder builder) {
         this.originalRequest = originalRequest;
-        this.requestBuilder = requestBuilder;
+        this.builder = builder;
     }
 
     @Override
@@ -71,8 +79,14 @@ public class InternalRequest implements HttpRequest {
         return false;
     }
 
+    /**
+     * Only the request built by {@link TracingNetworkInterceptor} for the network has a builder, the span
+     * is injected there.
+     */
     @Override
     public void setHeader(String name, String value) {
-        requestBuilder.addHeader(name, value);
+        if (builder != null) {
+            builder.header(name, value);
+        }
     }
 }
@@ -21,7 +21,6 @@ import com.megaease.easeagent.plugin.annotation.AdviceTo;
 import com.megaease.easeagent.plugin.api.Context;
 import com.megaease.easeagent.plugin.api.context.RequestContext;
 import com.megaease.easeagent.plugin.api.trace.Scope;
-import com.megaease.easeagent.plugin.field.AgentFieldReflectAccessor;
 import com.megaease.easeagent.plugin.interceptor.MethodInfo;
 import com.megaease.easeagent.plugin.interceptor.NonReentrantInterceptor;
 import com.megaease.easeagent.plugin.okhttp.OkHttpPlugin;
@@ -29,7 +28,6 @@ import com.megaease.easeagent.plugin.okhttp.advice.OkHttpAdvice;
 import com.megaease.easeagent.plugin.tools.trace.HttpUtils;
 import okhttp3.Call;
 import okhttp3.Callback;
-import okhttp3.Request;
 import okhttp3.Response;
 import org.jetbrains.annotations.NotNull;
 
@@ -39,20 +37,15 @@ import java.io.IOException;
 public class OkHttpAsyncTracingInterceptor implements NonReentrantInterceptor {
     @Override
     public void doBefore(MethodInfo methodInfo, Context context) {
-        Object realCall = methodInfo.getInvoker();
-        Request originalRequest = AgentFieldReflectAccessor.getFieldValue(realCall, "originalRequest");
-        if (originalRequest == null) {
-            return;
-        }
-        Request.Builder requestBuilder = originalRequest.newBuilder();
-        InternalRequest request = new InternalRequest(originalRequest, requestBuilder);
+        Call call = (Call) methodInfo.getInvoker();
+        InternalRequest request = new InternalRequest(call.request());
         RequestContext requestContext = context.clientRequest(request);
         HttpUtils.handleReceive(requestContext.span().start(), request);
         context.put(OkHttpAsyncTracingInterceptor.class, requestContext);
         Callback callback = (Callback) methodInfo.getArgs()[0];
         InternalCallback internalCallback = new InternalCallback(callback, request.method(), requestContext);
         methodInfo.changeArg(0, internalCallback);
-        AgentFieldReflectAccessor.setFieldValue(realCall, "originalRequest", requestBuilder.build());
+        TracingNetworkInterceptor.register(call, requestContext);
     }
 
     @Override
@@ -65,6 +58,7 @@ public class OkHttpAsyncTracingInterceptor implements NonReentrantInterceptor {
             if (methodInfo.isSuccess()) {
                 return;
             }
+            TracingNetworkInterceptor.unregister((Call) methodInfo.getInvoker());
             requestContext.span().error(methodInfo.getThrowable()).finish();
         }
     }
@@ -82,6 +76,7 @@ public class OkHttpAsyncTracingInterceptor implements NonReentrantInterceptor {
 
         @Override
         public void onFailure(@NotNull Call call, @NotNull IOException e) {
+            TracingNetworkInterceptor.unregister(call);
             this.delegate.onFailure(call, e);
             if (this.requestContext != null) {
                 this.requestContext.span().abandon();
@@ -90,6 +85,7 @@ public class OkHttpAsyncTracingInterceptor implements NonReentrantInterceptor {
 
         @Override
         public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
+            TracingNetworkInterceptor.unregister(call);
             this.delegate.onResponse(call, response);
             if (this.requestContext != null) {
                 InternalResponse internalResponse = new InternalResponse(null, method, response);
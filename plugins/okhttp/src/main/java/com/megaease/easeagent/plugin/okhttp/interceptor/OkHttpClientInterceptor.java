@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.okhttp.interceptor;
+
+import com.megaease.easeagent.plugin.annotation.AdviceTo;
+import com.megaease.easeagent.plugin.api.Context;
+import com.megaease.easeagent.plugin.interceptor.Interceptor;
+import com.megaease.easeagent.plugin.interceptor.MethodInfo;
+import com.megaease.easeagent.plugin.okhttp.OkHttpPlugin;
+import com.megaease.easeagent.plugin.okhttp.advice.OkHttpClientAdvice;
+import okhttp3.OkHttpClient;
+
+/**
+ * Adds {@link TracingNetworkInterceptor} to every client once, a builder copied from a client already has it.
+ */
+@AdviceTo(value = OkHttpClientAdvice.class, qualifier = "constructor", plugin = OkHttpPlugin.class)
+public class OkHttpClientInterceptor implements Interceptor {
+    @Override
+    public void before(MethodInfo methodInfo, Context context) {
+        OkHttpClient.Builder builder = (OkHttpClient.Builder) methodInfo.getArgs()[0];
+        if (!builder.networkInterceptors().contains(TracingNetworkInterceptor.INSTANCE)) {
+            builder.addNetworkInterceptor(TracingNetworkInterceptor.INSTANCE);
+        }
+    }
+}
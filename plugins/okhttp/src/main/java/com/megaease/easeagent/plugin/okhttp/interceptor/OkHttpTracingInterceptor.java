@@ -19,19 +19,19 @@ package com.megaease.easeagent.plugin.okhttp.interceptor;
 
 import com.megaease.easeagent.plugin.annotation.AdviceTo;
 import com.megaease.easeagent.plugin.api.Context;
-import com.megaease.easeagent.plugin.field.AgentFieldReflectAccessor;
+import com.megaease.easeagent.plugin.api.context.RequestContext;
 import com.megaease.easeagent.plugin.interceptor.MethodInfo;
 import com.megaease.easeagent.plugin.okhttp.OkHttpPlugin;
 import com.megaease.easeagent.plugin.okhttp.advice.OkHttpAdvice;
 import com.megaease.easeagent.plugin.tools.trace.BaseHttpClientTracingInterceptor;
 import com.megaease.easeagent.plugin.tools.trace.HttpRequest;
 import com.megaease.easeagent.plugin.tools.trace.HttpResponse;
+import okhttp3.Call;
 import okhttp3.Request;
 import okhttp3.Response;
 
 @AdviceTo(value = OkHttpAdvice.class, qualifier = "execute", plugin = OkHttpPlugin.class)
 public class OkHttpTracingInterceptor extends BaseHttpClientTracingInterceptor {
-    public static Object REQUEST_BUILDER_KEY = new Object();
     public static Object METHOD_KEY = new Object();
 
     @Override
@@ -42,22 +42,23 @@ public class OkHttpTracingInterceptor extends BaseHttpClientTracingInterceptor {
     @Override
     public void doBefore(MethodInfo methodInfo, Context context) {
         super.doBefore(methodInfo, context);
-        Object realCall = methodInfo.getInvoker();
-        Request.Builder requestBuilder = context.remove(REQUEST_BUILDER_KEY);
-        AgentFieldReflectAccessor.setFieldValue(realCall, "originalRequest", requestBuilder.build());
+        RequestContext requestContext = context.get(getProgressKey());
+        if (requestContext != null) {
+            TracingNetworkInterceptor.register((Call) methodInfo.getInvoker(), requestContext);
+        }
+    }
+
+    @Override
+    public void doAfter(MethodInfo methodInfo, Context context) {
+        TracingNetworkInterceptor.unregister((Call) methodInfo.getInvoker());
+        super.doAfter(methodInfo, context);
     }
 
     @Override
     protected HttpRequest getRequest(MethodInfo methodInfo, Context context) {
-        Object realCall = methodInfo.getInvoker();
-        Request originalRequest = AgentFieldReflectAccessor.getFieldValue(realCall, "originalRequest");
-        if (originalRequest == null) {
-            return null;
-        }
+        Request originalRequest = ((Call) methodInfo.getInvoker()).request();
         context.put(METHOD_KEY, originalRequest.method());
-        Request.Builder requestBuilder = originalRequest.newBuilder();
-        context.put(REQUEST_BUILDER_KEY, requestBuilder);
-        return new InternalRequest(originalRequest, requestBuilder);
+        return new InternalRequest(originalRequest);
     }
 
     @Override
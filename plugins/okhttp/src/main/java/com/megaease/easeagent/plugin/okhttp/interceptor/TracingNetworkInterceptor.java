@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.okhttp.interceptor;
+
+import com.megaease.easeagent.plugin.api.context.RequestContext;
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Injects the client span of a call into the request sent on the network. OkHttp requests are immutable, so
+ * the headers are added the way OkHttp intends, by proceeding with a request built from the one in the chain,
+ * instead of replacing the request of the call by reflection. The span writes its headers straight into
+ * that builder.
+ * <p>
+ * The span is started by {@code execute} or {@code enqueue} and registered here until the call completes,
+ * since the network interceptor of an enqueued call runs on a dispatcher thread.
+ */
+public class TracingNetworkInterceptor implements Interceptor {
+    static final TracingNetworkInterceptor INSTANCE = new TracingNetworkInterceptor();
+    private static final Map<Call, RequestContext> PENDING = new ConcurrentHashMap<>();
+
+    static void register(Call call, RequestContext requestContext) {
+        PENDING.put(call, requestContext);
+    }
+
+    static void unregister(Call call) {
+        PENDING.remove(call);
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        RequestContext requestContext = PENDING.get(chain.call());
+        if (requestContext == null) {
+            return chain.proceed(chain.request());
+        }
+        Request request = chain.request();
+        Request.Builder builder = request.newBuilder();
+        requestContext.span().inject(new InternalRequest(request, builder));
+        return chain.proceed(builder.build());
+    }
+}
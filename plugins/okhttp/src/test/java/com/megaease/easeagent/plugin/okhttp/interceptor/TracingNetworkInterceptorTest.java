@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.plugin.okhttp.interceptor;
+
+import com.megaease.easeagent.mock.plugin.api.junit.EaseAgentJunit4ClassRunner;
+import com.megaease.easeagent.plugin.api.Context;
+import com.megaease.easeagent.plugin.api.context.RequestContext;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+import com.megaease.easeagent.plugin.interceptor.MethodInfo;
+import okhttp3.*;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(EaseAgentJunit4ClassRunner.class)
+public class TracingNetworkInterceptorTest {
+
+    static class StubChain implements Interceptor.Chain {
+        private final Call call;
+        Request proceeded;
+
+        StubChain(Call call) {
+            this.call = call;
+        }
+
+        @NotNull
+        @Override
+        public Request request() {
+            return call.request();
+        }
+
+        @NotNull
+        @Override
+        public Response proceed(@NotNull Request request) {
+            proceeded = request;
+            return OkHttpTestUtils.responseBuilder(call).request(request).build();
+        }
+
+        @Override
+        public Connection connection() {
+            return null;
+        }
+
+        @NotNull
+        @Override
+        public Call call() {
+            return call;
+        }
+
+        @Override
+        public int connectTimeoutMillis() {
+            return 0;
+        }
+
+        @NotNull
+        @Override
+        public Interceptor.Chain withConnectTimeout(int timeout, @NotNull TimeUnit unit) {
+            return this;
+        }
+
+        @Override
+        public int readTimeoutMillis() {
+            return 0;
+        }
+
+        @NotNull
+        @Override
+        public Interceptor.Chain withReadTimeout(int timeout, @NotNull TimeUnit unit) {
+            return this;
+        }
+
+        @Override
+        public int writeTimeoutMillis() {
+            return 0;
+        }
+
+        @NotNull
+        @Override
+        public Interceptor.Chain withWriteTimeout(int timeout, @NotNull TimeUnit unit) {
+            return this;
+        }
+    }
+
+    @Test
+    public void injectWhileCallRuns() throws IOException {
+        Call call = OkHttpTestUtils.buildCall();
+        MethodInfo.MethodInfoBuilder methodInfoBuilder = MethodInfo.builder().invoker(call);
+        MethodInfo methodInfo = methodInfoBuilder.build();
+        Context context = EaseAgent.getContext();
+        OkHttpTracingInterceptor tracingInterceptor = new OkHttpTracingInterceptor();
+        tracingInterceptor.before(methodInfo, context);
+        RequestContext requestContext = context.get(tracingInterceptor.getProgressKey());
+        assertNotNull(requestContext);
+
+        StubChain chain = new StubChain(call);
+        TracingNetworkInterceptor.INSTANCE.intercept(chain);
+        assertFalse(requestContext.getHeaders().isEmpty());
+        for (Map.Entry<String, String> header : requestContext.getHeaders().entrySet()) {
+            assertEquals(header.getValue(), chain.proceeded.header(header.getKey()));
+            // the request of the call is not replaced
+            assertNull(call.request().header(header.getKey()));
+        }
+
+        methodInfo = methodInfoBuilder.retValue(OkHttpTestUtils.responseBuilder(call).build()).build();
+        tracingInterceptor.after(methodInfo, context);
+        chain = new StubChain(call);
+        TracingNetworkInterceptor.INSTANCE.intercept(chain);
+        assertSame(call.request(), chain.proceeded);
+    }
+
+    @Test
+    public void addedOncePerClient() {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder();
+        OkHttpClientInterceptor clientInterceptor = new OkHttpClientInterceptor();
+        MethodInfo methodInfo = MethodInfo.builder().args(new Object[]{builder}).build();
+        clientInterceptor.before(methodInfo, EaseAgent.getContext());
+        OkHttpClient client = builder.build();
+
+        OkHttpClient.Builder copied = client.newBuilder();
+        clientInterceptor.before(MethodInfo.builder().args(new Object[]{copied}).build(), EaseAgent.getContext());
+        assertEquals(1, copied.networkInterceptors().size());
+        assertSame(TracingNetworkInterceptor.INSTANCE, copied.networkInterceptors().get(0));
+    }
+}
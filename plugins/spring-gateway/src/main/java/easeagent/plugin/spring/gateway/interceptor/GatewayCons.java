@@ -21,4 +21,6 @@ public interface GatewayCons {
     String SPAN_KEY = GatewayCons.class.getName() + ".SPAN";
     String CHILD_SPAN_KEY = GatewayCons.class.getName() + ".CHILD_SPAN";
     String CLIENT_RECEIVE_CALLBACK_KEY = GatewayCons.class.getName() + ".CLIENT_RECEIVE_CALLBACK";
+    // ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, not referenced so that plain WebFlux applications need no gateway
+    String GATEWAY_ROUTE_ATTR = "org.springframework.cloud.gateway.support.ServerWebExchangeUtils.gatewayRoute";
 }
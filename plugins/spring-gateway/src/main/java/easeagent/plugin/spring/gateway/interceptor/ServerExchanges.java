@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package easeagent.plugin.spring.gateway.interceptor;
+
+import com.megaease.easeagent.plugin.interceptor.MethodInfo;
+import com.megaease.easeagent.plugin.tools.metrics.UrlTemplates;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+
+/**
+ * Helpers for the server interceptors, which run on {@code DispatcherHandler.handle} of any WebFlux application and on
+ * the agent global filter of a gateway. Gateway classes are only touched when the exchange has a gateway route.
+ */
+public final class ServerExchanges {
+    static final String HANDLE = "handle";
+    static final String DISPATCHED_KEY = GatewayCons.class.getName() + ".DISPATCHED";
+
+    private ServerExchanges() {
+    }
+
+    /**
+     * The global filter of a gateway runs inside {@code DispatcherHandler.handle} of the same exchange, which is
+     * instrumented already.
+     *
+     * @return true when the interceptor should not handle the call
+     */
+    public static boolean skip(MethodInfo methodInfo) {
+        ServerWebExchange exchange = (ServerWebExchange) methodInfo.getArgs()[0];
+        if (HANDLE.equals(methodInfo.getMethod())) {
+            exchange.getAttributes().put(DISPATCHED_KEY, Boolean.TRUE);
+            return false;
+        }
+        return exchange.getAttributes().containsKey(DISPATCHED_KEY);
+    }
+
+    /**
+     * @return the server metric key: the method and the gateway route uri, or the WebFlux route, or the template
+     * of the path
+     */
+    public static String getKey(ServerWebExchange exchange) {
+        HttpMethod httpMethod = exchange.getRequest().getMethod();
+        if (httpMethod == null) {
+            return "";
+        }
+        Object route = exchange.getAttribute(GatewayCons.GATEWAY_ROUTE_ATTR);
+        String uri = route == null ? null : GatewayRoute.uri(route);
+        if (uri != null) {
+            return httpMethod.name() + " " + uri;
+        }
+        HttpStatus status = exchange.getResponse().getStatusCode();
+        return httpMethod.name() + " " + UrlTemplates.getDefault().template(getRoute(exchange),
+            exchange.getRequest().getURI().getRawPath(), status == null ? 0 : status.value());
+    }
+
+    /**
+     * @return the pattern matched by WebFlux, or null
+     */
+    public static String getRoute(ServerWebExchange exchange) {
+        PathPattern bestPattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return bestPattern == null ? null : bestPattern.getPatternString();
+    }
+
+    static class GatewayRoute {
+        static String uri(Object route) {
+            if (route instanceof Route && ((Route) route).getUri() != null) {
+                return ((Route) route).getUri().toString();
+            }
+            return null;
+        }
+    }
+}
@@ -25,16 +25,26 @@ import com.megaease.easeagent.plugin.interceptor.MethodInfo;
 import com.megaease.easeagent.plugin.interceptor.NonReentrantInterceptor;
 import easeagent.plugin.spring.gateway.ForwardedPlugin;
 import easeagent.plugin.spring.gateway.advice.AgentGlobalFilterAdvice;
+import easeagent.plugin.spring.gateway.advice.DispatcherHandlerAdvice;
+import easeagent.plugin.spring.gateway.interceptor.ServerExchanges;
 import easeagent.plugin.spring.gateway.interceptor.tracing.FluxHttpServerRequest;
 import org.springframework.web.server.ServerWebExchange;
 
+/**
+ * Imports the forwarded headers at the same level as the server span, around {@code DispatcherHandler.handle} when it
+ * is instrumented, otherwise around the agent global filter.
+ */
 @AdviceTo(value = AgentGlobalFilterAdvice.class, plugin = ForwardedPlugin.class)
+@AdviceTo(value = DispatcherHandlerAdvice.class, plugin = ForwardedPlugin.class)
 public class GatewayServerForwardedInterceptor implements NonReentrantInterceptor {
     private static final Object FORWARDED_KEY = new Object();
 
 
     @Override
     public void doBefore(MethodInfo methodInfo, Context context) {
+        if (ServerExchanges.skip(methodInfo)) {
+            return;
+        }
         ServerWebExchange exchange = (ServerWebExchange) methodInfo.getArgs()[0];
         FluxHttpServerRequest httpServerRequest = new FluxHttpServerRequest(exchange.getRequest());
         Cleaner cleaner = context.importForwardedHeaders(httpServerRequest);
@@ -43,6 +53,9 @@ public class GatewayServerForwardedInterceptor implements NonReentrantIntercepto
 
     @Override
     public void doAfter(MethodInfo methodInfo, Context context) {
+        if (ServerExchanges.skip(methodInfo)) {
+            return;
+        }
         Cleaner cleaner = context.remove(FORWARDED_KEY);
         if (cleaner != null) {
             cleaner.close();
@@ -30,18 +30,17 @@ import com.megaease.easeagent.plugin.tools.metrics.ServerMetric;
 import com.megaease.easeagent.plugin.utils.SystemClock;
 import easeagent.plugin.spring.gateway.SpringGatewayPlugin;
 import easeagent.plugin.spring.gateway.advice.AgentGlobalFilterAdvice;
+import easeagent.plugin.spring.gateway.advice.DispatcherHandlerAdvice;
+import easeagent.plugin.spring.gateway.interceptor.ServerExchanges;
 import easeagent.plugin.spring.gateway.reactor.AgentMono;
-import org.springframework.cloud.gateway.route.Route;
-import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
-import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ServerWebExchange;
-import reactor.core.publisher.Mono;
 
 import static easeagent.plugin.spring.gateway.interceptor.metric.TimeUtils.removeStartTime;
 import static easeagent.plugin.spring.gateway.interceptor.metric.TimeUtils.startTime;
 
 @AdviceTo(value = AgentGlobalFilterAdvice.class, plugin = SpringGatewayPlugin.class)
+@AdviceTo(value = DispatcherHandlerAdvice.class, plugin = SpringGatewayPlugin.class)
 public class GatewayMetricsInterceptor implements Interceptor {
     private static Object START_TIME = new Object();
     private static volatile ServerMetric SERVER_METRIC = null;
@@ -54,14 +53,19 @@ public class GatewayMetricsInterceptor implements Interceptor {
 
     @Override
     public void before(MethodInfo methodInfo, Context context) {
+        if (ServerExchanges.skip(methodInfo)) {
+            return;
+        }
         startTime(context, START_TIME);
         // context.put(START, SystemClock.now());
     }
 
 
     @Override
-    @SuppressWarnings("unchecked")
     public void after(MethodInfo methodInfo, Context context) {
+        if (ServerExchanges.skip(methodInfo)) {
+            return;
+        }
         try {
             ServerWebExchange exchange = (ServerWebExchange) methodInfo.getArgs()[0];
             if (!methodInfo.isSuccess()) {
@@ -72,8 +76,7 @@ public class GatewayMetricsInterceptor implements Interceptor {
                 return;
             }
             // async
-            Mono<Void> mono = (Mono<Void>) methodInfo.getRetValue();
-            methodInfo.setRetValue(new AgentMono(mono, methodInfo, context.exportAsync(), this::finishCallback));
+            AgentMono.wrap(methodInfo, context, this::finishCallback);
         } finally {
             removeStartTime(context, START_TIME);
         }
@@ -92,18 +95,7 @@ public class GatewayMetricsInterceptor implements Interceptor {
     }
 
     public static String getKey(ServerWebExchange exchange) {
-        HttpMethod httpMethod = exchange.getRequest().getMethod();
-        if (httpMethod == null) {
-            return "";
-        }
-        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
-        String key;
-        if (route != null && route.getUri() != null) {
-            key = httpMethod.name() + " " + route.getUri().toString();
-        } else {
-            key = httpMethod.name() + " " + exchange.getRequest().getURI();
-        }
-        return key;
+        return ServerExchanges.getKey(exchange);
     }
 
     @Override
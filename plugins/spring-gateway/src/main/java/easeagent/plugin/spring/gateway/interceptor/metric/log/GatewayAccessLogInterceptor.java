@@ -28,47 +28,58 @@ import com.megaease.easeagent.plugin.bridge.EaseAgent;
 import com.megaease.easeagent.plugin.enums.Order;
 import com.megaease.easeagent.plugin.interceptor.Interceptor;
 import com.megaease.easeagent.plugin.interceptor.MethodInfo;
+import com.megaease.easeagent.plugin.tools.metrics.AccessLogSampler;
 import com.megaease.easeagent.plugin.tools.metrics.AccessLogServerInfo;
 import com.megaease.easeagent.plugin.tools.metrics.HttpLog;
 import com.megaease.easeagent.plugin.api.logging.AccessLogInfo;
 import easeagent.plugin.spring.gateway.AccessPlugin;
 import easeagent.plugin.spring.gateway.advice.AgentGlobalFilterAdvice;
+import easeagent.plugin.spring.gateway.advice.DispatcherHandlerAdvice;
 import easeagent.plugin.spring.gateway.interceptor.GatewayCons;
+import easeagent.plugin.spring.gateway.interceptor.ServerExchanges;
 import easeagent.plugin.spring.gateway.reactor.AgentMono;
 import org.springframework.web.server.ServerWebExchange;
-import reactor.core.publisher.Mono;
 
 import static easeagent.plugin.spring.gateway.interceptor.metric.TimeUtils.removeStartTime;
 import static easeagent.plugin.spring.gateway.interceptor.metric.TimeUtils.startTime;
 
 @AdviceTo(value = AgentGlobalFilterAdvice.class, plugin = AccessPlugin.class)
+@AdviceTo(value = DispatcherHandlerAdvice.class, plugin = AccessPlugin.class)
 public class GatewayAccessLogInterceptor implements Interceptor {
     private static final Object START_TIME = new Object();
     private static Reporter reportConsumer;
-    private final HttpLog httpLog = new HttpLog();
+    private HttpLog httpLog = new HttpLog();
 
     @Override
     public void init(IPluginConfig config, String className, String methodName, String methodDescriptor) {
         reportConsumer = EaseAgent.metricReporter(config);
+        this.httpLog = new HttpLog(AccessLogSampler.getOrCreate(config));
     }
 
     @Override
     public void before(MethodInfo methodInfo, Context context) {
+        if (ServerExchanges.skip(methodInfo)) {
+            return;
+        }
         ServerWebExchange exchange = (ServerWebExchange) methodInfo.getArgs()[0];
-        AccessLogServerInfo serverInfo = this.serverInfo(exchange);
         Long beginTime = startTime(context, START_TIME);
+        if (!this.httpLog.sample()) {
+            return;
+        }
+        AccessLogServerInfo serverInfo = this.serverInfo(exchange);
         AccessLogInfo accessLogInfo = this.httpLog.prepare(getSystem(),
             getServiceName(), beginTime, getSpan(exchange), serverInfo);
         exchange.getAttributes().put(AccessLogInfo.class.getName(), accessLogInfo);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void after(MethodInfo methodInfo, Context context) {
+        if (ServerExchanges.skip(methodInfo)) {
+            return;
+        }
         try {
             // async
-            Mono<Void> mono = (Mono<Void>) methodInfo.getRetValue();
-            methodInfo.setRetValue(new AgentMono(mono, methodInfo, context.exportAsync(), this::finishCallback));
+            AgentMono.wrap(methodInfo, context, this::finishCallback);
         } finally {
             removeStartTime(context, START_TIME);
         }
@@ -85,11 +96,15 @@ public class GatewayAccessLogInterceptor implements Interceptor {
     private void finishCallback(MethodInfo methodInfo, AsyncContext ctx) {
         ServerWebExchange exchange = (ServerWebExchange) methodInfo.getArgs()[0];
         AccessLogInfo accessLogInfo = exchange.getAttribute(AccessLogInfo.class.getName());
-        if (accessLogInfo == null) {
-            return;
-        }
         Long beginTime = ctx.get(START_TIME);
         AccessLogServerInfo serverInfo = this.serverInfo(exchange);
+        if (accessLogInfo == null) {
+            // not sampled, unless it failed or was slow
+            if (beginTime == null || !this.httpLog.sampleFinished(methodInfo.isSuccess(), beginTime, serverInfo)) {
+                return;
+            }
+            accessLogInfo = this.httpLog.prepare(getSystem(), getServiceName(), beginTime, getSpan(exchange), serverInfo);
+        }
         this.httpLog.finish(accessLogInfo, methodInfo.isSuccess(), beginTime, serverInfo);
         EaseAgent.getAgentReport().report(accessLogInfo);
         /*
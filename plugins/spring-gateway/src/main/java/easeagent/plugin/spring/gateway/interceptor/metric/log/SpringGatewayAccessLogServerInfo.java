@@ -18,9 +18,7 @@
 package easeagent.plugin.spring.gateway.interceptor.metric.log;
 
 import com.megaease.easeagent.plugin.tools.metrics.AccessLogServerInfo;
-import org.springframework.cloud.gateway.route.Route;
-import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
-import org.springframework.http.HttpMethod;
+import easeagent.plugin.spring.gateway.interceptor.ServerExchanges;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ServerWebExchange;
 
@@ -63,15 +61,7 @@ public class SpringGatewayAccessLogServerInfo implements AccessLogServerInfo {
 
     @Override
     public String getMatchURL() {
-        HttpMethod httpMethod = exchange.getRequest().getMethod();
-        if (httpMethod == null) {
-            return "";
-        }
-        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
-        if (route != null && route.getUri() != null) {
-            return httpMethod.name() + " " + route.getUri().toString();
-        }
-        return httpMethod.name() + " " + getRequestURI();
+        return ServerExchanges.getKey(exchange);
     }
 
     @Override
@@ -30,21 +30,24 @@ import com.megaease.easeagent.plugin.tools.trace.HttpResponse;
 import com.megaease.easeagent.plugin.tools.trace.HttpUtils;
 import easeagent.plugin.spring.gateway.SpringGatewayPlugin;
 import easeagent.plugin.spring.gateway.advice.AgentGlobalFilterAdvice;
+import easeagent.plugin.spring.gateway.advice.DispatcherHandlerAdvice;
 import easeagent.plugin.spring.gateway.interceptor.GatewayCons;
+import easeagent.plugin.spring.gateway.interceptor.ServerExchanges;
 import easeagent.plugin.spring.gateway.reactor.AgentMono;
-import org.springframework.web.reactive.HandlerMapping;
 import org.springframework.web.server.ServerWebExchange;
-import org.springframework.web.util.pattern.PathPattern;
-import reactor.core.publisher.Mono;
 
 import java.util.function.BiConsumer;
 
 @AdviceTo(value = AgentGlobalFilterAdvice.class, plugin = SpringGatewayPlugin.class)
+@AdviceTo(value = DispatcherHandlerAdvice.class, plugin = SpringGatewayPlugin.class)
 public class GatewayServerTracingInterceptor implements Interceptor {
     static final String SPAN_CONTEXT_KEY = GatewayServerTracingInterceptor.class.getName() + "-P-CTX";
 
     @Override
     public void before(MethodInfo methodInfo, Context context) {
+        if (ServerExchanges.skip(methodInfo)) {
+            return;
+        }
         ServerWebExchange exchange = (ServerWebExchange) methodInfo.getArgs()[0];
         FluxHttpServerRequest httpServerRequest = new FluxHttpServerRequest(exchange.getRequest());
         RequestContext pCtx = context.serverReceive(httpServerRequest);
@@ -60,8 +63,10 @@ public class GatewayServerTracingInterceptor implements Interceptor {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void after(MethodInfo methodInfo, Context context) {
+        if (ServerExchanges.skip(methodInfo)) {
+            return;
+        }
         RequestContext pCtx = context.get(SPAN_CONTEXT_KEY);
         if (pCtx == null) {
             return;
@@ -74,8 +79,7 @@ public class GatewayServerTracingInterceptor implements Interceptor {
             }
 
             // async
-            Mono<Void> mono = (Mono<Void>) methodInfo.getRetValue();
-            methodInfo.setRetValue(new AgentMono(mono, methodInfo, context.exportAsync(), this::finishCallback));
+            AgentMono.wrap(methodInfo, context, this::finishCallback);
         } finally {
             cleanContext(context);
             pCtx.scope().close();
@@ -93,13 +97,8 @@ public class GatewayServerTracingInterceptor implements Interceptor {
             }
 
             FluxHttpServerRequest httpServerRequest = EaseAgent.getContext().get(FluxHttpServerRequest.class);
-            PathPattern bestPattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
-            String route = null;
-            if (bestPattern != null) {
-                route = bestPattern.getPatternString();
-            }
             HttpResponse response = new FluxHttpServerResponse(httpServerRequest,
-                exchange.getResponse(), route, methodInfo.getThrowable());
+                exchange.getResponse(), ServerExchanges.getRoute(exchange), methodInfo.getThrowable());
             HttpUtils.finish(pCtx.span(), response);
             exchange.getAttributes().remove(GatewayCons.SPAN_KEY);
         }
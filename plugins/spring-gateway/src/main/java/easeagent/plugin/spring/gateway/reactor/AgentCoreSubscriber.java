@@ -44,6 +44,10 @@
          this.asyncContext = async;
      }
 
+     CoreSubscriber<Void> getActual() {
+         return actual;
+     }
+
      @Nonnull
      @Override
      public reactor.util.context.Context currentContext() {
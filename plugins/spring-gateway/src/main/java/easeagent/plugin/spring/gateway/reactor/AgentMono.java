@@ -18,27 +18,53 @@
 package easeagent.plugin.spring.gateway.reactor;
 
 import com.megaease.easeagent.plugin.api.Cleaner;
+import com.megaease.easeagent.plugin.api.Context;
 import com.megaease.easeagent.plugin.api.context.AsyncContext;
+import com.megaease.easeagent.plugin.api.logging.Logger;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
 import com.megaease.easeagent.plugin.interceptor.MethodInfo;
 import reactor.core.CoreSubscriber;
 import reactor.core.publisher.Mono;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.BiConsumer;
 
+/**
+ * The mono returned to the server, wrapped once per call however many interceptors are interested in its end.
+ * The first interceptor wraps it with the async context exported at that time, the interceptors after only add
+ * their callback, so all of them run from one subscriber.
+ */
 public class AgentMono extends Mono<Void> {
+    private static final Logger LOGGER = EaseAgent.getLogger(AgentMono.class);
     private final Mono<Void> source;
     private final MethodInfo methodInfo;
     private final AsyncContext asyncContext;
-    private final BiConsumer<MethodInfo, AsyncContext> finish;
+    private final Finish finish = new Finish();
 
     public AgentMono(Mono<Void> mono, MethodInfo methodInfo,
                      AsyncContext async,
                      BiConsumer<MethodInfo, AsyncContext> consumer) {
         this.source = mono;
         this.methodInfo = methodInfo;
-        this.finish = consumer;
         this.asyncContext = async;
+        if (consumer != null) {
+            this.finish.add(consumer);
+        }
+    }
+
+    /**
+     * Wraps the mono returned by the call, or adds the callback to the mono already wrapped for it.
+     */
+    @SuppressWarnings("unchecked")
+    public static void wrap(MethodInfo methodInfo, Context context, BiConsumer<MethodInfo, AsyncContext> consumer) {
+        Object retValue = methodInfo.getRetValue();
+        if (retValue instanceof AgentMono && ((AgentMono) retValue).methodInfo == methodInfo) {
+            ((AgentMono) retValue).finish.add(consumer);
+        } else {
+            methodInfo.setRetValue(new AgentMono((Mono<Void>) retValue, methodInfo, context.exportAsync(), consumer));
+        }
     }
 
     @Override
@@ -60,4 +86,30 @@ public class AgentMono extends Mono<Void> {
     public BiConsumer<MethodInfo, AsyncContext> getFinish() {
         return finish;
     }
+
+    static class Finish implements BiConsumer<MethodInfo, AsyncContext> {
+        private final List<BiConsumer<MethodInfo, AsyncContext>> consumers = new ArrayList<>(3);
+
+        void add(BiConsumer<MethodInfo, AsyncContext> consumer) {
+            consumers.add(consumer);
+        }
+
+        int size() {
+            return consumers.size();
+        }
+
+        /**
+         * Runs the callbacks in reverse, the order they had when each interceptor wrapped the mono on its own.
+         */
+        @Override
+        public void accept(MethodInfo methodInfo, AsyncContext asyncContext) {
+            for (int i = consumers.size() - 1; i >= 0; i--) {
+                try {
+                    consumers.get(i).accept(methodInfo, asyncContext);
+                } catch (Exception e) {
+                    LOGGER.warn("finish callback of the server exchange failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package easeagent.plugin.spring.gateway.interceptor;
+
+import com.megaease.easeagent.plugin.interceptor.MethodInfo;
+import easeagent.plugin.spring.gateway.TestServerWebExchangeUtils;
+import easeagent.plugin.spring.gateway.interceptor.metric.MockRouteBuilder;
+import org.junit.Test;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import static org.junit.Assert.*;
+
+public class ServerExchangesTest {
+
+    @Test
+    public void skip() {
+        MockServerWebExchange exchange = TestServerWebExchangeUtils.mockServerWebExchange();
+        MethodInfo filter = MethodInfo.builder().method("filter").args(new Object[]{exchange}).build();
+        assertFalse(ServerExchanges.skip(filter));
+
+        MethodInfo handle = MethodInfo.builder().method("handle").args(new Object[]{exchange}).build();
+        assertFalse(ServerExchanges.skip(handle));
+        // the global filter of a gateway runs inside the dispatcher handler
+        assertTrue(ServerExchanges.skip(filter));
+        assertFalse(ServerExchanges.skip(handle));
+    }
+
+    @Test
+    public void getKey() throws URISyntaxException {
+        assertEquals(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, GatewayCons.GATEWAY_ROUTE_ATTR);
+        // a plain WebFlux request without a route
+        MockServerWebExchange exchange = TestServerWebExchangeUtils.build(MockServerHttpRequest.get("http://192.168.0.12:8080/orders/42?a=b"));
+        assertNull(ServerExchanges.getRoute(exchange));
+        assertEquals("GET /orders/{num}", ServerExchanges.getKey(exchange));
+        exchange.getAttributes().put(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, new PathPatternParser().parse("/orders/{id}"));
+        assertEquals("GET /orders/{id}", ServerExchanges.getKey(exchange));
+
+        exchange = TestServerWebExchangeUtils.mockServerWebExchange();
+        assertEquals("/test", ServerExchanges.getRoute(exchange));
+        String url = "lb://orders";
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, new MockRouteBuilder().uri(new URI(url)).id("t").build());
+        assertEquals("GET " + url, ServerExchanges.getKey(exchange));
+    }
+}
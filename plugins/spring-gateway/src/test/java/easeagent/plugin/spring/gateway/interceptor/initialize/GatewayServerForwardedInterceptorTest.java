@@ -47,6 +47,22 @@ public class GatewayServerForwardedInterceptorTest {
         assertNull(context.get(TestConst.FORWARDED_NAME));
     }
 
+    @Test
+    public void importOnceAroundDispatcher() {
+        GatewayServerForwardedInterceptor interceptor = new GatewayServerForwardedInterceptor();
+        MockServerWebExchange exchange = TestServerWebExchangeUtils.build(builder().header(TestConst.FORWARDED_NAME, TestConst.FORWARDED_VALUE));
+        Context context = EaseAgent.getContext();
+        MethodInfo handle = MethodInfo.builder().method("handle").args(new Object[]{exchange}).build();
+        MethodInfo filter = MethodInfo.builder().method("filter").args(new Object[]{exchange}).build();
+        interceptor.doBefore(handle, context);
+        assertEquals(TestConst.FORWARDED_VALUE, context.get(TestConst.FORWARDED_NAME));
+        interceptor.doBefore(filter, context);
+        interceptor.doAfter(filter, context);
+        assertEquals(TestConst.FORWARDED_VALUE, context.get(TestConst.FORWARDED_NAME));
+        interceptor.doAfter(handle, context);
+        assertNull(context.get(TestConst.FORWARDED_NAME));
+    }
+
     @Test
     public void doAfter() {
         doBefore();
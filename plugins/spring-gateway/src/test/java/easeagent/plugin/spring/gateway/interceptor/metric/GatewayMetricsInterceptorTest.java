@@ -62,7 +62,8 @@ public class GatewayMetricsInterceptorTest {
     public void before() {
         GatewayMetricsInterceptor interceptor = new GatewayMetricsInterceptor();
         Context context = EaseAgent.getContext();
-        interceptor.before(null, context);
+        MethodInfo methodInfo = MethodInfo.builder().args(new Object[]{TestServerWebExchangeUtils.mockServerWebExchange()}).build();
+        interceptor.before(methodInfo, context);
         assertNotNull(context.get(startTime));
     }
 
@@ -75,9 +76,9 @@ public class GatewayMetricsInterceptorTest {
         GatewayMetricsInterceptor interceptor = new GatewayMetricsInterceptor();
         InterceptorTestUtils.init(interceptor, new SpringGatewayPlugin());
         Context context = EaseAgent.getContext();
-        interceptor.before(null, context);
         MockServerWebExchange mockServerWebExchange = TestServerWebExchangeUtils.mockServerWebExchange();
         MethodInfo methodInfo = MethodInfo.builder().args(new Object[]{mockServerWebExchange}).build();
+        interceptor.before(methodInfo, context);
         methodInfo.throwable(new RuntimeException("test error"));
         interceptor.after(methodInfo, context);
         assertNull(methodInfo.getRetValue());
@@ -92,7 +93,7 @@ public class GatewayMetricsInterceptorTest {
         assertEquals(1, metric.get(MetricField.EXECUTION_ERROR_COUNT.getField()));
 
         methodInfo = MethodInfo.builder().args(new Object[]{mockServerWebExchange}).build();
-        interceptor.before(null, context);
+        interceptor.before(methodInfo, context);
         interceptor.after(methodInfo, context);
         assertTrue(methodInfo.getRetValue() instanceof AgentMono);
         final AgentMono agentMono2 = (AgentMono) methodInfo.getRetValue();
@@ -119,7 +120,7 @@ public class GatewayMetricsInterceptorTest {
         assertEquals("", GatewayMetricsInterceptor.getKey(webExchange));
 
         MockServerWebExchange exchange = TestServerWebExchangeUtils.mockServerWebExchange();
-        assertEquals("GET http://192.168.0.12:8080/test?a=b", GatewayMetricsInterceptor.getKey(exchange));
+        assertEquals("GET /test", GatewayMetricsInterceptor.getKey(exchange));
 
         String url = "http://loca:8080/test";
         exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, new MockRouteBuilder().uri(new URI(url)).id("t").build());
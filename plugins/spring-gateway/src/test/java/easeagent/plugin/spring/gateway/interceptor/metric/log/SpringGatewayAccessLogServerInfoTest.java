@@ -82,7 +82,7 @@ public class SpringGatewayAccessLogServerInfoTest {
         SpringGatewayAccessLogServerInfo springGatewayAccessLogServerInfo = new SpringGatewayAccessLogServerInfo();
         MockServerWebExchange exchange = TestServerWebExchangeUtils.mockServerWebExchange();
         springGatewayAccessLogServerInfo.load(exchange);
-        assertEquals("GET http://192.168.0.12:8080/test?a=b", springGatewayAccessLogServerInfo.getMatchURL());
+        assertEquals("GET /test", springGatewayAccessLogServerInfo.getMatchURL());
         String url = "http://192.168.0.12:8080/";
         exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, new MockRouteBuilder().uri(new URI(url)).id("t").build());
         assertEquals("GET " + url, springGatewayAccessLogServerInfo.getMatchURL());
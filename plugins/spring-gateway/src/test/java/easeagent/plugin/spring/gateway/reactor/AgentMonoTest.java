@@ -31,10 +31,14 @@ import org.reactivestreams.Subscription;
 import reactor.core.CoreSubscriber;
 import reactor.core.publisher.Mono;
 
+import javax.annotation.Nonnull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 @RunWith(EaseAgentJunit4ClassRunner.class)
 public class AgentMonoTest {
@@ -55,6 +59,61 @@ public class AgentMonoTest {
         assertTrue(ran.get());
     }
 
+    @Test
+    public void wrapOnce() {
+        Mono<Void> mono = Mono.empty();
+        MethodInfo methodInfo = MethodInfo.builder().retValue(mono).build();
+        Context context = EaseAgent.getContext();
+        List<Integer> ran = new ArrayList<>();
+        AgentMono.wrap(methodInfo, context, (m, c) -> ran.add(1));
+        AgentMono agentMono = (AgentMono) methodInfo.getRetValue();
+        AgentMono.wrap(methodInfo, context, (m, c) -> ran.add(2));
+        AgentMono.wrap(methodInfo, context, (m, c) -> {
+            throw new IllegalStateException("ignored");
+        });
+        AgentMono.wrap(methodInfo, context, (m, c) -> ran.add(3));
+        assertSame(agentMono, methodInfo.getRetValue());
+
+        MockCoreSubscriber subscriber = new MockCoreSubscriber();
+        agentMono.subscribe(subscriber);
+        assertTrue(subscriber.onComplete.get());
+        // the interceptor wrapping last ran first when each had its own subscriber
+        assertEquals(Arrays.asList(3, 2, 1), ran);
+
+        // another call is wrapped again
+        MethodInfo other = MethodInfo.builder().retValue(agentMono).build();
+        AgentMono.wrap(other, context, (m, c) -> ran.add(4));
+        assertNotSame(agentMono, other.getRetValue());
+    }
+
+    @Test
+    public void oneSubscriberForAllCallbacks() {
+        List<CoreSubscriber<? super Void>> subscribed = new ArrayList<>();
+        Mono<Void> mono = new Mono<Void>() {
+            @Override
+            public void subscribe(@Nonnull CoreSubscriber<? super Void> actual) {
+                subscribed.add(actual);
+                actual.onComplete();
+            }
+        };
+        MethodInfo methodInfo = MethodInfo.builder().retValue(mono).build();
+        Context context = EaseAgent.getContext();
+        List<Integer> ran = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            int n = i;
+            AgentMono.wrap(methodInfo, context, (m, c) -> ran.add(n));
+        }
+        MockCoreSubscriber subscriber = new MockCoreSubscriber();
+        ((AgentMono) methodInfo.getRetValue()).subscribe(subscriber);
+
+        // the source is subscribed by one agent subscriber, which delivers to the server's subscriber directly
+        assertEquals(1, subscribed.size());
+        assertTrue(subscribed.get(0) instanceof AgentCoreSubscriber);
+        assertSame(subscriber, ((AgentCoreSubscriber) subscribed.get(0)).getActual());
+        assertTrue(subscriber.onComplete.get());
+        assertEquals(Arrays.asList(2, 1, 0), ran);
+    }
+
     @Test
     public void testImportToCurrent() throws InterruptedException {
         Context context = EaseAgent.getContext();
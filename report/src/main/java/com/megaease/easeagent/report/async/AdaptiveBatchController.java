@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.async;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Tunes the message timeout and message size of a reporter between the bounds of its {@link AsyncProps}.
+ * <ul>
+ *     <li>The timeout follows the arrival rate: close to the minimum while little arrives, so a lone span
+ *     is not held back, and up to the maximum when a full message arrives within the maximum timeout,
+ *     so fewer and fuller messages are sent.</li>
+ *     <li>The timeout is never shorter than the sender round trip, and backs off with the error rate.</li>
+ *     <li>The message size halves on every failed send and grows back on success.</li>
+ * </ul>
+ * It is called once per message by the flush threads, so it simply synchronizes.
+ */
+public class AdaptiveBatchController {
+    static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    static final double RATE_WEIGHT = 0.5;
+    static final double RTT_WEIGHT = 0.2;
+    static final double ERROR_WEIGHT = 0.1;
+    static final double ERROR_BACKOFF = 4;
+    static final int GROW_STEPS = 8;
+
+    private final Supplier<AsyncProps> props;
+    private final LongSupplier clock;
+
+    private long windowStart;
+    private long windowBytes;
+    private double bytesPerSecond = -1;
+    private double rttNanos;
+    private double errorRate;
+    private int messageMaxBytes = Integer.MAX_VALUE;
+    private long messageTimeoutNanos = -1;
+
+    public AdaptiveBatchController(Supplier<AsyncProps> props) {
+        this(props, System::nanoTime);
+    }
+
+    AdaptiveBatchController(Supplier<AsyncProps> props, LongSupplier clock) {
+        this.props = props;
+        this.clock = clock;
+        this.windowStart = clock.getAsLong();
+    }
+
+    public boolean isEnabled() {
+        AsyncProps asyncProps = props.get();
+        return asyncProps != null && asyncProps.isAdaptive();
+    }
+
+    public synchronized int messageMaxBytes() {
+        AsyncProps asyncProps = props.get();
+        return clamp(messageMaxBytes, minMessageBytes(asyncProps), asyncProps.getMessageMaxBytes());
+    }
+
+    public synchronized long messageTimeoutNanos() {
+        AsyncProps asyncProps = props.get();
+        long timeout = messageTimeoutNanos < 0 ? TimeUnit.MILLISECONDS.toNanos(asyncProps.getMessageTimeout()) : messageTimeoutNanos;
+        return clamp(timeout, minTimeoutNanos(asyncProps), maxTimeoutNanos(asyncProps));
+    }
+
+    /**
+     * Called when a message of {@code sizeInBytes} is about to be sent.
+     */
+    public synchronized void onMessage(int sizeInBytes) {
+        long now = clock.getAsLong();
+        windowBytes += sizeInBytes;
+        long elapsed = now - windowStart;
+        if (elapsed < RATE_WINDOW_NANOS) {
+            return;
+        }
+        double rate = windowBytes * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        bytesPerSecond = bytesPerSecond < 0 ? rate : bytesPerSecond + RATE_WEIGHT * (rate - bytesPerSecond);
+        windowStart = now;
+        windowBytes = 0;
+        adjustTimeout();
+    }
+
+    /**
+     * Called when the sender completed a message, successfully or not.
+     */
+    public synchronized void onSendComplete(long rttNanos, boolean success) {
+        this.rttNanos = this.rttNanos == 0 ? rttNanos : this.rttNanos + RTT_WEIGHT * (rttNanos - this.rttNanos);
+        this.errorRate += ERROR_WEIGHT * ((success ? 0 : 1) - this.errorRate);
+        AsyncProps asyncProps = props.get();
+        int maxBytes = asyncProps.getMessageMaxBytes();
+        int current = Math.min(this.messageMaxBytes, maxBytes);
+        this.messageMaxBytes = success
+            ? (int) Math.min(maxBytes, (long) current + maxBytes / GROW_STEPS)
+            : Math.max(minMessageBytes(asyncProps), current / 2);
+        adjustTimeout();
+    }
+
+    private void adjustTimeout() {
+        if (bytesPerSecond < 0) {
+            return;
+        }
+        AsyncProps asyncProps = props.get();
+        long minTimeout = minTimeoutNanos(asyncProps);
+        long maxTimeout = maxTimeoutNanos(asyncProps);
+        // 1 when a full message arrives within the longest timeout
+        double load = Math.min(1, bytesPerSecond * maxTimeout / TimeUnit.SECONDS.toNanos(1) / asyncProps.getMessageMaxBytes());
+        double timeout = minTimeout + (maxTimeout - minTimeout) * load;
+        timeout = Math.max(timeout, rttNanos) * (1 + ERROR_BACKOFF * errorRate);
+        this.messageTimeoutNanos = clamp((long) timeout, minTimeout, maxTimeout);
+    }
+
+    private static int minMessageBytes(AsyncProps asyncProps) {
+        return Math.min(asyncProps.getMinMessageBytes(), asyncProps.getMessageMaxBytes());
+    }
+
+    private static long minTimeoutNanos(AsyncProps asyncProps) {
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(1, asyncProps.getMinMessageTimeout()));
+    }
+
+    private static long maxTimeoutNanos(AsyncProps asyncProps) {
+        return Math.max(minTimeoutNanos(asyncProps), TimeUnit.MILLISECONDS.toNanos(asyncProps.getMaxMessageTimeout()));
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(value, max));
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(value, max));
+    }
+}
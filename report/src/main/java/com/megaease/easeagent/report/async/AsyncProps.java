@@ -28,6 +28,51 @@ public interface AsyncProps {
 
     int getMessageMaxBytes();
 
+    /**
+     * Number of batches a flush thread may have on the wire at once. With 0 the flush thread
+     * sends each batch and waits for the response before draining the next one.
+     */
+    default int getMaxInFlight() {
+        return 0;
+    }
+
+    /**
+     * Directory of the overflow spool, one per reporter. Read once when the reporter is built,
+     * null disables the spool.
+     */
+    default String getSpoolDir() {
+        return null;
+    }
+
+    default long getSpoolMaxSize() {
+        return DEFAULT_SPOOL_MAX_SIZE;
+    }
+
+    /**
+     * Tune the message timeout and message size between the bounds below instead of using fixed ones,
+     * see {@link AdaptiveBatchController}.
+     */
+    default boolean isAdaptive() {
+        return false;
+    }
+
+    default long getMinMessageTimeout() {
+        return DEFAULT_MIN_MESSAGE_TIMEOUT;
+    }
+
+    default long getMaxMessageTimeout() {
+        return DEFAULT_MAX_MESSAGE_TIMEOUT;
+    }
+
+    default int getMinMessageBytes() {
+        return DEFAULT_MIN_MESSAGE_BYTES;
+    }
+
+    long DEFAULT_SPOOL_MAX_SIZE = 64L * 1024 * 1024;
+    long DEFAULT_MIN_MESSAGE_TIMEOUT = 50;
+    long DEFAULT_MAX_MESSAGE_TIMEOUT = 2000;
+    int DEFAULT_MIN_MESSAGE_BYTES = 64 * 1024;
+
     static int onePercentOfMemory() {
         long result = (long) (Runtime.getRuntime().totalMemory() * 0.01);
         // don't overflow in the rare case 1% of memory is larger than 2 GiB!
@@ -61,6 +61,31 @@ public interface AsyncReporterMetrics {
     /** Updates the count of encoded items(spans/logs) bytes pending, following a flush activity. */
     void updateQueuedBytes(int update);
 
+    /** Records how long the oldest item of a message waited between being queued and being sent. */
+    default void recordQueueLatency(long nanos) {
+        // noop
+    }
+
+    /** Records the count of items(spans/logs) packed into a message. */
+    default void recordBatchSize(int items) {
+        // noop
+    }
+
+    /** Records the time spent packing and encoding a message. */
+    default void recordEncodeTime(long nanos) {
+        // noop
+    }
+
+    /** Records the time the sender took to send a message, successful or not. */
+    default void recordSendTime(long nanos) {
+        // noop
+    }
+
+    /** Updates the count of messages handed to the sender and not yet completed. */
+    default void updateInFlight(int delta) {
+        // noop
+    }
+
     AsyncReporterMetrics NOOP_METRICS = new AsyncReporterMetrics() {
         @Override public void incrementMessages() {
             // noop
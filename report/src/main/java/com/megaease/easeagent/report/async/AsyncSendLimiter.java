@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.async;
+
+import com.megaease.easeagent.plugin.report.Call;
+import com.megaease.easeagent.plugin.report.Callback;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Bounds the batches a reporter has on the wire when it sends with {@link Call#enqueue}.
+ * The flush thread blocks in {@link #send} while the limit is reached, so it stops draining and
+ * the backlog stays in the reporter queue, which drops new items once it is full.
+ * The limit is read on every send, so it follows config changes.
+ */
+public class AsyncSendLimiter {
+    private final IntSupplier maxInFlight;
+    private int inFlight;
+
+    public AsyncSendLimiter(IntSupplier maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public boolean isEnabled() {
+        return maxInFlight.getAsInt() > 0;
+    }
+
+    /**
+     * Waits for a free slot, then enqueues the call. The slot is released before the callback runs.
+     */
+    public <V> void send(Call<V> call, Callback<V> callback) throws InterruptedException {
+        acquire();
+        try {
+            call.enqueue(new Callback<V>() {
+                @Override
+                public void onSuccess(V value) {
+                    release();
+                    callback.onSuccess(value);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    release();
+                    callback.onError(t);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            release();
+            throw e;
+        }
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return false when batches are still on the wire after the timeout
+     */
+    public synchronized boolean awaitIdle(long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (inFlight > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    private synchronized void acquire() throws InterruptedException {
+        while (inFlight >= Math.max(1, maxInFlight.getAsInt())) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    private synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+}
@@ -23,24 +23,18 @@ import com.megaease.easeagent.plugin.report.Encoder;
 import com.megaease.easeagent.report.async.zipkin.AgentBufferNextMessage;
 import com.megaease.easeagent.report.async.zipkin.AgentByteBoundedQueue;
 import com.megaease.easeagent.report.encoder.PackedMessage;
-import com.megaease.easeagent.report.encoder.PackedMessage.DefaultPackedMessage;
 import com.megaease.easeagent.report.encoder.span.GlobalExtrasSupplier;
 import com.megaease.easeagent.report.sender.SenderWithEncoder;
 import lombok.SneakyThrows;
-import zipkin2.Call;
 
-import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static java.lang.String.format;
-import static java.util.logging.Level.FINE;
 import static java.util.logging.Level.WARNING;
 
 @SuppressWarnings("unused")
@@ -64,13 +58,10 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
 
     AsyncProps asyncProperties;
 
-    /*
-     * Tracks if we should log the first instance of an exception in flush().
-     */
-    private boolean shouldWarnException = true;
-
     List<Thread> flushThreads;
 
+    final SpoolingSender<S> spoolingSender;
+
     DefaultAsyncReporter(Builder builder, AsyncProps asyncProperties) {
         this.asyncProperties = asyncProperties;
 
@@ -81,6 +72,7 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
         this.close = new CountDownLatch(builder.messageTimeoutNanos > 0 ? 1 : 0);
 
         this.metrics = builder.metrics;
+        this.spoolingSender = new SpoolingSender<>(() -> this.asyncProperties, this.messageMaxBytes, this.metrics);
         this.sender = builder.sender;
         this.encoder = builder.sender.getEncoder();
     }
@@ -90,6 +82,12 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
         return new Builder(sender, asyncProperties).build();
     }
 
+    public static <S> AsyncReporter<S> builderAsyncReporter(SenderWithEncoder sender,
+                                                            AsyncProps asyncProperties,
+                                                            AsyncReporterMetrics metrics) {
+        return new Builder(sender, asyncProperties).metrics(metrics).build();
+    }
+
     @Override
     public void setFlushThreads(List<Thread> flushThreads) {
         this.flushThreads = flushThreads;
@@ -149,8 +147,9 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
         metrics.incrementSpanBytes(nextSizeInBytes);
         if (closed.get() ||
             // don't enqueue something larger than we can drain
-            messageSizeOfNextSpan > messageMaxBytes ||
-            !pending.offer(next, nextSizeInBytes)) {
+            messageSizeOfNextSpan > messageMaxBytes) {
+            metrics.incrementItemsDropped(1);
+        } else if (!pending.offer(next, nextSizeInBytes) && !spoolingSender.offerOverflow(next)) {
             metrics.incrementItemsDropped(1);
         }
     }
@@ -168,7 +167,12 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
         if (closed.get()) {
             throw new IllegalStateException("closed");
         }
+        spoolingSender.spoolOverflow(encoder);
 
+        AdaptiveBatchController batchController = spoolingSender.batchController();
+        if (batchController.isEnabled()) {
+            bundler.adjust(batchController.messageMaxBytes(), batchController.messageTimeoutNanos());
+        }
         pending.drainTo(bundler, bundler.remainingNanos());
 
         // record after flushing reduces the amount of gauge events vs on doing this on report
@@ -178,6 +182,7 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
         // loop around if we are running, and the bundle isn't full
         // if we are closed, try to send what's pending
         if (!bundler.isReady() && !closed.get()) {
+            spoolingSender.replaySpool(sender, pending.getSizeInBytes());
             return;
         }
 
@@ -185,11 +190,18 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
         metrics.incrementMessages();
         metrics.incrementMessageBytes(bundler.sizeInBytes());
 
+        boolean enqueueNanosKnown = bundler.hasOldestEnqueueNanos();
+        long oldestEnqueueNanos = bundler.oldestEnqueueNanos();
+        if (batchController.isEnabled()) {
+            batchController.onMessage(bundler.sizeInBytes());
+        }
+
         // Create the next message. Since we are outside the lock shared with writers, we can encode
-        PackedMessage message = new DefaultPackedMessage(bundler.count(), encoder);
+        long encodeStart = System.nanoTime();
+        PackedMessage message = PackedMessage.create(bundler.count(), bundler.sizeInBytes(), encoder);
         bundler.drain((next, nextSizeInBytes) -> {
             if (message.calculateAppendSize(nextSizeInBytes) <= messageMaxBytes) {
-                message.addMessage(encoder.encode(next));
+                message.addMessage(encoder, next, nextSizeInBytes);
                 return true;
             } else {
                 return false;
@@ -197,34 +209,14 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
         });
 
         List<EncodedData> nextMessage = message.getMessages();
-        try {
-            sender.send(nextMessage).execute();
-        } catch (IOException | RuntimeException t) {
-            // In failure case, we increment messages and spans dropped.
-            int count = nextMessage.size();
-            Call.propagateIfFatal(t);
-            metrics.incrementMessagesDropped(t);
-            metrics.incrementItemsDropped(count);
-
-            Level logLevel = FINE;
-
-            if (shouldWarnException) {
-                logger.log(WARNING, "Spans were dropped due to exceptions. "
-                    + "All subsequent errors will be logged at FINE level.");
-                logLevel = WARNING;
-                shouldWarnException = false;
-            }
-
-            if (logger.isLoggable(logLevel)) {
-                logger.log(logLevel,
-                    format("Dropped %s spans due to %s(%s)", count, t.getClass().getSimpleName(),
-                        t.getMessage() == null ? "" : t.getMessage()), t);
-            }
-
-            // Raise in case the sender was closed out-of-band.
-            if (t instanceof IllegalStateException) {
-                throw (IllegalStateException) t;
-            }
+        long sendStart = System.nanoTime();
+        metrics.recordEncodeTime(sendStart - encodeStart);
+        metrics.recordBatchSize(nextMessage.size());
+        if (enqueueNanosKnown) {
+            metrics.recordQueueLatency(sendStart - oldestEnqueueNanos);
+        }
+        if (spoolingSender.send(sender, nextMessage, sendStart)) {
+            spoolingSender.replaySpool(sender, pending.getSizeInBytes());
         }
     }
 
@@ -248,11 +240,19 @@ public class DefaultAsyncReporter<S> implements AsyncReporter<S> {
             logger.warning("Interrupted waiting for in-flight spans to send");
             Thread.currentThread().interrupt();
         }
+        try {
+            if (!spoolingSender.awaitIdle(closeTimeoutNanos)) {
+                logger.warning("Timed out waiting for in-flight messages to send");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         int count = pending.clear();
         if (count > 0) {
             metrics.incrementItemsDropped(count);
             logger.log(WARNING, "Dropped {0} spans due to AsyncReporter.close()", count);
         }
+        spoolingSender.close(encoder);
     }
 
     @Override
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.async;
+
+import zipkin2.reporter.ReporterMetrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Self telemetry of a reporter: counters, queue occupancy, in-flight messages and histograms of
+ * queue latency, batch size, encode time and send time.
+ * Recording is lock-free and does not allocate; {@link #snapshot()} is read by the metrics module,
+ * which exports every registered reporter through the agent's metric registry and Prometheus endpoint.
+ * Counters are totals since startup, histograms cover the time since the previous snapshot.
+ */
+public class ReporterTelemetry implements AsyncReporterMetrics, ReporterMetrics {
+    private static final Map<String, ReporterTelemetry> TELEMETRIES = new ConcurrentHashMap<>();
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String name;
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder messagesDropped = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private final LongAdder itemBytes = new LongAdder();
+    private final LongAdder messageBytes = new LongAdder();
+    private final LongAdder itemsDropped = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int queuedItems;
+    private volatile int queuedBytes;
+
+    private final Log2Histogram queueLatency = new Log2Histogram();
+    private final Log2Histogram batchSize = new Log2Histogram();
+    private final Log2Histogram encodeTime = new Log2Histogram();
+    private final Log2Histogram sendTime = new Log2Histogram();
+
+    ReporterTelemetry(String name) {
+        this.name = name;
+    }
+
+    public static ReporterTelemetry getOrCreate(String name) {
+        return TELEMETRIES.computeIfAbsent(name, ReporterTelemetry::new);
+    }
+
+    public static Map<String, ReporterTelemetry> getTelemetries() {
+        return Collections.unmodifiableMap(TELEMETRIES);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void incrementMessages() {
+        messages.increment();
+    }
+
+    @Override
+    public void incrementMessagesDropped(Throwable cause) {
+        messagesDropped.increment();
+    }
+
+    @Override
+    public void incrementItems(int quantity) {
+        items.add(quantity);
+    }
+
+    @Override
+    public void incrementSpans(int quantity) {
+        incrementItems(quantity);
+    }
+
+    @Override
+    public void incrementSpanBytes(int quantity) {
+        itemBytes.add(quantity);
+    }
+
+    @Override
+    public void incrementMessageBytes(int quantity) {
+        messageBytes.add(quantity);
+    }
+
+    @Override
+    public void incrementItemsDropped(int quantity) {
+        itemsDropped.add(quantity);
+    }
+
+    @Override
+    public void incrementSpansDropped(int quantity) {
+        incrementItemsDropped(quantity);
+    }
+
+    @Override
+    public void updateQueuedItems(int update) {
+        queuedItems = update;
+    }
+
+    @Override
+    public void updateQueuedSpans(int update) {
+        updateQueuedItems(update);
+    }
+
+    @Override
+    public void updateQueuedBytes(int update) {
+        queuedBytes = update;
+    }
+
+    @Override
+    public void recordQueueLatency(long nanos) {
+        queueLatency.update(nanos);
+    }
+
+    @Override
+    public void recordBatchSize(int items) {
+        batchSize.update(items);
+    }
+
+    @Override
+    public void recordEncodeTime(long nanos) {
+        encodeTime.update(nanos);
+    }
+
+    @Override
+    public void recordSendTime(long nanos) {
+        sendTime.update(nanos);
+    }
+
+    @Override
+    public void updateInFlight(int delta) {
+        inFlight.addAndGet(delta);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public Log2Histogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    public Log2Histogram getBatchSize() {
+        return batchSize;
+    }
+
+    public Log2Histogram getEncodeTime() {
+        return encodeTime;
+    }
+
+    public Log2Histogram getSendTime() {
+        return sendTime;
+    }
+
+    /**
+     * Resets the histograms, so the latencies and sizes of one interval are not diluted by all earlier ones.
+     *
+     * @return the current values, times are in milliseconds
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("messages", messages.sum());
+        result.put("messages-dropped", messagesDropped.sum());
+        result.put("items", items.sum());
+        result.put("items-dropped", itemsDropped.sum());
+        result.put("item-bytes", itemBytes.sum());
+        result.put("message-bytes", messageBytes.sum());
+        result.put("queued-items", queuedItems);
+        result.put("queued-bytes", queuedBytes);
+        result.put("in-flight", inFlight.get());
+        putTimes(result, "queue-latency", queueLatency.snapshotAndReset());
+        Log2Histogram.Snapshot batchSizes = batchSize.snapshotAndReset();
+        result.put("batch-size-mean", batchSizes.getMean());
+        result.put("batch-size-p50", batchSizes.getPercentile(0.5));
+        result.put("batch-size-p99", batchSizes.getPercentile(0.99));
+        result.put("batch-size-max", batchSizes.getMax());
+        putTimes(result, "encode-time", encodeTime.snapshotAndReset());
+        putTimes(result, "send-time", sendTime.snapshotAndReset());
+        return result;
+    }
+
+    private static void putTimes(Map<String, Object> result, String prefix, Log2Histogram.Snapshot histogram) {
+        result.put(prefix + "-mean", histogram.getMean() / NANOS_PER_MILLI);
+        result.put(prefix + "-p50", histogram.getPercentile(0.5) / NANOS_PER_MILLI);
+        result.put(prefix + "-p95", histogram.getPercentile(0.95) / NANOS_PER_MILLI);
+        result.put(prefix + "-p99", histogram.getPercentile(0.99) / NANOS_PER_MILLI);
+        result.put(prefix + "-max", histogram.getMax() / NANOS_PER_MILLI);
+    }
+
+    @Override
+    public String toString() {
+        return "ReporterTelemetry{" + name + "}";
+    }
+}
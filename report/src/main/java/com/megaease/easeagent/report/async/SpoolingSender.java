@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.async;
+
+import com.megaease.easeagent.plugin.report.Callback;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.Encoder;
+import com.megaease.easeagent.report.async.spool.DiskSpool;
+import com.megaease.easeagent.report.sender.SenderWithEncoder;
+import zipkin2.Call;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Sends the packed messages of an async reporter, and keeps on disk what can not be sent.
+ * <ul>
+ *     <li>Messages are sent synchronously, or enqueued through the {@link AsyncSendLimiter} when
+ *     {@code maxInFlight} is set. Every result is fed to the {@link AdaptiveBatchController}.</li>
+ *     <li>With a spool directory, a message that fails is appended to the {@link DiskSpool} and replayed
+ *     once the sender works again, and the items the reporter queue had no room for are handed over
+ *     with {@link #offerOverflow} and spooled by a flush thread.</li>
+ *     <li>Otherwise the failed message is dropped and counted.</li>
+ * </ul>
+ */
+public class SpoolingSender<S> {
+    static final Logger logger = Logger.getLogger(SpoolingSender.class.getName());
+
+    static final long SPOOL_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // at most about ten replayed batches a second, live messages go first
+    static final long SPOOL_REPLAY_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    static final int SPOOL_HANDOFF_ITEMS = 1024;
+
+    final int messageMaxBytes;
+    final AsyncReporterMetrics metrics;
+    final AsyncSendLimiter sendLimiter;
+    final AdaptiveBatchController batchController;
+    final DiskSpool spool;
+    // items the queue had no room for, report() hands them to a flush thread and never touches the disk
+    final BlockingQueue<S> overflow;
+    volatile long nextReplayNanos;
+
+    /*
+     * Tracks if we should log the first instance of an exception in flush().
+     */
+    private volatile boolean shouldWarnException = true;
+
+    /**
+     * @param props the current properties of the reporter, the spool is opened with the ones at construction
+     */
+    public SpoolingSender(Supplier<AsyncProps> props, int messageMaxBytes, AsyncReporterMetrics metrics) {
+        this.messageMaxBytes = messageMaxBytes;
+        this.metrics = metrics;
+        this.sendLimiter = new AsyncSendLimiter(() -> props.get() == null ? 0 : props.get().getMaxInFlight());
+        this.batchController = new AdaptiveBatchController(props);
+        AsyncProps initial = props.get();
+        this.spool = initial == null ? null
+            : DiskSpool.open(initial.getSpoolDir(), initial.getSpoolMaxSize(), metrics::incrementItemsDropped);
+        this.overflow = spool == null ? null : new ArrayBlockingQueue<>(SPOOL_HANDOFF_ITEMS);
+    }
+
+    public AdaptiveBatchController batchController() {
+        return batchController;
+    }
+
+    /**
+     * Hands over an item the reporter queue had no room for.
+     *
+     * @return false when there is no spool, or the hand-off queue is full too
+     */
+    public boolean offerOverflow(S item) {
+        return overflow != null && overflow.offer(item);
+    }
+
+    /**
+     * Sends a message, spooling or dropping it when the send fails.
+     *
+     * @return true when the message was sent synchronously, so the spool may be replayed
+     * @throws IllegalStateException when the sender was closed out-of-band
+     */
+    public boolean send(SenderWithEncoder sender, List<EncodedData> message, long sendStart) {
+        metrics.updateInFlight(1);
+        if (sendLimiter.isEnabled()) {
+            sendAsync(sender, message, sendStart);
+            return false;
+        }
+        try {
+            boolean sent = false;
+            try {
+                sender.send(message).execute();
+                sent = true;
+            } finally {
+                sendFinished(sendStart, sent);
+            }
+            return true;
+        } catch (IOException | RuntimeException t) {
+            Call.propagateIfFatal(t);
+            sendFailed(t, message);
+            // Raise in case the sender was closed out-of-band.
+            if (t instanceof IllegalStateException) {
+                throw (IllegalStateException) t;
+            }
+            return false;
+        }
+    }
+
+    private void sendAsync(SenderWithEncoder sender, List<EncodedData> message, long sendStart) {
+        try {
+            sendLimiter.send(sender.send(message), new Callback<Void>() {
+                @Override
+                public void onSuccess(Void value) {
+                    sendFinished(sendStart, true);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    sendFinished(sendStart, false);
+                    sendFailed(t, message);
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendFinished(sendStart, false);
+            sendFailed(e, message);
+        } catch (RuntimeException e) {
+            sendFinished(sendStart, false);
+            sendFailed(e, message);
+        }
+    }
+
+    private void sendFinished(long sendStart, boolean success) {
+        long rtt = System.nanoTime() - sendStart;
+        metrics.recordSendTime(rtt);
+        metrics.updateInFlight(-1);
+        if (batchController.isEnabled()) {
+            batchController.onSendComplete(rtt, success);
+        }
+    }
+
+    /**
+     * Encodes and spools the items report() handed over when the queue was full.
+     */
+    public void spoolOverflow(Encoder<S> encoder) {
+        if (overflow == null || overflow.isEmpty()) {
+            return;
+        }
+        List<S> items = new ArrayList<>(overflow.size());
+        overflow.drainTo(items);
+        List<EncodedData> batch = new ArrayList<>();
+        int batchBytes = 0;
+        for (S item : items) {
+            EncodedData data = encoder.encode(item);
+            if (!batch.isEmpty() && batchBytes + data.size() > messageMaxBytes) {
+                appendToSpool(batch);
+                batch = new ArrayList<>();
+                batchBytes = 0;
+            }
+            batch.add(data);
+            batchBytes += data.size();
+        }
+        appendToSpool(batch);
+    }
+
+    private void appendToSpool(List<EncodedData> batch) {
+        if (!batch.isEmpty() && !spool.append(batch)) {
+            metrics.incrementItemsDropped(batch.size());
+        }
+    }
+
+    private void sendFailed(Throwable t, List<EncodedData> message) {
+        if (spool != null && spool.append(message)) {
+            // the sender is failing, don't replay right away
+            nextReplayNanos = System.nanoTime() + SPOOL_RETRY_NANOS;
+            return;
+        }
+        dropped(t, message.size());
+    }
+
+    /**
+     * Sends the oldest spooled batch once the sender works again, while the queue holds less
+     * than a message and at most once per {@link #SPOOL_REPLAY_INTERVAL_NANOS}.
+     */
+    public void replaySpool(SenderWithEncoder sender, int queuedBytes) {
+        if (spool == null || spool.isEmpty() || System.nanoTime() - nextReplayNanos < 0
+            || queuedBytes >= messageMaxBytes) {
+            return;
+        }
+        boolean sent = spool.replay(messageMaxBytes, batch -> {
+            try {
+                sender.send(batch).execute();
+                return true;
+            } catch (IOException | RuntimeException e) {
+                return false;
+            }
+        });
+        nextReplayNanos = System.nanoTime() + (sent ? SPOOL_REPLAY_INTERVAL_NANOS : SPOOL_RETRY_NANOS);
+    }
+
+    private void dropped(Throwable t, int count) {
+        // In failure case, we increment messages and spans dropped.
+        metrics.incrementMessagesDropped(t);
+        metrics.incrementItemsDropped(count);
+
+        Level logLevel = FINE;
+
+        if (shouldWarnException) {
+            logger.log(WARNING, "Spans were dropped due to exceptions. "
+                + "All subsequent errors will be logged at FINE level.");
+            logLevel = WARNING;
+            shouldWarnException = false;
+        }
+
+        if (logger.isLoggable(logLevel)) {
+            logger.log(logLevel,
+                format("Dropped %s spans due to %s(%s)", count, t.getClass().getSimpleName(),
+                    t.getMessage() == null ? "" : t.getMessage()), t);
+        }
+    }
+
+    /**
+     * @return false when messages are still on the wire after the timeout
+     */
+    public boolean awaitIdle(long timeoutNanos) throws InterruptedException {
+        return sendLimiter.awaitIdle(timeoutNanos);
+    }
+
+    /**
+     * Spools the items still handed over and closes the spool.
+     */
+    public void close(Encoder<S> encoder) {
+        if (spool == null) {
+            return;
+        }
+        spoolOverflow(encoder);
+        try {
+            spool.close();
+        } catch (IOException e) {
+            logger.log(FINE, "close spool fail", e);
+        }
+    }
+}
@@ -29,6 +29,13 @@ public class LogAsyncProps implements AsyncProps {
     private volatile int queuedMaxSize;
     private volatile int messageTimeout;
     private volatile int messageMaxBytes;
+    private volatile int maxInFlight;
+    private volatile String spoolDir;
+    private volatile long spoolMaxSize;
+    private volatile boolean adaptive;
+    private volatile long minMessageTimeout;
+    private volatile long maxMessageTimeout;
+    private volatile int minMessageBytes;
 
     public LogAsyncProps(Config config) {
         int onePercentageMemory = AsyncProps.onePercentOfMemory();
@@ -37,6 +44,13 @@ public class LogAsyncProps implements AsyncProps {
         bindProp(LOG_ASYNC_QUEUED_MAX_LOGS, config, Config::getInt, v -> this.queuedMaxLogs = v, 500);
         bindProp(LOG_ASYNC_MESSAGE_MAX_BYTES, config, Config::getInt, v -> this.messageMaxBytes = v, 999900);
         bindProp(LOG_ASYNC_MESSAGE_TIMEOUT, config, Config::getInt, v -> this.messageTimeout = v, 1000);
+        bindProp(LOG_ASYNC_MAX_IN_FLIGHT, config, Config::getInt, v -> this.maxInFlight = v, 0);
+        bindProp(LOG_ASYNC_SPOOL_DIR, config, Config::getString, v -> this.spoolDir = v);
+        bindProp(LOG_ASYNC_SPOOL_MAX_SIZE, config, Config::getLong, v -> this.spoolMaxSize = v, DEFAULT_SPOOL_MAX_SIZE);
+        bindProp(LOG_ASYNC_ADAPTIVE, config, Config::getBoolean, v -> this.adaptive = v, false);
+        bindProp(LOG_ASYNC_MIN_MESSAGE_TIMEOUT, config, Config::getLong, v -> this.minMessageTimeout = v, DEFAULT_MIN_MESSAGE_TIMEOUT);
+        bindProp(LOG_ASYNC_MAX_MESSAGE_TIMEOUT, config, Config::getLong, v -> this.maxMessageTimeout = v, DEFAULT_MAX_MESSAGE_TIMEOUT);
+        bindProp(LOG_ASYNC_MIN_MESSAGE_BYTES, config, Config::getInt, v -> this.minMessageBytes = v, DEFAULT_MIN_MESSAGE_BYTES);
     }
 
     @Override
@@ -63,4 +77,39 @@ public class LogAsyncProps implements AsyncProps {
     public int getMessageMaxBytes() {
         return this.messageMaxBytes;
     }
+
+    @Override
+    public int getMaxInFlight() {
+        return this.maxInFlight;
+    }
+
+    @Override
+    public String getSpoolDir() {
+        return this.spoolDir;
+    }
+
+    @Override
+    public long getSpoolMaxSize() {
+        return this.spoolMaxSize;
+    }
+
+    @Override
+    public boolean isAdaptive() {
+        return this.adaptive;
+    }
+
+    @Override
+    public long getMinMessageTimeout() {
+        return this.minMessageTimeout;
+    }
+
+    @Override
+    public long getMaxMessageTimeout() {
+        return this.maxMessageTimeout;
+    }
+
+    @Override
+    public int getMinMessageBytes() {
+        return this.minMessageBytes;
+    }
 }
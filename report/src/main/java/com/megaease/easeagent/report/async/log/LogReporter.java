@@ -29,6 +29,7 @@ import com.megaease.easeagent.plugin.utils.common.StringUtils;
 import com.megaease.easeagent.report.async.AsyncProps;
 import com.megaease.easeagent.report.async.AsyncReporter;
 import com.megaease.easeagent.report.async.DefaultAsyncReporter;
+import com.megaease.easeagent.report.async.ReporterTelemetry;
 import com.megaease.easeagent.report.plugin.ReporterRegistry;
 import com.megaease.easeagent.report.sender.SenderWithEncoder;
 
@@ -41,6 +42,7 @@ import static com.megaease.easeagent.config.report.ReportConfigConst.*;
 
 @SuppressWarnings("unused")
 public class LogReporter implements ConfigChangeListener {
+    static final String TELEMETRY_NAME = "access-log";
     Config config;
     AsyncReporter<AccessLogInfo> asyncReporter;
 
@@ -52,7 +54,8 @@ public class LogReporter implements ConfigChangeListener {
 
         SenderWithEncoder sender = ReporterRegistry.getSender(ReportConfigConst.LOG_SENDER, configs);
         AsyncProps asyncProperties = new LogAsyncProps(this.config);
-        this.asyncReporter = DefaultAsyncReporter.builderAsyncReporter(sender, asyncProperties);
+        this.asyncReporter = DefaultAsyncReporter.builderAsyncReporter(sender, asyncProperties,
+            ReporterTelemetry.getOrCreate(TELEMETRY_NAME));
         this.asyncReporter.startFlushThread();
     }
 
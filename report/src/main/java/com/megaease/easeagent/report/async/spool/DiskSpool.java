@@ -0,0 +1,491 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.async.spool;
+
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * Bounded disk spool for encoded batches a reporter could not queue or send.
+ *
+ * <p>The spool is a directory of fixed size, memory-mapped segment files written append-only.
+ * A record is {@code [int payloadLength][int crc32][payload]} with the payload
+ * {@code [int items]([int length][bytes])*}. The length is written last, so a record torn by a
+ * crash reads as the end of the segment, and a failed CRC does the same. On open the segments
+ * are scanned and everything up to the first invalid record is replayed.
+ *
+ * <p>The committed read position, {@code [long segment sequence][int offset]}, is kept in a
+ * memory-mapped cursor file updated on every commit, so records sent before a restart are skipped
+ * when the segments are scanned again. Replay is at-least-once: a batch read but not yet committed
+ * when the process dies is replayed again after restart, and so are the records of a head segment
+ * when the operating system itself crashes before the cursor page is written.
+ *
+ * <p>When the size cap is reached the oldest segment is deleted and its unread items reported
+ * as dropped.
+ */
+@Slf4j
+public class DiskSpool implements Closeable {
+    static final String SEGMENT_SUFFIX = ".spool";
+    static final String LOCK_FILE = "spool.lock";
+    static final String CURSOR_FILE = "spool.cursor";
+    static final int CURSOR_BYTES = 12;
+    static final int RECORD_HEADER_BYTES = 8;
+    static final int MIN_SEGMENT_BYTES = 64 * 1024;
+    static final int DEFAULT_SEGMENT_BYTES = 4 * 1024 * 1024;
+    private static final Consumer<ByteBuffer> UNMAPPER = unmapper();
+
+    private final File dir;
+    private final long maxBytes;
+    private final int segmentBytes;
+    private final IntConsumer evicted;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final ReentrantLock replayLock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    private final RandomAccessFile lockFile;
+    private final FileLock lock;
+    private MappedByteBuffer cursor;
+    private long nextSequence;
+    private int items;
+    private boolean closed;
+
+    DiskSpool(File dir, long maxBytes, int segmentBytes, IntConsumer evicted) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = Math.max(maxBytes, 2L * segmentBytes);
+        this.evicted = evicted;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("can not create spool directory: " + dir);
+        }
+        this.lockFile = new RandomAccessFile(new File(dir, LOCK_FILE), "rw");
+        FileLock fileLock;
+        try {
+            fileLock = lockFile.getChannel().tryLock();
+        } catch (OverlappingFileLockException e) {
+            // locked by another reporter in this JVM
+            fileLock = null;
+        }
+        this.lock = fileLock;
+        if (lock == null) {
+            lockFile.close();
+            throw new IOException("spool directory is used by another reporter: " + dir);
+        }
+        try (RandomAccessFile cursorFile = new RandomAccessFile(new File(dir, CURSOR_FILE), "rw")) {
+            cursorFile.setLength(CURSOR_BYTES);
+            this.cursor = cursorFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, CURSOR_BYTES);
+        } catch (IOException e) {
+            lock.release();
+            lockFile.close();
+            throw e;
+        }
+        recover();
+    }
+
+    /**
+     * @param dir      spool directory, one per reporter; null or empty disables the spool
+     * @param maxBytes cap of all segment files together
+     * @param evicted  receives the count of unread items dropped by eviction
+     * @return null when disabled or the directory can not be used
+     */
+    public static DiskSpool open(String dir, long maxBytes, IntConsumer evicted) {
+        if (dir == null || dir.trim().isEmpty()) {
+            return null;
+        }
+        int segmentBytes = (int) Math.max(MIN_SEGMENT_BYTES, Math.min(DEFAULT_SEGMENT_BYTES, maxBytes / 8));
+        try {
+            return new DiskSpool(new File(dir.trim()), maxBytes, segmentBytes, evicted);
+        } catch (IOException e) {
+            log.warn("disk spool disabled: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return false when the batch is larger than a segment and was not spooled
+     */
+    public synchronized boolean append(List<EncodedData> batch) {
+        if (closed || batch.isEmpty()) {
+            return false;
+        }
+        int payloadBytes = 4;
+        for (EncodedData data : batch) {
+            payloadBytes += 4 + data.getData().length;
+        }
+        int recordBytes = RECORD_HEADER_BYTES + payloadBytes;
+        if (recordBytes > segmentBytes) {
+            return false;
+        }
+        try {
+            Segment tail = segments.peekLast();
+            if (tail == null || tail.writePos + recordBytes > segmentBytes) {
+                tail = newSegment();
+            }
+            MappedByteBuffer buffer = tail.buffer;
+            int start = tail.writePos;
+            buffer.position(start + RECORD_HEADER_BYTES);
+            buffer.putInt(batch.size());
+            for (EncodedData data : batch) {
+                byte[] bytes = data.getData();
+                buffer.putInt(bytes.length);
+                buffer.put(bytes);
+            }
+            buffer.putInt(start + 4, checksum(buffer, start + RECORD_HEADER_BYTES, payloadBytes));
+            // publish the record
+            buffer.putInt(start, payloadBytes);
+            tail.writePos += recordBytes;
+            tail.items += batch.size();
+            items += batch.size();
+            return true;
+        } catch (IOException e) {
+            log.warn("disk spool append fail: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Sends the oldest records, up to about {@code maxBatchBytes} of encoded items, and removes
+     * them when {@code sender} returns true. Only one thread replays at a time.
+     *
+     * @return true when records were sent
+     */
+    public boolean replay(int maxBatchBytes, Predicate<List<EncodedData>> sender) {
+        if (!replayLock.tryLock()) {
+            return false;
+        }
+        try {
+            Segment head;
+            int startPos;
+            int endPos;
+            int count = 0;
+            List<EncodedData> batch = new ArrayList<>();
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                head = readableHead();
+                if (head == null) {
+                    return false;
+                }
+                startPos = head.readPos;
+                endPos = startPos;
+                int batchBytes = 2;
+                ByteBuffer buffer = head.buffer.duplicate();
+                while (endPos < head.writePos) {
+                    int payloadBytes = buffer.getInt(endPos);
+                    int recordItems = buffer.getInt(endPos + RECORD_HEADER_BYTES);
+                    int recordDataBytes = payloadBytes - 4 - 4 * recordItems + recordItems;
+                    if (count > 0 && batchBytes + recordDataBytes > maxBatchBytes) {
+                        break;
+                    }
+                    buffer.position(endPos + RECORD_HEADER_BYTES + 4);
+                    for (int i = 0; i < recordItems; i++) {
+                        byte[] bytes = new byte[buffer.getInt()];
+                        buffer.get(bytes);
+                        batch.add(new ByteWrapper(bytes));
+                    }
+                    batchBytes += recordDataBytes;
+                    count += recordItems;
+                    endPos += RECORD_HEADER_BYTES + payloadBytes;
+                }
+            }
+            if (!sender.test(batch)) {
+                return false;
+            }
+            synchronized (this) {
+                // the head may have been evicted while sending
+                if (segments.peekFirst() == head && head.readPos == startPos) {
+                    head.readPos = endPos;
+                    head.readItems += count;
+                    items -= count;
+                    readableHead();
+                    saveCursor();
+                }
+            }
+            return true;
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return items == 0;
+    }
+
+    /**
+     * @return unread items in the spool
+     */
+    public synchronized int items() {
+        return items;
+    }
+
+    public synchronized long sizeInBytes() {
+        return (long) segments.size() * segmentBytes;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+        cursor.force();
+        UNMAPPER.accept(cursor);
+        cursor = null;
+        lock.release();
+        lockFile.close();
+    }
+
+    /**
+     * drops fully read segments in front of the tail
+     */
+    private Segment readableHead() {
+        Segment head = segments.peekFirst();
+        while (head != null && head.readPos >= head.writePos && head != segments.peekLast()) {
+            segments.pollFirst();
+            head.delete();
+            head = segments.peekFirst();
+        }
+        return head == null || head.readPos >= head.writePos ? null : head;
+    }
+
+    /**
+     * Records the read position of the head. The offset is written first: when the process dies in between,
+     * the sequence still names an older, already deleted segment and nothing is skipped.
+     */
+    private void saveCursor() {
+        Segment head = segments.peekFirst();
+        if (head == null) {
+            return;
+        }
+        cursor.putInt(8, head.readPos);
+        cursor.putLong(0, head.sequence);
+    }
+
+    private Segment newSegment() throws IOException {
+        long sequence = nextSequence++;
+        Segment segment = new Segment(new File(dir, String.format("%020d%s", sequence, SEGMENT_SUFFIX)), sequence);
+        segment.map(segmentBytes);
+        segments.addLast(segment);
+        evictOverCap();
+        return segment;
+    }
+
+    private void evictOverCap() {
+        while ((long) segments.size() * segmentBytes > maxBytes && segments.size() > 1) {
+            Segment oldest = segments.pollFirst();
+            int unread = oldest.items - oldest.readItems;
+            items -= unread;
+            oldest.delete();
+            if (unread > 0) {
+                evicted.accept(unread);
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files == null || files.length == 0) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        long cursorSequence = cursor.getLong(0);
+        int cursorPos = cursor.getInt(8);
+        for (File file : files) {
+            long sequence;
+            try {
+                sequence = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            if (file.length() != segmentBytes) {
+                // written with another segment size, can not be appended to
+                log.warn("skip spool segment with unexpected size: {}", file);
+                continue;
+            }
+            if (sequence < cursorSequence) {
+                // read and committed before the restart
+                if (!file.delete()) {
+                    log.warn("can not delete spool segment: {}", file);
+                }
+                continue;
+            }
+            Segment segment = new Segment(file, sequence);
+            segment.map(segmentBytes);
+            scan(segment, sequence == cursorSequence ? cursorPos : 0);
+            if (segment.items == segment.readItems) {
+                segment.delete();
+                continue;
+            }
+            segments.addLast(segment);
+            items += segment.items - segment.readItems;
+        }
+        Segment tail = segments.peekLast();
+        if (tail != null) {
+            // clear a torn record so later appends are not followed by stale bytes
+            for (int i = tail.writePos; i < segmentBytes; i++) {
+                tail.buffer.put(i, (byte) 0);
+            }
+        }
+        evictOverCap();
+        log.info("disk spool {} recovered {} items", dir, items);
+    }
+
+    /**
+     * @param committed offset of the records already read, moved back to a record boundary when it is not one
+     */
+    private void scan(Segment segment, int committed) {
+        MappedByteBuffer buffer = segment.buffer;
+        int pos = 0;
+        while (pos + RECORD_HEADER_BYTES + 4 <= segmentBytes) {
+            int payloadBytes = buffer.getInt(pos);
+            if (payloadBytes < 4 || pos + RECORD_HEADER_BYTES + payloadBytes > segmentBytes) {
+                break;
+            }
+            if (checksum(buffer, pos + RECORD_HEADER_BYTES, payloadBytes) != buffer.getInt(pos + 4)) {
+                break;
+            }
+            int recordItems = buffer.getInt(pos + RECORD_HEADER_BYTES);
+            segment.items += recordItems;
+            pos += RECORD_HEADER_BYTES + payloadBytes;
+            if (pos <= committed) {
+                segment.readPos = pos;
+                segment.readItems += recordItems;
+            }
+        }
+        segment.writePos = pos;
+    }
+
+    /**
+     * Releases a mapping right away rather than when the buffer is garbage collected, so deleted
+     * segments free their disk space and only live segments stay mapped.
+     * Falls back to the garbage collector when neither the java 9+ nor the java 8 way is accessible.
+     */
+    private static Consumer<ByteBuffer> unmapper() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            return buffer -> invoke(invokeCleaner, unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // java 8
+        }
+        try {
+            Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                Object c = invoke(cleaner, buffer);
+                if (c != null) {
+                    invoke(clean, c);
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("spool segments are unmapped by the garbage collector: {}", e.getMessage());
+            return buffer -> {
+            };
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("unmap spool segment fail: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private int checksum(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(offset + length);
+        slice.position(offset);
+        crc.reset();
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+
+    static final class Segment {
+        final File file;
+        final long sequence;
+        MappedByteBuffer buffer;
+        int writePos;
+        int readPos;
+        int items;
+        int readItems;
+
+        Segment(File file, long sequence) {
+            this.file = file;
+            this.sequence = sequence;
+        }
+
+        void map(int size) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(size);
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+
+        void close() {
+            if (buffer != null) {
+                buffer.force();
+                unmap();
+            }
+        }
+
+        void delete() {
+            unmap();
+            if (!file.delete()) {
+                log.warn("can not delete spool segment: {}", file);
+            }
+        }
+
+        /**
+         * the buffer must not be read afterwards, all reads are under the spool lock
+         */
+        private void unmap() {
+            if (buffer != null) {
+                UNMAPPER.accept(buffer);
+                buffer = null;
+            }
+        }
+    }
+}
@@ -20,16 +20,18 @@ package com.megaease.easeagent.report.async.trace;
 import com.megaease.easeagent.plugin.report.EncodedData;
 import com.megaease.easeagent.plugin.report.Encoder;
 import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.async.AdaptiveBatchController;
 import com.megaease.easeagent.report.async.AsyncProps;
+import com.megaease.easeagent.report.async.AsyncReporterMetrics;
+import com.megaease.easeagent.report.async.ReporterTelemetry;
+import com.megaease.easeagent.report.async.SpoolingSender;
 import com.megaease.easeagent.report.async.zipkin.AgentBufferNextMessage;
 import com.megaease.easeagent.report.async.zipkin.AgentByteBoundedQueue;
 import com.megaease.easeagent.report.encoder.PackedMessage;
-import com.megaease.easeagent.report.encoder.PackedMessage.DefaultPackedMessage;
 import com.megaease.easeagent.report.encoder.span.GlobalExtrasSupplier;
 import com.megaease.easeagent.report.sender.SenderWithEncoder;
 import com.megaease.easeagent.report.util.SpanUtils;
 import lombok.SneakyThrows;
-import zipkin2.Call;
 import zipkin2.CheckResult;
 import zipkin2.reporter.AsyncReporter;
 import zipkin2.reporter.ReporterMetrics;
@@ -39,17 +41,15 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static java.lang.String.format;
-import static java.util.logging.Level.FINE;
 import static java.util.logging.Level.WARNING;
 
 public class SDKAsyncReporter<S> extends AsyncReporter<S> {
     static final Logger logger = Logger.getLogger(SDKAsyncReporter.class.getName());
 
     private static final String NAME_PREFIX = "AsyncReporter";
+    static final String TELEMETRY_NAME = "tracing";
 
     final AtomicBoolean closed = new AtomicBoolean(false);
     SenderWithEncoder sender;
@@ -61,17 +61,15 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
     final long closeTimeoutNanos;
     final CountDownLatch close;
     final ReporterMetrics metrics;
+    final AsyncReporterMetrics telemetry;
     AsyncProps traceProperties;
 
     ThreadFactory threadFactory;
 
-    /*
-     * Tracks if we should log the first instance of an exception in flush().
-     */
-    private boolean shouldWarnException = true;
-
     List<Thread> flushThreads;
 
+    final SpoolingSender<S> spoolingSender;
+
     SDKAsyncReporter(Builder builder, Encoder<S> encoder, AsyncProps traceProperties) {
         this.pending = new AgentByteBoundedQueue<>(builder.queuedMaxItems, builder.queuedMaxBytes);
         this.sender = builder.sender;
@@ -80,8 +78,11 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
         this.closeTimeoutNanos = builder.closeTimeoutNanos;
         this.close = new CountDownLatch(builder.messageTimeoutNanos > 0 ? 1 : 0);
         this.metrics = builder.metrics;
+        this.telemetry = builder.metrics instanceof AsyncReporterMetrics
+            ? (AsyncReporterMetrics) builder.metrics : new ReporterMetricsAdapter(builder.metrics);
         this.encoder = encoder;
         this.traceProperties = traceProperties;
+        this.spoolingSender = new SpoolingSender<>(() -> this.traceProperties, this.messageMaxBytes, this.telemetry);
     }
 
     public static SDKAsyncReporter<ReportSpan> builderSDKAsyncReporter(SenderWithEncoder sender,
@@ -89,6 +90,7 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
                                                                        GlobalExtrasSupplier extrasSupplier) {
         final SDKAsyncReporter<ReportSpan> reporter = new Builder(sender, traceProperties)
             .globalExtractor(extrasSupplier)
+            .metrics(ReporterTelemetry.getOrCreate(TELEMETRY_NAME))
             .build();
 
         reporter.setTraceProperties(traceProperties);
@@ -157,8 +159,9 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
         metrics.incrementSpanBytes(nextSizeInBytes);
         if (closed.get() ||
             // don't enqueue something larger than we can drain
-            messageSizeOfNextSpan > messageMaxBytes ||
-            !pending.offer(next, nextSizeInBytes)) {
+            messageSizeOfNextSpan > messageMaxBytes) {
+            metrics.incrementSpansDropped(1);
+        } else if (!pending.offer(next, nextSizeInBytes) && !spoolingSender.offerOverflow(next)) {
             metrics.incrementSpansDropped(1);
         }
     }
@@ -177,7 +180,12 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
         if (closed.get()) {
             throw new IllegalStateException("closed");
         }
+        spoolingSender.spoolOverflow(encoder);
 
+        AdaptiveBatchController batchController = spoolingSender.batchController();
+        if (batchController.isEnabled()) {
+            bundler.adjust(batchController.messageMaxBytes(), batchController.messageTimeoutNanos());
+        }
         pending.drainTo(bundler, bundler.remainingNanos());
 
         // record after flushing reduces the amount of gauge events vs on doing this on report
@@ -186,17 +194,27 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
 
         // loop around if we are running, and the bundle isn't full
         // if we are closed, try to send what's pending
-        if (!bundler.isReady() && !closed.get()) return;
+        if (!bundler.isReady() && !closed.get()) {
+            spoolingSender.replaySpool(sender, pending.getSizeInBytes());
+            return;
+        }
 
         // Signal that we are about to send a message of a known size in bytes
         metrics.incrementMessages();
         metrics.incrementMessageBytes(bundler.sizeInBytes());
 
+        boolean enqueueNanosKnown = bundler.hasOldestEnqueueNanos();
+        long oldestEnqueueNanos = bundler.oldestEnqueueNanos();
+        if (batchController.isEnabled()) {
+            batchController.onMessage(bundler.sizeInBytes());
+        }
+
         // Create the next message. Since we are outside the lock shared with writers, we can encode
-        PackedMessage message = new DefaultPackedMessage(bundler.count(), encoder);
+        long encodeStart = System.nanoTime();
+        PackedMessage message = PackedMessage.create(bundler.count(), bundler.sizeInBytes(), encoder);
         bundler.drain((next, nextSizeInBytes) -> {
             if (message.calculateAppendSize(nextSizeInBytes) <= messageMaxBytes) {
-                message.addMessage(encoder.encode(next));
+                message.addMessage(encoder, next, nextSizeInBytes);
                 return true;
             } else {
                 return false;
@@ -204,32 +222,14 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
         });
 
         List<EncodedData> nextMessage = message.getMessages();
-        try {
-            sender.send(nextMessage).execute();
-        } catch (IOException | RuntimeException t) {
-            // In failure case, we increment messages and spans dropped.
-            int count = nextMessage.size();
-            Call.propagateIfFatal(t);
-            metrics.incrementMessagesDropped(t);
-            metrics.incrementSpansDropped(count);
-
-            Level logLevel = FINE;
-
-            if (shouldWarnException) {
-                logger.log(WARNING, "Spans were dropped due to exceptions. "
-                    + "All subsequent errors will be logged at FINE level.");
-                logLevel = WARNING;
-                shouldWarnException = false;
-            }
-
-            if (logger.isLoggable(logLevel)) {
-                logger.log(logLevel,
-                    format("Dropped %s spans due to %s(%s)", count, t.getClass().getSimpleName(),
-                        t.getMessage() == null ? "" : t.getMessage()), t);
-            }
-
-            // Raise in case the sender was closed out-of-band.
-            if (t instanceof IllegalStateException) throw (IllegalStateException) t;
+        long sendStart = System.nanoTime();
+        telemetry.recordEncodeTime(sendStart - encodeStart);
+        telemetry.recordBatchSize(nextMessage.size());
+        if (enqueueNanosKnown) {
+            telemetry.recordQueueLatency(sendStart - oldestEnqueueNanos);
+        }
+        if (spoolingSender.send(sender, nextMessage, sendStart)) {
+            spoolingSender.replaySpool(sender, pending.getSizeInBytes());
         }
     }
 
@@ -254,11 +254,19 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
             logger.warning("Interrupted waiting for in-flight spans to send");
             Thread.currentThread().interrupt();
         }
+        try {
+            if (!spoolingSender.awaitIdle(closeTimeoutNanos)) {
+                logger.warning("Timed out waiting for in-flight messages to send");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         int count = pending.clear();
         if (count > 0) {
             metrics.incrementSpansDropped(count);
             logger.log(WARNING, "Dropped {0} spans due to AsyncReporter.close()", count);
         }
+        spoolingSender.close(encoder);
     }
 
     @Override
@@ -462,4 +470,55 @@ public class SDKAsyncReporter<S> extends AsyncReporter<S> {
             return NAME_PREFIX + "{" + result.sender + "}";
         }
     }
+
+    /**
+     * Counts the messages and spans of a plain {@link ReporterMetrics}, the timings are not recorded.
+     */
+    static final class ReporterMetricsAdapter implements AsyncReporterMetrics {
+        final ReporterMetrics metrics;
+
+        ReporterMetricsAdapter(ReporterMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void incrementMessages() {
+            metrics.incrementMessages();
+        }
+
+        @Override
+        public void incrementMessagesDropped(Throwable cause) {
+            metrics.incrementMessagesDropped(cause);
+        }
+
+        @Override
+        public void incrementItems(int quantity) {
+            metrics.incrementSpans(quantity);
+        }
+
+        @Override
+        public void incrementSpanBytes(int quantity) {
+            metrics.incrementSpanBytes(quantity);
+        }
+
+        @Override
+        public void incrementMessageBytes(int quantity) {
+            metrics.incrementMessageBytes(quantity);
+        }
+
+        @Override
+        public void incrementItemsDropped(int quantity) {
+            metrics.incrementSpansDropped(quantity);
+        }
+
+        @Override
+        public void updateQueuedItems(int update) {
+            metrics.updateQueuedSpans(update);
+        }
+
+        @Override
+        public void updateQueuedBytes(int update) {
+            metrics.updateQueuedBytes(update);
+        }
+    }
 }
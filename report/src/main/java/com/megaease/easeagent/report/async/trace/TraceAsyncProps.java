@@ -29,6 +29,13 @@ public class TraceAsyncProps implements AsyncProps {
     private volatile int queuedMaxSize;
     private volatile int messageTimeout;
     private volatile int messageMaxBytes;
+    private volatile int maxInFlight;
+    private volatile String spoolDir;
+    private volatile long spoolMaxSize;
+    private volatile boolean adaptive;
+    private volatile long minMessageTimeout;
+    private volatile long maxMessageTimeout;
+    private volatile int minMessageBytes;
 
     public TraceAsyncProps(Config config) {
         int onePercentageMemory = AsyncProps.onePercentOfMemory();
@@ -37,6 +44,13 @@ public class TraceAsyncProps implements AsyncProps {
         bindProp(TRACE_ASYNC_QUEUED_MAX_SPANS_V2, config, Config::getInt, v -> this.queuedMaxSpans = v, 1000);
         bindProp(TRACE_ASYNC_MESSAGE_MAX_BYTES_V2, config, Config::getInt, v -> this.messageMaxBytes = v, 999900);
         bindProp(TRACE_ASYNC_MESSAGE_TIMEOUT_V2, config, Config::getInt, v -> this.messageTimeout = v, 1000);
+        bindProp(TRACE_ASYNC_MAX_IN_FLIGHT_V2, config, Config::getInt, v -> this.maxInFlight = v, 0);
+        bindProp(TRACE_ASYNC_SPOOL_DIR_V2, config, Config::getString, v -> this.spoolDir = v);
+        bindProp(TRACE_ASYNC_SPOOL_MAX_SIZE_V2, config, Config::getLong, v -> this.spoolMaxSize = v, DEFAULT_SPOOL_MAX_SIZE);
+        bindProp(TRACE_ASYNC_ADAPTIVE_V2, config, Config::getBoolean, v -> this.adaptive = v, false);
+        bindProp(TRACE_ASYNC_MIN_MESSAGE_TIMEOUT_V2, config, Config::getLong, v -> this.minMessageTimeout = v, DEFAULT_MIN_MESSAGE_TIMEOUT);
+        bindProp(TRACE_ASYNC_MAX_MESSAGE_TIMEOUT_V2, config, Config::getLong, v -> this.maxMessageTimeout = v, DEFAULT_MAX_MESSAGE_TIMEOUT);
+        bindProp(TRACE_ASYNC_MIN_MESSAGE_BYTES_V2, config, Config::getInt, v -> this.minMessageBytes = v, DEFAULT_MIN_MESSAGE_BYTES);
     }
 
     @Override
@@ -63,4 +77,39 @@ public class TraceAsyncProps implements AsyncProps {
     public int getMessageMaxBytes() {
         return this.messageMaxBytes;
     }
+
+    @Override
+    public int getMaxInFlight() {
+        return this.maxInFlight;
+    }
+
+    @Override
+    public String getSpoolDir() {
+        return this.spoolDir;
+    }
+
+    @Override
+    public long getSpoolMaxSize() {
+        return this.spoolMaxSize;
+    }
+
+    @Override
+    public boolean isAdaptive() {
+        return this.adaptive;
+    }
+
+    @Override
+    public long getMinMessageTimeout() {
+        return this.minMessageTimeout;
+    }
+
+    @Override
+    public long getMaxMessageTimeout() {
+        return this.maxMessageTimeout;
+    }
+
+    @Override
+    public int getMinMessageBytes() {
+        return this.minMessageBytes;
+    }
 }
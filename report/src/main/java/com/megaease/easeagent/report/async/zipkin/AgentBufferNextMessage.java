@@ -17,6 +17,7 @@ package com.megaease.easeagent.report.async.zipkin;
 import com.megaease.easeagent.plugin.report.Encoder;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 
 /** Use of this type happens off the application's main thread. This type is not thread-safe */
@@ -27,12 +28,15 @@ public class AgentBufferNextMessage<S> implements WithSizeConsumer<S> {
     }
 
     final Encoder<S> encoder;
-    final int maxBytes;
-    final long timeoutNanos;
+    int maxBytes;
+    long timeoutNanos;
     final ArrayList<S> spans = new ArrayList<>();
     final ArrayList<Integer> sizes = new ArrayList<>();
 
     long deadlineNanoTime;
+    long oldestEnqueueNanos;
+    // any long is a valid nanoTime, so 0 can not mean unknown
+    boolean enqueueNanosKnown;
     int packageSizeInBytes;
     boolean bufferFull;
 
@@ -44,6 +48,10 @@ public class AgentBufferNextMessage<S> implements WithSizeConsumer<S> {
     }
 
     int messageSizeInBytes(int nextSizeInBytes) {
+        if (sizes.isEmpty()) {
+            // exact, so the batch can be packed into an array of sizeInBytes()
+            return encoder.packageSizeInBytes(Collections.singletonList(nextSizeInBytes));
+        }
         return packageSizeInBytes + encoder.appendSizeInBytes(nextSizeInBytes);
     }
 
@@ -51,6 +59,17 @@ public class AgentBufferNextMessage<S> implements WithSizeConsumer<S> {
         packageSizeInBytes = encoder.packageSizeInBytes(sizes);
     }
 
+    /**
+     * Changes the message size and timeout, only while the buffer is empty and lingers.
+     */
+    public void adjust(int maxBytes, long timeoutNanos) {
+        if (this.timeoutNanos <= 0 || !spans.isEmpty()) {
+            return;
+        }
+        this.maxBytes = maxBytes;
+        this.timeoutNanos = timeoutNanos;
+    }
+
     /** This is done inside a lock that holds up writers, so has to be fast. No encoding! */
     public boolean offer(S next, int nextSizeInBytes) {
         int x = messageSizeInBytes(nextSizeInBytes);
@@ -58,7 +77,10 @@ public class AgentBufferNextMessage<S> implements WithSizeConsumer<S> {
 
         if (includingNextVsMaxBytes > 0) {
             bufferFull = true;
-            return false; // can't fit the next message into this buffer
+            if (!spans.isEmpty()) {
+                return false; // can't fit the next message into this buffer
+            }
+            // an adjusted maxBytes may be below a single element, which still fits the reporter's message
         }
 
         addSpanToBuffer(next, nextSizeInBytes);
@@ -73,6 +95,29 @@ public class AgentBufferNextMessage<S> implements WithSizeConsumer<S> {
         sizes.add(nextSizeInBytes);
     }
 
+    @Override
+    public void enqueuedAt(long nanoTime) {
+        if (!enqueueNanosKnown || nanoTime - oldestEnqueueNanos < 0) {
+            oldestEnqueueNanos = nanoTime;
+            enqueueNanosKnown = true;
+        }
+    }
+
+    /**
+     * @return whether {@link #oldestEnqueueNanos()} holds the queue time of a buffered element
+     */
+    public boolean hasOldestEnqueueNanos() {
+        return enqueueNanosKnown;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} the oldest buffered element was queued at,
+     * only valid when {@link #hasOldestEnqueueNanos()}
+     */
+    public long oldestEnqueueNanos() {
+        return oldestEnqueueNanos;
+    }
+
     public long remainingNanos() {
         if (spans.isEmpty()) {
             deadlineNanoTime = System.nanoTime() + timeoutNanos;
@@ -99,6 +144,9 @@ public class AgentBufferNextMessage<S> implements WithSizeConsumer<S> {
         }
 
         resetMessageSizeInBytes();
+        if (spans.isEmpty()) {
+            enqueueNanosKnown = false;
+        }
         // regardless, reset the clock
         deadlineNanoTime = 0;
     }
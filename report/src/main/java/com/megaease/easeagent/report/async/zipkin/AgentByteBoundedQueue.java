@@ -32,6 +32,7 @@ public final class AgentByteBoundedQueue<S> implements WithSizeConsumer<S> {
 
     final S[] elements;
     final int[] sizesInBytes;
+    final long[] enqueueNanos;
     int count;
     int sizeInBytes;
     int writePos;
@@ -41,6 +42,7 @@ public final class AgentByteBoundedQueue<S> implements WithSizeConsumer<S> {
     public AgentByteBoundedQueue(int maxSize, int maxBytes) {
         this.elements = (S[]) new Object[maxSize];
         this.sizesInBytes = new int[maxSize];
+        this.enqueueNanos = new long[maxSize];
         this.maxSize = maxSize;
         this.maxBytes = maxBytes;
     }
@@ -56,6 +58,7 @@ public final class AgentByteBoundedQueue<S> implements WithSizeConsumer<S> {
             if (sizeInBytes + nextSizeInBytes > maxBytes) return false;
 
             elements[writePos] = next;
+            enqueueNanos[writePos] = System.nanoTime();
             sizesInBytes[writePos++] = nextSizeInBytes;
 
             if (writePos == maxSize) writePos = 0; // circle back to the front of the array
@@ -122,6 +125,7 @@ public final class AgentByteBoundedQueue<S> implements WithSizeConsumer<S> {
 
             if (next == null) break;
             if (consumer.offer(next, nextSizeInBytes)) {
+                consumer.enqueuedAt(enqueueNanos[readPos]);
                 drainedCount++;
                 drainedSizeInBytes += nextSizeInBytes;
 
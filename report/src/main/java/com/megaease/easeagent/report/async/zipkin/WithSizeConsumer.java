@@ -20,4 +20,9 @@ package com.megaease.easeagent.report.async.zipkin;
 public interface WithSizeConsumer<S> {
     /** Returns true if the element could be added or false if it could not due to its size. */
     boolean offer(S next, int nextSizeInBytes);
+
+    /** Called after an element was taken with the {@link System#nanoTime()} it was queued at. */
+    default void enqueuedAt(long nanoTime) {
+        // noop
+    }
 }
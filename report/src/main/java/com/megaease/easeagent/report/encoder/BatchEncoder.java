@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder;
+
+import com.megaease.easeagent.plugin.report.EncodedData;
+
+/**
+ * An encoder that writes items straight into the batch buffer, so no array is allocated per item.
+ * The batch is framed like {@link com.megaease.easeagent.plugin.report.encoder.JsonEncoder#encodeList},
+ * or is the plain concatenation of its items when {@link #jsonList()} is false.
+ *
+ * @param <S> item type
+ */
+public interface BatchEncoder<S> {
+    /**
+     * Writes the encoded input, exactly {@code sizeInBytes} bytes as returned by {@link #flushSizeInBytes}.
+     */
+    void encodeTo(S input, byte[] buf, int pos, int sizeInBytes);
+
+    /**
+     * Items are sized when they are reported and written when their batch is flushed. Encoders writing
+     * values that may change in between, such as the service name, size the input again here.
+     *
+     * @param queuedSize the size computed when the input was reported
+     * @return the size {@link #encodeTo} writes now
+     */
+    default int flushSizeInBytes(S input, int queuedSize) {
+        return queuedSize;
+    }
+
+    /**
+     * @return the encoder for one batch, it reads the values that may change once, so the sizes it
+     * returns are the sizes it writes
+     */
+    default BatchEncoder<S> forBatch() {
+        return this;
+    }
+
+    /**
+     * @return false when a batch is its items one after another, with no brackets and no separators
+     */
+    default boolean jsonList() {
+        return true;
+    }
+
+    /**
+     * @param batch a whole packed batch
+     * @return the batch as the encoder's encodeList would return it
+     */
+    EncodedData wrapBatch(byte[] batch);
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder;
+
+import zipkin2.internal.JsonEscaper;
+import zipkin2.internal.WriteBuffer;
+
+public final class JsonStrings {
+    private JsonStrings() {}
+
+    /**
+     * Same output as {@code b.writeUtf8(JsonEscaper.jsonEscape(v))}. Plain ASCII values,
+     * the common case of tags, urls and headers, are written as they are.
+     */
+    public static void writeEscaped(String v, WriteBuffer b) {
+        if (needsEscape(v)) {
+            b.writeUtf8(JsonEscaper.jsonEscape(v));
+        } else {
+            b.writeAscii(v);
+        }
+    }
+
+    static boolean needsEscape(String v) {
+        for (int i = 0, length = v.length(); i < length; i++) {
+            char c = v.charAt(i);
+            if (c < 0x20 || c >= 0x80 || c == '"' || c == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
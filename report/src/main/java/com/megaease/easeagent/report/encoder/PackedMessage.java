@@ -17,10 +17,14 @@
  */
 package com.megaease.easeagent.report.encoder;
 
+import com.megaease.easeagent.plugin.report.ByteWrapper;
 import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.Encoder;
 import com.megaease.easeagent.plugin.report.Packer;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public interface PackedMessage {
@@ -32,6 +36,25 @@ public interface PackedMessage {
 
     void addMessage(EncodedData msg);
 
+    /**
+     * Adds an item that is not encoded yet, {@code sizeInBytes} is the encoder's size of it.
+     */
+    default <S> void addMessage(Encoder<S> encoder, S item, int sizeInBytes) {
+        addMessage(encoder.encode(item));
+    }
+
+    /**
+     * @param count       items to be added
+     * @param sizeInBytes packed size of all items to be added
+     */
+    @SuppressWarnings("unchecked")
+    static <S> PackedMessage create(int count, int sizeInBytes, Encoder<S> encoder) {
+        if (encoder instanceof BatchEncoder) {
+            return new BatchPackedMessage<>(count, sizeInBytes, encoder, (BatchEncoder<S>) encoder);
+        }
+        return new DefaultPackedMessage(count, encoder);
+    }
+
     class DefaultPackedMessage implements PackedMessage {
         ArrayList<EncodedData> items;
         int packSize;
@@ -67,4 +90,132 @@ public interface PackedMessage {
             }
         }
     }
+
+    /**
+     * Writes items straight into one array, framed as a JSON list or concatenated as the encoder says.
+     * The array grows when an item is larger at flush time than when it was reported.
+     */
+    class BatchPackedMessage<S> implements PackedMessage {
+        final Packer packer;
+        final BatchEncoder<S> batchEncoder;
+        final boolean jsonList;
+        final int[] offsets;
+        final int[] sizes;
+        byte[] buf;
+        int pos;
+        int count;
+        int packSize;
+        PackedItems items;
+
+        BatchPackedMessage(int count, int sizeInBytes, Packer packer, BatchEncoder<S> batchEncoder) {
+            this.packer = packer;
+            this.batchEncoder = batchEncoder.forBatch();
+            this.jsonList = batchEncoder.jsonList();
+            this.offsets = new int[count];
+            this.sizes = new int[count];
+            this.buf = new byte[Math.max(sizeInBytes, jsonList ? 2 : 0)];
+            if (jsonList) {
+                this.buf[pos++] = '[';
+            }
+        }
+
+        @Override
+        public List<EncodedData> getMessages() {
+            if (items == null) {
+                if (jsonList) {
+                    buf[pos++] = ']';
+                }
+                if (pos < buf.length) {
+                    // some items were not added
+                    buf = Arrays.copyOf(buf, pos);
+                }
+                items = new PackedItems(batchEncoder.wrapBatch(buf), buf, offsets, sizes, count);
+            }
+            return items;
+        }
+
+        @Override
+        public int packSize() {
+            return packSize;
+        }
+
+        @Override
+        public int calculateAppendSize(int size) {
+            return this.packSize + this.packer.appendSizeInBytes(size);
+        }
+
+        @Override
+        public void addMessage(EncodedData msg) {
+            byte[] data = msg.getData();
+            int start = startItem(data.length);
+            System.arraycopy(data, 0, buf, start, data.length);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> void addMessage(Encoder<T> encoder, T item, int sizeInBytes) {
+            int size = batchEncoder.flushSizeInBytes((S) item, sizeInBytes);
+            int start = startItem(size);
+            batchEncoder.encodeTo((S) item, buf, start, size);
+        }
+
+        private int startItem(int sizeInBytes) {
+            if (items != null || count == offsets.length) {
+                throw new IllegalStateException("packed message is full");
+            }
+            int framing = jsonList ? 2 : 0;
+            if (pos + sizeInBytes + framing > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(pos + sizeInBytes + framing, buf.length + (buf.length >> 3)));
+            }
+            if (count > 0 && jsonList) {
+                buf[pos++] = ',';
+            }
+            int start = pos;
+            offsets[count] = start;
+            sizes[count++] = sizeInBytes;
+            pos += sizeInBytes;
+            packSize = jsonList ? pos + 1 : pos;
+            return start;
+        }
+    }
+
+    /**
+     * Items of a packed batch, each item is copied out only when it is read on its own,
+     * e.g. to spool a failed batch.
+     */
+    final class PackedItems extends AbstractList<EncodedData> {
+        private final EncodedData packed;
+        private final byte[] buf;
+        private final int[] offsets;
+        private final int[] sizes;
+        private final int count;
+
+        PackedItems(EncodedData packed, byte[] buf, int[] offsets, int[] sizes, int count) {
+            this.packed = packed;
+            this.buf = buf;
+            this.offsets = offsets;
+            this.sizes = sizes;
+            this.count = count;
+        }
+
+        /**
+         * @return the whole batch as the encoder's encodeList
+         */
+        public EncodedData packed() {
+            return packed;
+        }
+
+        @Override
+        public EncodedData get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("index: " + index + ", size: " + count);
+            }
+            return new ByteWrapper(Arrays.copyOfRange(buf, offsets[index], offsets[index] + sizes[index]));
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
 }
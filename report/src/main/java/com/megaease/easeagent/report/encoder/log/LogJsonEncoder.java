@@ -27,10 +27,12 @@ import com.megaease.easeagent.plugin.report.ByteWrapper;
 import com.megaease.easeagent.plugin.report.EncodedData;
 import com.megaease.easeagent.plugin.report.Encoder;
 import com.megaease.easeagent.plugin.report.encoder.JsonEncoder;
+import com.megaease.easeagent.report.encoder.BatchEncoder;
 import zipkin2.internal.JsonCodec;
+import zipkin2.internal.WriteBuffer;
 
 @AutoService(Encoder.class)
-public class LogJsonEncoder extends JsonEncoder<AccessLogInfo> {
+public class LogJsonEncoder extends JsonEncoder<AccessLogInfo> implements BatchEncoder<AccessLogInfo> {
     public static final String ENCODER_NAME = ReportConfigConst.LOG_JSON_ENCODER_NAME;
 
     LogWriter writer;
@@ -66,4 +68,19 @@ public class LogJsonEncoder extends JsonEncoder<AccessLogInfo> {
             return new ByteWrapper(new byte[0]);
         }
     }
+
+    @Override
+    public void encodeTo(AccessLogInfo input, byte[] buf, int pos, int sizeInBytes) {
+        EncodedData d = input.getEncodedData();
+        if (d != null) {
+            System.arraycopy(d.getData(), 0, buf, pos, sizeInBytes);
+        } else {
+            this.writer.write(input, WriteBuffer.wrap(buf, pos));
+        }
+    }
+
+    @Override
+    public EncodedData wrapBatch(byte[] batch) {
+        return new ByteWrapper(batch);
+    }
 }
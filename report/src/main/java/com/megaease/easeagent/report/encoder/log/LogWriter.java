@@ -23,6 +23,8 @@ import zipkin2.internal.WriteBuffer;
 
 import java.util.Map;
 
+import static com.megaease.easeagent.report.encoder.JsonStrings.writeEscaped;
+
 public class LogWriter implements WriteBuffer.Writer<AccessLogInfo> {
     static final String TYPE_FIELD_NAME = "\"type\":\"";
     static final String TRACE_ID_FIELD_NAME = ",\"trace_id\":\"";
@@ -124,7 +126,7 @@ public class LogWriter implements WriteBuffer.Writer<AccessLogInfo> {
         b.writeByte('\"');
 
         b.writeAscii(URL_FIELD_NAME);
-        b.writeUtf8(JsonEscaper.jsonEscape(value.getUrl()));
+        writeEscaped(value.getUrl(), b);
         b.writeByte('\"');
 
         b.writeAscii(TRACE_ID_FIELD_NAME);
@@ -225,11 +227,11 @@ public class LogWriter implements WriteBuffer.Writer<AccessLogInfo> {
                 b.writeByte(',');
             }
             b.writeByte('\"');
-            b.writeUtf8(JsonEscaper.jsonEscape(kv.getKey()));
+            writeEscaped(kv.getKey(), b);
             b.writeByte('\"');
             b.writeByte(':');
             b.writeByte('\"');
-            b.writeUtf8(JsonEscaper.jsonEscape(kv.getValue()));
+            writeEscaped(kv.getValue(), b);
             b.writeByte('\"');
         }
         b.writeByte('}');
@@ -22,6 +22,8 @@ import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
 import zipkin2.internal.JsonEscaper;
 import zipkin2.internal.WriteBuffer;
 
+import static com.megaease.easeagent.report.encoder.JsonStrings.writeEscaped;
+
 public class AgentV2SpanAnnotationsWriter implements WriteBuffer.Writer<ReportSpan> {
     static final String ANNOTATION_FIELD_NAME = ",\"annotations\":[";
     static final String TIMESTAMP_FIELD_NAME = "{\"timestamp\":";
@@ -47,7 +49,7 @@ public class AgentV2SpanAnnotationsWriter implements WriteBuffer.Writer<ReportSp
         b.writeAscii(TIMESTAMP_FIELD_NAME);
         b.writeAscii(timestamp);
         b.writeAscii(VALUE_FIELD_NAME);
-        b.writeUtf8(JsonEscaper.jsonEscape(value));
+        writeEscaped(value, b);
         b.writeByte(34); // " for value field
         if (endpoint != null) {
             b.writeAscii(ENDPOINT_FIELD_NAME);
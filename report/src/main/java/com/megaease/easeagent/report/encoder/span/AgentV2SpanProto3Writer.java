@@ -0,0 +1,466 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder.span;
+
+import com.megaease.easeagent.plugin.report.tracing.Annotation;
+import com.megaease.easeagent.plugin.report.tracing.Endpoint;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.util.TextUtils;
+import zipkin2.internal.WriteBuffer;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a span as zipkin proto3, one entry of {@code ListOfSpans.spans}, so encoded spans
+ * are concatenated into a list without any framing.
+ * The global fields "type", "service" and "system" are written as tags.
+ *
+ * @see <a href="https://github.com/openzipkin/zipkin-api/blob/master/zipkin.proto">zipkin.proto</a>
+ */
+public class AgentV2SpanProto3Writer {
+    static final int LENGTH_DELIMITED = 2;
+    static final int FIXED64 = 1;
+    static final int VARINT = 0;
+
+    // ListOfSpans
+    static final int SPANS = key(1, LENGTH_DELIMITED);
+    // Span
+    static final int TRACE_ID = key(1, LENGTH_DELIMITED);
+    static final int PARENT_ID = key(2, LENGTH_DELIMITED);
+    static final int ID = key(3, LENGTH_DELIMITED);
+    static final int KIND = key(4, VARINT);
+    static final int NAME = key(5, LENGTH_DELIMITED);
+    static final int TIMESTAMP = key(6, FIXED64);
+    static final int DURATION = key(7, VARINT);
+    static final int LOCAL_ENDPOINT = key(8, LENGTH_DELIMITED);
+    static final int REMOTE_ENDPOINT = key(9, LENGTH_DELIMITED);
+    static final int ANNOTATIONS = key(10, LENGTH_DELIMITED);
+    static final int TAGS = key(11, LENGTH_DELIMITED);
+    static final int DEBUG = key(12, VARINT);
+    static final int SHARED = key(13, VARINT);
+    // Endpoint
+    static final int SERVICE_NAME = key(1, LENGTH_DELIMITED);
+    static final int IPV4 = key(2, LENGTH_DELIMITED);
+    static final int IPV6 = key(3, LENGTH_DELIMITED);
+    static final int PORT = key(4, VARINT);
+    // Annotation
+    static final int ANNOTATION_TIMESTAMP = key(1, FIXED64);
+    static final int ANNOTATION_VALUE = key(2, LENGTH_DELIMITED);
+    // tags map entry
+    static final int ENTRY_KEY = key(1, LENGTH_DELIMITED);
+    static final int ENTRY_VALUE = key(2, LENGTH_DELIMITED);
+
+    static final String TYPE_TAG = "type";
+    static final String SERVICE_TAG = "service";
+    static final String SYSTEM_TAG = "system";
+
+    final String type;
+    final GlobalExtrasSupplier extras;
+
+    public AgentV2SpanProto3Writer(String type, GlobalExtrasSupplier extras) {
+        this.type = type;
+        this.extras = extras;
+    }
+
+    public int sizeInBytes(ReportSpan span) {
+        return sizeOfLengthDelimited(sizeOfSpan(span));
+    }
+
+    public byte[] write(ReportSpan span) {
+        byte[] buf = new byte[sizeInBytes(span)];
+        write(span, buf, 0, buf.length);
+        return buf;
+    }
+
+    /**
+     * Writes the span into a batch buffer.
+     *
+     * @param sizeInBytes the {@link #sizeInBytes} of the span
+     */
+    public void write(ReportSpan span, byte[] buf, int pos, int sizeInBytes) {
+        // a one byte key, then the varint size of the span
+        int spanSize = sizeInBytes - 2;
+        while (1 + varintSizeInBytes(spanSize) + spanSize > sizeInBytes) {
+            spanSize--;
+        }
+        pos = writeVarint(buf, pos, SPANS);
+        pos = writeVarint(buf, pos, spanSize);
+        writeSpan(span, buf, pos);
+    }
+
+    int sizeOfSpan(ReportSpan span) {
+        int size = sizeOfId(span.traceId())
+            + sizeOfId(span.parentId())
+            + sizeOfId(span.id());
+        int kind = kind(span.kind());
+        if (kind != 0) {
+            size += 1 + varintSizeInBytes(kind);
+        }
+        size += sizeOfString(span.name());
+        if (span.timestamp() != 0L) {
+            size += 1 + 8;
+        }
+        if (span.duration() != 0L) {
+            size += 1 + varintSizeInBytes(span.duration());
+        }
+        size += sizeOfEndpointField(span.localEndpoint());
+        size += sizeOfEndpointField(span.remoteEndpoint());
+        List<Annotation> annotations = span.annotations();
+        if (annotations != null) {
+            for (Annotation annotation : annotations) {
+                size += sizeOfLengthDelimited(sizeOfAnnotation(annotation));
+            }
+        }
+        Map<String, String> tags = span.tags();
+        if (tags != null) {
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                size += sizeOfLengthDelimited(sizeOfEntry(tag.getKey(), tag.getValue()));
+            }
+        }
+        size += sizeOfGlobalTag(span, TYPE_TAG, type);
+        size += sizeOfGlobalTag(span, SERVICE_TAG, extras.service());
+        size += sizeOfGlobalTag(span, SYSTEM_TAG, extras.system());
+        if (span.debug()) {
+            size += 2;
+        }
+        if (span.shared()) {
+            size += 2;
+        }
+        return size;
+    }
+
+    int writeSpan(ReportSpan span, byte[] buf, int pos) {
+        pos = writeId(buf, pos, TRACE_ID, span.traceId());
+        pos = writeId(buf, pos, PARENT_ID, span.parentId());
+        pos = writeId(buf, pos, ID, span.id());
+        int kind = kind(span.kind());
+        if (kind != 0) {
+            pos = writeVarint(buf, pos, KIND);
+            pos = writeVarint(buf, pos, kind);
+        }
+        pos = writeString(buf, pos, NAME, span.name());
+        if (span.timestamp() != 0L) {
+            pos = writeVarint(buf, pos, TIMESTAMP);
+            pos = writeLongLe(buf, pos, span.timestamp());
+        }
+        if (span.duration() != 0L) {
+            pos = writeVarint(buf, pos, DURATION);
+            pos = writeVarint(buf, pos, span.duration());
+        }
+        pos = writeEndpoint(buf, pos, LOCAL_ENDPOINT, span.localEndpoint());
+        pos = writeEndpoint(buf, pos, REMOTE_ENDPOINT, span.remoteEndpoint());
+        List<Annotation> annotations = span.annotations();
+        if (annotations != null) {
+            for (Annotation annotation : annotations) {
+                pos = writeVarint(buf, pos, ANNOTATIONS);
+                pos = writeVarint(buf, pos, sizeOfAnnotation(annotation));
+                pos = writeVarint(buf, pos, ANNOTATION_TIMESTAMP);
+                pos = writeLongLe(buf, pos, annotation.timestamp());
+                pos = writeString(buf, pos, ANNOTATION_VALUE, annotation.value());
+            }
+        }
+        Map<String, String> tags = span.tags();
+        if (tags != null) {
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                pos = writeEntry(buf, pos, tag.getKey(), tag.getValue());
+            }
+        }
+        pos = writeGlobalTag(span, buf, pos, TYPE_TAG, type);
+        pos = writeGlobalTag(span, buf, pos, SERVICE_TAG, extras.service());
+        pos = writeGlobalTag(span, buf, pos, SYSTEM_TAG, extras.system());
+        if (span.debug()) {
+            buf[pos++] = (byte) DEBUG;
+            buf[pos++] = 1;
+        }
+        if (span.shared()) {
+            buf[pos++] = (byte) SHARED;
+            buf[pos++] = 1;
+        }
+        return pos;
+    }
+
+    static int kind(String kind) {
+        if (kind == null) {
+            return 0;
+        }
+        switch (kind) {
+            case "CLIENT":
+                return 1;
+            case "SERVER":
+                return 2;
+            case "PRODUCER":
+                return 3;
+            case "CONSUMER":
+                return 4;
+            default:
+                return 0;
+        }
+    }
+
+    // ids
+
+    static int sizeOfId(String hex) {
+        int bytes = idBytes(hex);
+        return bytes == 0 ? 0 : 2 + bytes;
+    }
+
+    /**
+     * @return 8 or 16 for a valid lower hex id, 0 to skip the field
+     */
+    static int idBytes(String hex) {
+        if (hex == null || hex.isEmpty() || hex.length() > 32) {
+            return 0;
+        }
+        for (int i = 0; i < hex.length(); i++) {
+            if (decodeHex(hex.charAt(i)) < 0) {
+                return 0;
+            }
+        }
+        return hex.length() > 16 ? 16 : 8;
+    }
+
+    static int writeId(byte[] buf, int pos, int key, String hex) {
+        int bytes = idBytes(hex);
+        if (bytes == 0) {
+            return pos;
+        }
+        buf[pos++] = (byte) key;
+        buf[pos++] = (byte) bytes;
+        // right aligned, short ids are left padded with zeros
+        int end = pos + bytes;
+        int c = hex.length() - 1;
+        for (int i = end - 1; i >= pos; i--) {
+            int low = c >= 0 ? decodeHex(hex.charAt(c--)) : 0;
+            int high = c >= 0 ? decodeHex(hex.charAt(c--)) : 0;
+            buf[i] = (byte) ((high << 4) | low);
+        }
+        return end;
+    }
+
+    static int decodeHex(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    // endpoints
+
+    static int sizeOfEndpointField(Endpoint endpoint) {
+        int size = sizeOfEndpoint(endpoint);
+        return size == 0 ? 0 : sizeOfLengthDelimited(size);
+    }
+
+    static int sizeOfEndpoint(Endpoint endpoint) {
+        if (endpoint == null) {
+            return 0;
+        }
+        int size = sizeOfString(endpoint.serviceName());
+        if (ipv4(endpoint.ipv4()) != -1) {
+            size += 2 + 4;
+        }
+        byte[] ipv6 = ipv6(endpoint.ipv6());
+        if (ipv6 != null) {
+            size += 2 + ipv6.length;
+        }
+        if (endpoint.port() != 0) {
+            size += 1 + varintSizeInBytes(endpoint.port());
+        }
+        return size;
+    }
+
+    static int writeEndpoint(byte[] buf, int pos, int key, Endpoint endpoint) {
+        int size = sizeOfEndpoint(endpoint);
+        if (size == 0) {
+            return pos;
+        }
+        pos = writeVarint(buf, pos, key);
+        pos = writeVarint(buf, pos, size);
+        pos = writeString(buf, pos, SERVICE_NAME, endpoint.serviceName());
+        long ipv4 = ipv4(endpoint.ipv4());
+        if (ipv4 != -1) {
+            buf[pos++] = (byte) IPV4;
+            buf[pos++] = 4;
+            buf[pos++] = (byte) (ipv4 >> 24);
+            buf[pos++] = (byte) (ipv4 >> 16);
+            buf[pos++] = (byte) (ipv4 >> 8);
+            buf[pos++] = (byte) ipv4;
+        }
+        byte[] ipv6 = ipv6(endpoint.ipv6());
+        if (ipv6 != null) {
+            buf[pos++] = (byte) IPV6;
+            buf[pos++] = (byte) ipv6.length;
+            System.arraycopy(ipv6, 0, buf, pos, ipv6.length);
+            pos += ipv6.length;
+        }
+        if (endpoint.port() != 0) {
+            pos = writeVarint(buf, pos, PORT);
+            pos = writeVarint(buf, pos, endpoint.port());
+        }
+        return pos;
+    }
+
+    /**
+     * @return the address as an unsigned int, -1 when it is not a dotted quad
+     */
+    static long ipv4(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return -1;
+        }
+        long address = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c == '.') {
+                if (octet < 0 || ++dots > 3) {
+                    return -1;
+                }
+                address = (address << 8) | octet;
+                octet = -1;
+            } else if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else {
+                return -1;
+            }
+        }
+        if (octet < 0 || dots != 3) {
+            return -1;
+        }
+        return (address << 8) | octet;
+    }
+
+    static byte[] ipv6(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return null;
+        }
+        return zipkin2.Endpoint.newBuilder().ip(ip).build().ipv6Bytes();
+    }
+
+    // annotations and tags
+
+    static int sizeOfAnnotation(Annotation annotation) {
+        return 1 + 8 + sizeOfString(annotation.value());
+    }
+
+    static int sizeOfEntry(String key, String value) {
+        return sizeOfString(key) + sizeOfString(value);
+    }
+
+    static int writeEntry(byte[] buf, int pos, String key, String value) {
+        pos = writeVarint(buf, pos, TAGS);
+        pos = writeVarint(buf, pos, sizeOfEntry(key, value));
+        pos = writeString(buf, pos, ENTRY_KEY, key);
+        return writeString(buf, pos, ENTRY_VALUE, value);
+    }
+
+    static boolean hasGlobalTag(ReportSpan span, String key, String value) {
+        return TextUtils.hasText(value) && (span.tags() == null || !span.tags().containsKey(key));
+    }
+
+    static int sizeOfGlobalTag(ReportSpan span, String key, String value) {
+        return hasGlobalTag(span, key, value) ? sizeOfLengthDelimited(sizeOfEntry(key, value)) : 0;
+    }
+
+    static int writeGlobalTag(ReportSpan span, byte[] buf, int pos, String key, String value) {
+        return hasGlobalTag(span, key, value) ? writeEntry(buf, pos, key, value) : pos;
+    }
+
+    // primitives
+
+    static int key(int fieldNumber, int wireType) {
+        return (fieldNumber << 3) | wireType;
+    }
+
+    static int sizeOfLengthDelimited(int size) {
+        return 1 + varintSizeInBytes(size) + size;
+    }
+
+    static int sizeOfString(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        return sizeOfLengthDelimited(WriteBuffer.utf8SizeInBytes(value));
+    }
+
+    static int varintSizeInBytes(long v) {
+        return WriteBuffer.varintSizeInBytes(v);
+    }
+
+    static int writeString(byte[] buf, int pos, int key, String value) {
+        if (value == null || value.isEmpty()) {
+            return pos;
+        }
+        pos = writeVarint(buf, pos, key);
+        pos = writeVarint(buf, pos, WriteBuffer.utf8SizeInBytes(value));
+        return writeUtf8(buf, pos, value);
+    }
+
+    static int writeVarint(byte[] buf, int pos, long v) {
+        while ((v & ~0x7fL) != 0) {
+            buf[pos++] = (byte) ((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+        return pos;
+    }
+
+    static int writeLongLe(byte[] buf, int pos, long v) {
+        for (int i = 0; i < 8; i++) {
+            buf[pos++] = (byte) (v >> (i * 8));
+        }
+        return pos;
+    }
+
+    /**
+     * Same output as {@link WriteBuffer#writeUtf8(CharSequence)}, malformed surrogates are written as '?'.
+     */
+    static int writeUtf8(byte[] buf, int pos, String value) {
+        int len = value.length();
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xc0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+                buf[pos++] = (byte) (0xe0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buf[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else {
+                char low = i + 1 < len ? value.charAt(i + 1) : 0;
+                if (c > Character.MAX_HIGH_SURROGATE || !Character.isLowSurrogate(low)) {
+                    buf[pos++] = '?';
+                } else {
+                    int codePoint = Character.toCodePoint(c, low);
+                    i++;
+                    buf[pos++] = (byte) (0xf0 | (codePoint >> 18));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    buf[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+                }
+            }
+        }
+        return pos;
+    }
+}
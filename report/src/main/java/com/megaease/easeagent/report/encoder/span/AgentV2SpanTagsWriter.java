@@ -24,6 +24,8 @@ import zipkin2.internal.WriteBuffer;
 import java.util.Iterator;
 import java.util.Map;
 
+import static com.megaease.easeagent.report.encoder.JsonStrings.writeEscaped;
+
 public class AgentV2SpanTagsWriter implements WriteBuffer.Writer<ReportSpan> {
     @Override
     public int sizeInBytes(ReportSpan value) {
@@ -53,9 +55,9 @@ public class AgentV2SpanTagsWriter implements WriteBuffer.Writer<ReportSpan> {
                 Map.Entry<String, String> entry = i.next();
 
                 b.writeByte('\"');
-                b.writeUtf8(JsonEscaper.jsonEscape(entry.getKey()));
+                writeEscaped(entry.getKey(), b);
                 b.writeAscii("\":\"");
-                b.writeUtf8(JsonEscaper.jsonEscape(entry.getValue()));
+                writeEscaped(entry.getValue(), b);
                 b.writeByte('\"');
                 if (i.hasNext()) {
                     b.writeByte(',');
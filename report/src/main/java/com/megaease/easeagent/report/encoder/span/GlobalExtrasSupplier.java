@@ -21,4 +21,29 @@ public interface GlobalExtrasSupplier {
     String service();
 
     String system();
+
+    /**
+     * @return the values read once, so an item is sized and written with the same service and system
+     * even when the config changes in between
+     */
+    default GlobalExtrasSupplier snapshot() {
+        final String service = service();
+        final String system = system();
+        return new GlobalExtrasSupplier() {
+            @Override
+            public String service() {
+                return service;
+            }
+
+            @Override
+            public String system() {
+                return system;
+            }
+
+            @Override
+            public GlobalExtrasSupplier snapshot() {
+                return this;
+            }
+        };
+    }
 }
@@ -27,17 +27,20 @@ import com.megaease.easeagent.plugin.report.Encoder;
 import com.megaease.easeagent.plugin.report.encoder.JsonEncoder;
 import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
 import com.megaease.easeagent.report.GlobalExtractor;
+import com.megaease.easeagent.report.encoder.BatchEncoder;
 import zipkin2.internal.JsonCodec;
+import zipkin2.internal.WriteBuffer;
 
 @AutoService(Encoder.class)
 @SuppressWarnings("unused")
-public class SpanJsonEncoder extends JsonEncoder<ReportSpan> {
+public class SpanJsonEncoder extends JsonEncoder<ReportSpan> implements BatchEncoder<ReportSpan> {
     public static final String ENCODER_NAME = ReportConfigConst.SPAN_JSON_ENCODER_NAME;
     AgentV2SpanWriter writer;
+    GlobalExtrasSupplier extrasSupplier;
 
     @Override
     public void init(Config config) {
-        GlobalExtrasSupplier extrasSupplier = GlobalExtractor.getInstance(EaseAgent.getConfig());
+        extrasSupplier = GlobalExtractor.getInstance(EaseAgent.getConfig());
         writer = new AgentV2SpanWriter(extrasSupplier);
     }
 
@@ -55,4 +58,39 @@ public class SpanJsonEncoder extends JsonEncoder<ReportSpan> {
     public EncodedData encode(ReportSpan span) {
         return new ByteWrapper(JsonCodec.write(writer, span));
     }
+
+    @Override
+    public void encodeTo(ReportSpan span, byte[] buf, int pos, int sizeInBytes) {
+        writer.write(span, WriteBuffer.wrap(buf, pos));
+    }
+
+    @Override
+    public EncodedData wrapBatch(byte[] batch) {
+        return new ByteWrapper(batch);
+    }
+
+    /**
+     * The service and system are written from a snapshot taken for the batch, each span is sized
+     * again with it, since they may have changed while the span was queued.
+     */
+    @Override
+    public BatchEncoder<ReportSpan> forBatch() {
+        AgentV2SpanWriter batchWriter = new AgentV2SpanWriter(extrasSupplier.snapshot());
+        return new BatchEncoder<ReportSpan>() {
+            @Override
+            public int flushSizeInBytes(ReportSpan input, int queuedSize) {
+                return batchWriter.sizeInBytes(input);
+            }
+
+            @Override
+            public void encodeTo(ReportSpan input, byte[] buf, int pos, int sizeInBytes) {
+                batchWriter.write(input, WriteBuffer.wrap(buf, pos));
+            }
+
+            @Override
+            public EncodedData wrapBatch(byte[] batch) {
+                return SpanJsonEncoder.this.wrapBatch(batch);
+            }
+        };
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder.span;
+
+import com.google.auto.service.AutoService;
+import com.megaease.easeagent.config.report.ReportConfigConst;
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.bridge.EaseAgent;
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.Encoder;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.GlobalExtractor;
+import com.megaease.easeagent.report.encoder.BatchEncoder;
+
+import java.util.List;
+
+/**
+ * zipkin proto3 span encoder, each encoded span is a ListOfSpans entry,
+ * so a list is the concatenation of its spans, and spans are written straight into the batch.
+ */
+@AutoService(Encoder.class)
+public class SpanProto3Encoder implements Encoder<ReportSpan>, BatchEncoder<ReportSpan> {
+    public static final String ENCODER_NAME = ReportConfigConst.SPAN_PROTO3_ENCODER_NAME;
+    static final String TYPE = "log-tracing";
+    AgentV2SpanProto3Writer writer;
+
+    @Override
+    public void init(Config config) {
+        GlobalExtrasSupplier extrasSupplier = GlobalExtractor.getInstance(EaseAgent.getConfig());
+        writer = new AgentV2SpanProto3Writer(TYPE, extrasSupplier);
+    }
+
+    @Override
+    public String name() {
+        return ENCODER_NAME;
+    }
+
+    @Override
+    public int sizeInBytes(ReportSpan input) {
+        return writer.sizeInBytes(input);
+    }
+
+    @Override
+    public EncodedData encode(ReportSpan span) {
+        return new ByteWrapper(writer.write(span));
+    }
+
+    @Override
+    public void encodeTo(ReportSpan span, byte[] buf, int pos, int sizeInBytes) {
+        writer.write(span, buf, pos, sizeInBytes);
+    }
+
+    @Override
+    public boolean jsonList() {
+        return false;
+    }
+
+    @Override
+    public EncodedData wrapBatch(byte[] batch) {
+        return new ByteWrapper(batch);
+    }
+
+    /**
+     * The service and system are written from a snapshot taken for the batch, each span is sized
+     * again with it, since they may have changed while the span was queued.
+     */
+    @Override
+    public BatchEncoder<ReportSpan> forBatch() {
+        AgentV2SpanProto3Writer batchWriter = new AgentV2SpanProto3Writer(writer.type, writer.extras.snapshot());
+        return new BatchEncoder<ReportSpan>() {
+            @Override
+            public int flushSizeInBytes(ReportSpan input, int queuedSize) {
+                return batchWriter.sizeInBytes(input);
+            }
+
+            @Override
+            public void encodeTo(ReportSpan input, byte[] buf, int pos, int sizeInBytes) {
+                batchWriter.write(input, buf, pos, sizeInBytes);
+            }
+
+            @Override
+            public boolean jsonList() {
+                return false;
+            }
+
+            @Override
+            public EncodedData wrapBatch(byte[] batch) {
+                return SpanProto3Encoder.this.wrapBatch(batch);
+            }
+        };
+    }
+
+    @Override
+    public EncodedData encodeList(List<EncodedData> encodedItems) {
+        int size = 0;
+        for (EncodedData item : encodedItems) {
+            size += item.size();
+        }
+        byte[] buf = new byte[size];
+        int pos = 0;
+        for (EncodedData item : encodedItems) {
+            byte[] v = item.getData();
+            System.arraycopy(v, 0, buf, pos, v.length);
+            pos += v.length;
+        }
+        return new ByteWrapper(buf);
+    }
+
+    @Override
+    public int packageSizeInBytes(List<Integer> sizes) {
+        int sizeInBytes = 0;
+        if (sizes != null) {
+            for (Integer size : sizes) {
+                sizeInBytes += size;
+            }
+        }
+        return sizeInBytes;
+    }
+
+    @Override
+    public int appendSizeInBytes(int newMsgSize) {
+        return newMsgSize;
+    }
+}
@@ -23,12 +23,13 @@ import com.megaease.easeagent.plugin.api.config.Config;
 import com.megaease.easeagent.plugin.report.EncodedData;
 import com.megaease.easeagent.plugin.report.Encoder;
 import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.encoder.BatchEncoder;
 import com.megaease.easeagent.report.encoder.span.SpanJsonEncoder;
 
 import java.util.List;
 
 @AutoService(Encoder.class)
-public class HttpSpanJsonEncoder implements Encoder<ReportSpan> {
+public class HttpSpanJsonEncoder implements Encoder<ReportSpan>, BatchEncoder<ReportSpan> {
     public static final String ENCODER_NAME = ReportConfigConst.HTTP_SPAN_JSON_ENCODER_NAME;
     SpanJsonEncoder encoder;
 
@@ -68,4 +69,35 @@ public class HttpSpanJsonEncoder implements Encoder<ReportSpan> {
     public int packageSizeInBytes(List<Integer> sizes) {
         return this.encoder.packageSizeInBytes(sizes);
     }
+
+    @Override
+    public void encodeTo(ReportSpan input, byte[] buf, int pos, int sizeInBytes) {
+        this.encoder.encodeTo(input, buf, pos, sizeInBytes);
+    }
+
+    @Override
+    public BatchEncoder<ReportSpan> forBatch() {
+        BatchEncoder<ReportSpan> batchEncoder = this.encoder.forBatch();
+        return new BatchEncoder<ReportSpan>() {
+            @Override
+            public int flushSizeInBytes(ReportSpan input, int queuedSize) {
+                return batchEncoder.flushSizeInBytes(input, queuedSize);
+            }
+
+            @Override
+            public void encodeTo(ReportSpan input, byte[] buf, int pos, int sizeInBytes) {
+                batchEncoder.encodeTo(input, buf, pos, sizeInBytes);
+            }
+
+            @Override
+            public EncodedData wrapBatch(byte[] batch) {
+                return HttpSpanJsonEncoder.this.wrapBatch(batch);
+            }
+        };
+    }
+
+    @Override
+    public EncodedData wrapBatch(byte[] batch) {
+        return new OkHttpJsonRequestBody(batch);
+    }
 }
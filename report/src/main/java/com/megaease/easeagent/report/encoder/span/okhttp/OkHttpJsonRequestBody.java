@@ -39,7 +39,7 @@ public class OkHttpJsonRequestBody extends RequestBody implements EncodedData {
 
     @Override
     public byte[] getData() {
-        return new byte[0];
+        return this.data;
     }
 
     public OkHttpJsonRequestBody(byte[] data) {
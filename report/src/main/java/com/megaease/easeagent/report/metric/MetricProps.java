@@ -42,6 +42,11 @@ public interface MetricProps {
 
     String getTopic();
 
+    /**
+     * @return the kafka partition of the topic records are sent to, null to let the producer choose
+     */
+    Integer getPartition();
+
     int getInterval();
 
     boolean isEnabled();
@@ -62,6 +67,7 @@ public interface MetricProps {
 
         // for kafka sender
         private final String topic;
+        private final Integer partition;
         private final String name;
 
         private int interval;
@@ -89,6 +95,7 @@ public interface MetricProps {
                 getDefaultAppender(reportConfig.getConfigs()));
 
             this.topic = NoNull.of(pCfg.get(join(senderPrefix, TOPIC_KEY)), Const.METRIC_DEFAULT_TOPIC);
+            this.partition = partition(pCfg.get(join(senderPrefix, PARTITION_KEY)));
 
             if (pCfg.get(join(asyncPrefix, INTERVAL_KEY)) != null) {
                 try {
@@ -115,6 +122,7 @@ public interface MetricProps {
             this.enabled = this.config.getBoolean(join(this.senderPrefix, ENABLED_KEY));
             this.senderName = this.config.getString(join(this.senderPrefix, APPEND_TYPE_KEY));
             this.topic = this.config.getString(join(this.senderPrefix, TOPIC_KEY));
+            this.partition = partition(this.config.getString(join(this.senderPrefix, PARTITION_KEY)));
             this.interval = this.config.getInt(join(this.asyncPrefix, INTERVAL_KEY));
 
             checkSenderName();
@@ -152,6 +160,11 @@ public interface MetricProps {
             return this.topic;
         }
 
+        @Override
+        public Integer getPartition() {
+            return this.partition;
+        }
+
         @Override
         public boolean isEnabled() {
             return this.enabled;
@@ -187,6 +200,18 @@ public interface MetricProps {
             return "reporter.metric." + this.name + ".sender";
         }
 
+        private static Integer partition(String value) {
+            if (StringUtils.isEmpty(value)) {
+                return null;
+            }
+            try {
+                int partition = Integer.parseInt(value.trim());
+                return partition < 0 ? null : partition;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
         private static String getEncoderKey(String cfgPrefix) {
             return StringUtils.replaceSuffix(cfgPrefix, ENCODER_KEY);
         }
@@ -74,7 +74,7 @@ public class AgentKafkaSender implements Sender {
             .bootstrapServers(outputServer)
             .topic(this.topic)
             .overrides(ssl)
-            .encoding(Encoding.JSON)
+            .encoding(encoding(config))
             .messageMaxBytes(msgMaxBytes)
             .build());
     }
@@ -131,6 +131,11 @@ public class AgentKafkaSender implements Sender {
         }
     }
 
+    private Encoding encoding(Config config) {
+        String encoder = config.getString(StringUtils.replaceSuffix(this.prefix, ENCODER_KEY));
+        return SPAN_PROTO3_ENCODER_NAME.equals(encoder) ? Encoding.PROTO3 : Encoding.JSON;
+    }
+
     private boolean checkEnable(Config config) {
         boolean check = config.getBoolean(join(this.prefix, ENABLED_KEY), true);
         if (check) {
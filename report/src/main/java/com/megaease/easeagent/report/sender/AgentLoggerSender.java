@@ -86,7 +86,12 @@ public class AgentLoggerSender implements Sender {
 
         @Override
         public void enqueue(Callback<Void> cb) {
-            LOGGER.debug("{}", new String(msg));
+            try {
+                LOGGER.debug("{}", new String(msg));
+                cb.onSuccess(null);
+            } catch (Throwable e) {
+                cb.onError(e);
+            }
         }
     }
 }
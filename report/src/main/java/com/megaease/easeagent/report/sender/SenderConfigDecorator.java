@@ -22,6 +22,7 @@ import com.megaease.easeagent.plugin.api.config.ChangeItem;
 import com.megaease.easeagent.plugin.api.config.Config;
 import com.megaease.easeagent.plugin.api.config.ConfigChangeListener;
 import com.megaease.easeagent.plugin.report.*;
+import com.megaease.easeagent.report.encoder.PackedMessage.PackedItems;
 import com.megaease.easeagent.report.plugin.ReporterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
@@ -75,7 +76,9 @@ public class SenderConfigDecorator
 
     @Override
     public Call<Void> send(List<EncodedData> encodedData) {
-        EncodedData data = this.packer.encodeList(encodedData);
+        EncodedData data = encodedData instanceof PackedItems
+            ? ((PackedItems) encodedData).packed()
+            : this.packer.encodeList(encodedData);
         if (log.isDebugEnabled()) {
             log.debug(new String(data.getData()));
         }
@@ -44,7 +44,12 @@ public class ZipkinCallWrapper<V> implements Call<V> {
     @Override
     public void enqueue(Callback<V> cb) {
         zipkin2.Callback<V> zCb = new ZipkinCallbackWrapper<>(cb);
-        this.call.enqueue(zCb);
+        try {
+            this.call.enqueue(zCb);
+        } catch (RuntimeException e) {
+            // a call that is already executed or canceled throws instead of completing the callback
+            cb.onError(e);
+        }
     }
 
     static class ZipkinCallbackWrapper<V> implements zipkin2.Callback<V> {
@@ -31,15 +31,31 @@ import com.megaease.easeagent.report.sender.metric.log4j.AppenderManager;
 import com.megaease.easeagent.report.sender.metric.log4j.LoggerFactory;
 import com.megaease.easeagent.report.sender.metric.log4j.RefreshableAppender;
 import com.megaease.easeagent.report.util.Utils;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.logging.log4j.core.Logger;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 
 @AutoService(Sender.class)
 public class MetricKafkaSender implements Sender {
     public static final String SENDER_NAME = ReportConfigConst.METRIC_KAFKA_SENDER_NAME;
+    private static final com.megaease.easeagent.log4j2.Logger LOGGER =
+        com.megaease.easeagent.log4j2.LoggerFactory.getLogger(MetricKafkaSender.class);
+    private static final int ERROR_LOG_INTERVAL = 1000;
+    private static final LongAdder SEND_ERRORS = new LongAdder();
+    // acks=0 gets no response from the server, but records which could not be sent still complete with an error
+    private static final Callback SEND_CALLBACK = (metadata, exception) -> {
+        if (exception != null) {
+            sendFailed(exception);
+        }
+    };
     private static volatile AppenderManager appenderManager;
+    private static volatile MetricProducerManager producerManager;
 
     private OutputProperties outputProperties;
     private MetricProps props;
@@ -58,10 +74,25 @@ public class MetricKafkaSender implements Sender {
         this.outputProperties = Utils.extractOutputProperties(config);
         this.props = MetricProps.newDefault(config, prefix);
         initAppenderManager();
+        initProducerManager(config);
     }
 
     @Override
     public Call<Void> send(EncodedData encodedData) {
+        if (!this.props.isEnabled()) {
+            return new NoOpCall<>();
+        }
+        Producer<byte[], byte[]> producer = producerManager.producer();
+        if (producer != null) {
+            try {
+                producer.send(new ProducerRecord<>(this.props.getTopic(), this.props.getPartition(), null,
+                    encodedData.getData()), SEND_CALLBACK);
+            } catch (Exception e) {
+                sendFailed(e);
+            }
+            return new NoOpCall<>();
+        }
+        // no kafka server, falls back to the console appender
         lazyInitLogger();
         String msg = new String(encodedData.getData());
         logger.info(msg);
@@ -78,20 +109,24 @@ public class MetricKafkaSender implements Sender {
         if (Utils.isOutputPropertiesChange(changes)
             && this.outputProperties.updateConfig(changes)) {
             appenderManager.refresh();
+            producerManager.refresh();
         }
-        // check topic
+        // check topic and partition
         Map<String, String> cfg = this.props.asReportConfig().getConfigs();
         cfg.putAll(changes);
         MetricProps nProps = MetricProps.newDefault(new GlobalConfigs(cfg), this.prefix);
-        if (!nProps.getTopic().equals(this.props.getTopic())) {
-            try {
-                this.close();
-            } catch (IOException e) {
-                // ignored
+        boolean topicChanged = !nProps.getTopic().equals(this.props.getTopic());
+        if (topicChanged || !Objects.equals(nProps.getPartition(), this.props.getPartition())) {
+            // the shared producer takes the topic of each record, only the console appender is bound to a topic
+            if (topicChanged && this.logger != null) {
+                try {
+                    this.close();
+                } catch (IOException e) {
+                    // ignored
+                }
+                this.logger = null;
             }
             this.props = nProps;
-            this.logger = null;
-            lazyInitLogger();
         }
         // check enabled
     }
@@ -113,6 +148,39 @@ public class MetricKafkaSender implements Sender {
         }
     }
 
+    private void initProducerManager(Config config) {
+        if (producerManager != null) {
+            return;
+        }
+        synchronized (MetricKafkaSender.class) {
+            if (producerManager != null) {
+                return;
+            }
+            producerManager = MetricProducerManager.create(this.outputProperties,
+                config.getInt(ReportConfigConst.METRIC_KAFKA_LINGER_MS, MetricProducerManager.DEFAULT_LINGER_MS),
+                config.getInt(ReportConfigConst.METRIC_KAFKA_BATCH_SIZE, MetricProducerManager.DEFAULT_BATCH_SIZE));
+        }
+    }
+
+    static void setProducerManager(MetricProducerManager manager) {
+        producerManager = manager;
+    }
+
+    /**
+     * @return count of the metric records the shared producer failed to send
+     */
+    public static long getSendErrors() {
+        return SEND_ERRORS.sum();
+    }
+
+    private static void sendFailed(Exception e) {
+        SEND_ERRORS.increment();
+        long errors = SEND_ERRORS.sum();
+        if (errors % ERROR_LOG_INTERVAL == 1) {
+            LOGGER.warn("send metric to kafka fail, {} records failed so far, error: {}", errors, e.getMessage());
+        }
+    }
+
     private void lazyInitLogger() {
         if (logger != null) {
             return;
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender.metric;
+
+import com.megaease.easeagent.log4j2.Logger;
+import com.megaease.easeagent.log4j2.LoggerFactory;
+import com.megaease.easeagent.report.OutputProperties;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.config.SslConfigs;
+import org.apache.kafka.common.security.auth.SecurityProtocol;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+
+import java.time.Duration;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * One batched kafka producer shared by the metric senders of all topics,
+ * the encoded metric bytes are used as the record value as they are.
+ */
+public interface MetricProducerManager {
+    int DEFAULT_LINGER_MS = 100;
+    int DEFAULT_BATCH_SIZE = 64 * 1024;
+
+    /**
+     * @return null when there is no kafka server configured
+     */
+    Producer<byte[], byte[]> producer();
+
+    /**
+     * close the producer, the next {@link #producer()} creates it with current properties
+     */
+    void refresh();
+
+    static MetricProducerManager create(OutputProperties outputProperties, int lingerMs, int batchSize) {
+        return new DefaultMetricProducerManager(outputProperties, lingerMs, batchSize);
+    }
+
+    static MetricProducerManager create(Supplier<Producer<byte[], byte[]>> provider) {
+        return new DefaultMetricProducerManager(provider);
+    }
+
+    final class DefaultMetricProducerManager implements MetricProducerManager {
+        private static final Logger LOGGER = LoggerFactory.getLogger(DefaultMetricProducerManager.class);
+
+        private final Supplier<Producer<byte[], byte[]>> provider;
+        private volatile Producer<byte[], byte[]> producer;
+        private volatile boolean created;
+
+        private DefaultMetricProducerManager(OutputProperties outputProperties, int lingerMs, int batchSize) {
+            ClassLoader initClassLoader = Thread.currentThread().getContextClassLoader();
+            this.provider = () -> {
+                ClassLoader old = Thread.currentThread().getContextClassLoader();
+                Thread.currentThread().setContextClassLoader(initClassLoader);
+                try {
+                    return newProducer(outputProperties, lingerMs, batchSize);
+                } finally {
+                    Thread.currentThread().setContextClassLoader(old);
+                }
+            };
+        }
+
+        private DefaultMetricProducerManager(Supplier<Producer<byte[], byte[]>> provider) {
+            this.provider = provider;
+        }
+
+        @Override
+        public Producer<byte[], byte[]> producer() {
+            if (created) {
+                return producer;
+            }
+            synchronized (this) {
+                if (!created) {
+                    producer = provider.get();
+                    created = true;
+                }
+                return producer;
+            }
+        }
+
+        @Override
+        public synchronized void refresh() {
+            Producer<byte[], byte[]> old = this.producer;
+            this.producer = null;
+            this.created = false;
+            if (old != null) {
+                try {
+                    old.close(Duration.ZERO);
+                } catch (Exception e) {
+                    //
+                }
+            }
+        }
+
+        private static Producer<byte[], byte[]> newProducer(OutputProperties outputProperties, int lingerMs, int batchSize) {
+            if (StringUtils.isEmpty(outputProperties.getServers())) {
+                return null;
+            }
+            try {
+                Properties properties = new Properties();
+                properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, outputProperties.getServers());
+                properties.put(ProducerConfig.CLIENT_ID_CONFIG, "easeagent_metric");
+                properties.put(ProducerConfig.ACKS_CONFIG, "0");
+                properties.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+                properties.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+                if (StringUtils.isNumeric(outputProperties.getTimeout())) {
+                    properties.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, outputProperties.getTimeout());
+                }
+                if (SecurityProtocol.SSL.name.equals(outputProperties.getSecurityProtocol())) {
+                    properties.put(CommonClientConfigs.SECURITY_PROTOCOL_CONFIG, outputProperties.getSecurityProtocol());
+                    properties.put(SslConfigs.SSL_KEYSTORE_TYPE_CONFIG, outputProperties.getSSLKeyStoreType());
+                    properties.put(SslConfigs.SSL_KEYSTORE_KEY_CONFIG, outputProperties.getKeyStoreKey());
+                    properties.put(SslConfigs.SSL_KEYSTORE_CERTIFICATE_CHAIN_CONFIG, outputProperties.getKeyStoreCertChain());
+                    properties.put(SslConfigs.SSL_TRUSTSTORE_CERTIFICATES_CONFIG, outputProperties.getTrustCertificate());
+                    properties.put(SslConfigs.SSL_TRUSTSTORE_TYPE_CONFIG, outputProperties.getTrustCertificateType());
+                    properties.put(SslConfigs.SSL_ENDPOINT_IDENTIFICATION_ALGORITHM_CONFIG, outputProperties.getEndpointAlgorithm());
+                }
+                return new KafkaProducer<>(properties, new ByteArraySerializer(), new ByteArraySerializer());
+            } catch (Exception e) {
+                LOGGER.warn("can not create metric kafka producer, error: {}", e.getMessage(), e);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender.okhttp;
+
+import com.megaease.easeagent.plugin.report.Call;
+import com.megaease.easeagent.plugin.report.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Sends a message to the endpoint chosen by the {@link HttpEndpointBalancer}, and once more to another
+ * endpoint when it fails. The request bodies are held in memory, so they can be written twice.
+ */
+final class BalancedHttpCall implements Call<Void> {
+    final HttpEndpointBalancer balancer;
+    final Function<HttpEndpoint, Request> newRequest;
+    final HttpEndpoint first;
+
+    BalancedHttpCall(HttpEndpointBalancer balancer, Function<HttpEndpoint, Request> newRequest, HttpEndpoint first) {
+        this.balancer = balancer;
+        this.newRequest = newRequest;
+        this.first = first;
+    }
+
+    @Override
+    public Void execute() throws IOException {
+        try {
+            execute(first);
+        } catch (IOException e) {
+            HttpEndpoint failover = balancer.choose(first);
+            if (failover == null) {
+                throw e;
+            }
+            execute(failover);
+        }
+        return null;
+    }
+
+    private void execute(HttpEndpoint endpoint) throws IOException {
+        long start = System.nanoTime();
+        endpoint.inFlight.incrementAndGet();
+        try (Response response = endpoint.client.newCall(newRequest.apply(endpoint)).execute()) {
+            HttpCall.parseResponse(response);
+            balancer.onSuccess(endpoint, System.nanoTime() - start);
+        } catch (IOException e) {
+            balancer.onFailure(endpoint);
+            throw e;
+        } finally {
+            endpoint.inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void enqueue(Callback<Void> delegate) {
+        enqueue(first, true, delegate);
+    }
+
+    private void enqueue(HttpEndpoint endpoint, boolean failover, Callback<Void> delegate) {
+        long start = System.nanoTime();
+        endpoint.inFlight.incrementAndGet();
+        endpoint.client.newCall(newRequest.apply(endpoint)).enqueue(new okhttp3.Callback() {
+            @Override
+            public void onFailure(@Nonnull okhttp3.Call call, @Nonnull IOException e) {
+                failed(e);
+            }
+
+            @Override
+            public void onResponse(@Nonnull okhttp3.Call call, @Nonnull Response response) {
+                try (Response r = response) {
+                    HttpCall.parseResponse(r);
+                } catch (IOException e) {
+                    failed(e);
+                    return;
+                }
+                endpoint.inFlight.decrementAndGet();
+                balancer.onSuccess(endpoint, System.nanoTime() - start);
+                delegate.onSuccess(null);
+            }
+
+            private void failed(IOException e) {
+                endpoint.inFlight.decrementAndGet();
+                balancer.onFailure(endpoint);
+                HttpEndpoint next = failover ? balancer.choose(endpoint) : null;
+                if (next == null) {
+                    delegate.onError(e);
+                } else {
+                    enqueue(next, false, delegate);
+                }
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "BalancedHttpCall(" + first + ")";
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender.okhttp;
+
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.xxhash.XXHashFactory;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compresses the wrapped body while OkHttp writes it to the socket, so a batch is never held a
+ * second time in compressed form. The length is unknown up front and the body goes out chunked.
+ * <p>
+ * {@link #LZ4} is not a registered Content-Encoding, it is only sent when lz4Enabled is set for a
+ * collector which decodes the LZ4 frame format.
+ */
+public class CompressedRequestBody extends RequestBody {
+    public static final String GZIP = "gzip";
+    public static final String LZ4 = "lz4";
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private final RequestBody body;
+    private final String encoding;
+
+    CompressedRequestBody(RequestBody body, String encoding) {
+        this.body = body;
+        this.encoding = encoding;
+    }
+
+    /**
+     * @param type configured compressionType
+     * @param lz4Enabled whether the collector accepts the non-standard lz4 encoding
+     * @return {@link #LZ4} only when it is configured and enabled, otherwise {@link #GZIP}
+     */
+    static String encodingOf(String type, boolean lz4Enabled) {
+        return lz4Enabled && LZ4.equalsIgnoreCase(type) ? LZ4 : GZIP;
+    }
+
+    /**
+     * @return the value for the Content-Encoding header
+     */
+    public String encoding() {
+        return encoding;
+    }
+
+    @Nullable
+    @Override
+    public MediaType contentType() {
+        return body.contentType();
+    }
+
+    @Override
+    public long contentLength() {
+        return -1L;
+    }
+
+    @Override
+    public void writeTo(@NotNull BufferedSink sink) throws IOException {
+        // the streams below must not close the socket sink
+        OutputStream out = new FilterOutputStream(sink.outputStream()) {
+            @Override
+            public void write(@NotNull byte[] b, int off, int len) throws IOException {
+                this.out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        if (LZ4.equals(encoding)) {
+            writeLz4(out);
+        } else {
+            writeGzip(out);
+        }
+    }
+
+    private void writeGzip(OutputStream out) throws IOException {
+        // a deflater holds native memory until end(), which must not wait for the finalizer
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            out.write(GZIP_HEADER);
+            CRC32 crc = new CRC32();
+            DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+            CheckedOutputStream checked = new CheckedOutputStream(deflated, crc);
+            BufferedSink source = Okio.buffer(Okio.sink(checked));
+            body.writeTo(source);
+            source.flush();
+            deflated.finish();
+            writeIntLe(out, (int) crc.getValue());
+            writeIntLe(out, (int) deflater.getBytesRead());
+            out.flush();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeLz4(OutputStream out) throws IOException {
+        // pure java instances, the agent must not load native code into the application
+        LZ4FrameOutputStream lz4 = new LZ4FrameOutputStream(out, LZ4FrameOutputStream.BLOCKSIZE.SIZE_64KB, -1L,
+            LZ4Factory.fastestJavaInstance().fastCompressor(),
+            XXHashFactory.fastestJavaInstance().hash32(),
+            LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE);
+        BufferedSink source = Okio.buffer(Okio.sink(lz4));
+        body.writeTo(source);
+        // writes the end mark, out only flushes on close
+        source.close();
+    }
+
+    private static void writeIntLe(OutputStream out, int v) throws IOException {
+        out.write(v & 0xff);
+        out.write((v >>> 8) & 0xff);
+        out.write((v >>> 16) & 0xff);
+        out.write((v >>> 24) & 0xff);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender.okhttp;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A collector endpoint with its own client, so its own connection pool, and its health.
+ * The health fields are guarded by the {@link HttpEndpointBalancer}.
+ */
+final class HttpEndpoint {
+    final HttpUrl url;
+    final OkHttpClient client;
+    final AtomicInteger inFlight = new AtomicInteger();
+
+    int failures;
+    int samples;
+    double latencyNanos;
+    // System.nanoTime() the ejection ends at, only meaningful while ejected
+    long ejectedUntil;
+    long ejectNanos;
+    boolean ejected;
+    boolean probing;
+    // a probe not answered by then is taken as lost, the call may never have been executed
+    long probeExpires;
+
+    HttpEndpoint(HttpUrl url, OkHttpClient client) {
+        this.url = url;
+        this.client = client;
+    }
+
+    @Override
+    public String toString() {
+        return url.toString();
+    }
+}
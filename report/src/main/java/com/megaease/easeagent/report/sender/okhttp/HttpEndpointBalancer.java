@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender.okhttp;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Spreads messages over collector endpoints and ejects unhealthy ones for a while.
+ * <ul>
+ *     <li>{@link #POWER_OF_TWO_CHOICES} picks two random endpoints and sends to the one with fewer
+ *     requests in flight, {@link #LEAST_IN_FLIGHT} scans all of them.</li>
+ *     <li>An endpoint is ejected after {@code ejectFailures} failures in a row, or when its latency is
+ *     several times the latency of the others.</li>
+ *     <li>Once the ejection time passed, a single message probes the endpoint: success brings it back,
+ *     failure ejects it again for twice as long. A probe without an answer for as long as the ejection
+ *     lasted is taken as lost, and the next message probes again.</li>
+ *     <li>When every endpoint is ejected, the one coming back first is used anyway.</li>
+ * </ul>
+ * It is called once per message, so it simply synchronizes.
+ */
+@Slf4j
+final class HttpEndpointBalancer {
+    static final String POWER_OF_TWO_CHOICES = "p2c";
+    static final String LEAST_IN_FLIGHT = "leastInFlight";
+
+    static final long MAX_EJECT_NANOS = TimeUnit.MINUTES.toNanos(5);
+    static final double LATENCY_WEIGHT = 0.2;
+    static final double LATENCY_OUTLIER = 4;
+    static final int LATENCY_MIN_SAMPLES = 5;
+    // below it a collector is fast enough whatever the others do, and jitter ejects nothing
+    static final long LATENCY_OUTLIER_MIN_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    final List<HttpEndpoint> endpoints;
+    private final boolean leastInFlight;
+    private final int ejectFailures;
+    private final long ejectNanos;
+    private final LongSupplier clock;
+    private int next;
+
+    HttpEndpointBalancer(List<HttpEndpoint> endpoints, String strategy, int ejectFailures, long ejectNanos) {
+        this(endpoints, strategy, ejectFailures, ejectNanos, System::nanoTime);
+    }
+
+    HttpEndpointBalancer(List<HttpEndpoint> endpoints, String strategy, int ejectFailures, long ejectNanos,
+                         LongSupplier clock) {
+        this.endpoints = endpoints;
+        this.leastInFlight = LEAST_IN_FLIGHT.equalsIgnoreCase(strategy);
+        this.ejectFailures = Math.max(1, ejectFailures);
+        this.ejectNanos = ejectNanos;
+        this.clock = clock;
+    }
+
+    /**
+     * @param exclude an endpoint not to choose, the one that just failed when failing over
+     * @return null only when {@code exclude} is the only endpoint
+     */
+    synchronized HttpEndpoint choose(HttpEndpoint exclude) {
+        long now = clock.getAsLong();
+        List<HttpEndpoint> candidates = new ArrayList<>(endpoints.size());
+        for (HttpEndpoint endpoint : endpoints) {
+            if (endpoint != exclude && isAvailable(endpoint, now)) {
+                candidates.add(endpoint);
+            }
+        }
+        HttpEndpoint chosen;
+        if (candidates.isEmpty()) {
+            chosen = firstBack(exclude);
+        } else if (leastInFlight || candidates.size() <= 2) {
+            chosen = least(candidates);
+        } else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int i = random.nextInt(candidates.size());
+            int j = random.nextInt(candidates.size() - 1);
+            if (j >= i) {
+                j++;
+            }
+            chosen = better(candidates.get(i), candidates.get(j));
+        }
+        if (chosen != null && chosen.ejected) {
+            chosen.probing = true;
+            chosen.probeExpires = now + chosen.ejectNanos;
+        }
+        return chosen;
+    }
+
+    synchronized void onSuccess(HttpEndpoint endpoint, long latencyNanos) {
+        endpoint.failures = 0;
+        endpoint.samples++;
+        endpoint.latencyNanos = endpoint.samples == 1 ? latencyNanos
+            : endpoint.latencyNanos + LATENCY_WEIGHT * (latencyNanos - endpoint.latencyNanos);
+        if (endpoint.ejected) {
+            endpoint.ejected = false;
+            endpoint.probing = false;
+            endpoint.ejectNanos = 0;
+            log.info("Collector endpoint {} is back", endpoint);
+        } else if (endpoint.samples >= LATENCY_MIN_SAMPLES && isLatencyOutlier(endpoint)) {
+            eject(endpoint, "slow responses");
+        }
+    }
+
+    synchronized void onFailure(HttpEndpoint endpoint) {
+        endpoint.failures++;
+        if (endpoint.ejected) {
+            eject(endpoint, "failed probe");
+        } else if (endpoint.failures >= ejectFailures) {
+            eject(endpoint, endpoint.failures + " failures");
+        }
+    }
+
+    private static boolean isAvailable(HttpEndpoint endpoint, long now) {
+        return !endpoint.ejected || (now - endpoint.ejectedUntil >= 0
+            && (!endpoint.probing || now - endpoint.probeExpires >= 0));
+    }
+
+    private HttpEndpoint least(List<HttpEndpoint> candidates) {
+        // rotate the start, so ties are taken in turn
+        int start = next++ % candidates.size();
+        HttpEndpoint chosen = candidates.get(start);
+        for (int i = 1; i < candidates.size(); i++) {
+            chosen = better(chosen, candidates.get((start + i) % candidates.size()));
+        }
+        return chosen;
+    }
+
+    // ties go to the first, which is random or rotating, so an idle reporter still spreads its messages
+    private static HttpEndpoint better(HttpEndpoint a, HttpEndpoint b) {
+        return b.inFlight.get() < a.inFlight.get() ? b : a;
+    }
+
+    private HttpEndpoint firstBack(HttpEndpoint exclude) {
+        HttpEndpoint chosen = null;
+        for (HttpEndpoint endpoint : endpoints) {
+            if (endpoint != exclude && (chosen == null || endpoint.ejectedUntil - chosen.ejectedUntil < 0)) {
+                chosen = endpoint;
+            }
+        }
+        return chosen;
+    }
+
+    private boolean isLatencyOutlier(HttpEndpoint endpoint) {
+        if (endpoint.latencyNanos < LATENCY_OUTLIER_MIN_NANOS) {
+            return false;
+        }
+        double total = 0;
+        int count = 0;
+        for (HttpEndpoint other : endpoints) {
+            if (other != endpoint && !other.ejected && other.samples > 0) {
+                total += other.latencyNanos;
+                count++;
+            }
+        }
+        return count > 0 && endpoint.latencyNanos > LATENCY_OUTLIER * total / count;
+    }
+
+    private void eject(HttpEndpoint endpoint, String reason) {
+        endpoint.ejectNanos = endpoint.ejectNanos == 0 ? ejectNanos : Math.min(MAX_EJECT_NANOS, endpoint.ejectNanos * 2);
+        endpoint.ejectedUntil = clock.getAsLong() + endpoint.ejectNanos;
+        endpoint.ejected = true;
+        endpoint.probing = false;
+        log.warn("Eject collector endpoint {} for {}ms after {}", endpoint,
+            TimeUnit.NANOSECONDS.toMillis(endpoint.ejectNanos), reason);
+    }
+}
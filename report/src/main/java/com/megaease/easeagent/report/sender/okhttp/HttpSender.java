@@ -31,13 +31,12 @@ import okhttp3.*;
 import okhttp3.tls.Certificates;
 import okhttp3.tls.HandshakeCertificates;
 import okhttp3.tls.HeldCertificate;
-import okio.Buffer;
-import okio.BufferedSink;
-import okio.GzipSink;
-import okio.Okio;
 
 import java.io.IOException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.SynchronousQueue;
@@ -61,11 +60,18 @@ public class HttpSender implements Sender {
     private static final String USERNAME_KEY = "username";
     private static final String PASSWORD_KEY = "password";
     private static final String GZIP_KEY = "compress";
+    private static final String COMPRESSION_TYPE_KEY = "compressionType";
+    private static final String LZ4_ENABLED_KEY = "lz4Enabled";
     private static final String MAX_REQUESTS_KEY = "maxRequests";
+    private static final String LOAD_BALANCER_KEY = "loadBalancer";
+    private static final String EJECT_FAILURES_KEY = "ejectFailures";
+    private static final String EJECT_TIME_KEY = "ejectTime";
 
     private static final String SERVER_USER_NAME_KEY = join(OUTPUT_SERVER_V2, USERNAME_KEY);
     private static final String SERVER_PASSWORD_KEY = join(OUTPUT_SERVER_V2, PASSWORD_KEY);
     private static final String SERVER_GZIP_KEY = join(OUTPUT_SERVER_V2, GZIP_KEY);
+    private static final String SERVER_COMPRESSION_TYPE_KEY = join(OUTPUT_SERVER_V2, COMPRESSION_TYPE_KEY);
+    private static final String SERVER_LZ4_ENABLED_KEY = join(OUTPUT_SERVER_V2, LZ4_ENABLED_KEY);
 
     private static final String TLS_ENABLE = join(OUTPUT_SERVER_V2, "tls.enable");
 
@@ -79,26 +85,38 @@ public class HttpSender implements Sender {
     private String usernameKey;
     private String passwordKey;
     private String gzipKey;
+    private String compressionTypeKey;
+    private String lz4EnabledKey;
     private String maxRequestsKey;
+    private String loadBalancerKey;
+    private String ejectFailuresKey;
+    private String ejectTimeKey;
 
     private static final int MIN_TIMEOUT = 30_000;
 
     private Config config;
 
+    // comma separated when sending to several collectors
     private String url;
-    private HttpUrl httpUrl;
+    private List<HttpUrl> httpUrls = Collections.emptyList();
     private String username;
     private String password;
 
     private boolean enabled;
     private boolean gzip;
+    private String compressionType;
     private boolean isAuth;
 
     private int timeout;
     private int maxRequests;
 
     private String credential;
-    private OkHttpClient client;
+    private List<HttpEndpoint> endpoints = Collections.emptyList();
+    private HttpEndpointBalancer balancer;
+
+    private String loadBalancer;
+    private int ejectFailures;
+    private long ejectTime;
 
     private Boolean tlsEnable;
     private String tlsKey;
@@ -129,7 +147,12 @@ public class HttpSender implements Sender {
         usernameKey = join(prefix, USERNAME_KEY);
         passwordKey = join(prefix, PASSWORD_KEY);
         gzipKey = join(prefix, GZIP_KEY);
+        compressionTypeKey = join(prefix, COMPRESSION_TYPE_KEY);
+        lz4EnabledKey = join(prefix, LZ4_ENABLED_KEY);
         maxRequestsKey = join(prefix, MAX_REQUESTS_KEY);
+        loadBalancerKey = join(prefix, LOAD_BALANCER_KEY);
+        ejectFailuresKey = join(prefix, EJECT_FAILURES_KEY);
+        ejectTimeKey = join(prefix, EJECT_TIME_KEY);
     }
 
     private void extractConfig(Config config) {
@@ -145,6 +168,10 @@ public class HttpSender implements Sender {
 
         this.gzip = NoNull.of(config.getBooleanNullForUnset(gzipKey),
             NoNull.of(config.getBooleanNullForUnset(SERVER_GZIP_KEY), true));
+        String type = StringUtils.noEmptyOf(config.getString(compressionTypeKey), config.getString(SERVER_COMPRESSION_TYPE_KEY));
+        boolean lz4Enabled = NoNull.of(config.getBooleanNullForUnset(lz4EnabledKey),
+            NoNull.of(config.getBooleanNullForUnset(SERVER_LZ4_ENABLED_KEY), false));
+        this.compressionType = CompressedRequestBody.encodingOf(type, lz4Enabled);
 
         this.timeout = NoNull.of(config.getInt(OUTPUT_SERVERS_TIMEOUT), MIN_TIMEOUT);
         if (this.timeout < MIN_TIMEOUT) {
@@ -152,15 +179,26 @@ public class HttpSender implements Sender {
         }
         this.enabled = NoNull.of(config.getBooleanNullForUnset(senderEnabledKey), true);
         this.maxRequests = NoNull.of(config.getInt(maxRequestsKey), 65);
+        this.loadBalancer = NoNull.of(config.getString(loadBalancerKey), HttpEndpointBalancer.POWER_OF_TWO_CHOICES);
+        this.ejectFailures = NoNull.of(config.getInt(ejectFailuresKey), 3);
+        this.ejectTime = NoNull.of(config.getLong(ejectTimeKey), 10_000L);
 
+        this.httpUrls = Collections.emptyList();
         if (StringUtils.isEmpty(url) || Boolean.FALSE.equals(config.getBoolean(OUTPUT_SERVERS_ENABLE))) {
             this.enabled = false;
         } else {
-            this.httpUrl = HttpUrl.parse(this.url);
-            if (this.httpUrl == null) {
-                log.error("Invalid Url:{}", this.url);
-                this.enabled = false;
+            List<HttpUrl> urls = new ArrayList<>();
+            for (String u : this.url.split(",")) {
+                HttpUrl httpUrl = HttpUrl.parse(u);
+                if (httpUrl == null) {
+                    log.error("Invalid Url:{}", u);
+                    this.enabled = false;
+                    urls.clear();
+                    break;
+                }
+                urls.add(httpUrl);
             }
+            this.httpUrls = urls;
         }
 
         this.isAuth = !StringUtils.isEmpty(username) && !StringUtils.isEmpty(password);
@@ -169,14 +207,25 @@ public class HttpSender implements Sender {
         }
     }
 
+    /**
+     * Both the url and the bootstrap servers may list several collectors separated by commas,
+     * a relative url is appended to each bootstrap server.
+     */
     private String getUrl(Config config) {
-        // url
         String outputServer = config.getString(BOOTSTRAP_SERVERS);
         String cUrl = NoNull.of(config.getString(urlKey), "");
-        if (!StringUtils.isEmpty(outputServer) && !cUrl.startsWith("http")) {
-            cUrl = outputServer + cUrl;
+        List<String> urls = new ArrayList<>();
+        for (String u : cUrl.split(",")) {
+            u = u.trim();
+            if (!StringUtils.isEmpty(outputServer) && !u.startsWith("http")) {
+                for (String server : outputServer.split(",")) {
+                    urls.add(server.trim() + u);
+                }
+            } else if (!u.isEmpty()) {
+                urls.add(u);
+            }
         }
-        return cUrl;
+        return String.join(",", urls);
     }
 
     @Override
@@ -184,23 +233,19 @@ public class HttpSender implements Sender {
         if (!enabled) {
             return NoOpCall.getInstance(Void.class);
         }
-        Request request;
-
-        try {
-            if (encodedData instanceof RequestBody) {
-                request = newRequest((RequestBody) encodedData);
-            } else {
-                request = newRequest(new ByteRequestBody(encodedData.getData()));
-            }
-        } catch (IOException e) {
-            // log rate-limit
-            if (log.isDebugEnabled()) {
-                log.debug("tracing send fail!");
-            }
-            return NoOpCall.getInstance(Void.class);
+        RequestBody body;
+        if (encodedData instanceof RequestBody) {
+            body = (RequestBody) encodedData;
+        } else {
+            body = new ByteRequestBody(encodedData.getData());
         }
-
-        return new HttpCall(client.newCall(request));
+        HttpEndpointBalancer currentBalancer = this.balancer;
+        if (currentBalancer == null) {
+            HttpEndpoint endpoint = endpoints.get(0);
+            return new HttpCall(endpoint.client.newCall(newRequest(endpoint.url, body)));
+        }
+        HttpEndpoint endpoint = currentBalancer.choose(null);
+        return new BalancedHttpCall(currentBalancer, e -> newRequest(e.url, body), endpoint);
     }
 
     @Override
@@ -220,7 +265,10 @@ public class HttpSender implements Sender {
             || !org.apache.commons.lang3.StringUtils.equals(newPwd, this.password)
             || !org.apache.commons.lang3.StringUtils.equals(this.config.getString(TLS_CA_CERT), this.tlsCaCert)
             || !org.apache.commons.lang3.StringUtils.equals(this.config.getString(TLS_CERT), this.tlsCert)
-            || !org.apache.commons.lang3.StringUtils.equals(this.config.getString(TLS_KEY), this.tlsKey);
+            || !org.apache.commons.lang3.StringUtils.equals(this.config.getString(TLS_KEY), this.tlsKey)
+            || !NoNull.of(this.config.getString(loadBalancerKey), HttpEndpointBalancer.POWER_OF_TWO_CHOICES).equals(this.loadBalancer)
+            || !NoNull.of(this.config.getInt(ejectFailuresKey), 3).equals(this.ejectFailures)
+            || !NoNull.of(this.config.getLong(ejectTimeKey), 10_000L).equals(this.ejectTime);
 
         if (renewClient) {
             clearClient();
@@ -238,7 +286,12 @@ public class HttpSender implements Sender {
      * Waits up to a second for in-flight requests to finish before cancelling them
      */
     private void clearClient() {
-        OkHttpClient dClient = clientMap.remove(getClientKey());
+        for (HttpUrl httpUrl : httpUrls) {
+            clearClient(clientMap.remove(getClientKey(httpUrl)));
+        }
+    }
+
+    private static void clearClient(OkHttpClient dClient) {
         if (dClient == null) {
             return;
         }
@@ -254,16 +307,28 @@ public class HttpSender implements Sender {
     }
 
     // different url for different business, so create separate clients with different dispatcher
-    private String getClientKey() {
-        return this.url + ":" + this.username + ":" + this.password;
+    private String getClientKey(HttpUrl httpUrl) {
+        return httpUrl + ":" + this.username + ":" + this.password;
     }
 
+    /**
+     * One client per collector, so each has its own connection pool and dispatcher
+     */
     private void newClient() {
-        String clientKey = getClientKey();
+        List<HttpEndpoint> newEndpoints = new ArrayList<>(httpUrls.size());
+        for (HttpUrl httpUrl : httpUrls) {
+            newEndpoints.add(new HttpEndpoint(httpUrl, newClient(getClientKey(httpUrl))));
+        }
+        this.endpoints = newEndpoints;
+        this.balancer = newEndpoints.size() > 1
+            ? new HttpEndpointBalancer(newEndpoints, loadBalancer, ejectFailures, MILLISECONDS.toNanos(ejectTime))
+            : null;
+    }
+
+    private OkHttpClient newClient(String clientKey) {
         OkHttpClient newClient = clientMap.get(clientKey);
         if (newClient != null) {
-            client = newClient;
-            return;
+            return newClient;
         }
         OkHttpClient.Builder builder = new OkHttpClient.Builder();
 
@@ -272,44 +337,22 @@ public class HttpSender implements Sender {
         builder.readTimeout(timeout, MILLISECONDS);
         builder.writeTimeout(timeout, MILLISECONDS);
 
-        // auth
-        if (this.isAuth) {
-            appendBasicAuth(builder, this.credential);
-        }
+        // auth header is set by newRequest, no interceptor rebuilding every request
         // tls
         if (Boolean.TRUE.equals(this.tlsEnable)) {
             appendTLS(builder, this.tlsCaCert, this.tlsCert, this.tlsKey);
         }
         synchronized (HttpSender.class) {
             if (clientMap.get(clientKey) != null) {
-                client = clientMap.get(clientKey);
-            } else {
-                builder.dispatcher(newDispatcher(maxRequests));
-                newClient = builder.build();
-                clientMap.putIfAbsent(clientKey, newClient);
-                client = newClient;
+                return clientMap.get(clientKey);
             }
+            builder.dispatcher(newDispatcher(maxRequests));
+            newClient = builder.build();
+            clientMap.putIfAbsent(clientKey, newClient);
+            return newClient;
         }
     }
 
-    public static void appendBasicAuth(OkHttpClient.Builder builder, String basicUser, String basicPassword) {
-        builder.addInterceptor(chain -> {
-            Request request = chain.request();
-            Request authRequest = request.newBuilder()
-                .header(AUTH_HEADER, Credentials.basic(basicUser, basicPassword)).build();
-            return chain.proceed(authRequest);
-        });
-    }
-
-    public static void appendBasicAuth(OkHttpClient.Builder builder, String basicCredential) {
-        builder.addInterceptor(chain -> {
-            Request request = chain.request();
-            Request authRequest = request.newBuilder()
-                .header(AUTH_HEADER, basicCredential).build();
-            return chain.proceed(authRequest);
-        });
-    }
-
     public static void appendTLS(OkHttpClient.Builder builder, String tlsCaCert, String tlsCert, String tlsKey) {
         // Create the root for client and server to trust. We could also use different roots for each!
         X509Certificate clientX509Certificate = Certificates.decodeCertificatePem(tlsCert);
@@ -324,14 +367,14 @@ public class HttpSender implements Sender {
     }
 
     private void initClient() {
-        if (client != null) {
+        if (!endpoints.isEmpty()) {
             return;
         }
         newClient();
     }
 
     // borrow form zipkin-reporter
-    private Request newRequest(RequestBody body) throws IOException {
+    private Request newRequest(HttpUrl httpUrl, RequestBody body) {
         Request.Builder request = new Request.Builder().url(httpUrl);
         // Amplification can occur when the Zipkin endpoint is accessed through a proxy, and the proxy is instrumented.
         // This prevents that in proxies, such as Envoy, that understand B3 single format,
@@ -340,12 +383,10 @@ public class HttpSender implements Sender {
             request.header(AUTH_HEADER, credential);
         }
         if (this.gzip) {
-            request.addHeader("Content-Encoding", "gzip");
-            Buffer gzipped = new Buffer();
-            BufferedSink gzipSink = Okio.buffer(new GzipSink(gzipped));
-            body.writeTo(gzipSink);
-            gzipSink.close();
-            body = new BufferRequestBody(body.contentType(), gzipped);
+            // compressed while OkHttp writes the body out, on the thread sending the request
+            CompressedRequestBody compressed = new CompressedRequestBody(body, compressionType);
+            request.addHeader("Content-Encoding", compressed.encoding());
+            body = compressed;
         }
         request.post(body);
         return request.build();
@@ -376,30 +417,4 @@ public class HttpSender implements Sender {
             return new Thread(r, "AgentHttpSenderDispatcher-" + createCount.getAndIncrement());
         }
     }
-
-    // from zipkin-reporter-java
-    static final class BufferRequestBody extends RequestBody {
-        final MediaType contentType;
-        final Buffer body;
-
-        BufferRequestBody(MediaType contentType, Buffer body) {
-            this.contentType = contentType;
-            this.body = body;
-        }
-
-        @Override
-        public long contentLength() {
-            return body.size();
-        }
-
-        @Override
-        public MediaType contentType() {
-            return contentType;
-        }
-
-        @Override
-        public void writeTo(BufferedSink sink) throws IOException {
-            sink.write(body, body.size());
-        }
-    }
 }
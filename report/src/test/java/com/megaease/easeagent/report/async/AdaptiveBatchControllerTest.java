@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.async;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveBatchControllerTest {
+    static final long TICK = TimeUnit.MILLISECONDS.toNanos(1);
+    static final long DURATION = TimeUnit.SECONDS.toNanos(60);
+    static final int ITEM_BYTES = 1000;
+
+    static AsyncProps props(boolean adaptive) {
+        return new AsyncProps() {
+            @Override
+            public int getReportThread() {
+                return 1;
+            }
+
+            @Override
+            public int getQueuedMaxItems() {
+                return 100000;
+            }
+
+            @Override
+            public long getMessageTimeout() {
+                return 200;
+            }
+
+            @Override
+            public int getQueuedMaxSize() {
+                return Integer.MAX_VALUE;
+            }
+
+            @Override
+            public int getMessageMaxBytes() {
+                return 999900;
+            }
+
+            @Override
+            public boolean isAdaptive() {
+                return adaptive;
+            }
+
+            @Override
+            public long getMinMessageTimeout() {
+                return 20;
+            }
+
+            @Override
+            public long getMaxMessageTimeout() {
+                return 2000;
+            }
+        };
+    }
+
+    static class Result {
+        int requests;
+        int items;
+        long latencyNanos;
+
+        double requestsPerSecond() {
+            return requests / (double) TimeUnit.NANOSECONDS.toSeconds(DURATION);
+        }
+
+        double meanLatencyMillis() {
+            return latencyNanos / (double) items / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+
+    /**
+     * Steps a reporter with a blocking sender through {@link #DURATION}, 1ms at a time:
+     * an item arrives every {@code arrivalNanos}, a message is sent when it reaches the message size
+     * or its timeout, started by its first item, expires.
+     */
+    static Result simulate(boolean adaptive, long arrivalNanos, long rttNanos) {
+        long[] now = new long[1];
+        AsyncProps props = props(adaptive);
+        AdaptiveBatchController controller = new AdaptiveBatchController(() -> props, () -> now[0]);
+        ArrayDeque<Long> buffer = new ArrayDeque<>();
+        Result result = new Result();
+        long nextArrival = 0;
+        long deadline = 0;
+        long busyUntil = 0;
+        for (now[0] = 0; now[0] < DURATION; now[0] += TICK) {
+            long t = now[0];
+            while (nextArrival <= t) {
+                if (buffer.isEmpty()) {
+                    deadline = t + timeout(controller, props);
+                }
+                buffer.add(nextArrival);
+                nextArrival += arrivalNanos;
+            }
+            if (t < busyUntil || buffer.isEmpty()) {
+                continue;
+            }
+            int maxBytes = controller.isEnabled() ? controller.messageMaxBytes() : props.getMessageMaxBytes();
+            if ((long) buffer.size() * ITEM_BYTES < maxBytes && t < deadline) {
+                continue;
+            }
+            int bytes = 0;
+            while (!buffer.isEmpty() && (bytes == 0 || bytes + ITEM_BYTES <= maxBytes)) {
+                result.latencyNanos += t + rttNanos - buffer.poll();
+                result.items++;
+                bytes += ITEM_BYTES;
+            }
+            result.requests++;
+            busyUntil = t + rttNanos;
+            if (controller.isEnabled()) {
+                controller.onMessage(bytes);
+                controller.onSendComplete(rttNanos, true);
+            }
+            if (!buffer.isEmpty()) {
+                deadline = t + timeout(controller, props);
+            }
+        }
+        return result;
+    }
+
+    static long timeout(AdaptiveBatchController controller, AsyncProps props) {
+        return controller.isEnabled() ? controller.messageTimeoutNanos()
+            : TimeUnit.MILLISECONDS.toNanos(props.getMessageTimeout());
+    }
+
+    @Test
+    public void fewerRequestsAtHighLoad() {
+        // 1MB/s
+        long arrival = TimeUnit.MILLISECONDS.toNanos(1);
+        long rtt = TimeUnit.MILLISECONDS.toNanos(50);
+        Result fixed = simulate(false, arrival, rtt);
+        Result adaptive = simulate(true, arrival, rtt);
+        assertEquals(fixed.items, adaptive.items, 1000);
+        assertTrue(fixed.requestsPerSecond() + " vs " + adaptive.requestsPerSecond(),
+            adaptive.requestsPerSecond() * 2 < fixed.requestsPerSecond());
+    }
+
+    @Test
+    public void lowerLatencyAtLowLoad() {
+        // 2KB/s
+        long arrival = TimeUnit.MILLISECONDS.toNanos(500);
+        long rtt = TimeUnit.MILLISECONDS.toNanos(10);
+        Result fixed = simulate(false, arrival, rtt);
+        Result adaptive = simulate(true, arrival, rtt);
+        assertEquals(fixed.requests, adaptive.requests);
+        assertTrue(fixed.meanLatencyMillis() + " vs " + adaptive.meanLatencyMillis(),
+            adaptive.meanLatencyMillis() * 2 < fixed.meanLatencyMillis());
+    }
+
+    @Test
+    public void messageSizeBacksOffOnErrors() {
+        long[] now = new long[1];
+        AsyncProps props = props(true);
+        AdaptiveBatchController controller = new AdaptiveBatchController(() -> props, () -> now[0]);
+        assertEquals(999900, controller.messageMaxBytes());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), controller.messageTimeoutNanos());
+
+        long rtt = TimeUnit.MILLISECONDS.toNanos(100);
+        controller.onSendComplete(rtt, false);
+        assertEquals(999900 / 2, controller.messageMaxBytes());
+        for (int i = 0; i < 10; i++) {
+            controller.onSendComplete(rtt, false);
+        }
+        assertEquals(AsyncProps.DEFAULT_MIN_MESSAGE_BYTES, controller.messageMaxBytes());
+
+        // no traffic: the timeout is the round trip, stretched by the errors
+        now[0] += AdaptiveBatchController.RATE_WINDOW_NANOS;
+        controller.onMessage(0);
+        long timeout = controller.messageTimeoutNanos();
+        assertTrue(timeout > rtt);
+        assertTrue(timeout <= TimeUnit.MILLISECONDS.toNanos(2000));
+
+        for (int i = 0; i < 20; i++) {
+            controller.onSendComplete(rtt, true);
+        }
+        assertEquals(999900, controller.messageMaxBytes());
+        assertTrue(controller.messageTimeoutNanos() < timeout);
+    }
+
+    @Test
+    public void disabled() {
+        assertFalse(new AdaptiveBatchController(() -> null).isEnabled());
+        assertFalse(new AdaptiveBatchController(() -> props(false)).isEnabled());
+        assertTrue(new AdaptiveBatchController(() -> props(true)).isEnabled());
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.async;
+
+import com.megaease.easeagent.plugin.report.Call;
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.megaease.easeagent.plugin.report.Callback;
+import com.megaease.easeagent.report.sender.AgentLoggerSender;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncSendLimiterTest {
+    static final long LATENCY_MS = 100;
+    final ScheduledExecutorService collector = Executors.newScheduledThreadPool(8);
+    final AtomicInteger maxSeen = new AtomicInteger();
+    final AtomicInteger onWire = new AtomicInteger();
+
+    @After
+    public void after() {
+        collector.shutdownNow();
+    }
+
+    /**
+     * a call answered by a collector with {@link #LATENCY_MS} round trip
+     */
+    Call<Void> slowCall(boolean fail) {
+        return new Call<Void>() {
+            @Override
+            public Void execute() throws IOException {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void enqueue(Callback<Void> cb) {
+                maxSeen.accumulateAndGet(onWire.incrementAndGet(), Math::max);
+                collector.schedule(() -> {
+                    onWire.decrementAndGet();
+                    if (fail) {
+                        cb.onError(new IOException("collector failed"));
+                    } else {
+                        cb.onSuccess(null);
+                    }
+                }, LATENCY_MS, TimeUnit.MILLISECONDS);
+            }
+        };
+    }
+
+    @Test
+    public void throughputIndependentOfRtt() throws Exception {
+        int batches = 8;
+        AsyncSendLimiter limiter = new AsyncSendLimiter(() -> batches);
+        CountDownLatch done = new CountDownLatch(batches);
+        long begin = System.nanoTime();
+        for (int i = 0; i < batches; i++) {
+            limiter.send(slowCall(false), callback(done, null));
+        }
+        // the flush thread did not wait for any round trip
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) < LATENCY_MS);
+        assertTrue(done.await(batches * LATENCY_MS, TimeUnit.MILLISECONDS));
+        assertTrue(limiter.awaitIdle(TimeUnit.SECONDS.toNanos(1)));
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void backpressure() throws Exception {
+        AsyncSendLimiter limiter = new AsyncSendLimiter(() -> 2);
+        int batches = 6;
+        CountDownLatch done = new CountDownLatch(batches);
+        AtomicInteger errors = new AtomicInteger();
+        long begin = System.nanoTime();
+        for (int i = 0; i < batches; i++) {
+            limiter.send(slowCall(i % 2 == 0), callback(done, errors));
+        }
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        // 6 batches through 2 slots take at least 2 round trips before the last one is on the wire
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) >= 2 * LATENCY_MS);
+        assertEquals(2, maxSeen.get());
+        assertEquals(3, errors.get());
+        assertTrue(limiter.awaitIdle(TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        AsyncSendLimiter limiter = new AsyncSendLimiter(() -> 0);
+        assertFalse(limiter.isEnabled());
+        CountDownLatch done = new CountDownLatch(1);
+        // the default enqueue executes on the calling thread
+        limiter.send(() -> null, callback(done, null));
+        assertEquals(0, done.getCount());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void consoleSenderReleases() throws Exception {
+        AsyncSendLimiter limiter = new AsyncSendLimiter(() -> 1);
+        int batches = 3;
+        CountDownLatch done = new CountDownLatch(batches);
+        AgentLoggerSender sender = new AgentLoggerSender();
+        for (int i = 0; i < batches; i++) {
+            // blocks forever on the second batch if the first one keeps its slot
+            limiter.send(sender.send(new ByteWrapper("span".getBytes())), callback(done, null));
+        }
+        assertEquals(0, done.getCount());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    private static Callback<Void> callback(CountDownLatch done, AtomicInteger errors) {
+        return new Callback<Void>() {
+            @Override
+            public void onSuccess(Void value) {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                if (errors != null) {
+                    errors.incrementAndGet();
+                }
+                done.countDown();
+            }
+        };
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.report.async;
+
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.megaease.easeagent.plugin.report.Call;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.Encoder;
+import com.megaease.easeagent.report.async.zipkin.AgentBufferNextMessage;
+import com.megaease.easeagent.report.sender.SenderWithEncoder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DefaultAsyncReporterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    final List<String> sent = new ArrayList<>();
+
+    @Test
+    public void overflowIsSpooledByFlushThread() throws IOException {
+        String dir = folder.newFolder("spool").getPath();
+        DefaultAsyncReporter<String> reporter = (DefaultAsyncReporter<String>) DefaultAsyncReporter
+            .<String>builderAsyncReporter(new StubSender(), new Props(dir));
+        try {
+            reporter.report("a");
+            reporter.report("b");
+            reporter.report("c");
+            // the application thread only hands over the items the queue had no room for
+            assertTrue(reporter.spoolingSender.spool.isEmpty());
+            assertEquals(2, reporter.spoolingSender.overflow.size());
+
+            reporter.flush();
+            assertEquals(0, reporter.spoolingSender.overflow.size());
+            assertEquals("a", sent.get(0));
+            // the spool is replayed once the queue is short again
+            assertEquals(3, sent.size());
+            assertTrue(reporter.spoolingSender.spool.isEmpty());
+        } finally {
+            reporter.close();
+        }
+    }
+
+    static class Props implements AsyncProps {
+        final String spoolDir;
+
+        Props(String spoolDir) {
+            this.spoolDir = spoolDir;
+        }
+
+        @Override
+        public int getReportThread() {
+            return 1;
+        }
+
+        @Override
+        public int getQueuedMaxItems() {
+            return 1;
+        }
+
+        @Override
+        public long getMessageTimeout() {
+            return 0;
+        }
+
+        @Override
+        public int getQueuedMaxSize() {
+            return 1024;
+        }
+
+        @Override
+        public int getMessageMaxBytes() {
+            return 1024;
+        }
+
+        @Override
+        public String getSpoolDir() {
+            return spoolDir;
+        }
+    }
+
+    class StubSender implements SenderWithEncoder {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> Encoder<T> getEncoder() {
+            return (Encoder<T>) new StringEncoder();
+        }
+
+        @Override
+        public Call<Void> send(List<EncodedData> encodedData) {
+            return () -> {
+                for (EncodedData data : encodedData) {
+                    sent.add(new String(data.getData()));
+                }
+                return null;
+            };
+        }
+
+        @Override
+        public String getPrefix() {
+            return "reporter.test.sender";
+        }
+
+        @Override
+        public String name() {
+            return "stub";
+        }
+
+        @Override
+        public void init(Config config, String prefix) {
+            // ignored
+        }
+
+        @Override
+        public Call<Void> send(EncodedData encodedData) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public void updateConfigs(Map<String, String> changes) {
+            // ignored
+        }
+
+        @Override
+        public void close() {
+            // ignored
+        }
+    }
+
+    @Test
+    public void anyNanoTimeIsAnEnqueueTime() {
+        AgentBufferNextMessage<String> bundler = AgentBufferNextMessage.create(new StringEncoder(), 100, 0);
+        assertFalse(bundler.hasOldestEnqueueNanos());
+        bundler.offer("a", 1);
+        bundler.enqueuedAt(0L);
+        bundler.offer("b", 1);
+        bundler.enqueuedAt(5L);
+        assertTrue(bundler.hasOldestEnqueueNanos());
+        assertEquals(0L, bundler.oldestEnqueueNanos());
+
+        bundler.drain((next, size) -> true);
+        assertFalse(bundler.hasOldestEnqueueNanos());
+    }
+
+    static class StringEncoder implements Encoder<String> {
+        @Override
+        public void init(Config config) {
+            // ignored
+        }
+
+        @Override
+        public int sizeInBytes(String input) {
+            return input.length();
+        }
+
+        @Override
+        public EncodedData encode(String input) {
+            return new ByteWrapper(input.getBytes());
+        }
+
+        @Override
+        public String name() {
+            return "string";
+        }
+
+        @Override
+        public EncodedData encodeList(List<EncodedData> encodedItems) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int appendSizeInBytes(int newMsgSize) {
+            return newMsgSize + 1;
+        }
+
+        @Override
+        public int packageSizeInBytes(List<Integer> sizes) {
+            int size = 2;
+            for (int s : sizes) {
+                size += s + 1;
+            }
+            return size;
+        }
+    }
+}
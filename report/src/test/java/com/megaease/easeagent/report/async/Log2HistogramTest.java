@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.async;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class Log2HistogramTest {
+
+    @Test
+    public void empty() {
+        Log2Histogram histogram = new Log2Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0.99));
+        assertEquals(0, histogram.getMean(), 0);
+    }
+
+    @Test
+    public void percentiles() {
+        Log2Histogram histogram = new Log2Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.update(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 0.001);
+        // 50 is in [32, 64)
+        assertEquals(63, histogram.getPercentile(0.5));
+        // capped by max
+        assertEquals(100, histogram.getPercentile(0.99));
+        assertEquals(1, histogram.getPercentile(0.01));
+    }
+
+    @Test
+    public void zeroAndNegative() {
+        Log2Histogram histogram = new Log2Histogram();
+        histogram.update(0);
+        histogram.update(-5);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(1));
+        histogram.update(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(1));
+    }
+
+    @Test
+    public void concurrentUpdates() throws InterruptedException {
+        Log2Histogram histogram = new Log2Histogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogram.update(i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(40000, histogram.getCount());
+        assertEquals(9999, histogram.getMax());
+    }
+
+    @Test
+    public void telemetrySnapshot() {
+        ReporterTelemetry telemetry = ReporterTelemetry.getOrCreate("histogram-test");
+        assertSame(telemetry, ReporterTelemetry.getOrCreate("histogram-test"));
+        telemetry.incrementSpans(3);
+        telemetry.updateInFlight(1);
+        telemetry.recordQueueLatency(TimeUnit.MILLISECONDS.toNanos(5));
+        Map<String, Object> snapshot = telemetry.snapshot();
+        assertEquals(3L, snapshot.get("items"));
+        assertEquals(1, snapshot.get("in-flight"));
+        assertEquals(5.0, (double) snapshot.get("queue-latency-max"), 0.0001);
+
+        // counters keep counting, histograms start over
+        telemetry.recordQueueLatency(TimeUnit.MILLISECONDS.toNanos(1));
+        snapshot = telemetry.snapshot();
+        assertEquals(3L, snapshot.get("items"));
+        assertEquals(1.0, (double) snapshot.get("queue-latency-max"), 0.0001);
+        assertEquals(0.0, (double) telemetry.snapshot().get("queue-latency-max"), 0.0001);
+    }
+
+    @Test
+    public void snapshotAndReset() {
+        Log2Histogram histogram = new Log2Histogram();
+        histogram.update(100);
+        histogram.update(3);
+        Log2Histogram.Snapshot snapshot = histogram.snapshotAndReset();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(100, snapshot.getMax());
+        assertEquals(51.5, snapshot.getMean(), 0.001);
+        assertEquals(100, snapshot.getPercentile(0.99));
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        histogram.update(7);
+        assertEquals(7, histogram.snapshotAndReset().getMax());
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.async.spool;
+
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DiskSpoolTest {
+    static final int SEGMENT = DiskSpool.MIN_SEGMENT_BYTES;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    File dir;
+    DiskSpool spool;
+    final AtomicInteger evicted = new AtomicInteger();
+
+    @Before
+    public void before() throws Exception {
+        dir = folder.newFolder("spool");
+        spool = new DiskSpool(dir, 4L * SEGMENT, SEGMENT, evicted::addAndGet);
+    }
+
+    @After
+    public void after() throws Exception {
+        if (spool != null) {
+            spool.close();
+        }
+    }
+
+    private static List<EncodedData> batch(String... items) {
+        List<EncodedData> list = new ArrayList<>();
+        for (String item : items) {
+            list.add(new ByteWrapper(item.getBytes(StandardCharsets.UTF_8)));
+        }
+        return list;
+    }
+
+    private static List<String> strings(List<EncodedData> batch) {
+        List<String> list = new ArrayList<>();
+        for (EncodedData data : batch) {
+            list.add(new String(data.getData(), StandardCharsets.UTF_8));
+        }
+        return list;
+    }
+
+    private List<String> replayAll() {
+        List<String> sent = new ArrayList<>();
+        while (spool.replay(Integer.MAX_VALUE, b -> sent.addAll(strings(b)))) {
+            // drain
+        }
+        return sent;
+    }
+
+    @Test
+    public void disabledWithoutDirectory() {
+        assertNull(DiskSpool.open(null, 1024, n -> {
+        }));
+        assertNull(DiskSpool.open(" ", 1024, n -> {
+        }));
+    }
+
+    @Test
+    public void replayOldestFirst() {
+        assertTrue(spool.append(batch("a", "b")));
+        assertTrue(spool.append(batch("c")));
+        assertEquals(3, spool.items());
+
+        assertEquals(Arrays.asList("a", "b", "c"), replayAll());
+        assertTrue(spool.isEmpty());
+        assertFalse(spool.replay(Integer.MAX_VALUE, b -> true));
+    }
+
+    @Test
+    public void keepRecordsWhenSendFails() {
+        spool.append(batch("a"));
+        assertFalse(spool.replay(Integer.MAX_VALUE, b -> false));
+        assertEquals(1, spool.items());
+        assertEquals(Arrays.asList("a"), replayAll());
+    }
+
+    @Test
+    public void replayRespectsBatchBytes() {
+        spool.append(batch("aaaa"));
+        spool.append(batch("bbbb"));
+        List<Integer> sizes = new ArrayList<>();
+        while (spool.replay(8, b -> sizes.add(b.size()))) {
+            // drain
+        }
+        assertEquals(Arrays.asList(1, 1), sizes);
+    }
+
+    @Test
+    public void rejectRecordLargerThanSegment() {
+        assertFalse(spool.append(batch(new String(new byte[SEGMENT], StandardCharsets.UTF_8))));
+        assertTrue(spool.isEmpty());
+    }
+
+    @Test
+    public void recoverAfterReopen() throws Exception {
+        spool.append(batch("a"));
+        spool.append(batch("b", "c"));
+        spool.close();
+
+        spool = new DiskSpool(dir, 4L * SEGMENT, SEGMENT, evicted::addAndGet);
+        assertEquals(3, spool.items());
+        spool.append(batch("d"));
+        assertEquals(Arrays.asList("a", "b", "c", "d"), replayAll());
+    }
+
+    @Test
+    public void committedRecordsNotReplayedAfterRestart() throws Exception {
+        String item = new String(new byte[SEGMENT / 2], StandardCharsets.UTF_8);
+        spool.append(batch("a"));
+        spool.append(batch("b"));
+        spool.append(batch(item));
+        // starts the second segment
+        spool.append(batch(item));
+        spool.append(batch("c"));
+        assertEquals(2, dir.listFiles((d, name) -> name.endsWith(DiskSpool.SEGMENT_SUFFIX)).length);
+        List<String> sent = new ArrayList<>();
+        assertTrue(spool.replay(1, b -> sent.addAll(strings(b))));
+        assertEquals(Arrays.asList("a"), sent);
+        spool.close();
+
+        spool = new DiskSpool(dir, 4L * SEGMENT, SEGMENT, evicted::addAndGet);
+        assertEquals(4, spool.items());
+        while (spool.items() > 1) {
+            assertTrue(spool.replay(1, b -> true));
+        }
+        spool.close();
+
+        // the first segment was fully read and is gone, the second one is read up to "c"
+        assertEquals(1, dir.listFiles((d, name) -> name.endsWith(DiskSpool.SEGMENT_SUFFIX)).length);
+        spool = new DiskSpool(dir, 4L * SEGMENT, SEGMENT, evicted::addAndGet);
+        assertEquals(1, spool.items());
+        assertEquals(Arrays.asList("c"), replayAll());
+        spool.close();
+
+        spool = new DiskSpool(dir, 4L * SEGMENT, SEGMENT, evicted::addAndGet);
+        assertTrue(spool.isEmpty());
+    }
+
+    @Test
+    public void dropTornRecordOnRecover() throws Exception {
+        spool.append(batch("a"));
+        spool.append(batch("b"));
+        spool.close();
+
+        File segment = dir.listFiles((d, name) -> name.endsWith(DiskSpool.SEGMENT_SUFFIX))[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            // second record: 8 header + 4 items + 4 len + 1 byte for the first one
+            file.seek(17 + DiskSpool.RECORD_HEADER_BYTES + 8);
+            file.write('x');
+        }
+
+        assertEquals(1, dir.listFiles((d, name) -> name.endsWith(DiskSpool.SEGMENT_SUFFIX)).length);
+        spool = new DiskSpool(dir, 4L * SEGMENT, SEGMENT, evicted::addAndGet);
+        assertEquals(1, spool.items());
+        spool.append(batch("c"));
+        assertEquals(Arrays.asList("a", "c"), replayAll());
+    }
+
+    @Test
+    public void evictOldestSegmentOverCap() {
+        String item = new String(new byte[SEGMENT / 2], StandardCharsets.UTF_8);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(spool.append(batch(item)));
+        }
+        assertEquals(4L * SEGMENT, spool.sizeInBytes());
+        assertEquals(2, evicted.get());
+        assertEquals(4, spool.items());
+    }
+
+    @Test
+    public void directoryIsLockedByOneSpool() {
+        assertNull(DiskSpool.open(dir.getPath(), 4L * SEGMENT, n -> {
+        }));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder;
+
+import com.megaease.easeagent.plugin.api.config.Config;
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.encoder.JsonEncoder;
+import com.megaease.easeagent.report.encoder.PackedMessage.BatchPackedMessage;
+import com.megaease.easeagent.report.encoder.PackedMessage.PackedItems;
+import org.junit.Test;
+import zipkin2.internal.JsonEscaper;
+import zipkin2.internal.WriteBuffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PackedMessageTest {
+    static class StringEncoder extends JsonEncoder<String> implements BatchEncoder<String> {
+        int encoded;
+
+        @Override
+        public String name() {
+            return "test";
+        }
+
+        @Override
+        public void init(Config config) {
+            // ignored
+        }
+
+        @Override
+        public int sizeInBytes(String input) {
+            return JsonEscaper.jsonEscapedSizeInBytes(input) + 2;
+        }
+
+        @Override
+        public EncodedData encode(String input) {
+            encoded++;
+            byte[] buf = new byte[sizeInBytes(input)];
+            encodeTo(input, buf, 0, buf.length);
+            return new ByteWrapper(buf);
+        }
+
+        @Override
+        public void encodeTo(String input, byte[] buf, int pos, int sizeInBytes) {
+            WriteBuffer b = WriteBuffer.wrap(buf, pos);
+            b.writeByte('"');
+            JsonStrings.writeEscaped(input, b);
+            b.writeByte('"');
+        }
+
+        @Override
+        public EncodedData wrapBatch(byte[] batch) {
+            return new ByteWrapper(batch);
+        }
+    }
+
+    static String string(EncodedData data) {
+        return new String(data.getData(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void writeItemsIntoBatch() {
+        StringEncoder encoder = new StringEncoder();
+        List<String> values = Arrays.asList("a", "tab\tquote\"", "été");
+        List<Integer> sizes = new ArrayList<>();
+        for (String v : values) {
+            sizes.add(encoder.sizeInBytes(v));
+        }
+        PackedMessage message = PackedMessage.create(values.size(), encoder.packageSizeInBytes(sizes), encoder);
+        assertTrue(message instanceof BatchPackedMessage);
+        for (int i = 0; i < values.size(); i++) {
+            message.addMessage(encoder, values.get(i), sizes.get(i));
+        }
+        assertEquals(0, encoder.encoded);
+        assertEquals(encoder.packageSizeInBytes(sizes), message.packSize());
+
+        List<EncodedData> items = message.getMessages();
+        assertTrue(items instanceof PackedItems);
+        assertEquals(3, items.size());
+        assertEquals("\"tab\\tquote\\\"\"", string(items.get(1)));
+        assertEquals("\"été\"", string(items.get(2)));
+
+        List<EncodedData> copied = new ArrayList<>(items);
+        assertEquals(string(encoder.encodeList(copied)), string(((PackedItems) items).packed()));
+        assertEquals(message.packSize(), ((PackedItems) items).packed().size());
+    }
+
+    @Test
+    public void trimWhenLessItemsAdded() {
+        StringEncoder encoder = new StringEncoder();
+        PackedMessage message = PackedMessage.create(2, 64, encoder);
+        message.addMessage(encoder, "a", encoder.sizeInBytes("a"));
+        PackedItems items = (PackedItems) message.getMessages();
+        assertEquals(1, items.size());
+        assertEquals("[\"a\"]", string(items.packed()));
+    }
+
+    @Test
+    public void otherEncodersKeepItems() {
+        PackedMessage message = PackedMessage.create(1, 10, new com.megaease.easeagent.report.plugin.NoOpEncoder<>());
+        assertFalse(message instanceof BatchPackedMessage);
+    }
+
+    @Test
+    public void escapeLikeZipkin() {
+        for (String v : Arrays.asList("", "plain/url?a=1", "line\nbreak", "back\\slash", "中文", " ", "\u0001")) {
+            byte[] expected = new byte[JsonEscaper.jsonEscapedSizeInBytes(v)];
+            WriteBuffer.wrap(expected).writeUtf8(JsonEscaper.jsonEscape(v));
+            byte[] actual = new byte[expected.length];
+            JsonStrings.writeEscaped(v, WriteBuffer.wrap(actual));
+            assertArrayEquals(v, expected, actual);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.encoder.span;
+
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.megaease.easeagent.plugin.report.EncodedData;
+import com.megaease.easeagent.plugin.report.tracing.Endpoint;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.encoder.PackedMessage;
+import com.megaease.easeagent.report.trace.ReportSpanBuilder;
+import org.junit.Test;
+import zipkin2.Span;
+import zipkin2.codec.SpanBytesDecoder;
+import zipkin2.internal.JsonCodec;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AgentV2SpanProto3WriterTest {
+    static final GlobalExtrasSupplier EXTRAS = new GlobalExtrasSupplier() {
+        @Override
+        public String service() {
+            return "demo-service";
+        }
+
+        @Override
+        public String system() {
+            return "demo-system";
+        }
+    };
+
+    final AgentV2SpanProto3Writer writer = new AgentV2SpanProto3Writer("log-tracing", EXTRAS);
+
+    static ReportSpan span() {
+        Endpoint local = new Endpoint();
+        local.setServiceName("demo-service");
+        local.setIpv4("192.168.1.10");
+        local.setPort(8080);
+        Endpoint remote = new Endpoint();
+        remote.setServiceName("mysql");
+        remote.setIpv6("2001:db8::c001");
+        remote.setPort(3306);
+        return ReportSpanBuilder.newBuilder()
+            .traceId("463ac35c9f6413ad48485a3953bb6124")
+            .parentId("48485a3953bb6124")
+            .id("a2fb4a1d1a96d312")
+            .kind(Span.Kind.CLIENT)
+            .name("select été 😀")
+            .timestamp(1472470996199000L)
+            .duration(207000L)
+            .localEndpoint(local)
+            .remoteEndpoint(remote)
+            .addAnnotation(1472470996238000L, "ws")
+            .putTag("sql.query", "select * from user where id = ?")
+            .putTag("error", "line\n\"quoted\"")
+            .debug(true)
+            .build();
+    }
+
+    @Test
+    public void decodedByZipkin() {
+        ReportSpan span = span();
+        byte[] bytes = writer.write(span);
+        assertEquals(writer.sizeInBytes(span), bytes.length);
+
+        Span decoded = SpanBytesDecoder.PROTO3.decodeOne(bytes);
+        assertEquals(span.traceId(), decoded.traceId());
+        assertEquals(span.parentId(), decoded.parentId());
+        assertEquals(span.id(), decoded.id());
+        assertEquals(Span.Kind.CLIENT, decoded.kind());
+        assertEquals(span.name(), decoded.name());
+        assertEquals(span.timestamp(), decoded.timestampAsLong());
+        assertEquals(span.duration(), decoded.durationAsLong());
+        assertEquals("demo-service", decoded.localServiceName());
+        assertEquals("192.168.1.10", decoded.localEndpoint().ipv4());
+        assertEquals(8080, decoded.localEndpoint().portAsInt());
+        assertEquals("mysql", decoded.remoteServiceName());
+        assertEquals("2001:db8::c001", decoded.remoteEndpoint().ipv6());
+        assertEquals(3306, decoded.remoteEndpoint().portAsInt());
+        assertEquals(1, decoded.annotations().size());
+        assertEquals("ws", decoded.annotations().get(0).value());
+        assertEquals("select * from user where id = ?", decoded.tags().get("sql.query"));
+        assertEquals("line\n\"quoted\"", decoded.tags().get("error"));
+        assertEquals("log-tracing", decoded.tags().get("type"));
+        assertEquals("demo-service", decoded.tags().get("service"));
+        assertEquals("demo-system", decoded.tags().get("system"));
+        assertTrue(decoded.debug());
+        assertNull(decoded.shared());
+    }
+
+    @Test
+    public void spanTagsOverrideGlobalFields() {
+        ReportSpan span = ReportSpanBuilder.newBuilder()
+            .traceId("1")
+            .id("2")
+            .kind(Span.Kind.SERVER)
+            .shared(true)
+            .putTag("service", "own")
+            .build();
+        byte[] bytes = writer.write(span);
+        assertEquals(writer.sizeInBytes(span), bytes.length);
+        Span decoded = SpanBytesDecoder.PROTO3.decodeOne(bytes);
+        assertEquals("0000000000000001", decoded.traceId());
+        assertEquals("own", decoded.tags().get("service"));
+        assertTrue(decoded.shared());
+    }
+
+    @Test
+    public void listIsConcatenation() {
+        SpanProto3Encoder encoder = new SpanProto3Encoder();
+        encoder.writer = writer;
+        EncodedData first = encoder.encode(span());
+        EncodedData second = encoder.encode(ReportSpanBuilder.newBuilder().traceId("1").id("2").build());
+        List<EncodedData> items = Arrays.asList(first, second);
+
+        EncodedData list = encoder.encodeList(items);
+        assertEquals(encoder.messageSizeInBytes(items), list.size());
+        List<Span> decoded = SpanBytesDecoder.PROTO3.decodeList(list.getData());
+        assertEquals(2, decoded.size());
+        assertEquals("0000000000000002", decoded.get(1).id());
+    }
+
+    @Test
+    public void writtenIntoBatch() {
+        SpanProto3Encoder encoder = new SpanProto3Encoder();
+        encoder.writer = writer;
+        List<ReportSpan> spans = Arrays.asList(span(), ReportSpanBuilder.newBuilder().traceId("1").id("2").build());
+        int size = 0;
+        for (ReportSpan span : spans) {
+            size += encoder.sizeInBytes(span);
+        }
+        PackedMessage message = PackedMessage.create(spans.size(), size, encoder);
+        for (ReportSpan span : spans) {
+            message.addMessage(encoder, span, encoder.sizeInBytes(span));
+        }
+        assertEquals(size, message.packSize());
+
+        List<EncodedData> items = message.getMessages();
+        byte[] packed = ((PackedMessage.PackedItems) items).packed().getData();
+        assertArrayEquals(encoder.encodeList(Arrays.asList(encoder.encode(spans.get(0)), encoder.encode(spans.get(1)))).getData(), packed);
+        assertArrayEquals(writer.write(spans.get(1)), items.get(1).getData());
+        List<Span> decoded = SpanBytesDecoder.PROTO3.decodeList(packed);
+        assertEquals(2, decoded.size());
+        assertEquals(span().name(), decoded.get(0).name());
+    }
+
+    @Test
+    public void smallerThanJson() {
+        ReportSpan span = span();
+        byte[] json = JsonCodec.write(new AgentV2SpanWriter(EXTRAS), span);
+        byte[] proto3 = new ByteWrapper(writer.write(span)).getData();
+        assertTrue(proto3.length + " < " + json.length, proto3.length < json.length * 3 / 4);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.report.encoder.span;
+
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.report.encoder.PackedMessage;
+import org.junit.Test;
+import zipkin2.codec.SpanBytesDecoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SpanJsonEncoderTest {
+    static class MutableExtras implements GlobalExtrasSupplier {
+        volatile String service = "demo-service";
+
+        @Override
+        public String service() {
+            return service;
+        }
+
+        @Override
+        public String system() {
+            return "demo-system";
+        }
+    }
+
+    static SpanJsonEncoder encoder(GlobalExtrasSupplier extras) {
+        SpanJsonEncoder encoder = new SpanJsonEncoder();
+        encoder.extrasSupplier = extras;
+        encoder.writer = new AgentV2SpanWriter(extras);
+        return encoder;
+    }
+
+    static String pack(String serviceAtFlush) {
+        MutableExtras extras = new MutableExtras();
+        SpanJsonEncoder encoder = encoder(extras);
+        List<ReportSpan> spans = Arrays.asList(AgentV2SpanProto3WriterTest.span(), AgentV2SpanProto3WriterTest.span());
+        List<Integer> sizes = new ArrayList<>();
+        for (ReportSpan span : spans) {
+            sizes.add(encoder.sizeInBytes(span));
+        }
+        extras.service = serviceAtFlush;
+        PackedMessage message = PackedMessage.create(spans.size(), encoder.packageSizeInBytes(sizes), encoder);
+        for (int i = 0; i < spans.size(); i++) {
+            message.addMessage(encoder, spans.get(i), sizes.get(i));
+        }
+        byte[] packed = ((PackedMessage.PackedItems) message.getMessages()).packed().getData();
+        assertEquals(2, SpanBytesDecoder.JSON_V2.decodeList(packed).size());
+        return new String(packed, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void serviceRenamedLongerBeforeFlush() {
+        String service = "a-much-longer-service-name-set-after-the-spans-were-queued";
+        String packed = pack(service);
+        assertTrue(packed, packed.contains("\"service\":\"" + service + "\""));
+        assertFalse(packed, packed.contains("demo-service\",\"system"));
+    }
+
+    @Test
+    public void serviceRenamedShorterBeforeFlush() {
+        String packed = pack("s");
+        assertTrue(packed, packed.contains("\"service\":\"s\""));
+        assertTrue(packed, packed.endsWith("}]"));
+    }
+}
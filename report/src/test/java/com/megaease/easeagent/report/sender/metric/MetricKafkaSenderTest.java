@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender.metric;
+
+import com.megaease.easeagent.config.GlobalConfigs;
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.megaease.easeagent.config.report.ReportConfigConst.*;
+import static org.junit.Assert.*;
+
+public class MetricKafkaSenderTest {
+    static final String PREFIX = "reporter.metric.test.sender";
+
+    MetricKafkaSender sender;
+
+    @After
+    public void after() {
+        MetricKafkaSender.setProducerManager(null);
+    }
+
+    private MockProducer<byte[], byte[]> initSender(boolean enabled) {
+        return initSender(enabled, new MockProducer<>(true, new ByteArraySerializer(), new ByteArraySerializer()));
+    }
+
+    private MockProducer<byte[], byte[]> initSender(boolean enabled, MockProducer<byte[], byte[]> producer) {
+        MetricKafkaSender.setProducerManager(MetricProducerManager.create(() -> producer));
+        Map<String, String> cfg = new HashMap<>();
+        cfg.put(BOOTSTRAP_SERVERS, "127.0.0.1:9092");
+        cfg.put(join(PREFIX, LOG_APPENDER_KEY), "test");
+        cfg.put(join(PREFIX, ENABLED_KEY), String.valueOf(enabled));
+        cfg.put(join(PREFIX, APPEND_TYPE_KEY), METRIC_KAFKA_SENDER_NAME);
+        cfg.put(join(PREFIX, TOPIC_KEY), "test-meter");
+        cfg.put("reporter.metric.test.output.interval", "30");
+        sender = new MetricKafkaSender();
+        sender.init(new GlobalConfigs(cfg), PREFIX);
+        return producer;
+    }
+
+    @Test
+    public void sendEncodedBytesWithoutCopy() {
+        MockProducer<byte[], byte[]> producer = initSender(true);
+        byte[] first = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "{\"b\":2}".getBytes(StandardCharsets.UTF_8);
+        sender.send(new ByteWrapper(first));
+        sender.send(new ByteWrapper(second));
+
+        List<ProducerRecord<byte[], byte[]>> history = producer.history();
+        assertEquals(2, history.size());
+        assertEquals("test-meter", history.get(0).topic());
+        assertNull(history.get(0).key());
+        // the encoded array is the record value, the sender copies no byte of it
+        assertSame(first, history.get(0).value());
+        assertSame(second, history.get(1).value());
+    }
+
+    @Test
+    public void disabledSendsNothing() {
+        MockProducer<byte[], byte[]> producer = initSender(false);
+        sender.send(new ByteWrapper(new byte[]{1}));
+        assertTrue(producer.history().isEmpty());
+    }
+
+    @Test
+    public void topicChangeKeepsSharedProducer() {
+        MockProducer<byte[], byte[]> producer = initSender(true);
+        Map<String, String> changes = new HashMap<>();
+        changes.put(join(PREFIX, TOPIC_KEY), "test-meter-2");
+        sender.updateConfigs(changes);
+        sender.send(new ByteWrapper(new byte[]{1}));
+
+        assertEquals(1, producer.history().size());
+        assertEquals("test-meter-2", producer.history().get(0).topic());
+    }
+
+    @Test
+    public void partitionOfTopic() {
+        MockProducer<byte[], byte[]> producer = initSender(true);
+        sender.send(new ByteWrapper(new byte[]{1}));
+        assertNull(producer.history().get(0).partition());
+
+        Map<String, String> changes = new HashMap<>();
+        changes.put(join(PREFIX, PARTITION_KEY), "2");
+        sender.updateConfigs(changes);
+        sender.send(new ByteWrapper(new byte[]{2}));
+        assertEquals("test-meter", producer.history().get(1).topic());
+        assertEquals(Integer.valueOf(2), producer.history().get(1).partition());
+    }
+
+    @Test
+    public void sendErrorsCounted() {
+        MockProducer<byte[], byte[]> producer = initSender(true,
+            new MockProducer<>(false, new ByteArraySerializer(), new ByteArraySerializer()));
+        long errors = MetricKafkaSender.getSendErrors();
+        sender.send(new ByteWrapper(new byte[]{1}));
+        sender.send(new ByteWrapper(new byte[]{2}));
+        assertTrue(producer.errorNext(new RuntimeException("broker down")));
+        assertTrue(producer.completeNext());
+        assertEquals(errors + 1, MetricKafkaSender.getSendErrors());
+    }
+
+    @Test
+    public void producerIsSharedAndRefreshed() {
+        int[] created = new int[1];
+        MetricProducerManager manager = MetricProducerManager.create(() -> {
+            created[0]++;
+            return new MockProducer<>(true, new ByteArraySerializer(), new ByteArraySerializer());
+        });
+        assertSame(manager.producer(), manager.producer());
+        assertEquals(1, created[0]);
+        MockProducer<byte[], byte[]> old = (MockProducer<byte[], byte[]>) manager.producer();
+        manager.refresh();
+        assertTrue(old.closed());
+        assertNotSame(old, manager.producer());
+        assertEquals(2, created[0]);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender.okhttp;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+import okio.Buffer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class CompressedRequestBodyTest {
+    // a 4 MB batch of span-like json
+    static byte[] batch() {
+        StringBuilder json = new StringBuilder("[");
+        Random random = new Random(1);
+        while (json.length() < 4 * 1024 * 1024) {
+            json.append("{\"traceId\":\"").append(Long.toHexString(random.nextLong()))
+                .append("\",\"name\":\"get /users\",\"duration\":").append(random.nextInt(1000)).append("},");
+        }
+        json.setCharAt(json.length() - 1, ']');
+        return json.toString().getBytes();
+    }
+
+    static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void gzip() throws IOException {
+        byte[] data = batch();
+        CompressedRequestBody body = new CompressedRequestBody(new ByteRequestBody(data), CompressedRequestBody.GZIP);
+        assertEquals("gzip", body.encoding());
+        assertEquals(-1L, body.contentLength());
+        assertEquals(ByteRequestBody.CONTENT_TYPE, body.contentType());
+
+        // a body may be written again, e.g. on retry
+        for (int i = 0; i < 2; i++) {
+            Buffer sink = new Buffer();
+            body.writeTo(sink);
+            assertTrue(sink.size() < data.length / 2);
+            assertArrayEquals(data, readAll(new GZIPInputStream(sink.inputStream())));
+        }
+    }
+
+    @Test
+    public void lz4() throws IOException {
+        byte[] data = batch();
+        CompressedRequestBody body = new CompressedRequestBody(new ByteRequestBody(data), CompressedRequestBody.LZ4);
+        assertEquals("lz4", body.encoding());
+        Buffer sink = new Buffer();
+        body.writeTo(sink);
+        assertTrue(sink.size() < data.length / 2);
+        assertArrayEquals(data, readAll(new LZ4FrameInputStream(sink.inputStream())));
+    }
+
+    @Test
+    public void lz4OnlyWhenEnabled() {
+        assertEquals(CompressedRequestBody.GZIP, CompressedRequestBody.encodingOf(null, true));
+        assertEquals(CompressedRequestBody.GZIP, CompressedRequestBody.encodingOf("lz4", false));
+        assertEquals(CompressedRequestBody.LZ4, CompressedRequestBody.encodingOf("LZ4", true));
+    }
+
+    @Test
+    public void sinkStaysOpen() throws IOException {
+        Buffer sink = new Buffer();
+        new CompressedRequestBody(new ByteRequestBody("{}".getBytes()), CompressedRequestBody.LZ4).writeTo(sink);
+        new CompressedRequestBody(new ByteRequestBody("{}".getBytes()), CompressedRequestBody.GZIP).writeTo(sink);
+        sink.writeUtf8("still open");
+        assertTrue(sink.size() > 0);
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2021, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.megaease.easeagent.report.sender.okhttp;
+
+import com.megaease.easeagent.config.GlobalConfigs;
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.HttpUrl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.megaease.easeagent.config.report.ReportConfigConst.*;
+import static org.junit.Assert.*;
+
+public class HttpEndpointBalancerTest {
+    static final String PREFIX = "reporter.balancer.test.sender";
+
+    static class Collector {
+        final HttpServer server;
+        final AtomicInteger received = new AtomicInteger();
+        volatile int status = 200;
+
+        Collector() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/spans", exchange -> {
+                try (InputStream in = exchange.getRequestBody()) {
+                    while (in.read() != -1) {
+                        // drain
+                    }
+                }
+                if (status == 200) {
+                    received.incrementAndGet();
+                }
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+            });
+            server.start();
+        }
+
+        String server() {
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+    }
+
+    final List<Collector> collectors = new ArrayList<>();
+    HttpSender sender;
+
+    @Before
+    public void before() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            collectors.add(new Collector());
+        }
+    }
+
+    @After
+    public void after() throws IOException {
+        if (sender != null) {
+            sender.close();
+        }
+        for (Collector collector : collectors) {
+            collector.server.stop(0);
+        }
+    }
+
+    static Map<String, String> config() {
+        Map<String, String> cfg = new HashMap<>();
+        cfg.put(OUTPUT_SERVERS_ENABLE, "true");
+        return cfg;
+    }
+
+    private HttpSender initSender(long ejectTime) {
+        StringBuilder servers = new StringBuilder();
+        for (Collector collector : collectors) {
+            servers.append(servers.length() == 0 ? "" : ",").append(collector.server());
+        }
+        Map<String, String> cfg = config();
+        cfg.put(BOOTSTRAP_SERVERS, servers.toString());
+        cfg.put(join(PREFIX, "url"), "/spans");
+        cfg.put(join(PREFIX, "compress"), "false");
+        cfg.put(join(PREFIX, "ejectFailures"), "2");
+        cfg.put(join(PREFIX, "ejectTime"), String.valueOf(ejectTime));
+        sender = new HttpSender();
+        sender.init(new GlobalConfigs(cfg), PREFIX);
+        return sender;
+    }
+
+    private void send(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            sender.send(new ByteWrapper("[]".getBytes(StandardCharsets.UTF_8))).execute();
+        }
+    }
+
+    @Test
+    public void spreadsOverCollectors() throws IOException {
+        initSender(10_000);
+        assertTrue(sender.isAvailable());
+        send(90);
+        for (Collector collector : collectors) {
+            assertTrue(String.valueOf(collector.received.get()), collector.received.get() >= 10);
+        }
+    }
+
+    @Test
+    public void failsOverAndEjects() throws IOException {
+        initSender(60_000);
+        Collector failing = collectors.get(0);
+        failing.status = 500;
+        // no message is lost, the failing collector is tried at most twice before it is ejected
+        send(60);
+        assertEquals(60, collectors.get(1).received.get() + collectors.get(2).received.get());
+        failing.status = 200;
+        send(30);
+        assertEquals(0, failing.received.get());
+    }
+
+    @Test
+    public void probesEjectedCollectorBack() throws Exception {
+        initSender(50);
+        Collector failing = collectors.get(0);
+        failing.status = 500;
+        send(30);
+        failing.status = 200;
+        Thread.sleep(100);
+        send(60);
+        assertTrue(String.valueOf(failing.received.get()), failing.received.get() >= 5);
+    }
+
+    @Test
+    public void singleUrlSendsDirectly() throws IOException {
+        Map<String, String> cfg = config();
+        cfg.put(join(PREFIX, "url"), collectors.get(0).server() + "/spans");
+        sender = new HttpSender();
+        sender.init(new GlobalConfigs(cfg), PREFIX);
+        assertTrue(sender.send(new ByteWrapper("[]".getBytes(StandardCharsets.UTF_8))) instanceof HttpCall);
+        send(3);
+        assertEquals(3, collectors.get(0).received.get());
+    }
+
+    @Test
+    public void invalidUrlDisables() {
+        Map<String, String> cfg = config();
+        cfg.put(join(PREFIX, "url"), collectors.get(0).server() + "/spans,not a url");
+        sender = new HttpSender();
+        sender.init(new GlobalConfigs(cfg), PREFIX);
+        assertFalse(sender.isAvailable());
+    }
+
+    @Test
+    public void ejectsSlowOutlierAndFailsOpen() {
+        long[] now = new long[1];
+        List<HttpEndpoint> endpoints = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            endpoints.add(new HttpEndpoint(HttpUrl.get("http://127.0.0.1:" + (9411 + i) + "/spans"), null));
+        }
+        HttpEndpointBalancer balancer = new HttpEndpointBalancer(endpoints, HttpEndpointBalancer.LEAST_IN_FLIGHT,
+            3, TimeUnit.SECONDS.toNanos(1), () -> now[0]);
+        HttpEndpoint slow = endpoints.get(0);
+        for (int i = 0; i < HttpEndpointBalancer.LATENCY_MIN_SAMPLES; i++) {
+            balancer.onSuccess(endpoints.get(1), TimeUnit.MILLISECONDS.toNanos(20));
+            balancer.onSuccess(endpoints.get(2), TimeUnit.MILLISECONDS.toNanos(20));
+            balancer.onSuccess(slow, TimeUnit.MILLISECONDS.toNanos(500));
+        }
+        assertTrue(slow.ejected);
+        for (int i = 0; i < 10; i++) {
+            assertNotSame(slow, balancer.choose(null));
+        }
+
+        // every endpoint ejected: the one coming back first is still used
+        now[0] += TimeUnit.MILLISECONDS.toNanos(100);
+        for (int i = 0; i < 3; i++) {
+            balancer.onFailure(endpoints.get(1));
+        }
+        now[0] += TimeUnit.MILLISECONDS.toNanos(100);
+        for (int i = 0; i < 3; i++) {
+            balancer.onFailure(endpoints.get(2));
+        }
+        assertSame(slow, balancer.choose(null));
+        assertSame(endpoints.get(1), balancer.choose(slow));
+
+        // only its ejection expired: a single probe, then back on success
+        now[0] = TimeUnit.SECONDS.toNanos(1);
+        assertSame(slow, balancer.choose(null));
+        assertTrue(slow.probing);
+        balancer.onSuccess(slow, TimeUnit.MILLISECONDS.toNanos(20));
+        assertFalse(slow.ejected);
+    }
+
+    @Test
+    public void lostProbeExpires() {
+        long[] now = new long[1];
+        List<HttpEndpoint> endpoints = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            endpoints.add(new HttpEndpoint(HttpUrl.get("http://127.0.0.1:" + (9411 + i) + "/spans"), null));
+        }
+        HttpEndpointBalancer balancer = new HttpEndpointBalancer(endpoints, HttpEndpointBalancer.LEAST_IN_FLIGHT,
+            1, TimeUnit.SECONDS.toNanos(1), () -> now[0]);
+        HttpEndpoint ejected = endpoints.get(0);
+        balancer.onFailure(ejected);
+        assertTrue(ejected.ejected);
+
+        now[0] = TimeUnit.SECONDS.toNanos(1);
+        assertSame(ejected, balancer.choose(endpoints.get(1)));
+        assertTrue(ejected.probing);
+        // the probing call is never executed
+        for (int i = 0; i < 5; i++) {
+            assertSame(endpoints.get(1), balancer.choose(null));
+        }
+        now[0] = TimeUnit.SECONDS.toNanos(2);
+        assertSame(ejected, balancer.choose(endpoints.get(1)));
+    }
+
+    @Test
+    public void keepsClientOnUnrelatedChange() throws IOException {
+        initSender(10_000);
+        HttpEndpointBalancer balancer = ((BalancedHttpCall) sender.send(new ByteWrapper(new byte[0]))).balancer;
+        Map<String, String> changes = new HashMap<>();
+        changes.put(join(PREFIX, "maxRequests"), "10");
+        changes.put("plugin.observability.global.metric.interval", "60");
+        sender.updateConfigs(changes);
+        assertSame(balancer, ((BalancedHttpCall) sender.send(new ByteWrapper(new byte[0]))).balancer);
+        send(3);
+
+        changes.clear();
+        changes.put(join(PREFIX, "loadBalancer"), HttpEndpointBalancer.LEAST_IN_FLIGHT);
+        sender.updateConfigs(changes);
+        assertNotSame(balancer, ((BalancedHttpCall) sender.send(new ByteWrapper(new byte[0]))).balancer);
+    }
+}
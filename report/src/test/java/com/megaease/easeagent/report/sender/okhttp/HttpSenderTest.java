@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2021 MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.report.sender.okhttp;
+
+import com.megaease.easeagent.config.GlobalConfigs;
+import com.megaease.easeagent.plugin.report.ByteWrapper;
+import lombok.SneakyThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.megaease.easeagent.config.report.ReportConfigConst.*;
+
+/**
+ * This test class can connect to a test server, please update user pwd cert key
+ */
+public class HttpSenderTest {
+
+    @SneakyThrows
+//    @Test
+    public void perform() {
+        Map<String, String> cfg = new HashMap<>();
+        cfg.put(BOOTSTRAP_SERVERS, url);
+        cfg.put(join(OUTPUT_SERVER_V2, "username"), user);
+        cfg.put(join(OUTPUT_SERVER_V2, "password"), pwd);
+        cfg.put(join(OUTPUT_SERVER_V2, "tls.enable"), "true");
+        cfg.put(join(OUTPUT_SERVER_V2, "tls.key"), tlsKey);
+        cfg.put(join(OUTPUT_SERVER_V2, "tls.cert"), tlsCert);
+        cfg.put(join(OUTPUT_SERVER_V2, "tls.ca_cert"), tlsCaCert);
+
+        // the auth header is set on each request by newRequest, tls on the client by init
+        HttpSender sender = new HttpSender();
+        sender.init(new GlobalConfigs(cfg), TRACE_SENDER);
+
+        String json = "{\"id\":1,\"name\":\"John\"}";
+        // throws when the response is not successful
+        sender.send(new ByteWrapper(json.getBytes(StandardCharsets.UTF_8))).execute();
+        sender.close();
+    }
+
+    private String url = "";
+    private String user = "";
+    private String pwd = "";
+    private String tlsKey = "";
+    private String tlsCert = "";
+    private String tlsCaCert = "";
+
+}
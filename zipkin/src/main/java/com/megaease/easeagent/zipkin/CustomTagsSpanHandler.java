@@ -24,6 +24,7 @@ import com.megaease.easeagent.plugin.api.ProgressFields;
 import com.megaease.easeagent.plugin.api.middleware.RedirectProcessor;
 
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 
 public class CustomTagsSpanHandler extends SpanHandler {
@@ -38,19 +39,34 @@ public class CustomTagsSpanHandler extends SpanHandler {
 
     @Override
     public boolean end(TraceContext context, MutableSpan span, Cause cause) {
-        span.tag(TAG_INSTANCE, this.instance);
         span.localServiceName(this.serviceName.get());
+        tag(span::tag);
+        return true;
+    }
+
+    public String serviceName() {
+        return this.serviceName.get();
+    }
+
+    /**
+     * Adds the instance, service and redirect tags, also to spans reported without a {@link MutableSpan}.
+     */
+    public void tag(BiConsumer<String, String> span) {
+        span.accept(TAG_INSTANCE, this.instance);
         fillTags(span, ProgressFields.getServiceTags());
         fillTags(span, RedirectProcessor.tags());
-        return true;
     }
 
     protected void fillTags(MutableSpan span, Map<String, String> tags) {
+        fillTags(span::tag, tags);
+    }
+
+    private static void fillTags(BiConsumer<String, String> span, Map<String, String> tags) {
         if (tags == null || tags.isEmpty()) {
             return;
         }
         for (Map.Entry<String, String> entry : tags.entrySet()) {
-            span.tag(entry.getKey(), entry.getValue());
+            span.accept(entry.getKey(), entry.getValue());
         }
     }
 }
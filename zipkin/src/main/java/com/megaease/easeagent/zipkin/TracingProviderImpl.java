@@ -34,8 +34,11 @@ import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
 import com.megaease.easeagent.plugin.utils.AdditionalAttributes;
 import com.megaease.easeagent.plugin.report.AgentReport;
 import com.megaease.easeagent.report.AgentReportAware;
+import com.megaease.easeagent.zipkin.impl.LightSpanFactory;
+import com.megaease.easeagent.zipkin.impl.SpanLimiter;
 import com.megaease.easeagent.zipkin.impl.TracingImpl;
 import com.megaease.easeagent.zipkin.logging.AgentMDCScopeDecorator;
+import com.megaease.easeagent.zipkin.propagation.CompositePropagation;
 import zipkin2.reporter.Reporter;
 import zipkin2.reporter.brave.ConvertZipkinSpanHandler;
 
@@ -46,6 +49,8 @@ public class TracingProviderImpl implements BeanProvider, AgentReportAware, Conf
     private AgentReport agentReport;
     private Config config;
     private AutoRefreshConfigItem<String> serviceName;
+    private LightSpanFactory lightSpanFactory;
+    private SpanLimiter spanLimiter;
 
 
     @Override
@@ -94,11 +99,24 @@ public class TracingProviderImpl implements BeanProvider, AgentReportAware, Conf
 
         Reporter<ReportSpan> reporter;
         reporter = span -> agentReport.report(span);
-        this.tracing = Tracing.newBuilder()
+        SpanLimiter limiter = new SpanLimiter(
+            config.getInt(ConfigConst.Observability.TRACE_LIMIT_MAX_CHILD_SPANS, 0),
+            config.getInt(ConfigConst.Observability.TRACE_LIMIT_MAX_TAG_VALUE_LENGTH, 0),
+            this::tracing);
+        this.spanLimiter = limiter.isEnabled() ? limiter : null;
+        CustomTagsSpanHandler customTags = new CustomTagsSpanHandler(this::getServiceName, AdditionalAttributes.getHostName());
+        Tracing.Builder builder = Tracing.newBuilder()
             .localServiceName(getServiceName())
-            .traceId128Bit(false)
+            .traceId128Bit(config.getBoolean(ConfigConst.Observability.TRACE_ID_128BIT, false))
+            .propagationFactory(CompositePropagation.newFactory(
+                config.getString(ConfigConst.Observability.TRACE_PROPAGATION_TYPE)))
             .sampler(CountingSampler.create(1))
-            .addSpanHandler(new CustomTagsSpanHandler(this::getServiceName, AdditionalAttributes.getHostName()))
+            .addSpanHandler(customTags);
+        if (spanLimiter != null) {
+            // must run before the reporting handler
+            builder.addSpanHandler(spanLimiter);
+        }
+        this.tracing = builder
             .addSpanHandler(ConvertZipkinSpanHandler
                 .builder(reporter)
                 .alwaysReportSpans(true)
@@ -106,6 +124,9 @@ public class TracingProviderImpl implements BeanProvider, AgentReportAware, Conf
             )
             .currentTraceContext(traceContext)
             .build();
+        if (config.getBoolean(ConfigConst.Observability.TRACE_LIGHT_SPAN_ENABLED, false)) {
+            this.lightSpanFactory = new LightSpanFactory(tracing, reporter, customTags, spanLimiter);
+        }
     }
 
     @Injection.Bean
@@ -123,7 +144,7 @@ public class TracingProviderImpl implements BeanProvider, AgentReportAware, Conf
                 if (iTracing != null) {
                     return iTracing;
                 }
-                iTracing = TracingImpl.build(supplier, tracing);
+                iTracing = TracingImpl.build(supplier, tracing, lightSpanFactory, spanLimiter);
             }
             return iTracing;
         };
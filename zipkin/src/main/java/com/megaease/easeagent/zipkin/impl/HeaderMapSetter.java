@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2017, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.megaease.easeagent.zipkin.impl;
+
+import brave.Span;
+import brave.propagation.Propagation;
+
+import java.util.Map;
+
+/**
+ * Writes propagation fields into a plain header map. Only used when a consumer asks
+ * {@link RequestContextImpl#getHeaders()} for the injected headers.
+ */
+public class HeaderMapSetter implements Propagation.RemoteSetter<Map<String, String>> {
+    private final Span.Kind kind;
+
+    public HeaderMapSetter(Span.Kind kind) {
+        this.kind = kind;
+    }
+
+    @Override
+    public Span.Kind spanKind() {
+        return kind;
+    }
+
+    @Override
+    public void put(Map<String, String> headers, String fieldName, String value) {
+        headers.put(fieldName, value);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.zipkin.impl;
+
+import brave.Clock;
+import brave.Tracing;
+import brave.internal.Platform;
+import brave.propagation.TraceContext;
+import com.megaease.easeagent.plugin.api.trace.Request;
+import com.megaease.easeagent.plugin.report.tracing.Endpoint;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.zipkin.CustomTagsSpanHandler;
+import zipkin2.reporter.Reporter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.function.Supplier;
+
+/**
+ * Creates {@link LightSpanImpl} children of a sampled brave context and reports them straight to the
+ * agent reporter, skipping brave's pending span bookkeeping and the MutableSpan to zipkin2 conversion.
+ * The propagation and the reported data stay the same as for spans created through brave.
+ */
+public class LightSpanFactory {
+    private final Tracing tracing;
+    private final Reporter<ReportSpan> reporter;
+    private final CustomTagsSpanHandler customTags;
+    private final String localIp;
+    private final Clock clock;
+    private final TraceContext.Injector<Request> injector;
+    private final SpanLimiter spanLimiter;
+
+    public LightSpanFactory(@Nonnull Tracing tracing, @Nonnull Reporter<ReportSpan> reporter,
+                            @Nonnull Supplier<String> serviceName, String instance) {
+        this(tracing, reporter, new CustomTagsSpanHandler(serviceName, instance), null);
+    }
+
+    /**
+     * @param customTags the handler adding the agent's tags to spans created through brave, reused for light spans
+     */
+    public LightSpanFactory(@Nonnull Tracing tracing, @Nonnull Reporter<ReportSpan> reporter,
+                            @Nonnull CustomTagsSpanHandler customTags, @Nullable SpanLimiter spanLimiter) {
+        this.spanLimiter = spanLimiter;
+        this.tracing = tracing;
+        this.reporter = reporter;
+        this.customTags = customTags;
+        this.localIp = Platform.get().linkLocalIp();
+        this.clock = Platform.get().clock();
+        this.injector = tracing.propagation().injector(Request::setHeader);
+    }
+
+    /**
+     * @param parent the current context, must be sampled
+     * @return a new child span of parent
+     */
+    public LightSpanImpl newChild(@Nonnull TraceContext parent) {
+        long spanId = nextId();
+        return new LightSpanImpl(this, parent, spanId);
+    }
+
+    private static long nextId() {
+        long id;
+        do {
+            id = Platform.get().randomLong();
+        } while (id == 0L);
+        return id;
+    }
+
+    Tracing tracing() {
+        return tracing;
+    }
+
+    TraceContext.Injector<Request> injector() {
+        return injector;
+    }
+
+    String tagValue(String value) {
+        return spanLimiter == null ? value : spanLimiter.truncate(value);
+    }
+
+    long currentTimeMicroseconds() {
+        return clock.currentTimeMicroseconds();
+    }
+
+    void report(LightSpanImpl span) {
+        customTags.tag(span::tag);
+        Endpoint local = new Endpoint();
+        local.setServiceName(customTags.serviceName());
+        if (localIp != null) {
+            if (localIp.indexOf(':') >= 0) {
+                local.setIpv6(localIp);
+            } else {
+                local.setIpv4(localIp);
+            }
+        }
+        span.end(local);
+        reporter.report(span.toReportSpan());
+    }
+}
@@ -0,0 +1,478 @@
+/*
+ * Copyright (c) 2017, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.zipkin.impl;
+
+import brave.internal.codec.HexCodec;
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.TraceContext;
+import com.megaease.easeagent.plugin.api.trace.Request;
+import com.megaease.easeagent.plugin.api.trace.Scope;
+import com.megaease.easeagent.plugin.api.trace.Span;
+import com.megaease.easeagent.plugin.report.tracing.Annotation;
+import com.megaease.easeagent.plugin.report.tracing.Endpoint;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * A span written directly into its report form: tags are kept in a flat key/value array and the
+ * reporter receives a {@link ReportSpan} view over the same fields once the span is finished.
+ * The brave {@link TraceContext} is only materialized when the span is injected or put in scope,
+ * it carries the span as an extra, so {@link #inScope} finds the span for the current context without
+ * registering it with brave.
+ *
+ * <p>Like brave's spans it may be used from several threads, every access to its fields is synchronized.
+ */
+public class LightSpanImpl implements Span {
+    private static final int INITIAL_TAG_CAPACITY = 8;
+    private static final String ERROR_TAG = "error";
+
+    private final LightSpanFactory factory;
+    private final TraceContext parent;
+    private final long spanId;
+    private TraceContext context;
+    private CurrentTraceContext.Scope scope;
+
+    private String name;
+    private Kind kind;
+    private long startTimestamp;
+    private long finishTimestamp;
+    private Throwable error;
+    private String remoteServiceName;
+    private String remoteIp;
+    private int remotePort;
+    private String[] tags;
+    private int tagSize;
+    private List<Annotation> annotations;
+    private boolean finished;
+
+    private String id;
+    private Endpoint localEndpoint;
+    private Endpoint remoteEndpoint;
+    private Map<String, String> tagMap;
+
+    LightSpanImpl(LightSpanFactory factory, TraceContext parent, long spanId) {
+        this.factory = factory;
+        this.parent = parent;
+        this.spanId = spanId;
+    }
+
+    synchronized TraceContext context() {
+        if (context == null) {
+            TraceContext.Builder builder = parent.toBuilder()
+                .parentId(parent.spanId())
+                .spanId(spanId)
+                .shared(false)
+                .clearExtra();
+            for (Object extra : parent.extra()) {
+                if (!(extra instanceof LightSpanImpl)) {
+                    builder.addExtra(extra);
+                }
+            }
+            context = builder.addExtra(this).build();
+        }
+        return context;
+    }
+
+    /**
+     * @return the light span the context was created for, null when it is not a light span's context.
+     * Brave copies extras to children, so the span id is compared too.
+     */
+    @Nullable
+    static LightSpanImpl inScope(@Nullable TraceContext context) {
+        if (context == null) {
+            return null;
+        }
+        List<Object> extra = context.extra();
+        for (int i = 0; i < extra.size(); i++) {
+            Object o = extra.get(i);
+            if (o instanceof LightSpanImpl && ((LightSpanImpl) o).spanId == context.spanId()) {
+                return (LightSpanImpl) o;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isNoop() {
+        return false;
+    }
+
+    @Override
+    public synchronized Span name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    @Override
+    public synchronized Span tag(String key, String value) {
+        if (key == null || value == null) {
+            return this;
+        }
+        value = factory.tagValue(value);
+        for (int i = 0; i < tagSize; i += 2) {
+            if (key.equals(tags[i])) {
+                tags[i + 1] = value;
+                return this;
+            }
+        }
+        if (tags == null) {
+            tags = new String[INITIAL_TAG_CAPACITY];
+        } else if (tagSize == tags.length) {
+            tags = Arrays.copyOf(tags, tagSize << 1);
+        }
+        tags[tagSize++] = key;
+        tags[tagSize++] = value;
+        return this;
+    }
+
+    @Override
+    public Span annotate(String value) {
+        return annotate(factory.currentTimeMicroseconds(), value);
+    }
+
+    @Override
+    public Span start() {
+        return start(factory.currentTimeMicroseconds());
+    }
+
+    @Override
+    public synchronized Span start(long timestamp) {
+        this.startTimestamp = timestamp;
+        return this;
+    }
+
+    @Override
+    public synchronized Span kind(@Nullable Kind kind) {
+        this.kind = kind;
+        return this;
+    }
+
+    @Override
+    public synchronized Span annotate(long timestamp, String value) {
+        if (value == null) {
+            return this;
+        }
+        if (annotations == null) {
+            annotations = new ArrayList<>(2);
+        }
+        annotations.add(new Annotation(timestamp, value));
+        return this;
+    }
+
+    @Override
+    public synchronized Span error(Throwable throwable) {
+        this.error = throwable;
+        return this;
+    }
+
+    @Override
+    public synchronized Span remoteServiceName(String remoteServiceName) {
+        this.remoteServiceName = remoteServiceName;
+        return this;
+    }
+
+    @Override
+    public synchronized boolean remoteIpAndPort(@Nullable String remoteIp, int remotePort) {
+        if (remoteIp == null) {
+            return false;
+        }
+        this.remoteIp = remoteIp;
+        this.remotePort = remotePort;
+        return true;
+    }
+
+    @Override
+    public synchronized void abandon() {
+        closeScope();
+        finished = true;
+    }
+
+    @Override
+    public void finish() {
+        finish(factory.currentTimeMicroseconds());
+    }
+
+    @Override
+    public void finish(long timestamp) {
+        if (markFinished(timestamp)) {
+            factory.report(this);
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (markFinished(0L)) {
+            factory.report(this);
+        }
+    }
+
+    /**
+     * @return false when already finished, abandoned or flushed
+     */
+    private synchronized boolean markFinished(long timestamp) {
+        closeScope();
+        if (finished) {
+            return false;
+        }
+        finished = true;
+        finishTimestamp = timestamp;
+        return true;
+    }
+
+    private synchronized void closeScope() {
+        if (scope != null) {
+            scope.close();
+            scope = null;
+        }
+    }
+
+    /**
+     * called by the factory right before reporting, after which the span is read only.
+     */
+    synchronized void end(Endpoint local) {
+        if (error != null && tagValue(ERROR_TAG) == null) {
+            String message = error.getMessage();
+            tag(ERROR_TAG, message != null ? message : error.getClass().getSimpleName());
+        }
+        if (annotations != null) {
+            Collections.sort(annotations);
+        }
+        this.localEndpoint = local;
+        if (remoteServiceName != null || remoteIp != null) {
+            zipkin2.Endpoint.Builder builder = zipkin2.Endpoint.newBuilder().serviceName(remoteServiceName);
+            if (remoteIp != null && builder.parseIp(remoteIp)) {
+                builder.port(remotePort);
+            }
+            remoteEndpoint = toEndpoint(builder.build());
+        }
+    }
+
+    private static Endpoint toEndpoint(zipkin2.Endpoint source) {
+        Endpoint e = new Endpoint();
+        e.setServiceName(source.serviceName());
+        e.setIpv4(source.ipv4());
+        e.setIpv6(source.ipv6());
+        e.setPort(source.portAsInt());
+        return e;
+    }
+
+    private synchronized String tagValue(String key) {
+        for (int i = 0; i < tagSize; i += 2) {
+            if (key.equals(tags[i])) {
+                return tags[i + 1];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void inject(Request request) {
+        factory.injector().inject(context(), request);
+    }
+
+    @Override
+    public Scope maybeScope() {
+        return new ScopeImpl(factory.tracing().currentTraceContext().maybeScope(context()));
+    }
+
+    @Override
+    public synchronized Span cacheScope() {
+        if (scope != null) {
+            return this;
+        }
+        scope = factory.tracing().currentTraceContext().maybeScope(context());
+        return this;
+    }
+
+    @Override
+    public String traceIdString() {
+        return parent.traceIdString();
+    }
+
+    @Override
+    public String spanIdString() {
+        return id();
+    }
+
+    @Override
+    public String parentIdString() {
+        return parent.spanIdString();
+    }
+
+    @Override
+    public Long traceId() {
+        return parent.traceId();
+    }
+
+    @Override
+    public Long spanId() {
+        return spanId;
+    }
+
+    @Override
+    public Long parentId() {
+        return parent.spanId();
+    }
+
+    /**
+     * Unlike {@link SpanImpl}, which returns its {@code brave.Span}, this returns the brave
+     * {@link TraceContext}: a brave span would register the span with brave's pending spans.
+     *
+     * @return the brave {@link TraceContext} of this span
+     */
+    @Override
+    public Object unwrap() {
+        return context();
+    }
+
+    ReportSpan toReportSpan() {
+        return new Report();
+    }
+
+    private String id() {
+        if (id == null) {
+            id = HexCodec.toLowerHex(spanId);
+        }
+        return id;
+    }
+
+    /**
+     * read only {@link ReportSpan} view over the finished span, no data is copied.
+     */
+    class Report implements ReportSpan {
+        @Override
+        public String traceId() {
+            return parent.traceIdString();
+        }
+
+        @Override
+        public String parentId() {
+            return parent.spanIdString();
+        }
+
+        @Override
+        public String id() {
+            return LightSpanImpl.this.id();
+        }
+
+        @Override
+        public String kind() {
+            return kind == null ? null : kind.name();
+        }
+
+        @Override
+        public String name() {
+            return name == null || name.isEmpty() ? null : name.toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public long timestamp() {
+            return startTimestamp;
+        }
+
+        @Override
+        public long duration() {
+            if (startTimestamp == 0L || finishTimestamp == 0L) {
+                return 0L;
+            }
+            return Math.max(finishTimestamp - startTimestamp, 1L);
+        }
+
+        @Override
+        public boolean shared() {
+            return false;
+        }
+
+        @Override
+        public boolean debug() {
+            return parent.debug();
+        }
+
+        @Override
+        public Endpoint localEndpoint() {
+            return localEndpoint;
+        }
+
+        @Override
+        public Endpoint remoteEndpoint() {
+            return remoteEndpoint;
+        }
+
+        @Override
+        public List<Annotation> annotations() {
+            if (annotations == null) {
+                return Collections.emptyList();
+            }
+            return annotations;
+        }
+
+        @Override
+        public Map<String, String> tags() {
+            synchronized (LightSpanImpl.this) {
+                return tagMap();
+            }
+        }
+
+        private Map<String, String> tagMap() {
+            if (tagMap == null) {
+                if (tagSize == 0) {
+                    tagMap = Collections.emptyMap();
+                } else {
+                    TreeMap<String, String> map = new TreeMap<>();
+                    for (int i = 0; i < tagSize; i += 2) {
+                        map.put(tags[i], tags[i + 1]);
+                    }
+                    tagMap = map;
+                }
+            }
+            return tagMap;
+        }
+
+        @Override
+        public String tag(String key) {
+            return tagValue(key);
+        }
+
+        @Override
+        public String type() {
+            return null;
+        }
+
+        @Override
+        public String service() {
+            return null;
+        }
+
+        @Override
+        public String system() {
+            return null;
+        }
+
+        @Override
+        public String localServiceName() {
+            return localEndpoint != null ? localEndpoint.serviceName() : null;
+        }
+
+        @Override
+        public String remoteServiceName() {
+            return remoteEndpoint != null ? remoteEndpoint.serviceName() : null;
+        }
+    }
+}
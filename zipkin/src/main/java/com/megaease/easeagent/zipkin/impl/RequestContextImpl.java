@@ -17,23 +17,38 @@
 
 package com.megaease.easeagent.zipkin.impl;
 
+import brave.propagation.TraceContext;
 import com.megaease.easeagent.plugin.api.ProgressFields;
 import com.megaease.easeagent.plugin.api.context.RequestContext;
+import com.megaease.easeagent.plugin.api.trace.Request;
 import com.megaease.easeagent.plugin.api.trace.Response;
 import com.megaease.easeagent.plugin.api.trace.Scope;
 import com.megaease.easeagent.plugin.api.trace.Span;
 
+import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * The trace context is injected straight into the request carrier. The header map returned by
+ * {@link #getHeaders()} is only built when someone asks for it, so an outbound call that never
+ * passes its headers on makes no extra copies.
+ */
 public class RequestContextImpl implements RequestContext {
     private final Span span;
     private final Scope scope;
-    private final AsyncRequest asyncRequest;
+    private final Request request;
+    private final TraceContext traceContext;
+    private final TraceContext.Injector<Map<String, String>> headerInjector;
+    private Map<String, String> extraHeaders;
+    private Map<String, String> headers;
 
-    public RequestContextImpl(Span span, Scope scope, AsyncRequest asyncRequest) {
+    public RequestContextImpl(Span span, Scope scope, Request request,
+                              TraceContext traceContext, TraceContext.Injector<Map<String, String>> headerInjector) {
         this.span = span;
         this.scope = scope;
-        this.asyncRequest = asyncRequest;
+        this.request = request;
+        this.traceContext = traceContext;
+        this.headerInjector = headerInjector;
     }
 
     @Override
@@ -53,12 +68,29 @@ public class RequestContextImpl implements RequestContext {
 
     @Override
     public void setHeader(String name, String value) {
-        asyncRequest.setHeader(name, value);
+        request.setHeader(name, value);
+        if (headers != null) {
+            headers.put(name, value);
+            return;
+        }
+        if (extraHeaders == null) {
+            extraHeaders = new HashMap<>();
+        }
+        extraHeaders.put(name, value);
     }
 
     @Override
     public Map<String, String> getHeaders() {
-        return asyncRequest.getHeaders();
+        if (headers == null) {
+            Map<String, String> result = new HashMap<>();
+            headerInjector.inject(traceContext, result);
+            if (extraHeaders != null) {
+                result.putAll(extraHeaders);
+                extraHeaders = null;
+            }
+            headers = result;
+        }
+        return headers;
     }
 
     @Override
@@ -48,24 +48,37 @@ public class SpanImpl implements Span {
     private final brave.Span span;
     private CurrentTraceContext.Scope scope;
     private final TraceContext.Injector<Request> injector;
+    private final SpanLimiter limiter;
 
     private SpanImpl(@Nonnull Tracing tracing, @Nonnull brave.Span span,
-                     @Nonnull TraceContext.Injector<Request> injector) {
+                     @Nonnull TraceContext.Injector<Request> injector, @Nullable SpanLimiter limiter) {
         this.tracing = tracing;
         this.span = span;
         this.injector = injector;
+        this.limiter = limiter;
     }
 
     public static Span build(Tracing tracing,
                              brave.Span span,
                              boolean cachedScope,
                              TraceContext.Injector<? extends Request> injector) {
+        return build(tracing, span, cachedScope, injector, null);
+    }
+
+    /**
+     * @param limiter when not null, tag values are truncated when they are set
+     */
+    public static Span build(Tracing tracing,
+                             brave.Span span,
+                             boolean cachedScope,
+                             TraceContext.Injector<? extends Request> injector,
+                             @Nullable SpanLimiter limiter) {
         if (span == null) {
             return NoOpTracer.NO_OP_SPAN;
         }
 
         TraceContext.Injector<Request> ci = (TraceContext.Injector<Request>) injector;
-        SpanImpl eSpan = new SpanImpl(tracing, span, ci);
+        SpanImpl eSpan = new SpanImpl(tracing, span, ci, limiter);
 
         if (cachedScope) {
             eSpan.cacheScope();
@@ -121,7 +134,7 @@ public class SpanImpl implements Span {
         if (key == null || value == null) {
             return this;
         }
-        span.tag(key, value);
+        span.tag(key, limiter == null ? value : limiter.truncate(value));
         return this;
     }
 
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2017, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.zipkin.impl;
+
+import brave.Clock;
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.internal.Platform;
+import brave.propagation.TraceContext;
+import com.megaease.easeagent.plugin.api.trace.Request;
+import com.megaease.easeagent.plugin.api.trace.Span;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the data a single local root span (one request) can produce.
+ * <ul>
+ *     <li>maxChildSpans: once a local root created this many child spans, local, client, producer and consumer ones
+ *     alike, further children are not reported. They are summed up into one "span-limit-summary" span carrying the
+ *     count and the total duration, reported when the local root ends. A local root which neither finishes nor is
+ *     abandoned is forgotten after {@link #ROOT_EXPIRE_NANOS}, or earlier when {@link #MAX_TRACKED_ROOTS} roots
+ *     are running; its children are then counted from 0 again.</li>
+ *     <li>maxTagValueLength: tag values longer than this many UTF-8 bytes are cut and end with
+ *     {@link #TRUNCATED_MARKER}, when they are set and again when the span ends for tags set by brave.</li>
+ * </ul>
+ * A value less than or equal to 0 disables the limit.
+ */
+public class SpanLimiter extends SpanHandler {
+    public static final String SUMMARY_SPAN_NAME = "span-limit-summary";
+    public static final String SUMMARY_COUNT_TAG = "span.limit.count";
+    public static final String SUMMARY_DURATION_TAG = "span.limit.duration";
+    public static final String TRUNCATED_MARKER = "...(truncated)";
+    static final int MAX_TRACKED_ROOTS = 10000;
+    static final long ROOT_EXPIRE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final int maxChildSpans;
+    private final int maxTagValueLength;
+    private final Supplier<Tracing> tracing;
+    private final Clock clock;
+    private final Map<Long, RootState> roots = new ConcurrentHashMap<>();
+    private final MutableSpan.TagUpdater tagUpdater = (key, value) -> truncate(value);
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    public SpanLimiter(int maxChildSpans, int maxTagValueLength, Supplier<Tracing> tracing) {
+        this.maxChildSpans = maxChildSpans;
+        this.maxTagValueLength = maxTagValueLength;
+        this.tracing = tracing;
+        this.clock = Platform.get().clock();
+    }
+
+    public boolean isEnabled() {
+        return maxChildSpans > 0 || maxTagValueLength > 0;
+    }
+
+    /**
+     * @param injector injector of the suppressed span
+     * @return null when the current span may get a new child, otherwise a span which is only counted in the summary
+     */
+    public Span suppressedChild(Tracing tracing, TraceContext.Injector<? extends Request> injector) {
+        if (maxChildSpans <= 0) {
+            return null;
+        }
+        TraceContext parent = tracing.currentTraceContext().get();
+        if (parent == null || !Boolean.TRUE.equals(parent.sampled())) {
+            return null;
+        }
+        return suppressedChild(parent, injector);
+    }
+
+    /**
+     * @param parent the current context
+     * @param injector injector of the suppressed span
+     * @return null when a new child span is allowed, otherwise a span which is only counted in the summary
+     */
+    @SuppressWarnings("unchecked")
+    Span suppressedChild(TraceContext parent, TraceContext.Injector<? extends Request> injector) {
+        if (maxChildSpans <= 0 || parent.localRootId() == 0L) {
+            return null;
+        }
+        RootState state = roots.get(parent.localRootId());
+        if (state == null) {
+            long now = System.nanoTime();
+            if (roots.size() >= MAX_TRACKED_ROOTS) {
+                evict(now);
+            }
+            state = roots.computeIfAbsent(parent.localRootId(), k -> new RootState(now));
+        }
+        if (state.incrementSpans() <= maxChildSpans) {
+            return null;
+        }
+        return new SuppressedSpan(this, state, parent, (TraceContext.Injector<Request>) injector);
+    }
+
+    /**
+     * Forgets the roots older than {@link #ROOT_EXPIRE_NANOS}, and the oldest tenth when all are younger.
+     * One thread evicts at a time, the others go on.
+     */
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            roots.values().removeIf(state -> now - state.created >= ROOT_EXPIRE_NANOS);
+            if (roots.size() < MAX_TRACKED_ROOTS) {
+                return;
+            }
+            long[] created = new long[roots.size()];
+            int n = 0;
+            for (RootState state : roots.values()) {
+                if (n == created.length) {
+                    break;
+                }
+                created[n++] = state.created - now;
+            }
+            if (n == 0) {
+                return;
+            }
+            Arrays.sort(created, 0, n);
+            long oldest = created[n / 10] + now;
+            roots.values().removeIf(state -> state.created - oldest <= 0);
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * @return value itself or its first maxTagValueLength UTF-8 bytes followed by {@link #TRUNCATED_MARKER},
+     * a char is never split
+     */
+    public String truncate(String value) {
+        // no char takes more than 3 bytes, a surrogate pair takes 4 for 2 chars
+        if (maxTagValueLength <= 0 || value == null || value.length() <= maxTagValueLength / 3) {
+            return value;
+        }
+        int bytes = 0;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            int size;
+            if (c < 0x80) {
+                size = 1;
+            } else if (c < 0x800) {
+                size = 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                size = 4;
+            } else {
+                size = 3;
+            }
+            if (bytes + size > maxTagValueLength) {
+                return value.substring(0, i) + TRUNCATED_MARKER;
+            }
+            bytes += size;
+            if (size == 4) {
+                i++;
+            }
+        }
+        return value;
+    }
+
+    long currentTimeMicroseconds() {
+        return clock.currentTimeMicroseconds();
+    }
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        if (maxTagValueLength > 0) {
+            span.forEachTag(tagUpdater);
+        }
+        if (maxChildSpans > 0 && context.isLocalRoot()) {
+            RootState state = roots.remove(context.localRootId());
+            if (state != null && state.suppressed > 0 && cause == Cause.FINISHED) {
+                reportSummary(context, span, state);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean handlesAbandoned() {
+        return maxChildSpans > 0;
+    }
+
+    private void reportSummary(TraceContext root, MutableSpan rootSpan, RootState state) {
+        Tracing current = tracing.get();
+        if (current == null) {
+            return;
+        }
+        long start;
+        long finish;
+        int count;
+        long duration;
+        synchronized (state) {
+            count = state.suppressed;
+            duration = state.duration;
+            start = state.firstStart != 0L ? state.firstStart : rootSpan.finishTimestamp();
+            finish = Math.max(state.lastFinish, start);
+        }
+        brave.Span summary = current.tracer().newChild(root)
+            .name(SUMMARY_SPAN_NAME)
+            .tag(SUMMARY_COUNT_TAG, String.valueOf(count))
+            .tag(SUMMARY_DURATION_TAG, String.valueOf(duration));
+        summary.start(start);
+        summary.finish(finish);
+    }
+
+    static class RootState {
+        private final long created;
+        private int spans;
+        private int suppressed;
+        private long duration;
+        private long firstStart;
+        private long lastFinish;
+
+        RootState(long created) {
+            this.created = created;
+        }
+
+        synchronized int incrementSpans() {
+            return ++spans;
+        }
+
+        synchronized void record(long start, long finish) {
+            suppressed++;
+            if (start == 0L) {
+                return;
+            }
+            duration += Math.max(finish - start, 0L);
+            if (firstStart == 0L || start < firstStart) {
+                firstStart = start;
+            }
+            if (finish > lastFinish) {
+                lastFinish = finish;
+            }
+        }
+    }
+}
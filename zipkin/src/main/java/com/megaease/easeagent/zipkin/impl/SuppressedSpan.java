@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2017, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.zipkin.impl;
+
+import brave.propagation.TraceContext;
+import com.megaease.easeagent.plugin.api.trace.Request;
+import com.megaease.easeagent.plugin.api.trace.Scope;
+import com.megaease.easeagent.plugin.api.trace.Span;
+import com.megaease.easeagent.plugin.bridge.NoOpTracer;
+
+import javax.annotation.Nullable;
+
+/**
+ * A child span over the {@link SpanLimiter} limit: it is never reported by itself, only its timing is
+ * added to the summary of its local root. It stands in for its parent for ids and propagation.
+ */
+public class SuppressedSpan implements Span {
+    private final SpanLimiter limiter;
+    private final SpanLimiter.RootState state;
+    private final TraceContext parent;
+    private final TraceContext.Injector<Request> injector;
+    private long startTimestamp;
+    private boolean finished;
+
+    SuppressedSpan(SpanLimiter limiter, SpanLimiter.RootState state,
+                   TraceContext parent, TraceContext.Injector<Request> injector) {
+        this.limiter = limiter;
+        this.state = state;
+        this.parent = parent;
+        this.injector = injector;
+    }
+
+    @Override
+    public boolean isNoop() {
+        return false;
+    }
+
+    @Override
+    public Span name(String name) {
+        return this;
+    }
+
+    @Override
+    public Span tag(String key, String value) {
+        return this;
+    }
+
+    @Override
+    public Span annotate(String value) {
+        return this;
+    }
+
+    @Override
+    public Span start() {
+        return start(limiter.currentTimeMicroseconds());
+    }
+
+    @Override
+    public Span start(long timestamp) {
+        this.startTimestamp = timestamp;
+        return this;
+    }
+
+    @Override
+    public Span kind(@Nullable Kind kind) {
+        return this;
+    }
+
+    @Override
+    public Span annotate(long timestamp, String value) {
+        return this;
+    }
+
+    @Override
+    public Span error(Throwable throwable) {
+        return this;
+    }
+
+    @Override
+    public Span remoteServiceName(String remoteServiceName) {
+        return this;
+    }
+
+    @Override
+    public boolean remoteIpAndPort(@Nullable String remoteIp, int remotePort) {
+        return false;
+    }
+
+    @Override
+    public void abandon() {
+        finished = true;
+    }
+
+    @Override
+    public void finish() {
+        finish(limiter.currentTimeMicroseconds());
+    }
+
+    @Override
+    public void finish(long timestamp) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        state.record(startTimestamp, timestamp);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void inject(Request request) {
+        injector.inject(parent, request);
+    }
+
+    @Override
+    public Scope maybeScope() {
+        return NoOpTracer.NO_OP_SCOPE;
+    }
+
+    @Override
+    public Span cacheScope() {
+        return this;
+    }
+
+    @Override
+    public String traceIdString() {
+        return parent.traceIdString();
+    }
+
+    @Override
+    public String spanIdString() {
+        return parent.spanIdString();
+    }
+
+    @Override
+    public String parentIdString() {
+        return parent.parentIdString();
+    }
+
+    @Override
+    public Long traceId() {
+        return parent.traceId();
+    }
+
+    @Override
+    public Long spanId() {
+        return parent.spanId();
+    }
+
+    @Override
+    public Long parentId() {
+        return parent.parentId();
+    }
+
+    @Override
+    public Object unwrap() {
+        return parent;
+    }
+}
@@ -31,7 +31,9 @@ import com.megaease.easeagent.plugin.bridge.NoOpTracer;
 import com.megaease.easeagent.zipkin.impl.message.MessagingTracingImpl;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
 
 public class TracingImpl implements ITracing {
@@ -43,13 +45,21 @@ public class TracingImpl implements ITracing {
     private final TraceContext.Injector<Request> defaultZipkinInjector;
     private final TraceContext.Injector<Request> clientZipkinInjector;
     private final TraceContext.Extractor<Request> defaultZipkinExtractor;
+    private final TraceContext.Injector<Map<String, String>> defaultHeaderInjector;
+    private final TraceContext.Injector<Map<String, String>> clientHeaderInjector;
 
     private final MessagingTracing<MessagingRequest> messagingTracing;
     private final List<String> propagationKeys;
+    private final LightSpanFactory lightSpanFactory;
+    private final SpanLimiter spanLimiter;
 
     private TracingImpl(@Nonnull Supplier<InitializeContext> supplier,
-                        @Nonnull brave.Tracing tracing) {
+                        @Nonnull brave.Tracing tracing,
+                        @Nullable LightSpanFactory lightSpanFactory,
+                        @Nullable SpanLimiter spanLimiter) {
         this.supplier = supplier;
+        this.lightSpanFactory = lightSpanFactory;
+        this.spanLimiter = spanLimiter;
         this.tracing = tracing;
         this.tracer = tracing.tracer();
         this.propagationKeys = tracing.propagation().keys();
@@ -58,15 +68,34 @@ public class TracingImpl implements ITracing {
         this.defaultZipkinInjector = propagation.injector(Request::setHeader);
         this.clientZipkinInjector = propagation.injector(new RemoteSetterImpl<>(brave.Span.Kind.CLIENT));
         this.defaultZipkinExtractor = propagation.extractor(Request::header);
-        this.messagingTracing = MessagingTracingImpl.build(tracing);
+        this.defaultHeaderInjector = propagation.injector(Map::put);
+        this.clientHeaderInjector = propagation.injector(new HeaderMapSetter(brave.Span.Kind.CLIENT));
+        this.messagingTracing = MessagingTracingImpl.build(tracing, spanLimiter);
     }
 
     public static ITracing build(Supplier<InitializeContext> supplier, brave.Tracing tracing) {
+        return build(supplier, tracing, null);
+    }
+
+    /**
+     * @param lightSpanFactory when not null, {@link #nextSpan()} and {@link #clientRequest(Request)} create
+     *                         children of a sampled current span through it instead of through brave
+     */
+    public static ITracing build(Supplier<InitializeContext> supplier, brave.Tracing tracing,
+                                 LightSpanFactory lightSpanFactory) {
+        return build(supplier, tracing, lightSpanFactory, null);
+    }
+
+    /**
+     * @param spanLimiter when not null, children of a sampled span over its child span limit are only counted
+     */
+    public static ITracing build(Supplier<InitializeContext> supplier, brave.Tracing tracing,
+                                 LightSpanFactory lightSpanFactory, SpanLimiter spanLimiter) {
         if (tracing == null) {
             return NoOpTracer.NO_OP_TRACING;
         }
 
-        return new TracingImpl(supplier, tracing);
+        return new TracingImpl(supplier, tracing, lightSpanFactory, spanLimiter);
     }
 
     @Override
@@ -92,7 +121,9 @@ public class TracingImpl implements ITracing {
     public Span currentSpan() {
         Span span = NoOpTracer.NO_OP_SPAN;
         if (tracer != null) {
-            span = build(tracer.currentSpan());
+            // a light span in scope is not known to brave, its tracer would start tracking it
+            LightSpanImpl light = LightSpanImpl.inScope(tracing.currentTraceContext().get());
+            span = light != null ? light : build(tracer.currentSpan());
         }
         return NoOpTracer.noNullSpan(span);
     }
@@ -102,7 +133,7 @@ public class TracingImpl implements ITracing {
     }
 
     private Span build(brave.Span bSpan, boolean cacheScope) {
-        return SpanImpl.build(tracing(), bSpan, cacheScope, defaultZipkinInjector);
+        return SpanImpl.build(tracing(), bSpan, cacheScope, defaultZipkinInjector, spanLimiter);
     }
 
     private void setInfo(brave.Span span, Request request) {
@@ -118,11 +149,7 @@ public class TracingImpl implements ITracing {
             LOGGER.debug("tracer was null.");
             return null;
         }
-        brave.Span span = tracer.currentSpan();
-        if (span == null) {
-            return null;
-        }
-        return span.context();
+        return tracing.currentTraceContext().get();
     }
 
     @Override
@@ -152,11 +179,30 @@ public class TracingImpl implements ITracing {
 
     @Override
     public RequestContext clientRequest(Request request) {
+        Span suppressed = spanLimiter == null ? null : spanLimiter.suppressedChild(tracing, clientZipkinInjector);
+        if (suppressed != null) {
+            suppressed.inject(request);
+            return new RequestContextImpl(suppressed, suppressed.maybeScope(), request,
+                (TraceContext) suppressed.unwrap(), clientHeaderInjector);
+        }
+        TraceContext parent = lightSpanFactory == null ? null : tracing.currentTraceContext().get();
+        if (parent != null && Boolean.TRUE.equals(parent.sampled())) {
+            LightSpanImpl light = lightSpanFactory.newChild(parent);
+            light.name(request.name());
+            if (request.kind() != null) {
+                light.kind(request.kind());
+            }
+            TraceContext context = light.context();
+            clientZipkinInjector.inject(context, request);
+            if (request.cacheScope()) {
+                light.cacheScope();
+            }
+            return new RequestContextImpl(light, light.maybeScope(), request, context, clientHeaderInjector);
+        }
         brave.Span span = SpanImpl.nextBraveSpan(tracing, defaultZipkinExtractor, request);
-        AsyncRequest asyncRequest = new AsyncRequest(request);
-        clientZipkinInjector.inject(span.context(), asyncRequest);
+        clientZipkinInjector.inject(span.context(), request);
         Span newSpan = build(span, request.cacheScope());
-        return new RequestContextImpl(newSpan, newSpan.maybeScope(), asyncRequest);
+        return new RequestContextImpl(newSpan, newSpan.maybeScope(), request, span.context(), clientHeaderInjector);
     }
 
     @Override
@@ -179,10 +225,9 @@ public class TracingImpl implements ITracing {
             return NoOpContext.NO_OP_PROGRESS_CONTEXT;
         }
         setInfo(span, request);
-        AsyncRequest asyncRequest = new AsyncRequest(request);
-        defaultZipkinInjector.inject(span.context(), asyncRequest);
+        defaultZipkinInjector.inject(span.context(), request);
         Span newSpan = build(span, request.cacheScope());
-        return new RequestContextImpl(newSpan, newSpan.maybeScope(), asyncRequest);
+        return new RequestContextImpl(newSpan, newSpan.maybeScope(), request, span.context(), defaultHeaderInjector);
     }
 
     @Override
@@ -192,6 +237,18 @@ public class TracingImpl implements ITracing {
 
     @Override
     public Span nextSpan() {
+        if (lightSpanFactory != null || spanLimiter != null) {
+            TraceContext parent = tracing.currentTraceContext().get();
+            if (parent != null && Boolean.TRUE.equals(parent.sampled())) {
+                Span suppressed = spanLimiter == null ? null : spanLimiter.suppressedChild(parent, defaultZipkinInjector);
+                if (suppressed != null) {
+                    return suppressed;
+                }
+                if (lightSpanFactory != null) {
+                    return lightSpanFactory.newChild(parent);
+                }
+            }
+        }
         return build(tracer().nextSpan(), false);
     }
 
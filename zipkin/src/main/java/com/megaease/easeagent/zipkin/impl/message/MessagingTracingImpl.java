@@ -25,8 +25,10 @@ import com.megaease.easeagent.zipkin.impl.MessageImpl;
 import com.megaease.easeagent.zipkin.impl.RemoteGetterImpl;
 import com.megaease.easeagent.zipkin.impl.RemoteSetterImpl;
 import com.megaease.easeagent.zipkin.impl.SpanImpl;
+import com.megaease.easeagent.zipkin.impl.SpanLimiter;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.function.Function;
 
 public class MessagingTracingImpl<R extends MessagingRequest> implements MessagingTracing<R> {
@@ -36,6 +38,8 @@ public class MessagingTracingImpl<R extends MessagingRequest> implements Messagi
     private final Injector<R> producerInjector;
     private final Injector<R> consumerInjector;
 
+    private final SpanLimiter spanLimiter;
+
     private final Function<R, Boolean> consumerSampler;
     private final Function<R, Boolean> producerSampler;
 
@@ -44,8 +48,9 @@ public class MessagingTracingImpl<R extends MessagingRequest> implements Messagi
     private final TraceContext.Extractor<R> zipkinProducerExtractor;
     private final TraceContext.Extractor<R> zipkinConsumerExtractor;
 
-    private MessagingTracingImpl(brave.messaging.MessagingTracing messagingTracing) {
+    private MessagingTracingImpl(brave.messaging.MessagingTracing messagingTracing, @Nullable SpanLimiter spanLimiter) {
         this.messagingTracing = messagingTracing;
+        this.spanLimiter = spanLimiter;
         this.zipkinProducerExtractor = messagingTracing.propagation().extractor(new RemoteGetterImpl<>(brave.Span.Kind.PRODUCER));
         this.zipkinConsumerExtractor = messagingTracing.propagation().extractor(new RemoteGetterImpl<>(brave.Span.Kind.CONSUMER));
         this.zipkinProducerInjector = messagingTracing.propagation().injector(new RemoteSetterImpl<>(brave.Span.Kind.PRODUCER));
@@ -61,25 +66,36 @@ public class MessagingTracingImpl<R extends MessagingRequest> implements Messagi
     }
 
     public static MessagingTracing<MessagingRequest> build(brave.Tracing tracing) {
+        return build(tracing, null);
+    }
+
+    /**
+     * @param spanLimiter when not null, producer and consumer spans count as children of the current span
+     */
+    public static MessagingTracing<MessagingRequest> build(brave.Tracing tracing, @Nullable SpanLimiter spanLimiter) {
         if (tracing == null) {
             return NoOpTracer.NO_OP_MESSAGING_TRACING;
         }
         brave.messaging.MessagingTracing messagingTracing = brave.messaging.MessagingTracing
             .newBuilder(tracing).build();
 
-        return new MessagingTracingImpl<>(messagingTracing);
+        return new MessagingTracingImpl<>(messagingTracing, spanLimiter);
     }
 
     @Override
     public Span consumerSpan(MessagingRequest request) {
         brave.Tracing tracing = messagingTracing.tracing();
+        Span suppressed = spanLimiter == null ? null : spanLimiter.suppressedChild(tracing, this.zipkinConsumerInjector);
+        if (suppressed != null) {
+            return suppressed;
+        }
         brave.Span span = SpanImpl.nextBraveSpan(tracing, this.zipkinConsumerExtractor, request);
         if (span.isNoop()) {
             return NoOpTracer.NO_OP_SPAN;
         }
         setMessageInfo(span, request);
         Span eSpan = SpanImpl.build(messagingTracing.tracing(), span,
-            request.cacheScope(), this.zipkinConsumerInjector);
+            request.cacheScope(), this.zipkinConsumerInjector, spanLimiter);
 
         return NoOpTracer.noNullSpan(eSpan);
     }
@@ -87,12 +103,17 @@ public class MessagingTracingImpl<R extends MessagingRequest> implements Messagi
     @Override
     public Span producerSpan(MessagingRequest request) {
         brave.Tracing tracing = messagingTracing.tracing();
+        Span suppressed = spanLimiter == null ? null : spanLimiter.suppressedChild(tracing, zipkinProducerInjector);
+        if (suppressed != null) {
+            producerInjector.inject(suppressed, (R) request);
+            return suppressed;
+        }
         brave.Span span = SpanImpl.nextBraveSpan(tracing, this.zipkinProducerExtractor, request);
         if (span.isNoop()) {
             return NoOpTracer.NO_OP_SPAN;
         }
         setMessageInfo(span, request);
-        Span eSpan = SpanImpl.build(messagingTracing.tracing(), span, request.cacheScope(), zipkinProducerInjector);
+        Span eSpan = SpanImpl.build(messagingTracing.tracing(), span, request.cacheScope(), zipkinProducerInjector, spanLimiter);
         producerInjector.inject(eSpan, (R) request);
         return NoOpTracer.noNullSpan(eSpan);
     }
@@ -164,6 +185,8 @@ public class MessagingTracingImpl<R extends MessagingRequest> implements Messagi
             Object spanO = span.unwrap();
             if (spanO instanceof brave.Span) {
                 this.injector.inject(((brave.Span) spanO).context(), request);
+            } else if (spanO instanceof TraceContext) {
+                this.injector.inject((TraceContext) spanO, request);
             }
         }
 
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2017, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.megaease.easeagent.zipkin.propagation;
+
+import brave.propagation.B3Propagation;
+import brave.propagation.Propagation;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+import com.megaease.easeagent.log4j2.Logger;
+import com.megaease.easeagent.log4j2.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Injects every configured format and extracts with the first format present in the request,
+ * so a service can sit between B3 and W3C speaking peers.
+ */
+public final class CompositePropagation<K> implements Propagation<K> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompositePropagation.class);
+
+    public static final String B3 = "b3";
+    public static final String B3_SINGLE = "b3single";
+    public static final String W3C = "w3c";
+
+    private final List<Propagation<K>> delegates;
+    private final List<K> keys;
+
+    CompositePropagation(List<Propagation<K>> delegates) {
+        this.delegates = delegates;
+        Set<K> allKeys = new LinkedHashSet<>();
+        for (Propagation<K> delegate : delegates) {
+            allKeys.addAll(delegate.keys());
+        }
+        this.keys = Collections.unmodifiableList(new ArrayList<>(allKeys));
+    }
+
+    /**
+     * @param types comma separated formats: {@value #B3}, {@value #B3_SINGLE} and {@value #W3C}.
+     *              Unknown formats are ignored, empty means {@value #B3}.
+     */
+    public static Propagation.Factory newFactory(String types) {
+        List<Propagation.Factory> factories = new ArrayList<>();
+        if (types != null) {
+            for (String type : types.split(",")) {
+                Propagation.Factory factory = factory(type.trim());
+                if (factory != null && !factories.contains(factory)) {
+                    factories.add(factory);
+                }
+            }
+        }
+        if (factories.isEmpty()) {
+            return B3Propagation.FACTORY;
+        }
+        if (factories.size() == 1) {
+            return factories.get(0);
+        }
+        return new Factory(factories);
+    }
+
+    private static final Propagation.Factory B3_SINGLE_FACTORY = B3Propagation.newFactoryBuilder()
+        .injectFormat(B3Propagation.Format.SINGLE_NO_PARENT)
+        .build();
+
+    private static Propagation.Factory factory(String type) {
+        if (type.isEmpty()) {
+            return null;
+        }
+        switch (type.toLowerCase()) {
+            case B3:
+                return B3Propagation.FACTORY;
+            case B3_SINGLE:
+                return B3_SINGLE_FACTORY;
+            case W3C:
+                return W3CPropagation.FACTORY;
+            default:
+                LOGGER.warn("unknown propagation type: {}, ignored", type);
+                return null;
+        }
+    }
+
+    @Override
+    public List<K> keys() {
+        return keys;
+    }
+
+    @Override
+    public <R> TraceContext.Injector<R> injector(Setter<R, K> setter) {
+        List<TraceContext.Injector<R>> injectors = new ArrayList<>(delegates.size());
+        for (Propagation<K> delegate : delegates) {
+            injectors.add(delegate.injector(setter));
+        }
+        return (context, request) -> {
+            for (int i = 0; i < injectors.size(); i++) {
+                injectors.get(i).inject(context, request);
+            }
+        };
+    }
+
+    @Override
+    public <R> TraceContext.Extractor<R> extractor(Getter<R, K> getter) {
+        List<TraceContext.Extractor<R>> extractors = new ArrayList<>(delegates.size());
+        for (Propagation<K> delegate : delegates) {
+            extractors.add(delegate.extractor(getter));
+        }
+        return request -> {
+            TraceContextOrSamplingFlags result = TraceContextOrSamplingFlags.EMPTY;
+            for (int i = 0; i < extractors.size(); i++) {
+                result = extractors.get(i).extract(request);
+                if (result != TraceContextOrSamplingFlags.EMPTY) {
+                    return result;
+                }
+            }
+            return result;
+        };
+    }
+
+    static final class Factory extends Propagation.Factory {
+        private final List<Propagation.Factory> factories;
+
+        Factory(List<Propagation.Factory> factories) {
+            this.factories = factories;
+        }
+
+        @Override
+        public <K> Propagation<K> create(Propagation.KeyFactory<K> keyFactory) {
+            List<Propagation<K>> delegates = new ArrayList<>(factories.size());
+            for (Propagation.Factory factory : factories) {
+                delegates.add(factory.create(keyFactory));
+            }
+            return new CompositePropagation<>(delegates);
+        }
+
+        @Override
+        public boolean supportsJoin() {
+            for (Propagation.Factory factory : factories) {
+                if (!factory.supportsJoin()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean requires128BitTraceId() {
+            for (Propagation.Factory factory : factories) {
+                if (factory.requires128BitTraceId()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public TraceContext decorate(TraceContext context) {
+            for (Propagation.Factory factory : factories) {
+                context = factory.decorate(context);
+            }
+            return context;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2017, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.megaease.easeagent.zipkin.propagation;
+
+import brave.propagation.Propagation;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * W3C Trace Context propagation: a single {@code traceparent} header
+ * <pre>{@code 00-<32 hex trace-id>-<16 hex parent-id>-<2 hex flags>}</pre>
+ * The header is parsed in place over the {@link CharSequence}, no intermediate strings are
+ * created. {@code tracestate} is not propagated.
+ */
+public final class W3CPropagation<K> implements Propagation<K> {
+    public static final String TRACEPARENT = "traceparent";
+    public static final Propagation.Factory FACTORY = new Factory();
+
+    static final int VERSION_LENGTH = 2;
+    static final int TRACE_ID_OFFSET = VERSION_LENGTH + 1;
+    static final int PARENT_ID_OFFSET = TRACE_ID_OFFSET + 32 + 1;
+    static final int FLAGS_OFFSET = PARENT_ID_OFFSET + 16 + 1;
+    static final int TRACEPARENT_LENGTH = FLAGS_OFFSET + 2;
+    static final int FLAG_SAMPLED = 0x01;
+
+    private final K traceparentKey;
+    private final List<K> keys;
+
+    W3CPropagation(K traceparentKey) {
+        this.traceparentKey = traceparentKey;
+        this.keys = Collections.singletonList(traceparentKey);
+    }
+
+    @Override
+    public List<K> keys() {
+        return keys;
+    }
+
+    @Override
+    public <R> TraceContext.Injector<R> injector(Setter<R, K> setter) {
+        if (setter == null) throw new NullPointerException("setter == null");
+        return (context, request) -> setter.put(request, traceparentKey, writeTraceparent(context));
+    }
+
+    @Override
+    public <R> TraceContext.Extractor<R> extractor(Getter<R, K> getter) {
+        if (getter == null) throw new NullPointerException("getter == null");
+        return request -> {
+            String value = getter.get(request, traceparentKey);
+            if (value == null) {
+                return TraceContextOrSamplingFlags.EMPTY;
+            }
+            TraceContext context = parseTraceparent(value);
+            return context == null ? TraceContextOrSamplingFlags.EMPTY : TraceContextOrSamplingFlags.create(context);
+        };
+    }
+
+    public static String writeTraceparent(TraceContext context) {
+        char[] data = new char[TRACEPARENT_LENGTH];
+        data[0] = '0';
+        data[1] = '0';
+        data[TRACE_ID_OFFSET - 1] = '-';
+        writeHex(data, TRACE_ID_OFFSET, context.traceIdHigh());
+        writeHex(data, TRACE_ID_OFFSET + 16, context.traceId());
+        data[PARENT_ID_OFFSET - 1] = '-';
+        writeHex(data, PARENT_ID_OFFSET, context.spanId());
+        data[FLAGS_OFFSET - 1] = '-';
+        data[FLAGS_OFFSET] = '0';
+        data[FLAGS_OFFSET + 1] = Boolean.TRUE.equals(context.sampled()) ? '1' : '0';
+        return new String(data);
+    }
+
+    /**
+     * @return the remote parent, or null when the header is malformed or carries invalid ids
+     */
+    public static TraceContext parseTraceparent(CharSequence value) {
+        int length = value.length();
+        if (length < TRACEPARENT_LENGTH) {
+            return null;
+        }
+        if (!isHex(value, 0, VERSION_LENGTH)
+            || value.charAt(TRACE_ID_OFFSET - 1) != '-' || !isHex(value, TRACE_ID_OFFSET, 32)
+            || value.charAt(PARENT_ID_OFFSET - 1) != '-' || !isHex(value, PARENT_ID_OFFSET, 16)
+            || value.charAt(FLAGS_OFFSET - 1) != '-' || !isHex(value, FLAGS_OFFSET, 2)) {
+            return null;
+        }
+        int version = (int) parseHex(value, 0, VERSION_LENGTH);
+        // 0xff is forbidden; version 00 has an exact length, later versions may append fields
+        if (version == 0xff || (version == 0 && length != TRACEPARENT_LENGTH)
+            || (length > TRACEPARENT_LENGTH && value.charAt(TRACEPARENT_LENGTH) != '-')) {
+            return null;
+        }
+        long traceIdHigh = parseHex(value, TRACE_ID_OFFSET, 16);
+        long traceId = parseHex(value, TRACE_ID_OFFSET + 16, 16);
+        long spanId = parseHex(value, PARENT_ID_OFFSET, 16);
+        long flags = parseHex(value, FLAGS_OFFSET, 2);
+        if ((traceIdHigh == 0L && traceId == 0L) || spanId == 0L) {
+            return null;
+        }
+        return TraceContext.newBuilder()
+            .traceIdHigh(traceIdHigh)
+            .traceId(traceId)
+            .spanId(spanId)
+            .sampled((flags & FLAG_SAMPLED) != 0)
+            .build();
+    }
+
+    /**
+     * Parses lower-case hex already checked by {@link #isHex}.
+     */
+    static long parseHex(CharSequence value, int offset, int count) {
+        long result = 0L;
+        for (int i = offset, end = offset + count; i < end; i++) {
+            result = (result << 4) | hexDigit(value.charAt(i));
+        }
+        return result;
+    }
+
+    static boolean isHex(CharSequence value, int offset, int count) {
+        for (int i = offset, end = offset + count; i < end; i++) {
+            if (hexDigit(value.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static void writeHex(char[] data, int offset, long v) {
+        for (int i = offset + 15; i >= offset; i--) {
+            data[i] = HEX_DIGITS[(int) (v & 0xf)];
+            v >>>= 4;
+        }
+    }
+
+    static final class Factory extends Propagation.Factory {
+        @Override
+        public <K> Propagation<K> create(Propagation.KeyFactory<K> keyFactory) {
+            return new W3CPropagation<>(keyFactory.create(TRACEPARENT));
+        }
+
+        @Override
+        public boolean requires128BitTraceId() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "W3CPropagationFactory";
+        }
+    }
+}
@@ -19,10 +19,15 @@ package brave;
 
 import brave.internal.collect.WeakConcurrentMapTestUtils;
 import brave.internal.recorder.PendingSpans;
+import brave.propagation.TraceContext;
 
 public class TracerTestUtils {
     public static void clean(Tracer tracer) {
         PendingSpans pendingSpans = tracer.pendingSpans;
         WeakConcurrentMapTestUtils.runExpungeStaleEntries(pendingSpans);
     }
+
+    public static boolean isPending(Tracer tracer, TraceContext context) {
+        return tracer.pendingSpans.get(context) != null;
+    }
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2017, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.zipkin.impl;
+
+import brave.TracerTestUtils;
+import brave.Tracing;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+import com.megaease.easeagent.plugin.api.context.RequestContext;
+import com.megaease.easeagent.plugin.api.trace.ITracing;
+import com.megaease.easeagent.plugin.api.trace.Request;
+import com.megaease.easeagent.plugin.api.trace.Scope;
+import com.megaease.easeagent.plugin.api.trace.Span;
+import com.megaease.easeagent.plugin.api.trace.SpanContext;
+import com.megaease.easeagent.plugin.report.tracing.ReportSpan;
+import com.megaease.easeagent.zipkin.CustomTagsSpanHandler;
+import com.megaease.easeagent.zipkin.TracingProviderImplMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LightSpanImplTest {
+    Tracing tracing;
+    ITracing iTracing;
+    List<ReportSpan> reported;
+
+    @Before
+    public void before() {
+        tracing = TracingProviderImplMock.TRACING_PROVIDER.tracing();
+        TracerTestUtils.clean(tracing.tracer());
+        reported = new ArrayList<>();
+        LightSpanFactory factory = new LightSpanFactory(tracing, reported::add, () -> "test-service", "test-instance");
+        iTracing = TracingImpl.build(() -> null, tracing, factory);
+    }
+
+    @Test
+    public void nextSpan() {
+        Span root = iTracing.nextSpan();
+        assertTrue(root instanceof SpanImpl);
+        try (Scope ignored = root.maybeScope()) {
+            Span child = iTracing.nextSpan();
+            assertTrue(child instanceof LightSpanImpl);
+            assertEquals(root.traceIdString(), child.traceIdString());
+            assertEquals(root.spanIdString(), child.parentIdString());
+            assertEquals(root.traceId(), child.traceId());
+            assertEquals(root.spanId(), child.parentId());
+            assertNotEquals(root.spanId(), child.spanId());
+        }
+        root.abandon();
+    }
+
+    @Test
+    public void finish() {
+        Span root = iTracing.nextSpan();
+        Span child;
+        try (Scope ignored = root.maybeScope()) {
+            child = iTracing.nextSpan();
+        }
+        child.name("Select").kind(Span.Kind.CLIENT)
+            .tag("sql", "select 1")
+            .tag("sql", "select 2")
+            .tag(null, "ignored")
+            .remoteServiceName("mysql")
+            .error(new RuntimeException("test error"))
+            .start(10);
+        assertTrue(child.remoteIpAndPort("127.0.0.1", 3306));
+        child.annotate(12, "ws");
+        child.finish(20);
+        child.finish(30);
+        assertEquals(1, reported.size());
+
+        ReportSpan span = reported.get(0);
+        assertEquals(root.traceIdString(), span.traceId());
+        assertEquals(root.spanIdString(), span.parentId());
+        assertEquals(child.spanIdString(), span.id());
+        assertEquals("select", span.name());
+        assertEquals("CLIENT", span.kind());
+        assertEquals(10, span.timestamp());
+        assertEquals(10, span.duration());
+        assertEquals("select 2", span.tag("sql"));
+        assertEquals("test error", span.tag("error"));
+        assertEquals("test-instance", span.tag(CustomTagsSpanHandler.TAG_INSTANCE));
+        assertEquals("select 2", span.tags().get("sql"));
+        assertEquals("test-service", span.localServiceName());
+        assertEquals("mysql", span.remoteServiceName());
+        assertEquals("127.0.0.1", span.remoteEndpoint().ipv4());
+        assertEquals(3306, span.remoteEndpoint().port());
+        assertEquals(1, span.annotations().size());
+        assertEquals("ws", span.annotations().get(0).value());
+        root.abandon();
+    }
+
+    @Test
+    public void abandon() {
+        Span root = iTracing.nextSpan();
+        Span child;
+        try (Scope ignored = root.maybeScope()) {
+            child = iTracing.nextSpan();
+        }
+        child.start().abandon();
+        child.finish();
+        assertTrue(reported.isEmpty());
+        root.abandon();
+    }
+
+    @Test
+    public void injectAndScope() {
+        Span root = iTracing.nextSpan();
+        Span child;
+        try (Scope ignored = root.maybeScope()) {
+            child = iTracing.nextSpan();
+        }
+        Request request = new RequestMock();
+        child.inject(request);
+        TraceContext.Extractor<Request> extractor = tracing.propagation().extractor(Request::header);
+        TraceContextOrSamplingFlags extracted = extractor.extract(request);
+        assertNotNull(extracted.context());
+        assertEquals(child.traceIdString(), extracted.context().traceIdString());
+        assertEquals(child.spanIdString(), extracted.context().spanIdString());
+
+        try (Scope ignored = child.maybeScope()) {
+            assertEquals(child.spanIdString(), iTracing.currentSpan().spanIdString());
+            Span grandChild = iTracing.nextSpan();
+            assertEquals(child.spanIdString(), grandChild.parentIdString());
+        }
+        assertTrue(child.unwrap() instanceof TraceContext);
+        root.abandon();
+    }
+
+    @Test
+    public void currentSpanStaysLight() {
+        Span root = iTracing.nextSpan();
+        Span child;
+        try (Scope ignored = root.maybeScope()) {
+            child = iTracing.nextSpan();
+        }
+        try (Scope ignored = child.maybeScope()) {
+            assertSame(child, iTracing.currentSpan());
+            SpanContext async = iTracing.exportAsync();
+            assertEquals(child.spanId().longValue(), ((TraceContext) async.unwrap()).spanId());
+            Span grandChild = iTracing.nextSpan();
+            try (Scope ignored2 = grandChild.maybeScope()) {
+                // the child's context is copied into the grandchild's, it is still found by span id
+                assertSame(grandChild, iTracing.currentSpan());
+            }
+            assertFalse(TracerTestUtils.isPending(tracing.tracer(), (TraceContext) child.unwrap()));
+            assertFalse(TracerTestUtils.isPending(tracing.tracer(), (TraceContext) grandChild.unwrap()));
+        }
+        try (Scope ignored = root.maybeScope()) {
+            assertNotSame(child, iTracing.currentSpan());
+        }
+        root.abandon();
+    }
+
+    @Test
+    public void clientRequest() {
+        RequestMock rootRequest = new RequestMock().setName("root").setKind(Span.Kind.CLIENT);
+        RequestContext rootContext = iTracing.clientRequest(rootRequest);
+        // without a current span the request starts a trace through brave
+        assertTrue(rootContext.span() instanceof SpanImpl);
+        rootContext.scope().close();
+
+        Span root = iTracing.nextSpan();
+        RequestContext requestContext;
+        RequestMock request = new RequestMock().setName("get").setKind(Span.Kind.CLIENT);
+        try (Scope ignored = root.maybeScope()) {
+            requestContext = iTracing.clientRequest(request);
+            Span child = requestContext.span();
+            assertTrue(child instanceof LightSpanImpl);
+            assertSame(child, iTracing.currentSpan());
+            assertEquals(root.spanIdString(), child.parentIdString());
+            TraceContextOrSamplingFlags extracted = tracing.propagation().extractor(Request::header).extract(request);
+            assertEquals(child.spanIdString(), extracted.context().spanIdString());
+            requestContext.scope().close();
+        }
+        requestContext.span().start().finish();
+        assertEquals(1, reported.size());
+        assertEquals("get", reported.get(0).name());
+        assertEquals("CLIENT", reported.get(0).kind());
+        rootContext.span().abandon();
+        root.abandon();
+    }
+}
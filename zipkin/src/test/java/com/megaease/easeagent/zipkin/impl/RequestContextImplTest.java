@@ -40,11 +40,13 @@ import static org.junit.Assert.*;
 public class RequestContextImplTest {
     Tracing tracing;
     TraceContext.Injector<Request> injector;
+    TraceContext.Injector<Map<String, String>> headerInjector;
 
     @Before
     public void before() {
         tracing = TracingProviderImplMock.TRACING_PROVIDER.tracing();
         injector = tracing.propagation().injector(Request::setHeader);
+        headerInjector = tracing.propagation().injector(Map::put);
     }
 
     private void buildOne(Consumer<RequestContextImpl> consumer) {
@@ -54,8 +56,8 @@ public class RequestContextImplTest {
     private void buildOne(Request request, Consumer<RequestContextImpl> consumer) {
         Span span = SpanImpl.build(tracing, tracing.tracer().nextSpan(), injector);
         try (Scope scope = span.maybeScope()) {
-            AsyncRequest asyncRequest = new AsyncRequest(request);
-            RequestContextImpl requestContext = new RequestContextImpl(span, scope, asyncRequest);
+            TraceContext traceContext = ((brave.Span) span.unwrap()).context();
+            RequestContextImpl requestContext = new RequestContextImpl(span, scope, request, traceContext, headerInjector);
             consumer.accept(requestContext);
         }
     }
@@ -101,8 +103,14 @@ public class RequestContextImplTest {
         buildOne(requestMock, c -> {
             c.setHeader(name, value);
             Map<String, String> headers = c.getHeaders();
-            assertEquals(1, headers.size());
             assertEquals(value, headers.get(name));
+            assertNotNull(headers.get("X-B3-TraceId"));
+            assertNotNull(headers.get("X-B3-SpanId"));
+            assertNull(requestMock.header("X-B3-TraceId"));
+            String other = "other_name";
+            c.setHeader(other, value);
+            assertSame(headers, c.getHeaders());
+            assertEquals(value, headers.get(other));
         });
 
     }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2017, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.megaease.easeagent.zipkin.impl;
+
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import com.megaease.easeagent.plugin.api.context.RequestContext;
+import com.megaease.easeagent.plugin.api.trace.ITracing;
+import com.megaease.easeagent.plugin.api.trace.Scope;
+import com.megaease.easeagent.plugin.api.trace.Span;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SpanLimiterTest {
+    Tracing tracing;
+    ITracing iTracing;
+    List<MutableSpan> reported;
+
+    @Before
+    public void before() {
+        reported = new ArrayList<>();
+        SpanLimiter limiter = new SpanLimiter(2, 10, () -> tracing);
+        tracing = Tracing.newBuilder()
+            .addSpanHandler(limiter)
+            .addSpanHandler(new SpanHandler() {
+                @Override
+                public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+                    reported.add(span);
+                    return true;
+                }
+            }).build();
+        iTracing = TracingImpl.build(() -> null, tracing, null, limiter);
+    }
+
+    @After
+    public void after() {
+        tracing.close();
+    }
+
+    @Test
+    public void truncate() {
+        SpanLimiter limiter = new SpanLimiter(0, 3, () -> tracing);
+        assertNull(limiter.truncate(null));
+        assertEquals("abc", limiter.truncate("abc"));
+        assertEquals("abc" + SpanLimiter.TRUNCATED_MARKER, limiter.truncate("abcd"));
+        assertEquals("abcd", new SpanLimiter(0, 0, () -> tracing).truncate("abcd"));
+        assertFalse(new SpanLimiter(0, 0, () -> tracing).isEnabled());
+
+        SpanLimiter bytes = new SpanLimiter(0, 5, () -> tracing);
+        assertEquals("\u00e9\u00e9" + SpanLimiter.TRUNCATED_MARKER, bytes.truncate("\u00e9\u00e9\u00e9"));
+        assertEquals("a\u00e9\u00e9", bytes.truncate("a\u00e9\u00e9"));
+        // a surrogate pair is never split
+        assertEquals("ab" + SpanLimiter.TRUNCATED_MARKER, bytes.truncate("ab\ud83d\ude00"));
+        assertEquals("a\ud83d\ude00", bytes.truncate("a\ud83d\ude00"));
+    }
+
+    @Test
+    public void tagTruncatedWhenSet() {
+        List<String> seen = new ArrayList<>();
+        SpanLimiter limiter = new SpanLimiter(0, 3, () -> tracing);
+        // runs before the limiter truncates at end
+        try (Tracing t = Tracing.newBuilder().addSpanHandler(new SpanHandler() {
+            @Override
+            public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+                seen.add(span.tag("sql"));
+                return true;
+            }
+        }).addSpanHandler(limiter).build()) {
+            ITracing limited = TracingImpl.build(() -> null, t, null, limiter);
+            limited.nextSpan().start().tag("sql", "abcd").finish();
+            limited.messagingTracing().consumerSpan(new MessagingRequestMock()).tag("sql", "abcd").finish();
+        }
+        assertEquals(2, seen.size());
+        assertEquals("abc" + SpanLimiter.TRUNCATED_MARKER, seen.get(0));
+        assertEquals("abc" + SpanLimiter.TRUNCATED_MARKER, seen.get(1));
+    }
+
+    @Test
+    public void maxChildSpans() {
+        Span root = iTracing.nextSpan().name("root").start();
+        try (Scope ignored = root.maybeScope()) {
+            for (int i = 0; i < 5; i++) {
+                Span child = iTracing.nextSpan().name("child").tag("sql", "select * from table_" + i).start();
+                if (i < 2) {
+                    assertFalse(child instanceof SuppressedSpan);
+                } else {
+                    assertTrue(child instanceof SuppressedSpan);
+                    assertEquals(root.spanId(), child.spanId());
+                    assertEquals(root.traceId(), child.traceId());
+                }
+                child.finish();
+            }
+        }
+        assertEquals(2, reported.size());
+        assertEquals("select * f" + SpanLimiter.TRUNCATED_MARKER, reported.get(0).tag("sql"));
+        root.finish();
+
+        assertEquals(4, reported.size());
+        // the summary is reported while the root span ends
+        MutableSpan summary = reported.get(2);
+        assertEquals("root", reported.get(3).name());
+        assertEquals(SpanLimiter.SUMMARY_SPAN_NAME, summary.name());
+        assertEquals("3", summary.tag(SpanLimiter.SUMMARY_COUNT_TAG));
+        assertNotNull(summary.tag(SpanLimiter.SUMMARY_DURATION_TAG));
+        assertEquals(root.spanIdString(), summary.parentId());
+
+        reported.clear();
+        Span root2 = iTracing.nextSpan().start();
+        try (Scope ignored = root2.maybeScope()) {
+            assertFalse(iTracing.nextSpan() instanceof SuppressedSpan);
+        }
+        root2.abandon();
+    }
+
+    @Test
+    public void clientAndProducerSpansCounted() {
+        Span root = iTracing.nextSpan().start();
+        try (Scope ignored = root.maybeScope()) {
+            iTracing.nextSpan().start().finish();
+            RequestContext client = iTracing.clientRequest(new RequestMock().setKind(Span.Kind.CLIENT));
+            assertFalse(client.span() instanceof SuppressedSpan);
+            client.span().finish();
+
+            RequestMock request = new RequestMock().setKind(Span.Kind.CLIENT);
+            client = iTracing.clientRequest(request);
+            assertTrue(client.span() instanceof SuppressedSpan);
+            // the server sees the current span as its parent
+            assertTrue(request.getHeaders().containsValue(root.spanIdString()));
+            client.span().finish();
+
+            MessagingRequestMock message = new MessagingRequestMock();
+            message.setKind(Span.Kind.PRODUCER);
+            Span producer = iTracing.messagingTracing().producerSpan(message);
+            assertTrue(producer instanceof SuppressedSpan);
+            // producers get the single b3 header
+            assertTrue(message.getHeaders().values().stream().anyMatch(v -> v.contains(root.spanIdString())));
+            producer.finish();
+        }
+        root.finish();
+        MutableSpan summary = reported.get(reported.size() - 2);
+        assertEquals(SpanLimiter.SUMMARY_SPAN_NAME, summary.name());
+        assertEquals("2", summary.tag(SpanLimiter.SUMMARY_COUNT_TAG));
+    }
+
+    @Test
+    public void unfinishedRootsEvicted() {
+        SpanLimiter limiter = new SpanLimiter(1, 0, () -> tracing);
+        for (int i = 0; i < SpanLimiter.MAX_TRACKED_ROOTS; i++) {
+            TraceContext running = tracing.tracer().newTrace().context();
+            assertNull(limiter.suppressedChild(running, null));
+        }
+        TraceContext root = tracing.tracer().newTrace().context();
+        assertNull(limiter.suppressedChild(root, null));
+        assertTrue(limiter.suppressedChild(root, null) instanceof SuppressedSpan);
+    }
+
+    @Test
+    public void abandonedRoot() {
+        Span root = iTracing.nextSpan().start();
+        try (Scope ignored = root.maybeScope()) {
+            for (int i = 0; i < 3; i++) {
+                iTracing.nextSpan().start().finish();
+            }
+        }
+        root.abandon();
+        assertEquals(2, reported.size());
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.megaease.easeagent.zipkin.propagation;
+
+import brave.propagation.B3Propagation;
+import brave.propagation.Propagation;
+import brave.propagation.TraceContext;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompositePropagationTest {
+
+    @Test
+    public void newFactory() {
+        assertSame(B3Propagation.FACTORY, CompositePropagation.newFactory(null));
+        assertSame(B3Propagation.FACTORY, CompositePropagation.newFactory(""));
+        assertSame(B3Propagation.FACTORY, CompositePropagation.newFactory("unknown"));
+        assertSame(B3Propagation.FACTORY, CompositePropagation.newFactory("b3, b3"));
+        assertSame(W3CPropagation.FACTORY, CompositePropagation.newFactory("W3C"));
+
+        Propagation.Factory factory = CompositePropagation.newFactory("b3,w3c");
+        assertTrue(factory instanceof CompositePropagation.Factory);
+        assertFalse(factory.supportsJoin());
+        assertTrue(factory.requires128BitTraceId());
+    }
+
+    @Test
+    public void injectAll() {
+        Propagation<String> propagation = CompositePropagation.newFactory("b3,b3single,w3c").get();
+        assertTrue(propagation.keys().contains("X-B3-TraceId"));
+        assertTrue(propagation.keys().contains("b3"));
+        assertTrue(propagation.keys().contains(W3CPropagation.TRACEPARENT));
+
+        TraceContext context = TraceContext.newBuilder().traceIdHigh(1L).traceId(2L).spanId(3L).sampled(true).build();
+        Map<String, String> headers = new HashMap<>();
+        propagation.<Map<String, String>>injector(Map::put).inject(context, headers);
+        assertEquals(context.traceIdString(), headers.get("X-B3-TraceId"));
+        assertEquals(context.traceIdString() + "-" + context.spanIdString() + "-1", headers.get("b3"));
+        assertEquals(W3CPropagation.writeTraceparent(context), headers.get(W3CPropagation.TRACEPARENT));
+    }
+
+    @Test
+    public void extractFirstPresent() {
+        Propagation<String> propagation = CompositePropagation.newFactory("b3,w3c").get();
+        TraceContext.Extractor<Map<String, String>> extractor = propagation.extractor(Map::get);
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put(W3CPropagation.TRACEPARENT, W3CPropagationTest.TRACEPARENT);
+        TraceContext context = extractor.extract(headers).context();
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", context.traceIdString());
+
+        headers.put("b3", "463ac35c9f6413ad-a2fb4a1d1a96d312-1");
+        context = extractor.extract(headers).context();
+        assertEquals("463ac35c9f6413ad", context.traceIdString());
+
+        assertNull(extractor.extract(new HashMap<>()).context());
+    }
+}
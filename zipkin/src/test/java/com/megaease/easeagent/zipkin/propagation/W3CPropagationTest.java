@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017, MegaEase
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.megaease.easeagent.zipkin.propagation;
+
+import brave.propagation.Propagation;
+import brave.propagation.TraceContext;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class W3CPropagationTest {
+    static final String TRACEPARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    @Test
+    public void parseTraceparent() {
+        TraceContext context = W3CPropagation.parseTraceparent(TRACEPARENT);
+        assertNotNull(context);
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", context.traceIdString());
+        assertEquals("00f067aa0ba902b7", context.spanIdString());
+        assertTrue(context.sampled());
+
+        context = W3CPropagation.parseTraceparent(new StringBuilder(TRACEPARENT).replace(54, 55, "0"));
+        assertNotNull(context);
+        assertFalse(context.sampled());
+
+        // future versions may append fields
+        assertNotNull(W3CPropagation.parseTraceparent("01" + TRACEPARENT.substring(2) + "-extra"));
+    }
+
+    @Test
+    public void parseInvalid() {
+        assertNull(W3CPropagation.parseTraceparent(""));
+        assertNull(W3CPropagation.parseTraceparent(TRACEPARENT.substring(1)));
+        assertNull(W3CPropagation.parseTraceparent(TRACEPARENT + "-extra"));
+        assertNull(W3CPropagation.parseTraceparent("ff" + TRACEPARENT.substring(2)));
+        assertNull(W3CPropagation.parseTraceparent(TRACEPARENT.toUpperCase()));
+        assertNull(W3CPropagation.parseTraceparent(TRACEPARENT.replace('-', '_')));
+        assertNull(W3CPropagation.parseTraceparent("00-00000000000000000000000000000000-00f067aa0ba902b7-01"));
+        assertNull(W3CPropagation.parseTraceparent("00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01"));
+    }
+
+    @Test
+    public void injectAndExtract() {
+        Propagation<String> propagation = W3CPropagation.FACTORY.get();
+        assertEquals(1, propagation.keys().size());
+        assertEquals(W3CPropagation.TRACEPARENT, propagation.keys().get(0));
+
+        TraceContext context = TraceContext.newBuilder().traceId(10L).spanId(11L).sampled(true).build();
+        Map<String, String> headers = new HashMap<>();
+        propagation.<Map<String, String>>injector(Map::put).inject(context, headers);
+        assertEquals("00-0000000000000000000000000000000a-000000000000000b-01", headers.get(W3CPropagation.TRACEPARENT));
+
+        TraceContext extracted = propagation.<Map<String, String>>extractor(Map::get).extract(headers).context();
+        assertEquals(context.traceId(), extracted.traceId());
+        assertEquals(context.spanId(), extracted.spanId());
+        assertTrue(extracted.sampled());
+
+        assertNull(propagation.<Map<String, String>>extractor(Map::get).extract(new HashMap<>()).context());
+    }
+}